@@ -27,6 +27,7 @@ import static org.junit.Assert.assertThrows;
 
 import android.content.Context;
 
+import androidx.appsearch.app.AppSearchBatchResult;
 import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.app.AppSearchSchema;
 import androidx.appsearch.app.GenericDocument;
@@ -435,6 +436,44 @@ public class AppSearchImplTest {
         assertThat(oStats.getDeletedDocumentCount()).isEqualTo(1);
     }
 
+    @Test
+    public void testBatchPutDocuments() throws Exception {
+        // Insert schema
+        List<AppSearchSchema> schemas =
+                Collections.singletonList(new AppSearchSchema.Builder("type").build());
+        InternalSetSchemaResponse internalSetSchemaResponse = mAppSearchImpl.setSchema(
+                "package",
+                "database",
+                schemas,
+                /*visibilityDocuments=*/ Collections.emptyList(),
+                /*forceOverride=*/ false,
+                /*version=*/ 0,
+                /* setSchemaStatsBuilder= */ null);
+        assertThat(internalSetSchemaResponse.isSuccess()).isTrue();
+
+        // Put more documents than a chunk, with a failure in the middle.
+        int documentCount = AppSearchImpl.PUT_DOCUMENTS_CHUNK_SIZE * 2 + 1;
+        List<GenericDocument> documents = new ArrayList<>();
+        for (int i = 0; i < documentCount; i++) {
+            String schemaType = i == AppSearchImpl.PUT_DOCUMENTS_CHUNK_SIZE ? "unknown" : "type";
+            documents.add(new GenericDocument.Builder<>("namespace", "id" + i, schemaType)
+                    .build());
+        }
+        AppSearchBatchResult<String, Void> result = mAppSearchImpl.batchPutDocuments(
+                "package",
+                "database",
+                documents,
+                /*sendChangeNotifications=*/ false,
+                /*logger=*/ null);
+
+        assertThat(result.getSuccesses()).hasSize(documentCount - 1);
+        assertThat(result.getFailures().keySet())
+                .containsExactly("id" + AppSearchImpl.PUT_DOCUMENTS_CHUNK_SIZE);
+        GenericDocument lastDocument = mAppSearchImpl.getDocument("package", "database",
+                "namespace", "id" + (documentCount - 1), Collections.emptyMap());
+        assertThat(lastDocument).isEqualTo(documents.get(documentCount - 1));
+    }
+
     @Test
     public void testReset() throws Exception {
         // Insert schema
@@ -18,6 +18,7 @@ package androidx.appsearch.localstorage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import androidx.appsearch.app.AppSearchBatchResult;
 import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.app.AppSearchSchema;
 import androidx.appsearch.app.GenericDocument;
@@ -25,12 +26,14 @@ import androidx.appsearch.app.InternalSetSchemaResponse;
 import androidx.appsearch.app.SearchResultPage;
 import androidx.appsearch.app.SearchSpec;
 import androidx.appsearch.exceptions.AppSearchException;
+import androidx.appsearch.localstorage.stats.CallStats;
 import androidx.appsearch.localstorage.stats.InitializeStats;
 import androidx.appsearch.localstorage.stats.OptimizeStats;
 import androidx.appsearch.localstorage.stats.PutDocumentStats;
 import androidx.appsearch.localstorage.stats.RemoveStats;
 import androidx.appsearch.localstorage.stats.SearchStats;
 import androidx.appsearch.localstorage.stats.SetSchemaStats;
+import androidx.appsearch.localstorage.visibilitystore.CallerAccess;
 import androidx.appsearch.testutil.SimpleTestLogger;
 
 import com.google.android.icing.proto.DeleteStatsProto;
@@ -54,6 +57,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -582,6 +586,64 @@ public class AppSearchLoggerTest {
         assertThat(pStats.getStatusCode()).isEqualTo(AppSearchResult.RESULT_NOT_FOUND);
     }
 
+    @Test
+    public void testLoggingStats_batchPutDocuments() throws Exception {
+        // Insert schema
+        final String testPackageName = "testPackage";
+        final String testDatabase = "testDatabase";
+        AppSearchSchema testSchema = new AppSearchSchema.Builder("type")
+                .addProperty(new AppSearchSchema.StringPropertyConfig.Builder("subject")
+                        .setCardinality(AppSearchSchema.PropertyConfig.CARDINALITY_OPTIONAL)
+                        .setIndexingType(
+                                AppSearchSchema.StringPropertyConfig.INDEXING_TYPE_PREFIXES)
+                        .setTokenizerType(AppSearchSchema.StringPropertyConfig.TOKENIZER_TYPE_PLAIN)
+                        .build())
+                .build();
+        List<AppSearchSchema> schemas = Collections.singletonList(testSchema);
+        InternalSetSchemaResponse internalSetSchemaResponse = mAppSearchImpl.setSchema(
+                testPackageName,
+                testDatabase,
+                schemas,
+                /*visibilityDocuments=*/ Collections.emptyList(),
+                /*forceOverride=*/ false,
+                /*version=*/ 0,
+                /* setSchemaStatsBuilder= */ null);
+        assertThat(internalSetSchemaResponse.isSuccess()).isTrue();
+
+        GenericDocument document1 =
+                new GenericDocument.Builder<>("namespace", "id1", "type")
+                        .setPropertyString("subject", "testPut example1")
+                        .build();
+        GenericDocument document2 =
+                new GenericDocument.Builder<>("namespace", "id2", "type")
+                        .setPropertyString("nonExist", "testPut example2")
+                        .build();
+
+        AppSearchBatchResult<String, Void> result = mAppSearchImpl.batchPutDocuments(
+                testPackageName,
+                testDatabase,
+                Arrays.asList(document1, document2),
+                /*sendChangeNotifications=*/ false,
+                mLogger);
+        assertThat(result.getFailures().get("id2").getResultCode())
+                .isEqualTo(AppSearchResult.RESULT_NOT_FOUND);
+
+        // The stats of the last document
+        PutDocumentStats pStats = mLogger.mPutDocumentStats;
+        assertThat(pStats).isNotNull();
+        assertThat(pStats.getPackageName()).isEqualTo(testPackageName);
+        assertThat(pStats.getDatabase()).isEqualTo(testDatabase);
+        assertThat(pStats.getStatusCode()).isEqualTo(AppSearchResult.RESULT_NOT_FOUND);
+
+        CallStats cStats = mLogger.mCallStats;
+        assertThat(cStats).isNotNull();
+        assertThat(cStats.getPackageName()).isEqualTo(testPackageName);
+        assertThat(cStats.getDatabase()).isEqualTo(testDatabase);
+        assertThat(cStats.getCallType()).isEqualTo(CallStats.CALL_TYPE_PUT_DOCUMENTS);
+        assertThat(cStats.getNumOperationsSucceeded()).isEqualTo(1);
+        assertThat(cStats.getNumOperationsFailed()).isEqualTo(1);
+    }
+
     @Test
     public void testLoggingStats_search_success() throws Exception {
         // Insert schema
@@ -707,6 +769,63 @@ public class AppSearchLoggerTest {
         assertThat(sStats.getStatusCode()).isEqualTo(AppSearchResult.RESULT_SECURITY_ERROR);
     }
 
+    @Test
+    public void testLoggingStats_globalSearch_visibilityCache() throws Exception {
+        final String testPackageName = "testPackage";
+        final String testDatabase = "testDatabase";
+        List<AppSearchSchema> schemas = ImmutableList.of(
+                new AppSearchSchema.Builder("Type1").build(),
+                new AppSearchSchema.Builder("Type2").build());
+        InternalSetSchemaResponse internalSetSchemaResponse = mAppSearchImpl.setSchema(
+                testPackageName,
+                testDatabase,
+                schemas,
+                /*visibilityDocuments=*/ Collections.emptyList(),
+                /*forceOverride=*/ false,
+                /*version=*/ 0,
+                /* setSchemaStatsBuilder= */ null);
+        assertThat(internalSetSchemaResponse.isSuccess()).isTrue();
+        mAppSearchImpl.putDocument(
+                testPackageName,
+                testDatabase,
+                new GenericDocument.Builder<>("namespace", "id1", "Type1").build(),
+                /*sendChangeNotifications=*/ false,
+                /*logger=*/ null);
+
+        SearchSpec searchSpec =
+                new SearchSpec.Builder().setTermMatch(TermMatchType.Code.PREFIX_VALUE).build();
+        CallerAccess callerAccess = new CallerAccess(testPackageName);
+
+        // The first query checks the visibility of both types.
+        mAppSearchImpl.globalQuery(/*queryExpression=*/ "", searchSpec, callerAccess, mLogger);
+        SearchStats sStats = mLogger.mSearchStats;
+        assertThat(sStats).isNotNull();
+        assertThat(sStats.getVisibilityScope()).isEqualTo(SearchStats.VISIBILITY_SCOPE_GLOBAL);
+        assertThat(sStats.getVisibilityCacheHitCount()).isEqualTo(0);
+        assertThat(sStats.getVisibilityCacheMissCount()).isEqualTo(2);
+
+        // The second query reuses the decisions of the first one.
+        mAppSearchImpl.globalQuery(/*queryExpression=*/ "", searchSpec, callerAccess, mLogger);
+        sStats = mLogger.mSearchStats;
+        assertThat(sStats.getVisibilityCacheHitCount()).isEqualTo(2);
+        assertThat(sStats.getVisibilityCacheMissCount()).isEqualTo(0);
+
+        // Setting the schema invalidates the cached decisions.
+        internalSetSchemaResponse = mAppSearchImpl.setSchema(
+                testPackageName,
+                testDatabase,
+                schemas,
+                /*visibilityDocuments=*/ Collections.emptyList(),
+                /*forceOverride=*/ false,
+                /*version=*/ 0,
+                /* setSchemaStatsBuilder= */ null);
+        assertThat(internalSetSchemaResponse.isSuccess()).isTrue();
+        mAppSearchImpl.globalQuery(/*queryExpression=*/ "", searchSpec, callerAccess, mLogger);
+        sStats = mLogger.mSearchStats;
+        assertThat(sStats.getVisibilityCacheHitCount()).isEqualTo(0);
+        assertThat(sStats.getVisibilityCacheMissCount()).isEqualTo(2);
+    }
+
     @Test
     public void testLoggingStats_remove_success() throws Exception {
         // Insert schema
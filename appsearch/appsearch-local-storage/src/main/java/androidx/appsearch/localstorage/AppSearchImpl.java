@@ -18,6 +18,7 @@ package androidx.appsearch.localstorage;
 
 import static androidx.appsearch.app.AppSearchResult.RESULT_INTERNAL_ERROR;
 import static androidx.appsearch.app.AppSearchResult.RESULT_SECURITY_ERROR;
+import static androidx.appsearch.app.AppSearchResult.throwableToFailedResult;
 import static androidx.appsearch.app.InternalSetSchemaResponse.newFailedSetSchemaResponse;
 import static androidx.appsearch.app.InternalSetSchemaResponse.newSuccessfulSetSchemaResponse;
 import static androidx.appsearch.localstorage.util.PrefixUtil.addPrefixToDocument;
@@ -37,6 +38,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.appsearch.app.AppSearchBatchResult;
 import androidx.appsearch.app.AppSearchResult;
 import androidx.appsearch.app.AppSearchSchema;
 import androidx.appsearch.app.GenericDocument;
@@ -60,6 +62,7 @@ import androidx.appsearch.localstorage.converter.SearchSpecToProtoConverter;
 import androidx.appsearch.localstorage.converter.SearchSuggestionSpecToProtoConverter;
 import androidx.appsearch.localstorage.converter.SetSchemaResponseToProtoConverter;
 import androidx.appsearch.localstorage.converter.TypePropertyPathToProtoConverter;
+import androidx.appsearch.localstorage.stats.CallStats;
 import androidx.appsearch.localstorage.stats.InitializeStats;
 import androidx.appsearch.localstorage.stats.OptimizeStats;
 import androidx.appsearch.localstorage.stats.PutDocumentStats;
@@ -68,6 +71,7 @@ import androidx.appsearch.localstorage.stats.SearchStats;
 import androidx.appsearch.localstorage.stats.SetSchemaStats;
 import androidx.appsearch.localstorage.util.PrefixUtil;
 import androidx.appsearch.localstorage.visibilitystore.CallerAccess;
+import androidx.appsearch.localstorage.visibilitystore.VisibilityCache;
 import androidx.appsearch.localstorage.visibilitystore.VisibilityChecker;
 import androidx.appsearch.localstorage.visibilitystore.VisibilityStore;
 import androidx.appsearch.localstorage.visibilitystore.VisibilityUtil;
@@ -172,6 +176,13 @@ public final class AppSearchImpl implements Closeable {
     @VisibleForTesting
     static final int CHECK_OPTIMIZE_INTERVAL = 100;
 
+    /**
+     * The maximum number of documents written by {@link #batchPutDocuments} with a single
+     * acquisition of the write lock.
+     */
+    @VisibleForTesting
+    static final int PUT_DOCUMENTS_CHUNK_SIZE = 100;
+
     /** A GetResultSpec that uses projection to skip all properties. */
     private static final GetResultSpecProto GET_RESULT_SPEC_NO_PROPERTIES =
             GetResultSpecProto.newBuilder().addTypePropertyMasks(
@@ -235,6 +246,14 @@ public final class AppSearchImpl implements Closeable {
     @GuardedBy("mReadWriteLock")
     private final VisibilityChecker mVisibilityCheckerLocked;
 
+    /**
+     * The cached decisions of {@link VisibilityUtil#isSchemaSearchableByCaller} for global
+     * queries. Decisions are looked up and added under the read lock, and the cache is
+     * invalidated under the write lock whenever the schemas or their visibility change.
+     */
+    @GuardedBy("mReadWriteLock")
+    private final VisibilityCache mVisibilityCacheLocked = new VisibilityCache();
+
     /**
      * The counter to check when to call {@link #checkForOptimize}. The
      * interval is
@@ -728,6 +747,7 @@ public final class AppSearchImpl implements Closeable {
         }
 
         // Update derived data structures.
+        mVisibilityCacheLocked.invalidate();
         for (SchemaTypeConfigProto schemaTypeConfigProto :
                 rewrittenSchemaResults.mRewrittenPrefixedTypes.values()) {
             addToMap(mSchemaMapLocked, prefix, schemaTypeConfigProto);
@@ -933,76 +953,242 @@ public final class AppSearchImpl implements Closeable {
         }
         long totalStartTimeMillis = SystemClock.elapsedRealtime();
 
-        mReadWriteLock.writeLock().lock();
         try {
-            throwIfClosedLocked();
+            // The conversion doesn't access Icing, so it doesn't need to hold the lock.
+            DocumentProto finalDocument =
+                    toPrefixedDocumentProto(packageName, databaseName, document, pStatsBuilder);
 
-            // Generate Document Proto
-            long generateDocumentProtoStartTimeMillis = SystemClock.elapsedRealtime();
-            DocumentProto.Builder documentBuilder = GenericDocumentToProtoConverter.toDocumentProto(
-                    document).toBuilder();
-            long generateDocumentProtoEndTimeMillis = SystemClock.elapsedRealtime();
-
-            // Rewrite Document Type
-            long rewriteDocumentTypeStartTimeMillis = SystemClock.elapsedRealtime();
-            String prefix = createPrefix(packageName, databaseName);
-            addPrefixToDocument(documentBuilder, prefix);
-            long rewriteDocumentTypeEndTimeMillis = SystemClock.elapsedRealtime();
-            DocumentProto finalDocument = documentBuilder.build();
-
-            // Check limits
-            int newDocumentCount = enforceLimitConfigLocked(
-                    packageName, finalDocument.getUri(), finalDocument.getSerializedSize());
+            mReadWriteLock.writeLock().lock();
+            try {
+                throwIfClosedLocked();
+                putDocumentProtoLocked(packageName, databaseName, document, finalDocument,
+                        sendChangeNotifications, pStatsBuilder);
+            } finally {
+                mReadWriteLock.writeLock().unlock();
+            }
+        } finally {
+            if (pStatsBuilder != null && logger != null) {
+                long totalEndTimeMillis = SystemClock.elapsedRealtime();
+                pStatsBuilder.setTotalLatencyMillis(
+                        (int) (totalEndTimeMillis - totalStartTimeMillis));
+                logger.logStats(pStatsBuilder.build());
+            }
+        }
+    }
 
-            // Insert document
-            LogUtil.piiTrace(TAG, "putDocument, request", finalDocument.getUri(), finalDocument);
-            PutResultProto putResultProto = mIcingSearchEngineLocked.put(finalDocument);
-            LogUtil.piiTrace(
-                    TAG, "putDocument, response", putResultProto.getStatus(), putResultProto);
+    /**
+     * Adds a batch of documents to the AppSearch index.
+     *
+     * <p>Unlike calling {@link #putDocument} for each document, the write lock is taken once per
+     * chunk of {@link #PUT_DOCUMENTS_CHUNK_SIZE} documents, and the documents of a chunk are
+     * converted to protos before the lock is taken. Queries can run between chunks, so indexing
+     * a large batch doesn't block them until the whole batch is written.
+     *
+     * <p>A {@link PutDocumentStats} is logged for each document, and a {@link CallStats} of type
+     * {@link CallStats#CALL_TYPE_PUT_DOCUMENTS} for the whole batch.
+     *
+     * <p>This method belongs to mutate group.
+     *
+     * @param packageName             The package name that owns the documents.
+     * @param databaseName            The databaseName the documents reside in.
+     * @param documents               The documents to index.
+     * @param sendChangeNotifications Whether to dispatch
+     *                                {@link androidx.appsearch.observer.DocumentChangeInfo}
+     *                                messages to observers for these changes.
+     * @return The result of each document, keyed by document ID.
+     */
+    @NonNull
+    public AppSearchBatchResult<String, Void> batchPutDocuments(
+            @NonNull String packageName,
+            @NonNull String databaseName,
+            @NonNull List<GenericDocument> documents,
+            boolean sendChangeNotifications,
+            @Nullable AppSearchLogger logger) {
+        long totalStartTimeMillis = SystemClock.elapsedRealtime();
+        AppSearchBatchResult.Builder<String, Void> resultBuilder =
+                new AppSearchBatchResult.Builder<>();
+        for (int chunkStart = 0; chunkStart < documents.size();
+                chunkStart += PUT_DOCUMENTS_CHUNK_SIZE) {
+            List<GenericDocument> chunk = documents.subList(chunkStart,
+                    Math.min(chunkStart + PUT_DOCUMENTS_CHUNK_SIZE, documents.size()));
+            batchPutDocumentsChunk(packageName, databaseName, chunk, sendChangeNotifications,
+                    logger, resultBuilder);
+        }
+        AppSearchBatchResult<String, Void> result = resultBuilder.build();
 
-            // Update caches
-            addToMap(mNamespaceMapLocked, prefix, finalDocument.getNamespace());
-            mDocumentCountMapLocked.put(packageName, newDocumentCount);
+        if (logger != null) {
+            int numOperationsFailed = result.getFailures().size();
+            long totalEndTimeMillis = SystemClock.elapsedRealtime();
+            logger.logStats(new CallStats.Builder()
+                    .setPackageName(packageName)
+                    .setDatabase(databaseName)
+                    .setStatusCode(numOperationsFailed == 0
+                            ? AppSearchResult.RESULT_OK
+                            : AppSearchResult.RESULT_UNKNOWN_ERROR)
+                    .setCallType(CallStats.CALL_TYPE_PUT_DOCUMENTS)
+                    .setTotalLatencyMillis((int) (totalEndTimeMillis - totalStartTimeMillis))
+                    .setNumOperationsSucceeded(result.getSuccesses().size())
+                    .setNumOperationsFailed(numOperationsFailed)
+                    .build());
+        }
+        return result;
+    }
 
-            // Logging stats
-            if (pStatsBuilder != null) {
-                pStatsBuilder
-                        .setStatusCode(statusProtoToResultCode(putResultProto.getStatus()))
-                        .setGenerateDocumentProtoLatencyMillis(
-                                (int) (generateDocumentProtoEndTimeMillis
-                                        - generateDocumentProtoStartTimeMillis))
-                        .setRewriteDocumentTypesLatencyMillis(
-                                (int) (rewriteDocumentTypeEndTimeMillis
-                                        - rewriteDocumentTypeStartTimeMillis));
-                AppSearchLoggerHelper.copyNativeStats(putResultProto.getPutDocumentStats(),
-                        pStatsBuilder);
+    /**
+     * Adds a chunk of a batch of documents with a single acquisition of the write lock.
+     *
+     * @see #batchPutDocuments
+     */
+    private void batchPutDocumentsChunk(
+            @NonNull String packageName,
+            @NonNull String databaseName,
+            @NonNull List<GenericDocument> documents,
+            boolean sendChangeNotifications,
+            @Nullable AppSearchLogger logger,
+            @NonNull AppSearchBatchResult.Builder<String, Void> resultBuilder) {
+        int size = documents.size();
+        DocumentProto[] finalDocuments = new DocumentProto[size];
+        PutDocumentStats.Builder[] pStatsBuilders = new PutDocumentStats.Builder[size];
+        // The latency of each document, without the time spent waiting for the lock.
+        long[] latenciesMillis = new long[size];
+
+        // Convert the documents outside of the lock.
+        for (int i = 0; i < size; i++) {
+            GenericDocument document = documents.get(i);
+            if (logger != null) {
+                pStatsBuilders[i] = new PutDocumentStats.Builder(packageName, databaseName);
+            }
+            long startTimeMillis = SystemClock.elapsedRealtime();
+            try {
+                finalDocuments[i] = toPrefixedDocumentProto(
+                        packageName, databaseName, document, pStatsBuilders[i]);
+            } catch (Throwable t) {
+                resultBuilder.setResult(document.getId(), throwableToFailedResult(t));
             }
+            latenciesMillis[i] = SystemClock.elapsedRealtime() - startTimeMillis;
+        }
 
-            checkSuccess(putResultProto.getStatus());
-
-            // Prepare notifications
-            if (sendChangeNotifications) {
-                mObserverManager.onDocumentChange(
-                        packageName,
-                        databaseName,
-                        document.getNamespace(),
-                        document.getSchemaType(),
-                        document.getId(),
-                        mVisibilityStoreLocked,
-                        mVisibilityCheckerLocked);
+        mReadWriteLock.writeLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (finalDocuments[i] == null) {
+                    // The conversion failed.
+                    continue;
+                }
+                GenericDocument document = documents.get(i);
+                long startTimeMillis = SystemClock.elapsedRealtime();
+                try {
+                    throwIfClosedLocked();
+                    putDocumentProtoLocked(packageName, databaseName, document,
+                            finalDocuments[i], sendChangeNotifications, pStatsBuilders[i]);
+                    resultBuilder.setSuccess(document.getId(), /*value=*/ null);
+                } catch (Throwable t) {
+                    resultBuilder.setResult(document.getId(), throwableToFailedResult(t));
+                }
+                latenciesMillis[i] += SystemClock.elapsedRealtime() - startTimeMillis;
             }
         } finally {
             mReadWriteLock.writeLock().unlock();
+        }
 
-            if (pStatsBuilder != null && logger != null) {
-                long totalEndTimeMillis = SystemClock.elapsedRealtime();
-                pStatsBuilder.setTotalLatencyMillis(
-                        (int) (totalEndTimeMillis - totalStartTimeMillis));
-                logger.logStats(pStatsBuilder.build());
+        if (logger != null) {
+            for (int i = 0; i < size; i++) {
+                pStatsBuilders[i].setTotalLatencyMillis((int) latenciesMillis[i]);
+                logger.logStats(pStatsBuilders[i].build());
             }
         }
     }
 
+    /**
+     * Converts a document to a proto, with the prefix of its package and database.
+     *
+     * @param pStatsBuilder the builder of the stats of the put, which receives the latencies of
+     *                      the conversion, or {@code null} if stats aren't logged.
+     */
+    @NonNull
+    private static DocumentProto toPrefixedDocumentProto(
+            @NonNull String packageName,
+            @NonNull String databaseName,
+            @NonNull GenericDocument document,
+            @Nullable PutDocumentStats.Builder pStatsBuilder) {
+        // Generate Document Proto
+        long generateDocumentProtoStartTimeMillis = SystemClock.elapsedRealtime();
+        DocumentProto.Builder documentBuilder = GenericDocumentToProtoConverter.toDocumentProto(
+                document).toBuilder();
+        long generateDocumentProtoEndTimeMillis = SystemClock.elapsedRealtime();
+
+        // Rewrite Document Type
+        long rewriteDocumentTypeStartTimeMillis = SystemClock.elapsedRealtime();
+        String prefix = createPrefix(packageName, databaseName);
+        addPrefixToDocument(documentBuilder, prefix);
+        long rewriteDocumentTypeEndTimeMillis = SystemClock.elapsedRealtime();
+
+        if (pStatsBuilder != null) {
+            pStatsBuilder
+                    .setGenerateDocumentProtoLatencyMillis(
+                            (int) (generateDocumentProtoEndTimeMillis
+                                    - generateDocumentProtoStartTimeMillis))
+                    .setRewriteDocumentTypesLatencyMillis(
+                            (int) (rewriteDocumentTypeEndTimeMillis
+                                    - rewriteDocumentTypeStartTimeMillis));
+        }
+        return documentBuilder.build();
+    }
+
+    /**
+     * Inserts a document proto created by {@link #toPrefixedDocumentProto} into Icing.
+     *
+     * @param document      the document the proto was created from, for the notifications.
+     * @param pStatsBuilder the builder of the stats of the put, or {@code null} if stats aren't
+     *                      logged.
+     * @throws AppSearchException on IcingSearchEngine error.
+     */
+    @GuardedBy("mReadWriteLock")
+    private void putDocumentProtoLocked(
+            @NonNull String packageName,
+            @NonNull String databaseName,
+            @NonNull GenericDocument document,
+            @NonNull DocumentProto finalDocument,
+            boolean sendChangeNotifications,
+            @Nullable PutDocumentStats.Builder pStatsBuilder)
+            throws AppSearchException {
+        // Check limits
+        int newDocumentCount = enforceLimitConfigLocked(
+                packageName, finalDocument.getUri(), finalDocument.getSerializedSize());
+
+        // Insert document
+        LogUtil.piiTrace(TAG, "putDocument, request", finalDocument.getUri(), finalDocument);
+        PutResultProto putResultProto = mIcingSearchEngineLocked.put(finalDocument);
+        LogUtil.piiTrace(
+                TAG, "putDocument, response", putResultProto.getStatus(), putResultProto);
+
+        // Update caches
+        String prefix = createPrefix(packageName, databaseName);
+        addToMap(mNamespaceMapLocked, prefix, finalDocument.getNamespace());
+        mDocumentCountMapLocked.put(packageName, newDocumentCount);
+
+        // Logging stats
+        if (pStatsBuilder != null) {
+            pStatsBuilder.setStatusCode(statusProtoToResultCode(putResultProto.getStatus()));
+            AppSearchLoggerHelper.copyNativeStats(putResultProto.getPutDocumentStats(),
+                    pStatsBuilder);
+        }
+
+        checkSuccess(putResultProto.getStatus());
+
+        // Prepare notifications
+        if (sendChangeNotifications) {
+            mObserverManager.onDocumentChange(
+                    packageName,
+                    databaseName,
+                    document.getNamespace(),
+                    document.getSchemaType(),
+                    document.getId(),
+                    mVisibilityStoreLocked,
+                    mVisibilityCheckerLocked);
+        }
+    }
+
     /**
      * Checks that a new document can be added to the given packageName with the given serialized
      * size without violating our {@link LimitConfig}.
@@ -1353,7 +1539,17 @@ public final class AppSearchImpl implements Closeable {
                             mNamespaceMapLocked, mSchemaMapLocked);
             // Remove those inaccessible schemas.
             searchSpecToProtoConverter.removeInaccessibleSchemaFilter(
-                    callerAccess, mVisibilityStoreLocked, mVisibilityCheckerLocked);
+                    callerAccess,
+                    mVisibilityStoreLocked,
+                    mVisibilityCheckerLocked,
+                    mVisibilityCacheLocked);
+            if (sStatsBuilder != null) {
+                sStatsBuilder
+                        .setVisibilityCacheHitCount(
+                                searchSpecToProtoConverter.getVisibilityCacheHitCount())
+                        .setVisibilityCacheMissCount(
+                                searchSpecToProtoConverter.getVisibilityCacheMissCount());
+            }
             if (searchSpecToProtoConverter.hasNothingToSearch()) {
                 // there is nothing to search over given their search filters, so we can return an
                 // empty SearchResult and skip sending request to Icing.
@@ -2165,6 +2361,22 @@ public final class AppSearchImpl implements Closeable {
         }
     }
 
+    /**
+     * Discards the cached visibility decisions of global queries.
+     *
+     * <p>The cache is already invalidated when schemas or their visibility settings change. This
+     * method must be called when the answers of the {@link VisibilityChecker} change for other
+     * reasons, for example when a caller is granted or revoked a permission.
+     */
+    public void invalidateVisibilityCache() {
+        mReadWriteLock.writeLock().lock();
+        try {
+            mVisibilityCacheLocked.invalidate();
+        } finally {
+            mReadWriteLock.writeLock().unlock();
+        }
+    }
+
     /**
      * Remove all {@link AppSearchSchema}s and {@link GenericDocument}s that doesn't belong to any
      * of the given installed packages
@@ -2228,6 +2440,7 @@ public final class AppSearchImpl implements Closeable {
                         if (mVisibilityStoreLocked != null) {
                             mVisibilityStoreLocked.removeVisibility(removedSchemas.keySet());
                         }
+                        mVisibilityCacheLocked.invalidate();
 
                         mNamespaceMapLocked.remove(removedPrefix);
                     }
@@ -2257,6 +2470,7 @@ public final class AppSearchImpl implements Closeable {
                 resetResultProto);
         mOptimizeIntervalCountLocked = 0;
         mSchemaMapLocked.clear();
+        mVisibilityCacheLocked.invalidate();
         mNamespaceMapLocked.clear();
         mDocumentCountMapLocked.clear();
         synchronized (mNextPageTokensLocked) {
@@ -291,22 +291,12 @@ class SearchSessionImpl implements AppSearchSession {
         Preconditions.checkNotNull(request);
         Preconditions.checkState(!mIsClosed, "AppSearchSession has already been closed");
         ListenableFuture<AppSearchBatchResult<String, Void>> future = execute(() -> {
-            AppSearchBatchResult.Builder<String, Void> resultBuilder =
-                    new AppSearchBatchResult.Builder<>();
-            for (int i = 0; i < request.getGenericDocuments().size(); i++) {
-                GenericDocument document = request.getGenericDocuments().get(i);
-                try {
-                    mAppSearchImpl.putDocument(
-                            mPackageName,
-                            mDatabaseName,
-                            document,
-                            /*sendChangeNotifications=*/ true,
-                            mLogger);
-                    resultBuilder.setSuccess(document.getId(), /*value=*/ null);
-                } catch (Throwable t) {
-                    resultBuilder.setResult(document.getId(), throwableToFailedResult(t));
-                }
-            }
+            AppSearchBatchResult<String, Void> result = mAppSearchImpl.batchPutDocuments(
+                    mPackageName,
+                    mDatabaseName,
+                    request.getGenericDocuments(),
+                    /*sendChangeNotifications=*/ true,
+                    mLogger);
             // Now that the batch has been written. Persist the newly written data.
             mAppSearchImpl.persistToDisk(PersistType.Code.LITE);
             mIsMutated = true;
@@ -315,7 +305,7 @@ class SearchSessionImpl implements AppSearchSession {
             // method is called documented in the method description.
             dispatchChangeNotifications();
 
-            return resultBuilder.build();
+            return result;
         });
 
         // The existing documents with same ID will be deleted, so there may be some resources that
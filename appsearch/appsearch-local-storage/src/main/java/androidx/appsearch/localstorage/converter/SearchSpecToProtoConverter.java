@@ -28,6 +28,7 @@ import androidx.annotation.RestrictTo;
 import androidx.appsearch.app.SearchSpec;
 import androidx.appsearch.exceptions.AppSearchException;
 import androidx.appsearch.localstorage.visibilitystore.CallerAccess;
+import androidx.appsearch.localstorage.visibilitystore.VisibilityCache;
 import androidx.appsearch.localstorage.visibilitystore.VisibilityChecker;
 import androidx.appsearch.localstorage.visibilitystore.VisibilityStore;
 import androidx.appsearch.localstorage.visibilitystore.VisibilityUtil;
@@ -69,6 +70,10 @@ public final class SearchSpecToProtoConverter {
      * the client.
      */
     private final Set<String> mTargetPrefixedSchemaFilters;
+    /** The number of visibility decisions found in the {@link VisibilityCache}. */
+    private int mVisibilityCacheHitCount;
+    /** The number of visibility decisions missing from the {@link VisibilityCache}. */
+    private int mVisibilityCacheMissCount;
 
     /**
      * Creates a {@link SearchSpecToProtoConverter} for given {@link SearchSpec}.
@@ -130,23 +135,96 @@ public final class SearchSpecToProtoConverter {
             @NonNull CallerAccess callerAccess,
             @Nullable VisibilityStore visibilityStore,
             @Nullable VisibilityChecker visibilityChecker) {
+        removeInaccessibleSchemaFilterInternal(callerAccess, visibilityStore, visibilityChecker,
+                /*visibilityCache=*/ null);
+    }
+
+    /**
+     * Same as {@link #removeInaccessibleSchemaFilter(CallerAccess, VisibilityStore,
+     * VisibilityChecker)}, but reuses the decisions of the given {@link VisibilityCache} and
+     * caches the new ones.
+     *
+     * <p>The number of decisions found in and missing from the cache are available from
+     * {@link #getVisibilityCacheHitCount} and {@link #getVisibilityCacheMissCount}.
+     *
+     * @param callerAccess      Visibility access info of the calling app
+     * @param visibilityStore   The {@link VisibilityStore} that store all visibility
+     *                          information.
+     * @param visibilityChecker Optional visibility checker to check whether the caller
+     *                          could access target schemas. Pass {@code null} will
+     *                          reject access for all documents which doesn't belong
+     *                          to the calling package.
+     * @param visibilityCache   The cache of the decisions of previous checks.
+     */
+    public void removeInaccessibleSchemaFilter(
+            @NonNull CallerAccess callerAccess,
+            @Nullable VisibilityStore visibilityStore,
+            @Nullable VisibilityChecker visibilityChecker,
+            @NonNull VisibilityCache visibilityCache) {
+        Preconditions.checkNotNull(visibilityCache);
+        removeInaccessibleSchemaFilterInternal(callerAccess, visibilityStore, visibilityChecker,
+                visibilityCache);
+    }
+
+    /**
+     * Removes the target schemas the caller can't access, checking the decisions of the given
+     * {@link VisibilityCache} first when there is one.
+     */
+    private void removeInaccessibleSchemaFilterInternal(
+            @NonNull CallerAccess callerAccess,
+            @Nullable VisibilityStore visibilityStore,
+            @Nullable VisibilityChecker visibilityChecker,
+            @Nullable VisibilityCache visibilityCache) {
         Iterator<String> targetPrefixedSchemaFilterIterator =
                 mTargetPrefixedSchemaFilters.iterator();
         while (targetPrefixedSchemaFilterIterator.hasNext()) {
             String targetPrefixedSchemaFilter = targetPrefixedSchemaFilterIterator.next();
-            String packageName = getPackageName(targetPrefixedSchemaFilter);
-
-            if (!VisibilityUtil.isSchemaSearchableByCaller(
-                    callerAccess,
-                    packageName,
-                    targetPrefixedSchemaFilter,
-                    visibilityStore,
-                    visibilityChecker)) {
+            Boolean isSearchable = null;
+            if (visibilityCache != null) {
+                isSearchable = visibilityCache.getCachedDecision(
+                        callerAccess, targetPrefixedSchemaFilter);
+                if (isSearchable != null) {
+                    mVisibilityCacheHitCount++;
+                } else {
+                    mVisibilityCacheMissCount++;
+                }
+            }
+            if (isSearchable == null) {
+                isSearchable = VisibilityUtil.isSchemaSearchableByCaller(
+                        callerAccess,
+                        getPackageName(targetPrefixedSchemaFilter),
+                        targetPrefixedSchemaFilter,
+                        visibilityStore,
+                        visibilityChecker);
+                if (visibilityCache != null) {
+                    visibilityCache.putDecision(
+                            callerAccess, targetPrefixedSchemaFilter, isSearchable);
+                }
+            }
+            if (!isSearchable) {
                 targetPrefixedSchemaFilterIterator.remove();
             }
         }
     }
 
+    /**
+     * Returns the number of visibility decisions found in the {@link VisibilityCache} by
+     * {@link #removeInaccessibleSchemaFilter(CallerAccess, VisibilityStore, VisibilityChecker,
+     * VisibilityCache)}.
+     */
+    public int getVisibilityCacheHitCount() {
+        return mVisibilityCacheHitCount;
+    }
+
+    /**
+     * Returns the number of visibility decisions missing from the {@link VisibilityCache} in
+     * {@link #removeInaccessibleSchemaFilter(CallerAccess, VisibilityStore, VisibilityChecker,
+     * VisibilityCache)}.
+     */
+    public int getVisibilityCacheMissCount() {
+        return mVisibilityCacheMissCount;
+    }
+
     /** Extracts {@link SearchSpecProto} information from a {@link SearchSpec}. */
     @NonNull
     public SearchSpecProto toSearchSpecProto() {
@@ -79,6 +79,10 @@ public final class SearchStats {
      * permissions and Android permission access.
      */
     private final int mAclCheckLatencyMillis;
+    /** Number of ACL checks answered by the cache of visible schemas. */
+    private final int mVisibilityCacheHitCount;
+    /** Number of ACL checks not answered by the cache of visible schemas. */
+    private final int mVisibilityCacheMissCount;
     /** Defines the scope the query is searching over. */
     @VisibilityScope
     private final int mVisibilityScope;
@@ -141,6 +145,8 @@ public final class SearchStats {
         mRewriteSearchResultLatencyMillis = builder.mRewriteSearchResultLatencyMillis;
         mJavaLockAcquisitionLatencyMillis = builder.mJavaLockAcquisitionLatencyMillis;
         mAclCheckLatencyMillis = builder.mAclCheckLatencyMillis;
+        mVisibilityCacheHitCount = builder.mVisibilityCacheHitCount;
+        mVisibilityCacheMissCount = builder.mVisibilityCacheMissCount;
         mVisibilityScope = builder.mVisibilityScope;
         mNativeLatencyMillis = builder.mNativeLatencyMillis;
         mNativeNumTerms = builder.mNativeNumTerms;
@@ -213,6 +219,16 @@ public final class SearchStats {
         return mAclCheckLatencyMillis;
     }
 
+    /** Returns the number of ACL checks answered by the cache of visible schemas. */
+    public int getVisibilityCacheHitCount() {
+        return mVisibilityCacheHitCount;
+    }
+
+    /** Returns the number of ACL checks not answered by the cache of visible schemas. */
+    public int getVisibilityCacheMissCount() {
+        return mVisibilityCacheMissCount;
+    }
+
     /** Returns the visibility scope of the search. */
     @VisibilityScope
     public int getVisibilityScope() {
@@ -330,6 +346,8 @@ public final class SearchStats {
         int mRewriteSearchResultLatencyMillis;
         int mJavaLockAcquisitionLatencyMillis;
         int mAclCheckLatencyMillis;
+        int mVisibilityCacheHitCount;
+        int mVisibilityCacheMissCount;
         int mVisibilityScope;
         int mNativeLatencyMillis;
         int mNativeNumTerms;
@@ -414,6 +432,20 @@ public final class SearchStats {
             return this;
         }
 
+        /** Sets the number of ACL checks answered by the cache of visible schemas. */
+        @NonNull
+        public Builder setVisibilityCacheHitCount(int visibilityCacheHitCount) {
+            mVisibilityCacheHitCount = visibilityCacheHitCount;
+            return this;
+        }
+
+        /** Sets the number of ACL checks not answered by the cache of visible schemas. */
+        @NonNull
+        public Builder setVisibilityCacheMissCount(int visibilityCacheMissCount) {
+            mVisibilityCacheMissCount = visibilityCacheMissCount;
+            return this;
+        }
+
         /** Sets overall time used for the native function calls. */
         @NonNull
         public Builder setNativeLatencyMillis(int nativeLatencyMillis) {
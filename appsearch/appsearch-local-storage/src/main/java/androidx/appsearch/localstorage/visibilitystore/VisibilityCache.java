@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appsearch.localstorage.visibilitystore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.collection.LruCache;
+import androidx.core.util.Preconditions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches whether a caller may search a prefixed schema, as decided by
+ * {@link VisibilityUtil#isSchemaSearchableByCaller}.
+ *
+ * <p>The decisions only depend on the {@link VisibilityStore} and the {@link VisibilityChecker},
+ * so this cache must be invalidated whenever the schemas or their visibility settings change.
+ * The owner is expected to look up decisions while holding a read lock and to invalidate the
+ * cache while holding the matching write lock, so that a stale decision is never cached after an
+ * invalidation.
+ *
+ * <p>This class is thread safe.
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class VisibilityCache {
+    /** The default maximum number of callers whose decisions are cached. */
+    public static final int DEFAULT_MAX_CALLER_COUNT = 32;
+
+    private final LruCache<CallerAccess, Map<String, Boolean>> mCallerToDecisions;
+
+    /** Creates a {@link VisibilityCache} for at most {@link #DEFAULT_MAX_CALLER_COUNT} callers. */
+    public VisibilityCache() {
+        this(DEFAULT_MAX_CALLER_COUNT);
+    }
+
+    /**
+     * Creates a {@link VisibilityCache}.
+     *
+     * @param maxCallerCount The maximum number of callers whose decisions are cached. The least
+     *                       recently used caller is evicted first.
+     */
+    public VisibilityCache(int maxCallerCount) {
+        Preconditions.checkArgument(maxCallerCount > 0, "maxCallerCount must be positive");
+        mCallerToDecisions = new LruCache<>(maxCallerCount);
+    }
+
+    /**
+     * Returns the cached decision of whether the caller may search the prefixed schema, or
+     * {@code null} if there is none.
+     */
+    @Nullable
+    public Boolean getCachedDecision(
+            @NonNull CallerAccess callerAccess, @NonNull String prefixedSchema) {
+        Map<String, Boolean> decisions = mCallerToDecisions.get(callerAccess);
+        if (decisions == null) {
+            return null;
+        }
+        return decisions.get(prefixedSchema);
+    }
+
+    /** Caches the decision of whether the caller may search the prefixed schema. */
+    public void putDecision(
+            @NonNull CallerAccess callerAccess,
+            @NonNull String prefixedSchema,
+            boolean isSearchable) {
+        Preconditions.checkNotNull(callerAccess);
+        Preconditions.checkNotNull(prefixedSchema);
+        Map<String, Boolean> decisions;
+        synchronized (mCallerToDecisions) {
+            decisions = mCallerToDecisions.get(callerAccess);
+            if (decisions == null) {
+                decisions = new ConcurrentHashMap<>();
+                mCallerToDecisions.put(callerAccess, decisions);
+            }
+        }
+        decisions.put(prefixedSchema, isSearchable);
+    }
+
+    /** Removes all the cached decisions. */
+    public void invalidate() {
+        mCallerToDecisions.evictAll();
+    }
+}
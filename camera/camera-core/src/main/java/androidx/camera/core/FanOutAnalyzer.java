@@ -0,0 +1,485 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.util.Size;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.RestrictTo.Scope;
+import androidx.core.util.Preconditions;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An implementation of {@link ImageAnalysis.Analyzer} that shares each frame with several
+ * analyzers, which analyze it in parallel.
+ *
+ * <p>Each analyzer receives its own {@link ImageProxy} on its own executor, and the frame is
+ * released once all the analyzers have closed their {@link ImageProxy}. A slow analyzer doesn't
+ * hold back the other analyzers: while it is busy, the frames meant for it are handled according
+ * to its drop policy, see {@link #DROP_POLICY_KEEP_ONLY_LATEST} and
+ * {@link #DROP_POLICY_DROP_WHILE_BUSY}. An analyzer can also be given a target frame rate, in
+ * which case the frames arriving faster than that rate are skipped for this analyzer.
+ *
+ * <p>This class returns from {@link #analyze(ImageProxy)} right after dispatching the frame, so
+ * it is meant to be used with {@link ImageAnalysis#STRATEGY_BLOCK_PRODUCER}. With this strategy,
+ * {@link ImageAnalysis} doesn't wait for a frame to be closed before delivering the next one, as
+ * long as fewer than {@link ImageAnalysis.Builder#setImageQueueDepth(int)} frames are open. Each
+ * analyzer holds at most two frames at a time with {@link #DROP_POLICY_KEEP_ONLY_LATEST}, and one
+ * with {@link #DROP_POLICY_DROP_WHILE_BUSY}, so a queue depth larger than the total never blocks
+ * the camera. With {@link ImageAnalysis#STRATEGY_KEEP_ONLY_LATEST}, the next frame is only
+ * delivered once the current one is closed by all the analyzers.
+ *
+ * <p>The analyzers must close the {@link ImageProxy} they receive. The {@link ImageProxy}s of the
+ * analyzers share the same image data, so they must not modify it. The crop rect of each
+ * {@link ImageProxy} can be set independently.
+ *
+ * <p>Code sample:
+ * <pre><code>
+ *  FanOutAnalyzer fanOutAnalyzer = new FanOutAnalyzer.Builder()
+ *          .addAnalyzer(barcodeExecutor, barcodeAnalyzer)
+ *          .addAnalyzer(faceExecutor, faceAnalyzer, 10,
+ *                  FanOutAnalyzer.DROP_POLICY_DROP_WHILE_BUSY)
+ *          .build();
+ *  imageAnalysis.setAnalyzer(executor, fanOutAnalyzer);
+ * </code></pre>
+ */
+@RequiresApi(21) // TODO(b/200306659): Remove and replace with annotation on package-info.java
+public final class FanOutAnalyzer implements ImageAnalysis.Analyzer {
+
+    private static final String TAG = "FanOutAnalyzer";
+
+    /**
+     * While an analyzer is busy, the latest frame is kept and delivered as soon as the analyzer
+     * closes its current frame. The frame kept before it is dropped.
+     */
+    public static final int DROP_POLICY_KEEP_ONLY_LATEST = 0;
+
+    /**
+     * While an analyzer is busy, the frames are dropped. The analyzer receives the first frame
+     * arriving after it closes its current frame.
+     */
+    public static final int DROP_POLICY_DROP_WHILE_BUSY = 1;
+
+    /**
+     * No target frame rate, i.e. an analyzer receives all the frames while it's not busy.
+     */
+    public static final int FRAME_RATE_UNLIMITED = 0;
+
+    /**
+     * How the frames arriving while an analyzer is busy are handled.
+     *
+     * @hide
+     */
+    @IntDef({DROP_POLICY_KEEP_ONLY_LATEST, DROP_POLICY_DROP_WHILE_BUSY})
+    @Retention(RetentionPolicy.SOURCE)
+    @RestrictTo(Scope.LIBRARY_GROUP)
+    public @interface DropPolicy {
+    }
+
+    private final List<AnalyzerNode> mNodes;
+
+    FanOutAnalyzer(@NonNull List<AnalyzerNode> nodes) {
+        mNodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+    }
+
+    /** Dispatches the frame to all the analyzers. */
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        long arrivalTimeNanos = System.nanoTime();
+        SharedImage sharedImage = new SharedImage(image);
+        try {
+            for (AnalyzerNode node : mNodes) {
+                node.offer(sharedImage, arrivalTimeNanos);
+            }
+        } finally {
+            // Release the reference held while dispatching.
+            sharedImage.release();
+        }
+    }
+
+    /**
+     * Returns the first default target resolution of the analyzers that isn't {@code null}, in
+     * the order they were added.
+     */
+    @Nullable
+    @Override
+    public Size getDefaultTargetResolution() {
+        for (AnalyzerNode node : mNodes) {
+            Size size = node.mAnalyzer.getDefaultTargetResolution();
+            if (size != null) {
+                return size;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@link ImageAnalysis#COORDINATE_SYSTEM_ORIGINAL}. The target coordinate systems of
+     * the analyzers are ignored.
+     */
+    @Override
+    public int getTargetCoordinateSystem() {
+        return ImageAnalysis.COORDINATE_SYSTEM_ORIGINAL;
+    }
+
+    /** Forwards the transform to all the analyzers, on their executors. */
+    @Override
+    public void updateTransform(@Nullable Matrix matrix) {
+        for (AnalyzerNode node : mNodes) {
+            Matrix copy = matrix == null ? null : new Matrix(matrix);
+            try {
+                node.mExecutor.execute(() -> node.mAnalyzer.updateTransform(copy));
+            } catch (RejectedExecutionException e) {
+                Logger.e(TAG, "Unable to forward the transform to " + node.mAnalyzer, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of frames delivered to the given analyzer.
+     *
+     * @throws IllegalArgumentException if the analyzer wasn't added to this instance.
+     */
+    public long getAnalyzedFrameCount(@NonNull ImageAnalysis.Analyzer analyzer) {
+        AnalyzerNode node = getNode(analyzer);
+        synchronized (node.mLock) {
+            return node.mAnalyzedFrameCount;
+        }
+    }
+
+    /**
+     * Returns the number of frames dropped for the given analyzer because it was busy. The frames
+     * skipped to stay within the target frame rate of the analyzer are not counted.
+     *
+     * @throws IllegalArgumentException if the analyzer wasn't added to this instance.
+     */
+    public long getDroppedFrameCount(@NonNull ImageAnalysis.Analyzer analyzer) {
+        AnalyzerNode node = getNode(analyzer);
+        synchronized (node.mLock) {
+            return node.mDroppedFrameCount;
+        }
+    }
+
+    /**
+     * Returns the average time, in milliseconds, from the arrival of a frame to the given analyzer
+     * closing it, including the time it waited for the analyzer to be available. Returns 0 if the
+     * analyzer hasn't closed any frame yet.
+     *
+     * @throws IllegalArgumentException if the analyzer wasn't added to this instance.
+     */
+    public long getAverageLatencyMillis(@NonNull ImageAnalysis.Analyzer analyzer) {
+        AnalyzerNode node = getNode(analyzer);
+        synchronized (node.mLock) {
+            if (node.mClosedFrameCount == 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(
+                    node.mTotalLatencyNanos / node.mClosedFrameCount);
+        }
+    }
+
+    @NonNull
+    private AnalyzerNode getNode(@NonNull ImageAnalysis.Analyzer analyzer) {
+        for (AnalyzerNode node : mNodes) {
+            if (node.mAnalyzer == analyzer) {
+                return node;
+            }
+        }
+        throw new IllegalArgumentException("The analyzer wasn't added: " + analyzer);
+    }
+
+    /**
+     * A frame shared by the analyzers, which is closed once all the references to it are
+     * released.
+     */
+    static final class SharedImage {
+        private final ImageProxy mImage;
+        private final AtomicInteger mRefCount = new AtomicInteger(1);
+
+        SharedImage(@NonNull ImageProxy image) {
+            mImage = image;
+        }
+
+        long getTimestamp() {
+            return mImage.getImageInfo().getTimestamp();
+        }
+
+        void acquire() {
+            mRefCount.incrementAndGet();
+        }
+
+        void release() {
+            if (mRefCount.decrementAndGet() == 0) {
+                mImage.close();
+            }
+        }
+    }
+
+    /**
+     * The {@link ImageProxy} of an analyzer, which releases its reference to the shared frame
+     * when closed.
+     */
+    static final class AnalyzerImageProxy extends ForwardingImageProxy {
+        private final SharedImage mSharedImage;
+        private final AtomicBoolean mClosed = new AtomicBoolean(false);
+        private final Object mCropRectLock = new Object();
+        @GuardedBy("mCropRectLock")
+        @NonNull
+        private Rect mCropRect;
+
+        AnalyzerImageProxy(@NonNull SharedImage sharedImage) {
+            super(sharedImage.mImage);
+            mSharedImage = sharedImage;
+            mCropRect = new Rect(sharedImage.mImage.getCropRect());
+        }
+
+        @NonNull
+        @Override
+        public Rect getCropRect() {
+            synchronized (mCropRectLock) {
+                return new Rect(mCropRect);
+            }
+        }
+
+        @Override
+        public void setCropRect(@Nullable Rect rect) {
+            synchronized (mCropRectLock) {
+                mCropRect = rect != null ? new Rect(rect) : new Rect(0, 0, getWidth(),
+                        getHeight());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!mClosed.getAndSet(true)) {
+                mSharedImage.release();
+                notifyOnImageCloseListeners();
+            }
+        }
+    }
+
+    /**
+     * An analyzer with its executor, its frame budget and its statistics.
+     */
+    static final class AnalyzerNode {
+        private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+        final Executor mExecutor;
+        final ImageAnalysis.Analyzer mAnalyzer;
+        private final long mMinFrameIntervalNanos;
+        @DropPolicy
+        private final int mDropPolicy;
+
+        final Object mLock = new Object();
+        @GuardedBy("mLock")
+        private boolean mBusy;
+        @GuardedBy("mLock")
+        @Nullable
+        private SharedImage mPendingImage;
+        @GuardedBy("mLock")
+        private long mPendingArrivalTimeNanos;
+        @GuardedBy("mLock")
+        private long mLastOfferedTimestamp = NO_TIMESTAMP;
+        // The ideal timestamp of the next frame. It moves by whole frame intervals, so that the
+        // jitter of the frame timestamps doesn't add up and lower the frame rate.
+        @GuardedBy("mLock")
+        private long mNextFrameDeadline = NO_TIMESTAMP;
+        @GuardedBy("mLock")
+        long mAnalyzedFrameCount;
+        @GuardedBy("mLock")
+        long mDroppedFrameCount;
+        @GuardedBy("mLock")
+        long mClosedFrameCount;
+        @GuardedBy("mLock")
+        long mTotalLatencyNanos;
+
+        AnalyzerNode(@NonNull Executor executor, @NonNull ImageAnalysis.Analyzer analyzer,
+                int targetFrameRate, @DropPolicy int dropPolicy) {
+            mExecutor = executor;
+            mAnalyzer = analyzer;
+            mMinFrameIntervalNanos = targetFrameRate == FRAME_RATE_UNLIMITED ? 0
+                    : TimeUnit.SECONDS.toNanos(1) / targetFrameRate;
+            mDropPolicy = dropPolicy;
+        }
+
+        /**
+         * Delivers the frame to the analyzer, keeps it for later or drops it.
+         */
+        void offer(@NonNull SharedImage sharedImage, long arrivalTimeNanos) {
+            long timestamp = sharedImage.getTimestamp();
+            synchronized (mLock) {
+                // A frame up to half a source frame early is on time, the next one would be later.
+                long tolerance = mLastOfferedTimestamp == NO_TIMESTAMP ? 0
+                        : (timestamp - mLastOfferedTimestamp) / 2;
+                mLastOfferedTimestamp = timestamp;
+                if (mNextFrameDeadline != NO_TIMESTAMP
+                        && timestamp < mNextFrameDeadline - tolerance) {
+                    // Skip the frame to stay within the target frame rate.
+                    return;
+                }
+                if (mBusy) {
+                    if (mDropPolicy == DROP_POLICY_KEEP_ONLY_LATEST) {
+                        if (mPendingImage != null) {
+                            mPendingImage.release();
+                            mDroppedFrameCount++;
+                        }
+                        sharedImage.acquire();
+                        mPendingImage = sharedImage;
+                        mPendingArrivalTimeNanos = arrivalTimeNanos;
+                        advanceFrameDeadline(timestamp);
+                    } else {
+                        mDroppedFrameCount++;
+                    }
+                    return;
+                }
+                mBusy = true;
+                advanceFrameDeadline(timestamp);
+                sharedImage.acquire();
+            }
+            deliver(sharedImage, arrivalTimeNanos);
+        }
+
+        @GuardedBy("mLock")
+        private void advanceFrameDeadline(long timestamp) {
+            if (mMinFrameIntervalNanos == 0) {
+                return;
+            }
+            if (mNextFrameDeadline == NO_TIMESTAMP
+                    || timestamp - mNextFrameDeadline >= mMinFrameIntervalNanos) {
+                // First frame, or the frames stopped for a while: start over from this frame
+                // instead of letting the following frames catch up.
+                mNextFrameDeadline = timestamp + mMinFrameIntervalNanos;
+            } else {
+                mNextFrameDeadline += mMinFrameIntervalNanos;
+            }
+        }
+
+        private void deliver(@NonNull SharedImage sharedImage, long arrivalTimeNanos) {
+            AnalyzerImageProxy image = new AnalyzerImageProxy(sharedImage);
+            image.addOnImageCloseListener(closedImage -> onImageClosed(arrivalTimeNanos));
+            synchronized (mLock) {
+                mAnalyzedFrameCount++;
+            }
+            try {
+                mExecutor.execute(() -> mAnalyzer.analyze(image));
+            } catch (RejectedExecutionException e) {
+                Logger.e(TAG, "Unable to deliver the frame to " + mAnalyzer, e);
+                image.close();
+            }
+        }
+
+        private void onImageClosed(long arrivalTimeNanos) {
+            SharedImage nextImage;
+            long nextArrivalTimeNanos;
+            synchronized (mLock) {
+                mClosedFrameCount++;
+                mTotalLatencyNanos += System.nanoTime() - arrivalTimeNanos;
+                nextImage = mPendingImage;
+                nextArrivalTimeNanos = mPendingArrivalTimeNanos;
+                mPendingImage = null;
+                mBusy = nextImage != null;
+            }
+            if (nextImage != null) {
+                // The reference acquired when the frame was kept is handed over to the analyzer.
+                deliver(nextImage, nextArrivalTimeNanos);
+            }
+        }
+    }
+
+    /** Builder for {@link FanOutAnalyzer}. */
+    public static final class Builder {
+        private final List<AnalyzerNode> mNodes = new ArrayList<>();
+
+        /** Creates a builder without analyzers. */
+        public Builder() {
+        }
+
+        /**
+         * Adds an analyzer that receives all the frames while it's not busy, and keeps only the
+         * latest frame while it's busy.
+         *
+         * @param executor the executor on which the analyzer is called.
+         * @param analyzer the analyzer.
+         */
+        @NonNull
+        public Builder addAnalyzer(@NonNull Executor executor,
+                @NonNull ImageAnalysis.Analyzer analyzer) {
+            return addAnalyzer(executor, analyzer, FRAME_RATE_UNLIMITED,
+                    DROP_POLICY_KEEP_ONLY_LATEST);
+        }
+
+        /**
+         * Adds an analyzer.
+         *
+         * @param executor        the executor on which the analyzer is called.
+         * @param analyzer        the analyzer.
+         * @param targetFrameRate the maximum number of frames per second delivered to the
+         *                        analyzer, or {@link #FRAME_RATE_UNLIMITED}. The rate is
+         *                        measured with the timestamps of the frames.
+         * @param dropPolicy      what to do with the frames arriving while the analyzer is busy.
+         * @throws IllegalArgumentException if the analyzer was already added, or if the target
+         *                                  frame rate is negative.
+         */
+        @NonNull
+        public Builder addAnalyzer(@NonNull Executor executor,
+                @NonNull ImageAnalysis.Analyzer analyzer,
+                @IntRange(from = 0) int targetFrameRate,
+                @DropPolicy int dropPolicy) {
+            Preconditions.checkNotNull(executor);
+            Preconditions.checkNotNull(analyzer);
+            Preconditions.checkArgument(targetFrameRate >= 0,
+                    "targetFrameRate must be >= 0");
+            Preconditions.checkArgument(dropPolicy == DROP_POLICY_KEEP_ONLY_LATEST
+                    || dropPolicy == DROP_POLICY_DROP_WHILE_BUSY, "Invalid drop policy");
+            for (AnalyzerNode node : mNodes) {
+                Preconditions.checkArgument(node.mAnalyzer != analyzer,
+                        "The analyzer was already added");
+            }
+            mNodes.add(new AnalyzerNode(executor, analyzer, targetFrameRate, dropPolicy));
+            return this;
+        }
+
+        /**
+         * Builds the {@link FanOutAnalyzer}.
+         *
+         * @throws IllegalArgumentException if no analyzer was added.
+         */
+        @NonNull
+        public FanOutAnalyzer build() {
+            Preconditions.checkArgument(!mNodes.isEmpty(), "No analyzer was added");
+            return new FanOutAnalyzer(mNodes);
+        }
+    }
+}
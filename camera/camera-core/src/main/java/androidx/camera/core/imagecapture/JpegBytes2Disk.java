@@ -29,6 +29,7 @@ import android.provider.MediaStore;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.impl.utils.Exif;
@@ -38,72 +39,137 @@ import androidx.camera.core.processing.Packet;
 import com.google.auto.value.AutoValue;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.UUID;
 
 /**
  * Saves JPEG bytes to disk.
+ *
+ * <p>The image is written to the target only once. The Exif data is updated on a temp file that
+ * only has the headers of the JPEG, i.e. the segments before the start of scan, and the updated
+ * headers are then written to the target followed by the compressed image data.
  */
 @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
 class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.OutputFileResults> {
 
     private static final String TEMP_FILE_PREFIX = "CameraX";
     private static final String TEMP_FILE_SUFFIX = ".tmp";
-    private static final int COPY_BUFFER_SIZE = 1024;
     private static final int PENDING = 1;
     private static final int NOT_PENDING = 0;
 
+    private static final int MARKER = 0xFF;
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_EOI = 0xD9;
+    private static final byte[] EOI = {(byte) MARKER, (byte) MARKER_EOI};
+
     @NonNull
     @Override
     public ImageCapture.OutputFileResults apply(@NonNull In in) throws ImageCaptureException {
         Packet<byte[]> packet = in.getPacket();
         ImageCapture.OutputFileOptions options = in.getOutputFileOptions();
-        File tempFile = createTempFile(options);
-        writeBytesToFile(tempFile, packet.getData());
-        updateFileExif(tempFile, requireNonNull(packet.getExif()), options,
-                packet.getRotationDegrees());
-        Uri uri = copyFileToTarget(tempFile, options);
-        return new ImageCapture.OutputFileResults(uri);
+        byte[] jpegBytes = packet.getData();
+        int imageDataOffset = findStartOfScan(jpegBytes);
+        File headersFile = createTempFile();
+        try {
+            writeHeadersToFile(headersFile, jpegBytes, imageDataOffset);
+            updateFileExif(headersFile, requireNonNull(packet.getExif()), options,
+                    packet.getRotationDegrees());
+            byte[] headers = readHeadersFromFile(headersFile, imageDataOffset < jpegBytes.length);
+            Uri uri = writeJpegToTarget(new JpegSource(headers, jpegBytes, imageDataOffset),
+                    options);
+            return new ImageCapture.OutputFileResults(uri);
+        } finally {
+            headersFile.delete();
+        }
     }
 
     /**
-     * Creates a temporary JPEG file.
+     * Returns the offset of the start of scan marker, from which the compressed image data
+     * starts, or the length of the bytes if it can't be found.
+     */
+    @VisibleForTesting
+    static int findStartOfScan(@NonNull byte[] jpegBytes) {
+        if (jpegBytes.length < 2 || (jpegBytes[0] & 0xFF) != MARKER
+                || (jpegBytes[1] & 0xFF) != MARKER_SOI) {
+            return jpegBytes.length;
+        }
+        int offset = 2;
+        while (offset + 4 <= jpegBytes.length) {
+            if ((jpegBytes[offset] & 0xFF) != MARKER) {
+                return jpegBytes.length;
+            }
+            int marker = jpegBytes[offset + 1] & 0xFF;
+            if (marker == MARKER) {
+                // Skip the fill bytes before a marker.
+                offset++;
+                continue;
+            }
+            if (marker == MARKER_SOS) {
+                return offset;
+            }
+            if (marker == MARKER_EOI) {
+                return jpegBytes.length;
+            }
+            int length = ((jpegBytes[offset + 2] & 0xFF) << 8) | (jpegBytes[offset + 3] & 0xFF);
+            if (length < 2) {
+                return jpegBytes.length;
+            }
+            offset += 2 + length;
+        }
+        return jpegBytes.length;
+    }
+
+    /**
+     * Creates a temporary file for the JPEG headers.
      */
     @NonNull
-    private static File createTempFile(@NonNull ImageCapture.OutputFileOptions options)
-            throws ImageCaptureException {
+    private static File createTempFile() throws ImageCaptureException {
         try {
-            File appProvidedFile = options.getFile();
-            if (appProvidedFile != null) {
-                // For saving-to-file case, write to the target folder and rename for better
-                // performance.
-                return new File(appProvidedFile.getParent(),
-                        TEMP_FILE_PREFIX + UUID.randomUUID().toString() + TEMP_FILE_SUFFIX);
-            } else {
-                return File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
-            }
+            return File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
         } catch (IOException e) {
             throw new ImageCaptureException(ERROR_FILE_IO, "Failed to create temp file.", e);
         }
     }
 
     /**
-     * Writes byte array to the given {@link File}.
+     * Writes the JPEG headers to the given {@link File}, as a JPEG without image data.
+     *
+     * <p>If the start of scan wasn't found, the whole JPEG is written instead.
      */
-    private static void writeBytesToFile(
-            @NonNull File tempFile, @NonNull byte[] bytes) throws ImageCaptureException {
+    private static void writeHeadersToFile(
+            @NonNull File tempFile, @NonNull byte[] jpegBytes, int imageDataOffset)
+            throws ImageCaptureException {
         try (FileOutputStream output = new FileOutputStream(tempFile)) {
-            output.write(bytes);
+            output.write(jpegBytes, 0, imageDataOffset);
+            if (imageDataOffset < jpegBytes.length) {
+                output.write(EOI);
+            }
         } catch (IOException e) {
             throw new ImageCaptureException(ERROR_FILE_IO, "Failed to write to temp file", e);
         }
     }
 
+    /**
+     * Reads back the JPEG headers from the given {@link File}, without the end of image marker
+     * written by {@link #writeHeadersToFile}.
+     */
+    @NonNull
+    private static byte[] readHeadersFromFile(@NonNull File tempFile, boolean hasEoi)
+            throws ImageCaptureException {
+        try (RandomAccessFile input = new RandomAccessFile(tempFile, "r")) {
+            byte[] headers = new byte[(int) input.length() - (hasEoi ? EOI.length : 0)];
+            input.readFully(headers);
+            return headers;
+        } catch (IOException e) {
+            throw new ImageCaptureException(ERROR_FILE_IO, "Failed to read temp file", e);
+        }
+    }
+
     private static void updateFileExif(
             @NonNull File tempFile,
             @NonNull Exif originalExif,
@@ -140,33 +206,33 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
     }
 
     /**
-     * Copies the file to target and returns the {@link Uri}.
+     * Writes the JPEG to target and returns the {@link Uri}.
      *
      * @return null if the target is {@link OutputStream}.
      */
     @Nullable
-    private static Uri copyFileToTarget(
-            @NonNull File file, @NonNull ImageCapture.OutputFileOptions options)
+    private static Uri writeJpegToTarget(
+            @NonNull JpegSource jpeg, @NonNull ImageCapture.OutputFileOptions options)
             throws ImageCaptureException {
         if (isSaveToMediaStore(options)) {
-            return copyFileToMediaStore(file, options);
+            return writeJpegToMediaStore(jpeg, options);
         } else if (isSaveToOutputStream(options)) {
             try {
-                copyFileToOutputStream(file, requireNonNull(options.getOutputStream()));
+                jpeg.writeTo(requireNonNull(options.getOutputStream()));
                 return null;
             } catch (IOException e) {
                 throw new ImageCaptureException(
                         ERROR_FILE_IO, "Failed to write to OutputStream.", null);
             }
         } else if (isSaveToFile(options)) {
-            return copyFileToFile(file, requireNonNull(options.getFile()));
+            return writeJpegToFile(jpeg, requireNonNull(options.getFile()));
         } else {
             throw new ImageCaptureException(ERROR_UNKNOWN, "Invalid OutputFileOptions", null);
         }
     }
 
-    private static Uri copyFileToMediaStore(
-            @NonNull File file,
+    private static Uri writeJpegToMediaStore(
+            @NonNull JpegSource jpeg,
             @NonNull ImageCapture.OutputFileOptions options)
             throws ImageCaptureException {
         ContentResolver contentResolver = requireNonNull(options.getContentResolver());
@@ -181,7 +247,7 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
                 throw new ImageCaptureException(
                         ERROR_FILE_IO, "Failed to insert a MediaStore URI.", null);
             }
-            copyTempFileToUri(file, uri, contentResolver);
+            writeJpegToUri(jpeg, uri, contentResolver);
         } catch (IOException | SecurityException e) {
             throw new ImageCaptureException(
                     ERROR_FILE_IO, "Failed to write to MediaStore URI: " + uri, e);
@@ -191,8 +257,17 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
         return uri;
     }
 
-    private static Uri copyFileToFile(@NonNull File source, @NonNull File target)
+    private static Uri writeJpegToFile(@NonNull JpegSource jpeg, @NonNull File target)
             throws ImageCaptureException {
+        // Write to the target folder and rename, so that the target is never partially written.
+        File source = new File(target.getParent(),
+                TEMP_FILE_PREFIX + UUID.randomUUID().toString() + TEMP_FILE_SUFFIX);
+        try (FileOutputStream output = new FileOutputStream(source)) {
+            jpeg.writeTo(output);
+        } catch (IOException e) {
+            source.delete();
+            throw new ImageCaptureException(ERROR_FILE_IO, "Failed to write to temp file", e);
+        }
         // Normally File#renameTo will overwrite the targetFile even if it already exists.
         // Just in case of unexpected behavior on certain platforms or devices, delete the
         // target file before renaming.
@@ -209,30 +284,17 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
     }
 
     /**
-     * Copies temp file to {@link Uri}.
+     * Writes the JPEG to {@link Uri}.
      */
-    private static void copyTempFileToUri(
-            @NonNull File tempFile,
+    private static void writeJpegToUri(
+            @NonNull JpegSource jpeg,
             @NonNull Uri uri,
             @NonNull ContentResolver contentResolver) throws IOException {
         try (OutputStream outputStream = contentResolver.openOutputStream(uri)) {
             if (outputStream == null) {
                 throw new FileNotFoundException(uri + " cannot be resolved.");
             }
-            copyFileToOutputStream(tempFile, outputStream);
-        }
-    }
-
-    @SuppressWarnings("IOStreamConstructor")
-    private static void copyFileToOutputStream(@NonNull File file,
-            @NonNull OutputStream outputStream)
-            throws IOException {
-        try (InputStream in = new FileInputStream(file)) {
-            byte[] buf = new byte[COPY_BUFFER_SIZE];
-            int len;
-            while ((len = in.read(buf)) > 0) {
-                outputStream.write(buf, 0, len);
-            }
+            jpeg.writeTo(outputStream);
         }
     }
 
@@ -269,6 +331,27 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
         return outputFileOptions.getOutputStream() != null;
     }
 
+    /**
+     * A JPEG made of the updated headers and the image data of the original JPEG.
+     */
+    private static final class JpegSource {
+        private final byte[] mHeaders;
+        private final byte[] mJpegBytes;
+        private final int mImageDataOffset;
+
+        JpegSource(@NonNull byte[] headers, @NonNull byte[] jpegBytes, int imageDataOffset) {
+            mHeaders = headers;
+            mJpegBytes = jpegBytes;
+            mImageDataOffset = imageDataOffset;
+        }
+
+        void writeTo(@NonNull OutputStream outputStream) throws IOException {
+            outputStream.write(mHeaders);
+            outputStream.write(mJpegBytes, mImageDataOffset,
+                    mJpegBytes.length - mImageDataOffset);
+        }
+    }
+
     /**
      * Input packet.
      */
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core
+
+import android.graphics.Rect
+import android.os.Build
+import androidx.camera.core.impl.utils.executor.CameraXExecutors.directExecutor
+import androidx.camera.testing.fakes.FakeImageInfo
+import androidx.camera.testing.fakes.FakeImageProxy
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.internal.DoNotInstrument
+
+/**
+ * Unit tests for [FanOutAnalyzer].
+ */
+@RunWith(RobolectricTestRunner::class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+class FanOutAnalyzerTest {
+
+    @Test
+    fun frameIsClosedOnlyWhenAllAnalyzersCloseIt() {
+        // Arrange.
+        val analyzer1 = HoldingAnalyzer()
+        val analyzer2 = HoldingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer1)
+            .addAnalyzer(directExecutor(), analyzer2)
+            .build()
+        val frame = createFrame(0)
+
+        // Act.
+        fanOutAnalyzer.analyze(frame)
+
+        // Assert.
+        assertThat(analyzer1.images).hasSize(1)
+        assertThat(analyzer2.images).hasSize(1)
+        analyzer1.images[0].close()
+        assertThat(frame.isClosed).isFalse()
+        analyzer2.images[0].close()
+        assertThat(frame.isClosed).isTrue()
+    }
+
+    @Test
+    fun closingImageTwice_releasesFrameOnce() {
+        // Arrange.
+        val analyzer1 = HoldingAnalyzer()
+        val analyzer2 = HoldingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer1)
+            .addAnalyzer(directExecutor(), analyzer2)
+            .build()
+        val frame = createFrame(0)
+        fanOutAnalyzer.analyze(frame)
+
+        // Act.
+        analyzer1.images[0].close()
+        analyzer1.images[0].close()
+
+        // Assert.
+        assertThat(frame.isClosed).isFalse()
+    }
+
+    @Test
+    fun busyAnalyzer_keepOnlyLatest_receivesLatestFrameWhenDone() {
+        // Arrange.
+        val slowAnalyzer = HoldingAnalyzer()
+        val fastAnalyzer = ClosingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), slowAnalyzer)
+            .addAnalyzer(directExecutor(), fastAnalyzer)
+            .build()
+        val frames = List(3) { createFrame(it * FRAME_INTERVAL_NANOS) }
+
+        // Act.
+        frames.forEach { fanOutAnalyzer.analyze(it) }
+
+        // Assert: the fast analyzer isn't held back, the second frame is dropped for the slow
+        // analyzer and the third one is kept for it.
+        assertThat(fastAnalyzer.timestamps).containsExactly(
+            0L, FRAME_INTERVAL_NANOS, 2 * FRAME_INTERVAL_NANOS).inOrder()
+        assertThat(slowAnalyzer.images).hasSize(1)
+        assertThat(frames[1].isClosed).isTrue()
+        assertThat(frames[2].isClosed).isFalse()
+        assertThat(fanOutAnalyzer.getDroppedFrameCount(slowAnalyzer)).isEqualTo(1)
+
+        // Act.
+        slowAnalyzer.images[0].close()
+
+        // Assert.
+        assertThat(frames[0].isClosed).isTrue()
+        assertThat(slowAnalyzer.images).hasSize(2)
+        assertThat(slowAnalyzer.images[1].imageInfo.timestamp)
+            .isEqualTo(2 * FRAME_INTERVAL_NANOS)
+        assertThat(fanOutAnalyzer.getAnalyzedFrameCount(slowAnalyzer)).isEqualTo(2)
+        assertThat(fanOutAnalyzer.getAnalyzedFrameCount(fastAnalyzer)).isEqualTo(3)
+        assertThat(fanOutAnalyzer.getDroppedFrameCount(fastAnalyzer)).isEqualTo(0)
+    }
+
+    @Test
+    fun busyAnalyzer_dropWhileBusy_dropsFrames() {
+        // Arrange.
+        val analyzer = HoldingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer, FanOutAnalyzer.FRAME_RATE_UNLIMITED,
+                FanOutAnalyzer.DROP_POLICY_DROP_WHILE_BUSY)
+            .build()
+        val frames = List(3) { createFrame(it * FRAME_INTERVAL_NANOS) }
+
+        // Act.
+        frames.forEach { fanOutAnalyzer.analyze(it) }
+        analyzer.images[0].close()
+
+        // Assert.
+        assertThat(analyzer.images).hasSize(1)
+        assertThat(frames.all { it.isClosed }).isTrue()
+        assertThat(fanOutAnalyzer.getDroppedFrameCount(analyzer)).isEqualTo(2)
+
+        // Act.
+        val nextFrame = createFrame(3 * FRAME_INTERVAL_NANOS)
+        fanOutAnalyzer.analyze(nextFrame)
+
+        // Assert.
+        assertThat(analyzer.images).hasSize(2)
+        assertThat(analyzer.images[1].imageInfo.timestamp).isEqualTo(3 * FRAME_INTERVAL_NANOS)
+    }
+
+    @Test
+    fun targetFrameRate_skipsFramesArrivingFasterThanTheRate() {
+        // Arrange: 30 fps frames for an analyzer targeting 15 fps.
+        val analyzer = ClosingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer, 15,
+                FanOutAnalyzer.DROP_POLICY_KEEP_ONLY_LATEST)
+            .build()
+        val frames = List(7) { createFrame(it * FRAME_INTERVAL_NANOS) }
+
+        // Act.
+        frames.forEach { fanOutAnalyzer.analyze(it) }
+
+        // Assert.
+        assertThat(analyzer.timestamps).containsExactly(
+            0L, 2 * FRAME_INTERVAL_NANOS, 4 * FRAME_INTERVAL_NANOS, 6 * FRAME_INTERVAL_NANOS
+        ).inOrder()
+        assertThat(frames.all { it.isClosed }).isTrue()
+        assertThat(fanOutAnalyzer.getDroppedFrameCount(analyzer)).isEqualTo(0)
+    }
+
+    @Test
+    fun targetFrameRate_withJitteredTimestamps_keepsTheRate() {
+        // Arrange: 30 fps frames whose timestamps are off by up to 3ms, for an analyzer
+        // targeting 15 fps.
+        val analyzer = ClosingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer, 15,
+                FanOutAnalyzer.DROP_POLICY_KEEP_ONLY_LATEST)
+            .build()
+        val jitterMillis = listOf(0, 2, -3, 1, -2, 3, -1, -3, 2, 0, 3, -2, 1, -1, -3, 3)
+        val timestamps = jitterMillis.mapIndexed { i, jitter ->
+            TimeUnit.SECONDS.toNanos(1) + i * FRAME_INTERVAL_NANOS +
+                TimeUnit.MILLISECONDS.toNanos(jitter.toLong())
+        }
+
+        // Act.
+        timestamps.forEach { fanOutAnalyzer.analyze(createFrame(it)) }
+
+        // Assert: every other frame is analyzed, even when it comes a bit early.
+        assertThat(analyzer.timestamps)
+            .containsExactlyElementsIn(timestamps.filterIndexed { i, _ -> i % 2 == 0 })
+            .inOrder()
+    }
+
+    @Test
+    fun targetFrameRate_afterAPause_doesNotCatchUp() {
+        // Arrange.
+        val analyzer = ClosingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer, 15,
+                FanOutAnalyzer.DROP_POLICY_KEEP_ONLY_LATEST)
+            .build()
+        val pause = TimeUnit.SECONDS.toNanos(1)
+        val timestamps = List(3) { it * FRAME_INTERVAL_NANOS } +
+            List(5) { pause + it * FRAME_INTERVAL_NANOS }
+
+        // Act.
+        timestamps.forEach { fanOutAnalyzer.analyze(createFrame(it)) }
+
+        // Assert: the rate starts over from the first frame after the pause.
+        assertThat(analyzer.timestamps).containsExactly(
+            0L, 2 * FRAME_INTERVAL_NANOS, pause, pause + 2 * FRAME_INTERVAL_NANOS,
+            pause + 4 * FRAME_INTERVAL_NANOS
+        ).inOrder()
+    }
+
+    @Test
+    fun cropRectOfEachAnalyzerIsIndependent() {
+        // Arrange.
+        val analyzer1 = HoldingAnalyzer()
+        val analyzer2 = HoldingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), analyzer1)
+            .addAnalyzer(directExecutor(), analyzer2)
+            .build()
+        fanOutAnalyzer.analyze(createFrame(0))
+
+        // Act.
+        analyzer1.images[0].setCropRect(Rect(0, 0, 10, 10))
+
+        // Assert.
+        assertThat(analyzer1.images[0].cropRect).isEqualTo(Rect(0, 0, 10, 10))
+        assertThat(analyzer2.images[0].cropRect).isEqualTo(Rect())
+    }
+
+    @Test
+    fun rejectedExecution_releasesFrame() {
+        // Arrange.
+        val analyzer = HoldingAnalyzer()
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer({ throw RejectedExecutionException() }, analyzer)
+            .build()
+        val frame = createFrame(0)
+
+        // Act.
+        fanOutAnalyzer.analyze(frame)
+
+        // Assert.
+        assertThat(analyzer.images).isEmpty()
+        assertThat(frame.isClosed).isTrue()
+    }
+
+    @Test
+    fun addSameAnalyzerTwice_throwsException() {
+        val analyzer = ClosingAnalyzer()
+        val builder = FanOutAnalyzer.Builder().addAnalyzer(directExecutor(), analyzer)
+
+        assertThrows(IllegalArgumentException::class.java) {
+            builder.addAnalyzer(directExecutor(), analyzer)
+        }
+    }
+
+    @Test
+    fun buildWithoutAnalyzer_throwsException() {
+        assertThrows(IllegalArgumentException::class.java) {
+            FanOutAnalyzer.Builder().build()
+        }
+    }
+
+    @Test
+    fun getStatsOfUnknownAnalyzer_throwsException() {
+        val fanOutAnalyzer = FanOutAnalyzer.Builder()
+            .addAnalyzer(directExecutor(), ClosingAnalyzer())
+            .build()
+
+        assertThrows(IllegalArgumentException::class.java) {
+            fanOutAnalyzer.getAnalyzedFrameCount(ClosingAnalyzer())
+        }
+    }
+
+    private fun createFrame(timestamp: Long): FakeImageProxy {
+        val imageInfo = FakeImageInfo()
+        imageInfo.timestamp = timestamp
+        return FakeImageProxy(imageInfo)
+    }
+
+    /** An analyzer that keeps the images it receives open. */
+    private class HoldingAnalyzer : ImageAnalysis.Analyzer {
+        val images = mutableListOf<ImageProxy>()
+
+        override fun analyze(image: ImageProxy) {
+            images.add(image)
+        }
+    }
+
+    /** An analyzer that closes the images it receives right away. */
+    private class ClosingAnalyzer : ImageAnalysis.Analyzer {
+        val timestamps = mutableListOf<Long>()
+
+        override fun analyze(image: ImageProxy) {
+            timestamps.add(image.imageInfo.timestamp)
+            image.close()
+        }
+    }
+
+    companion object {
+        private val FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 30
+    }
+}
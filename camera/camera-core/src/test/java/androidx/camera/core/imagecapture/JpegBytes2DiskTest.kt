@@ -33,10 +33,17 @@ import androidx.camera.core.imagecapture.Utils.TEMP_FILE
 import androidx.camera.core.imagecapture.Utils.WIDTH
 import androidx.camera.core.impl.utils.Exif
 import androidx.camera.core.impl.utils.Exif.createFromFileString
+import androidx.camera.core.impl.utils.Exif.createFromInputStream
 import androidx.camera.core.processing.Packet
 import androidx.camera.testing.ExifUtil.createExif
 import androidx.camera.testing.TestImageUtil.createJpegBytes
 import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.OutputStream
+import java.util.concurrent.TimeUnit
+import org.junit.Assume.assumeTrue
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
@@ -98,17 +105,102 @@ class JpegBytes2DiskTest {
         assertThat(createFromFileString(path).location!!.altitude).isEqualTo(ALTITUDE)
     }
 
-    private fun saveFileAndGetPath(metadata: ImageCapture.Metadata): String {
-        return saveFileAndGetPath(createExif(createJpegBytes(WIDTH, HEIGHT)), metadata, 0)
+    @Test
+    fun saveToOutputStream_verifyExifAndImageData() {
+        // Arrange.
+        val jpegBytes = createJpegBytes(WIDTH, HEIGHT)
+        val exif = createExif(jpegBytes)
+        exif.description = EXIF_DESCRIPTION
+        val outputStream = ByteArrayOutputStream()
+        val options = OutputFileOptions.Builder(outputStream).build()
+        // Act.
+        operation.apply(JpegBytes2Disk.In.of(createPacket(jpegBytes, exif, 0), options))
+        // Assert: the Exif is updated and the compressed image data is copied as is.
+        val savedBytes = outputStream.toByteArray()
+        val restoredExif = createFromInputStream(ByteArrayInputStream(savedBytes))
+        assertThat(restoredExif.description).isEqualTo(EXIF_DESCRIPTION)
+        val imageData = jpegBytes.copyOfRange(
+            JpegBytes2Disk.findStartOfScan(jpegBytes), jpegBytes.size
+        )
+        assertThat(savedBytes.copyOfRange(savedBytes.size - imageData.size, savedBytes.size))
+            .isEqualTo(imageData)
     }
 
-    private fun saveFileAndGetPath(
-        exif: Exif = createExif(createJpegBytes(WIDTH, HEIGHT)),
-        metadata: ImageCapture.Metadata = ImageCapture.Metadata(),
-        rotation: Int = ROTATION_DEGREES
-    ): String {
+    @Test
+    fun saveToOutputStream_writesTheImageDataOnce() {
+        assumeTrue(PROC_SELF_IO.canRead())
+        // Arrange.
+        val jpegBytes = createPhotoSizedJpegBytes()
+        val exif = createExif(jpegBytes)
+        exif.description = EXIF_DESCRIPTION
+        val outputStream = CountingOutputStream()
+        val options = OutputFileOptions.Builder(outputStream).build()
+        val input = JpegBytes2Disk.In.of(createPacket(jpegBytes, exif, 0), options)
+        // Act.
+        val fileWritesBefore = readWrittenChars()
+        val start = System.nanoTime()
+        operation.apply(input)
+        val elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        val fileWrites = readWrittenChars() - fileWritesBefore
+        println(
+            "Saved ${jpegBytes.size} bytes of JPEG in $elapsedMs ms: " +
+                "${outputStream.count} bytes to the target, $fileWrites bytes to files"
+        )
+        // Assert: the target gets the JPEG with its updated headers, an Exif segment being at
+        // most 64KB, and only the headers go through a temp file. Copying the whole JPEG to a
+        // temp file, updating its Exif in place and copying it to the target used to write at
+        // least 3 times the size of the JPEG.
+        assertThat(outputStream.count).isGreaterThan(jpegBytes.size - MAX_SEGMENT_SIZE.toLong())
+        assertThat(outputStream.count).isLessThan(jpegBytes.size + MAX_SEGMENT_SIZE.toLong())
+        assertThat(fileWrites).isLessThan(PHOTO_SIZE / 8L)
+        assertThat(outputStream.count + fileWrites).isLessThan(2L * jpegBytes.size)
+    }
+
+    @Test
+    fun findStartOfScan_skipsSegmentsAndFillBytes() {
+        val jpegBytes = bytesOf(
+            0xFF, 0xD8, // SOI
+            0xFF, 0xE0, 0x00, 0x04, 0x01, 0x02, // APP0
+            0xFF, // Fill byte
+            0xFF, 0xDB, 0x00, 0x03, 0x01, // DQT
+            0xFF, 0xDA, 0x00, 0x02, 0x03, 0x04, // SOS and image data
+            0xFF, 0xD9 // EOI
+        )
+        assertThat(JpegBytes2Disk.findStartOfScan(jpegBytes)).isEqualTo(14)
+    }
+
+    @Test
+    fun findStartOfScan_invalidJpeg_returnsLength() {
+        val notJpeg = bytesOf(0x01, 0x02, 0x03, 0x04)
+        val truncated = bytesOf(0xFF, 0xD8, 0xFF, 0xE0, 0x00, 0x10, 0x01)
+        assertThat(JpegBytes2Disk.findStartOfScan(notJpeg)).isEqualTo(notJpeg.size)
+        assertThat(JpegBytes2Disk.findStartOfScan(truncated)).isEqualTo(truncated.size)
+    }
+
+    private fun bytesOf(vararg bytes: Int) = ByteArray(bytes.size) { bytes[it].toByte() }
+
+    /**
+     * Returns a JPEG of the size of a photo, the bytes before the end of image marker standing in
+     * for the compressed image data.
+     */
+    private fun createPhotoSizedJpegBytes(): ByteArray {
         val jpegBytes = createJpegBytes(WIDTH, HEIGHT)
-        val inputPacket = Packet.of(
+        val eoiOffset = jpegBytes.size - 2
+        return jpegBytes.copyOf(eoiOffset) + ByteArray(PHOTO_SIZE) +
+            jpegBytes.copyOfRange(eoiOffset, jpegBytes.size)
+    }
+
+    /**
+     * Returns the number of bytes written by the process so far.
+     */
+    private fun readWrittenChars(): Long = PROC_SELF_IO.readLines()
+        .first { it.startsWith("wchar:") }
+        .substringAfter(':')
+        .trim()
+        .toLong()
+
+    private fun createPacket(jpegBytes: ByteArray, exif: Exif, rotation: Int): Packet<ByteArray> {
+        return Packet.of(
             jpegBytes,
             exif,
             ImageFormat.JPEG,
@@ -118,8 +210,41 @@ class JpegBytes2DiskTest {
             Matrix(),
             CAMERA_CAPTURE_RESULT
         )
+    }
+
+    private fun saveFileAndGetPath(metadata: ImageCapture.Metadata): String {
+        return saveFileAndGetPath(createExif(createJpegBytes(WIDTH, HEIGHT)), metadata, 0)
+    }
+
+    private fun saveFileAndGetPath(
+        exif: Exif = createExif(createJpegBytes(WIDTH, HEIGHT)),
+        metadata: ImageCapture.Metadata = ImageCapture.Metadata(),
+        rotation: Int = ROTATION_DEGREES
+    ): String {
+        val inputPacket = createPacket(createJpegBytes(WIDTH, HEIGHT), exif, rotation)
         val options = OutputFileOptions.Builder(TEMP_FILE).setMetadata(metadata).build()
         val input = JpegBytes2Disk.In.of(inputPacket, options)
         return operation.apply(input).savedUri!!.path!!
     }
-}
\ No newline at end of file
+
+    /**
+     * Counts the bytes written to it.
+     */
+    private class CountingOutputStream : OutputStream() {
+        var count = 0L
+
+        override fun write(b: Int) {
+            count++
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            count += len
+        }
+    }
+
+    companion object {
+        private const val PHOTO_SIZE = 4 * 1024 * 1024
+        private const val MAX_SEGMENT_SIZE = 64 * 1024
+        private val PROC_SELF_IO = File("/proc/self/io")
+    }
+}
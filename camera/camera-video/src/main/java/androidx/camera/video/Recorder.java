@@ -74,6 +74,7 @@ import androidx.camera.core.internal.utils.RingBuffer;
 import androidx.camera.video.StreamInfo.StreamState;
 import androidx.camera.video.internal.AudioSource;
 import androidx.camera.video.internal.AudioSourceAccessException;
+import androidx.camera.video.internal.ByteBufferPool;
 import androidx.camera.video.internal.compat.Api26Impl;
 import androidx.camera.video.internal.compat.quirk.DeactivateEncoderSurfaceBeforeStopEncoderQuirk;
 import androidx.camera.video.internal.compat.quirk.DeviceQuirks;
@@ -287,6 +288,9 @@ public final class Recorder implements VideoOutput {
     // The audio data is expected to be less than 1 kB, the value of the cache size is used to limit
     // the memory used within an acceptable range.
     private static final int AUDIO_CACHE_SIZE = 60;
+    // The maximum number of bytes kept by the pool of the cached audio data, which is enough for
+    // a full cache.
+    private static final long AUDIO_CACHE_POOL_MAX_BYTES = 256 * 1024;
     @VisibleForTesting
     static final EncoderFactory DEFAULT_ENCODER_FACTORY = EncoderImpl::new;
     private static final Executor AUDIO_EXECUTOR =
@@ -400,7 +404,11 @@ public final class Recorder implements VideoOutput {
     @SuppressWarnings("WeakerAccess") /* synthetic accessor */
     @NonNull
     final RingBuffer<EncodedData> mPendingAudioRingBuffer = new ArrayRingBuffer<>(
-            AUDIO_CACHE_SIZE);
+            AUDIO_CACHE_SIZE, EncodedData::close);
+    // A pool of the buffers of the cached audio data, so that they are reused across recordings.
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    @NonNull
+    final ByteBufferPool mPendingAudioBufferPool = new ByteBufferPool(AUDIO_CACHE_POOL_MAX_BYTES);
     @SuppressWarnings("WeakerAccess") /* synthetic accessor */
     Throwable mAudioErrorCause = null;
     @SuppressWarnings("WeakerAccess") /* synthetic accessor */
@@ -1367,71 +1375,79 @@ public final class Recorder implements VideoOutput {
             List<EncodedData> audioDataToWrite = getAudioDataToWriteAndClearCache(
                     videoDataToWrite.getPresentationTimeUs()
             );
-            // Make sure we can write the first audio and video data without hitting the file size
-            // limit. Otherwise we will be left with a malformed (empty) track on stop.
-            long firstDataSize = videoDataToWrite.size();
-            for (EncodedData data : audioDataToWrite) {
-                firstDataSize += data.size();
-            }
-            if (mFileSizeLimitInBytes != OutputOptions.FILE_SIZE_UNLIMITED
-                    && firstDataSize > mFileSizeLimitInBytes) {
-                Logger.d(TAG,
-                        String.format("Initial data exceeds file size limit %d > %d", firstDataSize,
-                                mFileSizeLimitInBytes));
-                onInProgressRecordingInternalError(recordingToStart,
-                        ERROR_FILE_SIZE_LIMIT_REACHED, null);
-                return;
-            }
-
-            MediaMuxer mediaMuxer;
             try {
-                MediaSpec mediaSpec = getObservableData(mMediaSpec);
-                int muxerOutputFormat =
-                        mediaSpec.getOutputFormat() == MediaSpec.OUTPUT_FORMAT_AUTO
-                                ? supportedMuxerFormatOrDefaultFrom(mResolvedCamcorderProfile,
-                                MediaSpec.outputFormatToMuxerFormat(
-                                        MEDIA_SPEC_DEFAULT.getOutputFormat()))
-                                : MediaSpec.outputFormatToMuxerFormat(mediaSpec.getOutputFormat());
-                mediaMuxer = recordingToStart.performOneTimeMediaMuxerCreation(muxerOutputFormat,
-                        uri -> mOutputUri = uri);
-            } catch (IOException e) {
-                onInProgressRecordingInternalError(recordingToStart, ERROR_INVALID_OUTPUT_OPTIONS,
-                        e);
-                return;
-            }
+                // Make sure we can write the first audio and video data without hitting the file
+                // size limit. Otherwise we will be left with a malformed (empty) track on stop.
+                long firstDataSize = videoDataToWrite.size();
+                for (EncodedData data : audioDataToWrite) {
+                    firstDataSize += data.size();
+                }
+                if (mFileSizeLimitInBytes != OutputOptions.FILE_SIZE_UNLIMITED
+                        && firstDataSize > mFileSizeLimitInBytes) {
+                    Logger.d(TAG,
+                            String.format("Initial data exceeds file size limit %d > %d",
+                                    firstDataSize, mFileSizeLimitInBytes));
+                    onInProgressRecordingInternalError(recordingToStart,
+                            ERROR_FILE_SIZE_LIMIT_REACHED, null);
+                    return;
+                }
 
-            if (mSurfaceTransformationInfo != null) {
-                mediaMuxer.setOrientationHint(mSurfaceTransformationInfo.getRotationDegrees());
-            }
-            Location location = recordingToStart.getOutputOptions().getLocation();
-            if (location != null) {
+                MediaMuxer mediaMuxer;
                 try {
-                    Pair<Double, Double> geoLocation =
-                            CorrectNegativeLatLongForMediaMuxer.adjustGeoLocation(
-                                    location.getLatitude(), location.getLongitude());
-                    mediaMuxer.setLocation((float) geoLocation.first.doubleValue(),
-                            (float) geoLocation.second.doubleValue());
-                } catch (IllegalArgumentException e) {
-                    mediaMuxer.release();
+                    MediaSpec mediaSpec = getObservableData(mMediaSpec);
+                    int muxerOutputFormat =
+                            mediaSpec.getOutputFormat() == MediaSpec.OUTPUT_FORMAT_AUTO
+                                    ? supportedMuxerFormatOrDefaultFrom(mResolvedCamcorderProfile,
+                                    MediaSpec.outputFormatToMuxerFormat(
+                                            MEDIA_SPEC_DEFAULT.getOutputFormat()))
+                                    : MediaSpec.outputFormatToMuxerFormat(
+                                            mediaSpec.getOutputFormat());
+                    mediaMuxer = recordingToStart.performOneTimeMediaMuxerCreation(
+                            muxerOutputFormat, uri -> mOutputUri = uri);
+                } catch (IOException e) {
                     onInProgressRecordingInternalError(recordingToStart,
                             ERROR_INVALID_OUTPUT_OPTIONS, e);
                     return;
                 }
-            }
 
-            mVideoTrackIndex = mediaMuxer.addTrack(mVideoOutputConfig.getMediaFormat());
-            if (isAudioEnabled()) {
-                mAudioTrackIndex = mediaMuxer.addTrack(mAudioOutputConfig.getMediaFormat());
-            }
-            mediaMuxer.start();
+                if (mSurfaceTransformationInfo != null) {
+                    mediaMuxer.setOrientationHint(mSurfaceTransformationInfo.getRotationDegrees());
+                }
+                Location location = recordingToStart.getOutputOptions().getLocation();
+                if (location != null) {
+                    try {
+                        Pair<Double, Double> geoLocation =
+                                CorrectNegativeLatLongForMediaMuxer.adjustGeoLocation(
+                                        location.getLatitude(), location.getLongitude());
+                        mediaMuxer.setLocation((float) geoLocation.first.doubleValue(),
+                                (float) geoLocation.second.doubleValue());
+                    } catch (IllegalArgumentException e) {
+                        mediaMuxer.release();
+                        onInProgressRecordingInternalError(recordingToStart,
+                                ERROR_INVALID_OUTPUT_OPTIONS, e);
+                        return;
+                    }
+                }
 
-            // MediaMuxer is successfully initialized, transfer the ownership to Recorder.
-            mMediaMuxer = mediaMuxer;
+                mVideoTrackIndex = mediaMuxer.addTrack(mVideoOutputConfig.getMediaFormat());
+                if (isAudioEnabled()) {
+                    mAudioTrackIndex = mediaMuxer.addTrack(mAudioOutputConfig.getMediaFormat());
+                }
+                mediaMuxer.start();
+
+                // MediaMuxer is successfully initialized, transfer the ownership to Recorder.
+                mMediaMuxer = mediaMuxer;
 
-            // Write first data to ensure tracks are not empty
-            writeVideoData(videoDataToWrite, recordingToStart);
-            for (EncodedData data : audioDataToWrite) {
-                writeAudioData(data, recordingToStart);
+                // Write first data to ensure tracks are not empty
+                writeVideoData(videoDataToWrite, recordingToStart);
+                for (EncodedData data : audioDataToWrite) {
+                    writeAudioData(data, recordingToStart);
+                }
+            } finally {
+                // Return the buffers of the cached audio data to the pool.
+                for (EncodedData data : audioDataToWrite) {
+                    data.close();
+                }
             }
         }
     }
@@ -1448,6 +1464,8 @@ public final class Recorder implements VideoOutput {
             // timestamp.
             if (data.getPresentationTimeUs() >= firstVideoDataTimeUs) {
                 res.add(data);
+            } else {
+                data.close();
             }
         }
 
@@ -1710,12 +1728,12 @@ public final class Recorder implements VideoOutput {
                                     if (!mInProgressRecordingStopping) {
                                         // BufferCopiedEncodedData is used to copy the content of
                                         // the encoded data, preventing byte buffers of the media
-                                        // codec from being occupied. Also, since the resources of
-                                        // BufferCopiedEncodedData will be automatically released
-                                        // by garbage collection, there is no need to call its
-                                        // close() function.
+                                        // codec from being occupied. The copy is held by a buffer
+                                        // of the pool, which returns to the pool when the data is
+                                        // closed.
                                         mPendingAudioRingBuffer.enqueue(
-                                                new BufferCopiedEncodedData(encodedData));
+                                                new BufferCopiedEncodedData(encodedData,
+                                                        mPendingAudioBufferPool));
 
                                         if (mPendingFirstVideoData != null) {
                                             // Both audio and data are ready. Start the muxer.
@@ -1982,8 +2000,9 @@ public final class Recorder implements VideoOutput {
     @ExecutedBy("mSequentialExecutor")
     private void clearPendingAudioRingBuffer() {
         while (!mPendingAudioRingBuffer.isEmpty()) {
-            mPendingAudioRingBuffer.dequeue();
+            mPendingAudioRingBuffer.dequeue().close();
         }
+        Logger.d(TAG, "Pending audio buffer pool: " + mPendingAudioBufferPool);
     }
 
     @ExecutedBy("mSequentialExecutor")
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.video.internal;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.core.util.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * A pool of direct {@link ByteBuffer}s, used to hold copies of data without allocating a new
+ * buffer for each copy.
+ *
+ * <p>The buffers are grouped in size classes of powers of two, and a copy uses a buffer of the
+ * smallest size class that fits the data. The copies are handed out as {@link SharedByteBuffer}s,
+ * and a buffer returns to the pool once all the instances shared from its copy are closed. A
+ * buffer that would make the pool retain more than its maximum number of bytes is left to the
+ * garbage collector instead.
+ *
+ * <p>This class is thread safe.
+ */
+@RequiresApi(21) // TODO(b/200306659): Remove and replace with annotation on package-info.java
+public final class ByteBufferPool {
+
+    // The smallest size class, so that tiny copies don't each need a size class of their own.
+    private static final int MIN_BUFFER_SIZE = 1 << 8;
+    private static final int SIZE_CLASS_COUNT = Integer.SIZE;
+
+    private final long mMaxPooledBytes;
+
+    private final Object mLock = new Object();
+
+    @GuardedBy("mLock")
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<ByteBuffer>[] mPooledBuffers = new ArrayDeque[SIZE_CLASS_COUNT];
+
+    @GuardedBy("mLock")
+    private long mPooledBytes;
+
+    @GuardedBy("mLock")
+    private int mPooledBufferCount;
+
+    @GuardedBy("mLock")
+    private int mAcquiredBufferCount;
+
+    @GuardedBy("mLock")
+    private long mAllocatedBufferCount;
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxPooledBytes the maximum total capacity of the buffers kept by the pool while they
+     *                       are not in use.
+     */
+    public ByteBufferPool(long maxPooledBytes) {
+        Preconditions.checkArgument(maxPooledBytes >= 0, "maxPooledBytes must be >= 0");
+        mMaxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Copies the remaining bytes of the given buffer to a buffer of the pool.
+     *
+     * <p>The position of the source buffer is moved to its limit. The capacity and the limit of
+     * the returned buffer are the number of copied bytes, and its position is 0. Like any
+     * buffer returned by {@link SharedByteBuffer#get()}, it is read-only and big-endian. The
+     * returned {@link SharedByteBuffer} must be closed to return the buffer to the pool.
+     */
+    @NonNull
+    public SharedByteBuffer copyOf(@NonNull ByteBuffer source) {
+        ByteBuffer buffer = acquire(source.remaining());
+        buffer.put(source);
+        buffer.flip();
+        return SharedByteBuffer.newSharedInstance(buffer.slice(),
+                CameraXExecutors.directExecutor(), () -> release(buffer));
+    }
+
+    @NonNull
+    private ByteBuffer acquire(int size) {
+        int sizeClass = getSizeClass(size);
+        ByteBuffer buffer = null;
+        synchronized (mLock) {
+            ArrayDeque<ByteBuffer> buffers = mPooledBuffers[sizeClass];
+            if (buffers != null && !buffers.isEmpty()) {
+                buffer = buffers.removeLast();
+                mPooledBytes -= buffer.capacity();
+                mPooledBufferCount--;
+            } else {
+                mAllocatedBufferCount++;
+            }
+            mAcquiredBufferCount++;
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << sizeClass);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    private void release(@NonNull ByteBuffer buffer) {
+        synchronized (mLock) {
+            mAcquiredBufferCount--;
+            if (mPooledBytes + buffer.capacity() > mMaxPooledBytes) {
+                return;
+            }
+            int sizeClass = Integer.numberOfTrailingZeros(buffer.capacity());
+            ArrayDeque<ByteBuffer> buffers = mPooledBuffers[sizeClass];
+            if (buffers == null) {
+                buffers = new ArrayDeque<>();
+                mPooledBuffers[sizeClass] = buffers;
+            }
+            buffers.addLast(buffer);
+            mPooledBytes += buffer.capacity();
+            mPooledBufferCount++;
+        }
+    }
+
+    /**
+     * Returns the size class of the given size, i.e. the exponent of the smallest power of two
+     * that is not smaller than both the size and {@link #MIN_BUFFER_SIZE}.
+     */
+    private static int getSizeClass(int size) {
+        Preconditions.checkArgument(size >= 0 && size <= (1 << (SIZE_CLASS_COUNT - 2)),
+                "Unsupported buffer size: " + size);
+        int capacity = Math.max(size, MIN_BUFFER_SIZE);
+        return SIZE_CLASS_COUNT - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    /** Returns the number of buffers kept by the pool that are not in use. */
+    public int getPooledBufferCount() {
+        synchronized (mLock) {
+            return mPooledBufferCount;
+        }
+    }
+
+    /** Returns the total capacity of the buffers kept by the pool that are not in use. */
+    public long getPooledBytes() {
+        synchronized (mLock) {
+            return mPooledBytes;
+        }
+    }
+
+    /** Returns the number of buffers handed out by the pool that are not closed yet. */
+    public int getAcquiredBufferCount() {
+        synchronized (mLock) {
+            return mAcquiredBufferCount;
+        }
+    }
+
+    /** Returns the number of buffers that were allocated because the pool had none to reuse. */
+    public long getAllocatedBufferCount() {
+        synchronized (mLock) {
+            return mAllocatedBufferCount;
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        synchronized (mLock) {
+            return String.format(Locale.US, "ByteBufferPool[pooled: %d buffers (%d/%d bytes), "
+                            + "acquired: %d buffers, allocated: %d buffers]", mPooledBufferCount,
+                    mPooledBytes, mMaxPooledBytes, mAcquiredBufferCount, mAllocatedBufferCount);
+        }
+    }
+}
@@ -19,8 +19,11 @@ package androidx.camera.video.internal.encoder;
 import android.media.MediaCodec;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.camera.core.impl.utils.futures.Futures;
+import androidx.camera.video.internal.ByteBufferPool;
+import androidx.camera.video.internal.SharedByteBuffer;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
 import androidx.core.util.Preconditions;
 
@@ -35,18 +38,45 @@ import java.util.concurrent.atomic.AtomicReference;
  *
  * <p> To reduce the memory used, the capacity of the copied byte buffer may not equal to its
  * source, only the required size is allocated to put the copied data.
+ *
+ * <p> If a {@link ByteBufferPool} is provided, the data is copied to a buffer of the pool instead
+ * of a newly allocated one, and {@link #close()} must be called to return the buffer to the pool.
  */
 @RequiresApi(21) // TODO(b/200306659): Remove and replace with annotation on package-info.java
 public class BufferCopiedEncodedData implements EncodedData {
 
     private final ByteBuffer mByteBuffer;
+    @Nullable
+    private final SharedByteBuffer mSharedByteBuffer;
     private final MediaCodec.BufferInfo mBufferInfo;
     private final ListenableFuture<Void> mClosedFuture;
     private final CallbackToFutureAdapter.Completer<Void> mClosedCompleter;
 
     public BufferCopiedEncodedData(@NonNull EncodedData encodedData) {
-        mBufferInfo = generateCopiedByteInfo(encodedData);
-        mByteBuffer = generateCopiedByteBuffer(encodedData);
+        this(generateCopiedByteInfo(encodedData), generateCopiedByteBuffer(encodedData), null);
+    }
+
+    /**
+     * Copies the encoded data to a buffer of the given pool.
+     *
+     * <p>The buffer returns to the pool when {@link #close()} is called.
+     */
+    public BufferCopiedEncodedData(@NonNull EncodedData encodedData,
+            @NonNull ByteBufferPool byteBufferPool) {
+        this(generateCopiedByteInfo(encodedData),
+                generateSharedByteBuffer(encodedData, byteBufferPool));
+    }
+
+    private BufferCopiedEncodedData(@NonNull MediaCodec.BufferInfo bufferInfo,
+            @NonNull SharedByteBuffer sharedByteBuffer) {
+        this(bufferInfo, sharedByteBuffer.get(), sharedByteBuffer);
+    }
+
+    private BufferCopiedEncodedData(@NonNull MediaCodec.BufferInfo bufferInfo,
+            @NonNull ByteBuffer byteBuffer, @Nullable SharedByteBuffer sharedByteBuffer) {
+        mBufferInfo = bufferInfo;
+        mByteBuffer = byteBuffer;
+        mSharedByteBuffer = sharedByteBuffer;
 
         // Prepare close future and completer
         AtomicReference<CallbackToFutureAdapter.Completer<Void>> ref = new AtomicReference<>();
@@ -58,7 +88,7 @@ public class BufferCopiedEncodedData implements EncodedData {
     }
 
     @NonNull
-    private MediaCodec.BufferInfo generateCopiedByteInfo(@NonNull EncodedData encodedData) {
+    private static MediaCodec.BufferInfo generateCopiedByteInfo(@NonNull EncodedData encodedData) {
         MediaCodec.BufferInfo bufferInfo = encodedData.getBufferInfo();
 
         MediaCodec.BufferInfo copiedBufferInfo = new MediaCodec.BufferInfo();
@@ -73,11 +103,18 @@ public class BufferCopiedEncodedData implements EncodedData {
     }
 
     @NonNull
-    private ByteBuffer generateCopiedByteBuffer(@NonNull EncodedData encodedData) {
+    private static ByteBuffer getContentByteBuffer(@NonNull EncodedData encodedData) {
         ByteBuffer byteBuffer = encodedData.getByteBuffer();
         MediaCodec.BufferInfo bufferInfo = encodedData.getBufferInfo();
         byteBuffer.position(bufferInfo.offset);
         byteBuffer.limit(bufferInfo.offset + bufferInfo.size);
+        return byteBuffer;
+    }
+
+    @NonNull
+    private static ByteBuffer generateCopiedByteBuffer(@NonNull EncodedData encodedData) {
+        ByteBuffer byteBuffer = getContentByteBuffer(encodedData);
+        MediaCodec.BufferInfo bufferInfo = encodedData.getBufferInfo();
 
         // Copy only the part that contents data
         ByteBuffer copiedByteBuffer = ByteBuffer.allocate(bufferInfo.size);
@@ -88,6 +125,16 @@ public class BufferCopiedEncodedData implements EncodedData {
         return copiedByteBuffer;
     }
 
+    @NonNull
+    private static SharedByteBuffer generateSharedByteBuffer(@NonNull EncodedData encodedData,
+            @NonNull ByteBufferPool byteBufferPool) {
+        SharedByteBuffer sharedByteBuffer =
+                byteBufferPool.copyOf(getContentByteBuffer(encodedData));
+        // The buffer returned by get() is always the same instance, so it keeps the byte order.
+        sharedByteBuffer.get().order(encodedData.getByteBuffer().order());
+        return sharedByteBuffer;
+    }
+
     /** {@inheritDoc} */
     @NonNull
     @Override
@@ -121,10 +168,14 @@ public class BufferCopiedEncodedData implements EncodedData {
     }
 
     /**
-     * No need to call this function. Resources will be released by garbage collection.
+     * Returns the buffer to its pool, if any. Otherwise there is no need to call this function,
+     * resources will be released by garbage collection.
      */
     @Override
     public void close() {
+        if (mSharedByteBuffer != null) {
+            mSharedByteBuffer.close();
+        }
         mClosedCompleter.set(null);
     }
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.video.internal
+
+import android.os.Build
+import com.google.common.truth.Truth.assertThat
+import java.nio.ByteBuffer
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.internal.DoNotInstrument
+
+@RunWith(RobolectricTestRunner::class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+class ByteBufferPoolTest {
+
+    private val pool = ByteBufferPool(MAX_POOLED_BYTES)
+
+    @Test
+    fun copyOf_copiesRemainingBytes() {
+        val source = ByteBuffer.wrap(ByteArray(100) { it.toByte() })
+        source.position(10)
+
+        pool.copyOf(source).use { copy ->
+            val buffer = copy.get()
+            assertThat(source.remaining()).isEqualTo(0)
+            assertThat(buffer.position()).isEqualTo(0)
+            assertThat(buffer.capacity()).isEqualTo(90)
+            assertThat(buffer.limit()).isEqualTo(90)
+            assertThat(buffer.get(0)).isEqualTo(10.toByte())
+            assertThat(buffer.get(89)).isEqualTo(99.toByte())
+        }
+    }
+
+    @Test
+    fun close_returnsBufferToPool() {
+        val copy = pool.copyOf(ByteBuffer.allocate(1000))
+        assertThat(pool.acquiredBufferCount).isEqualTo(1)
+        assertThat(pool.pooledBufferCount).isEqualTo(0)
+
+        copy.close()
+
+        assertThat(pool.acquiredBufferCount).isEqualTo(0)
+        assertThat(pool.pooledBufferCount).isEqualTo(1)
+        assertThat(pool.pooledBytes).isEqualTo(1024)
+    }
+
+    @Test
+    fun sharedCopy_returnsBufferToPoolWhenAllInstancesAreClosed() {
+        val copy = pool.copyOf(ByteBuffer.allocate(1000))
+        val sharedCopy = copy.share()
+
+        copy.close()
+        assertThat(pool.pooledBufferCount).isEqualTo(0)
+
+        sharedCopy.close()
+        assertThat(pool.pooledBufferCount).isEqualTo(1)
+    }
+
+    @Test
+    fun copyOf_reusesBufferOfSameSizeClass() {
+        pool.copyOf(ByteBuffer.allocate(600)).close()
+        pool.copyOf(ByteBuffer.allocate(1000)).close()
+        assertThat(pool.allocatedBufferCount).isEqualTo(1)
+
+        pool.copyOf(ByteBuffer.allocate(1100)).close()
+        assertThat(pool.allocatedBufferCount).isEqualTo(2)
+        assertThat(pool.pooledBufferCount).isEqualTo(2)
+        assertThat(pool.pooledBytes).isEqualTo(1024 + 2048)
+    }
+
+    @Test
+    fun close_doesNotPoolMoreThanMaxPooledBytes() {
+        val copies = List(3) { pool.copyOf(ByteBuffer.allocate(MAX_POOLED_BYTES.toInt() / 2)) }
+
+        copies.forEach { it.close() }
+
+        assertThat(pool.pooledBufferCount).isEqualTo(2)
+        assertThat(pool.pooledBytes).isEqualTo(MAX_POOLED_BYTES)
+        assertThat(pool.acquiredBufferCount).isEqualTo(0)
+    }
+
+    companion object {
+        private const val MAX_POOLED_BYTES = 8L * 1024
+    }
+}
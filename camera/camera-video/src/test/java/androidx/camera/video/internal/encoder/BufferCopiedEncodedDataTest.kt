@@ -18,6 +18,7 @@ package androidx.camera.video.internal.encoder
 
 import android.media.MediaCodec
 import android.os.Build
+import androidx.camera.video.internal.ByteBufferPool
 import com.google.common.truth.Truth.assertThat
 import java.nio.ByteBuffer
 import java.nio.ByteOrder
@@ -112,6 +113,22 @@ class BufferCopiedEncodedDataTest(
         assertThat(byteBuffer.capacity()).isEqualTo(bufferInfo.size)
     }
 
+    @Test
+    fun copyToPool_haveSameContentAndReturnBufferOnClose() {
+        val pool = ByteBufferPool(2L * SOURCE_CAPACITY)
+        val pooledEncodedData = BufferCopiedEncodedData(fakeEncodedData, pool)
+
+        assertThat(pooledEncodedData.bufferInfo.size).isEqualTo(sourceSize)
+        assertThat(pooledEncodedData.byteBuffer).isEqualTo(copiedEncodedData.byteBuffer)
+        assertThat(pooledEncodedData.byteBuffer.order()).isEqualTo(sourceByteOrder)
+        assertThat(pool.acquiredBufferCount).isEqualTo(1)
+
+        pooledEncodedData.close()
+
+        assertThat(pool.acquiredBufferCount).isEqualTo(0)
+        assertThat(pooledEncodedData.closedFuture.isDone).isTrue()
+    }
+
     @Test
     fun getPresentationTimeUs_returnCorrectResult() {
         assertThat(copiedEncodedData.presentationTimeUs).isEqualTo(sourceTimeUs)
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.constraintlayout.core.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.constraintlayout.core.widgets.ConstraintAnchor
+import androidx.constraintlayout.core.widgets.ConstraintWidget
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer
+import androidx.constraintlayout.core.widgets.Optimizer
+import androidx.constraintlayout.core.widgets.analyzer.ConcurrentLayout
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class ConcurrentLayoutBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val layouts = createLayouts()
+
+    @Test
+    fun layoutSequentially() {
+        benchmarkRule.measureRepeated {
+            for (container in layouts) {
+                container.layout()
+            }
+        }
+    }
+
+    @Test
+    fun layoutConcurrently() {
+        val pool = ConcurrentLayout.getPool()
+        benchmarkRule.measureRepeated {
+            ConcurrentLayout.layout(pool, layouts, ConcurrentLayout.LAYOUT)
+        }
+    }
+
+    companion object {
+        private const val LAYOUTS = 16
+        private const val ROWS = 3
+        private const val COLUMNS = 24
+
+        /**
+         * Wide layouts made of rows of widgets in spread horizontal chains, with a few match
+         * constraints widgets.
+         */
+        private fun createLayouts(): List<ConstraintWidgetContainer> = List(LAYOUTS) { n ->
+            val root = ConstraintWidgetContainer(0, 0, 2000 + n * 10, 400)
+            root.optimizationLevel = Optimizer.OPTIMIZATION_NONE
+            for (row in 0 until ROWS) {
+                var previous: ConstraintWidget? = null
+                for (i in 0 until COLUMNS) {
+                    val widget = ConstraintWidget(40 + (i % 5) * 3, 20)
+                    root.add(widget)
+                    if (i % 7 == 0) {
+                        widget.horizontalDimensionBehaviour =
+                            ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT
+                    }
+                    if (previous == null) {
+                        widget.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT)
+                    } else {
+                        widget.connect(
+                            ConstraintAnchor.Type.LEFT, previous, ConstraintAnchor.Type.RIGHT
+                        )
+                        previous.connect(
+                            ConstraintAnchor.Type.RIGHT, widget, ConstraintAnchor.Type.LEFT
+                        )
+                    }
+                    widget.connect(
+                        ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP, row * 100
+                    )
+                    previous = widget
+                }
+                previous!!.connect(
+                    ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT
+                )
+            }
+            root
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.constraintlayout.core.benchmark
+
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.constraintlayout.core.LinearSystem
+import androidx.constraintlayout.core.Metrics
+import androidx.constraintlayout.core.widgets.Barrier
+import androidx.constraintlayout.core.widgets.ConstraintAnchor
+import androidx.constraintlayout.core.widgets.ConstraintWidget
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer
+import androidx.constraintlayout.core.widgets.Flow
+import androidx.constraintlayout.core.widgets.Optimizer
+import androidx.constraintlayout.core.widgets.VirtualLayout
+import androidx.constraintlayout.core.widgets.analyzer.BasicMeasure
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Solves the same layouts with both row engines of the solver, `ArrayLinkedVariables` when
+ * [LinearSystem.OPTIMIZED_ENGINE] is false and `SolverVariableValues` when it is true, so that
+ * the default engine is picked on the time and the allocations of a solve.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class SolverEngineBenchmark(
+    private val layout: String,
+    private val optimizedEngine: Boolean
+) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private var defaultEngine = LinearSystem.OPTIMIZED_ENGINE
+    private lateinit var root: ConstraintWidgetContainer
+
+    @Before
+    fun setUp() {
+        defaultEngine = LinearSystem.OPTIMIZED_ENGINE
+        // the engine is picked when the system of the container is created
+        LinearSystem.OPTIMIZED_ENGINE = optimizedEngine
+        root = LAYOUTS.getValue(layout)()
+        root.measurer = MEASURER
+        root.measure(Optimizer.OPTIMIZATION_NONE, 0, 0, 0, 0, 0, 0, 0, 0)
+    }
+
+    @After
+    fun tearDown() {
+        LinearSystem.sMetrics = null
+        LinearSystem.OPTIMIZED_ENGINE = defaultEngine
+    }
+
+    @Test
+    fun layout() {
+        benchmarkRule.measureRepeated {
+            root.layout()
+        }
+    }
+
+    @Test
+    fun pivotsPerLayout() {
+        // the first layout fills the pools of the system, as it would for a real layout
+        root.layout()
+        val metrics = Metrics()
+        LinearSystem.sMetrics = metrics
+        root.layout()
+        Log.i(
+            TAG,
+            "$layout, optimizedEngine=$optimizedEngine: ${metrics.pivots} pivots, " +
+                "${metrics.iterations} iterations"
+        )
+    }
+
+    companion object {
+        private const val TAG = "SolverEngineBenchmark"
+
+        private val LAYOUTS = mapOf(
+            "flow" to ::createFlow,
+            "chains" to ::createChains,
+            "barriers" to ::createBarriers,
+            "ratio" to ::createRatio
+        )
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "layout={0}, optimizedEngine={1}")
+        fun data(): List<Array<Any>> = LAYOUTS.keys.flatMap { layout ->
+            listOf(arrayOf<Any>(layout, false), arrayOf<Any>(layout, true))
+        }
+
+        /**
+         * Measures the widgets to their fixed size, and the virtual layouts to their content.
+         */
+        private val MEASURER = object : BasicMeasure.Measurer {
+            override fun measure(widget: ConstraintWidget, measure: BasicMeasure.Measure) {
+                if (widget is VirtualLayout) {
+                    val fixedWidth =
+                        measure.horizontalBehavior == ConstraintWidget.DimensionBehaviour.FIXED
+                    val fixedHeight =
+                        measure.verticalBehavior == ConstraintWidget.DimensionBehaviour.FIXED
+                    widget.measure(
+                        if (fixedWidth) BasicMeasure.EXACTLY else BasicMeasure.UNSPECIFIED,
+                        if (fixedWidth) measure.horizontalDimension else 0,
+                        if (fixedHeight) BasicMeasure.EXACTLY else BasicMeasure.UNSPECIFIED,
+                        if (fixedHeight) measure.verticalDimension else 0
+                    )
+                    measure.measuredWidth = widget.measuredWidth
+                    measure.measuredHeight = widget.measuredHeight
+                } else {
+                    measure.measuredWidth = measure.horizontalDimension
+                    measure.measuredHeight = measure.verticalDimension
+                }
+            }
+
+            override fun didMeasures() {
+            }
+        }
+
+        /**
+         * Ten rows of four widgets in horizontal chains of each style, two of them with
+         * weights.
+         */
+        private fun createChains(): ConstraintWidgetContainer {
+            val root = createRoot()
+            var previousRow: ConstraintWidget? = null
+            for (row in 0 until 10) {
+                val widgets = List(4) { i ->
+                    ConstraintWidget(100 + i * 10, 40).also { root.add(it) }
+                }
+                widgets.forEachIndexed { i, widget ->
+                    if (i % 2 == 0) {
+                        widget.horizontalDimensionBehaviour =
+                            ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT
+                        widget.setHorizontalWeight(i + 1f)
+                    }
+                    if (i == 0) {
+                        widget.connect(
+                            ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT, 8
+                        )
+                    } else {
+                        widget.connect(
+                            ConstraintAnchor.Type.LEFT, widgets[i - 1],
+                            ConstraintAnchor.Type.RIGHT, 8
+                        )
+                        widgets[i - 1].connect(
+                            ConstraintAnchor.Type.RIGHT, widget, ConstraintAnchor.Type.LEFT, 8
+                        )
+                    }
+                    if (previousRow == null) {
+                        widget.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP)
+                    } else {
+                        widget.connect(
+                            ConstraintAnchor.Type.TOP, previousRow, ConstraintAnchor.Type.BOTTOM,
+                            4
+                        )
+                    }
+                }
+                widgets.last().connect(
+                    ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT, 8
+                )
+                widgets[0].horizontalChainStyle = row % 3
+                previousRow = widgets[0]
+            }
+            return root
+        }
+
+        /**
+         * Eight groups of three widgets, each group below the bottom barrier of the previous one.
+         */
+        private fun createBarriers(): ConstraintWidgetContainer {
+            val root = createRoot()
+            var previousBarrier: ConstraintWidget = root
+            for (group in 0 until 8) {
+                val barrier = Barrier()
+                barrier.barrierType = Barrier.BOTTOM
+                for (i in 0 until 3) {
+                    val widget = ConstraintWidget(200, 30 + i * 15)
+                    root.add(widget)
+                    widget.connect(
+                        ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT, i * 250
+                    )
+                    widget.connect(
+                        ConstraintAnchor.Type.TOP, previousBarrier,
+                        if (previousBarrier === root) {
+                            ConstraintAnchor.Type.TOP
+                        } else {
+                            ConstraintAnchor.Type.BOTTOM
+                        },
+                        10
+                    )
+                    barrier.add(widget)
+                }
+                root.add(barrier)
+                previousBarrier = barrier
+            }
+            return root
+        }
+
+        /**
+         * A column of twelve widgets sized by a ratio of their constrained width.
+         */
+        private fun createRatio(): ConstraintWidgetContainer {
+            val root = createRoot()
+            var previous: ConstraintWidget = root
+            for (i in 0 until 12) {
+                val widget = ConstraintWidget(100, 100)
+                root.add(widget)
+                widget.horizontalDimensionBehaviour =
+                    ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT
+                widget.verticalDimensionBehaviour =
+                    ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT
+                widget.setDimensionRatio(if (i % 2 == 0) "16:9" else "H,4:3")
+                widget.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT, i * 8)
+                widget.connect(
+                    ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT, i * 4
+                )
+                widget.connect(
+                    ConstraintAnchor.Type.TOP, previous,
+                    if (previous === root) {
+                        ConstraintAnchor.Type.TOP
+                    } else {
+                        ConstraintAnchor.Type.BOTTOM
+                    }
+                )
+                previous = widget
+            }
+            return root
+        }
+
+        /**
+         * Thirty widgets of various sizes in an aligned Flow of up to five columns.
+         */
+        private fun createFlow(): ConstraintWidgetContainer {
+            val root = createRoot()
+            val flow = Flow()
+            flow.setWrapMode(Flow.WRAP_ALIGNED)
+            flow.setMaxElementsWrap(5)
+            flow.setHorizontalGap(8)
+            flow.setVerticalGap(8)
+            flow.horizontalDimensionBehaviour = ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT
+            flow.verticalDimensionBehaviour = ConstraintWidget.DimensionBehaviour.WRAP_CONTENT
+            flow.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT)
+            flow.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT)
+            flow.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP)
+            root.add(flow)
+            for (i in 0 until 30) {
+                val widget = ConstraintWidget(100 + (i % 4) * 20, 40 + (i % 3) * 10)
+                root.add(widget)
+                flow.add(widget)
+            }
+            return root
+        }
+
+        private fun createRoot(): ConstraintWidgetContainer {
+            val root = ConstraintWidgetContainer(0, 0, 1080, 1920)
+            root.optimizationLevel = Optimizer.OPTIMIZATION_NONE
+            return root
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.constraintlayout.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import androidx.constraintlayout.core.widgets.ConstraintAnchor;
+import androidx.constraintlayout.core.widgets.ConstraintWidget;
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.core.widgets.Optimizer;
+import androidx.constraintlayout.core.widgets.analyzer.BasicMeasure;
+import androidx.constraintlayout.core.widgets.analyzer.ConcurrentLayout;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+public class ConcurrentLayoutTest {
+
+    private static final int LAYOUTS = 16;
+    private static final int COLUMNS = 24;
+    private static final int RATIOS = 12;
+    private static final int ITERATIONS = 5;
+    private static final int ROUNDS = 10;
+
+    /**
+     * Measurer giving a fixed content size to the widgets, safe to use from several threads
+     */
+    private static final BasicMeasure.Measurer CONTENT_MEASURER = new BasicMeasure.Measurer() {
+        @Override
+        public void measure(ConstraintWidget widget, BasicMeasure.Measure measure) {
+            measure.measuredWidth = measure.horizontalBehavior
+                    == ConstraintWidget.DimensionBehaviour.FIXED
+                    ? measure.horizontalDimension : 60;
+            measure.measuredHeight = measure.verticalBehavior
+                    == ConstraintWidget.DimensionBehaviour.FIXED
+                    ? measure.verticalDimension : 24;
+        }
+
+        @Override
+        public void didMeasures() {
+        }
+    };
+
+    /**
+     * Measures the container, then lays it out
+     */
+    private static final ConcurrentLayout.LayoutPass MEASURE_AND_LAYOUT =
+            new ConcurrentLayout.LayoutPass() {
+                @Override
+                public void layout(ConstraintWidgetContainer container) {
+                    int widthMode = container.getHorizontalDimensionBehaviour()
+                            == ConstraintWidget.DimensionBehaviour.WRAP_CONTENT
+                            ? BasicMeasure.AT_MOST : BasicMeasure.EXACTLY;
+                    container.measure(container.getOptimizationLevel(), widthMode,
+                            container.getWidth(), BasicMeasure.EXACTLY, container.getHeight(),
+                            0, 0, 0, 0);
+                    container.layout();
+                }
+            };
+
+    @Test
+    public void testSameResults() {
+        ArrayList<ConstraintWidgetContainer> sequential = createLayouts();
+        ArrayList<ConstraintWidgetContainer> concurrent = createLayouts();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (ConstraintWidgetContainer container : sequential) {
+                    container.layout();
+                }
+                ConcurrentLayout.layout(pool, concurrent, ConcurrentLayout.LAYOUT);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < LAYOUTS; i++) {
+            ArrayList<ConstraintWidget> expected = sequential.get(i).getChildren();
+            ArrayList<ConstraintWidget> actual = concurrent.get(i).getChildren();
+            for (int j = 0; j < expected.size(); j++) {
+                ConstraintWidget e = expected.get(j);
+                ConstraintWidget a = actual.get(j);
+                assertEquals(e.getDebugName(), e.getLeft(), a.getLeft());
+                assertEquals(e.getDebugName(), e.getTop(), a.getTop());
+                assertEquals(e.getDebugName(), e.getWidth(), a.getWidth());
+                assertEquals(e.getDebugName(), e.getHeight(), a.getHeight());
+            }
+        }
+    }
+
+    @Test
+    public void testSingleThread() {
+        ArrayList<ConstraintWidgetContainer> layouts = createLayouts();
+        ForkJoinPool pool = new ForkJoinPool(1);
+        final ArrayList<ConstraintWidgetContainer> visited = new ArrayList<>();
+        try {
+            ConcurrentLayout.layout(pool, layouts, new ConcurrentLayout.LayoutPass() {
+                @Override
+                public void layout(ConstraintWidgetContainer container) {
+                    visited.add(container);
+                    container.layout();
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        // with a single thread the containers are laid out in order on the calling thread
+        assertEquals(layouts, visited);
+    }
+
+    @Test
+    public void testRepeatedConcurrentLayouts() {
+        ArrayList<ConstraintWidgetContainer> sequential = createMixedLayouts();
+        ArrayList<ConstraintWidgetContainer> concurrent = createMixedLayouts();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                for (ConstraintWidgetContainer container : sequential) {
+                    MEASURE_AND_LAYOUT.layout(container);
+                }
+                ConcurrentLayout.layout(pool, concurrent, MEASURE_AND_LAYOUT);
+                for (int i = 0; i < LAYOUTS; i++) {
+                    assertArrayEquals("round " + round + ", layout " + i,
+                            getFrames(sequential.get(i)), getFrames(concurrent.get(i)));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the frame of the container followed by the frames of its children
+     */
+    private static int[] getFrames(ConstraintWidgetContainer container) {
+        ArrayList<ConstraintWidget> children = container.getChildren();
+        int[] frames = new int[4 * (children.size() + 1)];
+        frames[2] = container.getWidth();
+        frames[3] = container.getHeight();
+        for (int i = 0; i < children.size(); i++) {
+            ConstraintWidget widget = children.get(i);
+            frames[4 * i + 4] = widget.getLeft();
+            frames[4 * i + 5] = widget.getTop();
+            frames[4 * i + 6] = widget.getWidth();
+            frames[4 * i + 7] = widget.getHeight();
+        }
+        return frames;
+    }
+
+    /**
+     * Layouts going through the solver, the direct resolution and the dependency graph, made of
+     * ratio widgets constrained on all sides, with a horizontal chain when the layout isn't
+     * resolved with the dependency graph, which doesn't handle chains
+     */
+    private static ArrayList<ConstraintWidgetContainer> createMixedLayouts() {
+        int[] levels = new int[]{
+                Optimizer.OPTIMIZATION_NONE,
+                Optimizer.OPTIMIZATION_STANDARD,
+                Optimizer.OPTIMIZATION_STANDARD | Optimizer.OPTIMIZATION_GRAPH
+        };
+        ArrayList<ConstraintWidgetContainer> layouts = new ArrayList<>();
+        for (int n = 0; n < LAYOUTS; n++) {
+            ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 600 + n * 10,
+                    800);
+            int level = levels[n % levels.length];
+            root.setOptimizationLevel(level);
+            root.setMeasurer(CONTENT_MEASURER);
+            if (n % 4 == 3) {
+                root.setHorizontalDimensionBehaviour(
+                        ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+            }
+            for (int i = 0; i < RATIOS; i++) {
+                ConstraintWidget ratio = new ConstraintWidget(100, 100);
+                ratio.setDebugName("R" + i);
+                root.add(ratio);
+                ratio.setHorizontalDimensionBehaviour(
+                        ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                ratio.setVerticalDimensionBehaviour(
+                        ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                ratio.setDimensionRatio((1 + i) + ":" + (1 + n % 5));
+                ratio.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT,
+                        i * 10);
+                ratio.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT,
+                        n * 5);
+                ratio.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP,
+                        100 + i * 20);
+                ratio.connect(ConstraintAnchor.Type.BOTTOM, root, ConstraintAnchor.Type.BOTTOM,
+                        i * 7);
+            }
+            if (!Optimizer.enabled(level, Optimizer.OPTIMIZATION_GRAPH)) {
+                ConstraintWidget previous = null;
+                for (int i = 0; i < RATIOS; i++) {
+                    ConstraintWidget widget = new ConstraintWidget(30 + i, 20);
+                    widget.setDebugName("C" + i);
+                    root.add(widget);
+                    if (previous == null) {
+                        widget.connect(ConstraintAnchor.Type.LEFT, root,
+                                ConstraintAnchor.Type.LEFT);
+                    } else {
+                        widget.connect(ConstraintAnchor.Type.LEFT, previous,
+                                ConstraintAnchor.Type.RIGHT);
+                        previous.connect(ConstraintAnchor.Type.RIGHT, widget,
+                                ConstraintAnchor.Type.LEFT);
+                    }
+                    widget.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP);
+                    previous = widget;
+                }
+                previous.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT);
+            }
+            layouts.add(root);
+        }
+        return layouts;
+    }
+
+    /**
+     * Wide layouts made of columns of widgets in spread horizontal chains,
+     * with a few match constraints widgets
+     */
+    private static ArrayList<ConstraintWidgetContainer> createLayouts() {
+        ArrayList<ConstraintWidgetContainer> layouts = new ArrayList<>();
+        for (int n = 0; n < LAYOUTS; n++) {
+            ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 2000 + n * 10,
+                    400);
+            root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+            for (int row = 0; row < 3; row++) {
+                ConstraintWidget previous = null;
+                for (int i = 0; i < COLUMNS; i++) {
+                    ConstraintWidget widget = new ConstraintWidget(40 + (i % 5) * 3, 20);
+                    widget.setDebugName("W" + row + "_" + i);
+                    root.add(widget);
+                    if (i % 7 == 0) {
+                        widget.setHorizontalDimensionBehaviour(
+                                ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                    }
+                    if (previous == null) {
+                        widget.connect(ConstraintAnchor.Type.LEFT, root,
+                                ConstraintAnchor.Type.LEFT);
+                    } else {
+                        widget.connect(ConstraintAnchor.Type.LEFT, previous,
+                                ConstraintAnchor.Type.RIGHT);
+                        previous.connect(ConstraintAnchor.Type.RIGHT, widget,
+                                ConstraintAnchor.Type.LEFT);
+                    }
+                    widget.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP,
+                            row * 100);
+                    previous = widget;
+                }
+                previous.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT);
+            }
+            layouts.add(root);
+        }
+        return layouts;
+    }
+}
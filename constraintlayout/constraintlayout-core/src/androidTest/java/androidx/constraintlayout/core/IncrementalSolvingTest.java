@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.constraintlayout.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.constraintlayout.core.widgets.ConstraintAnchor;
+import androidx.constraintlayout.core.widgets.ConstraintWidget;
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.core.widgets.Optimizer;
+
+import org.junit.Test;
+
+public class IncrementalSolvingTest {
+
+    @Test
+    public void testEditableEquality() throws Exception {
+        LinearSystem system = new LinearSystem();
+        ConstraintWidget widget = new ConstraintWidget();
+        ConstraintWidget other = new ConstraintWidget();
+        SolverVariable left = system.createObjectVariable(widget.getAnchor(
+                ConstraintAnchor.Type.LEFT));
+        SolverVariable right = system.createObjectVariable(widget.getAnchor(
+                ConstraintAnchor.Type.RIGHT));
+        SolverVariable end = system.createObjectVariable(other.getAnchor(
+                ConstraintAnchor.Type.RIGHT));
+        // right = left + [width], end >= right, end = left + 150 (medium)
+        system.addEquality(left, 10);
+        SolverVariable width = system.addEditableEquality(right, left, 100);
+        system.addGreaterThan(end, right, 0, SolverVariable.STRENGTH_FIXED);
+        system.addEquality(end, left, 150, SolverVariable.STRENGTH_MEDIUM);
+        system.minimize();
+        assertEquals(110, right.computedValue, 0);
+        assertEquals(160, end.computedValue, 0);
+
+        system.suggestValue(width, 200);
+        assertTrue(system.resolve());
+        assertEquals(210, right.computedValue, 0);
+        assertEquals(210, end.computedValue, 0);
+
+        system.suggestValue(width, 50);
+        assertTrue(system.resolve());
+        assertEquals(60, right.computedValue, 0);
+        assertEquals(160, end.computedValue, 0);
+    }
+
+    @Test
+    public void testCentering() {
+        ConstraintWidgetContainer root = createLayout();
+        ConstraintWidgetContainer reference = createLayout();
+        root.setIncrementalSolving(true);
+        Metrics metrics = new Metrics();
+        root.fillMetrics(metrics);
+        root.layout();
+        reference.layout();
+        assertSameLayout(reference, root);
+        assertEquals(0, metrics.incrementalResolves);
+
+        int[] widths = {150, 20, 400, 100, 0, 1000};
+        for (int width : widths) {
+            root.getChildren().get(0).setWidth(width);
+            reference.getChildren().get(0).setWidth(width);
+            root.getChildren().get(2).setHeight(width / 2);
+            reference.getChildren().get(2).setHeight(width / 2);
+            root.layout();
+            reference.layout();
+            assertSameLayout(reference, root);
+        }
+        assertEquals(widths.length, metrics.incrementalResolves);
+    }
+
+    @Test
+    public void testInvalidateGraph() {
+        ConstraintWidgetContainer root = createLayout();
+        ConstraintWidgetContainer reference = createLayout();
+        root.setIncrementalSolving(true);
+        Metrics metrics = new Metrics();
+        root.fillMetrics(metrics);
+        root.layout();
+        root.getChildren().get(0).connect(ConstraintAnchor.Type.LEFT, root,
+                ConstraintAnchor.Type.LEFT, 42);
+        reference.getChildren().get(0).connect(ConstraintAnchor.Type.LEFT, reference,
+                ConstraintAnchor.Type.LEFT, 42);
+        root.invalidateGraph();
+        root.layout();
+        reference.layout();
+        assertEquals(0, metrics.incrementalResolves);
+        assertSameLayout(reference, root);
+
+        // changing the visibility changes the structure of the system
+        root.getChildren().get(1).setVisibility(ConstraintWidget.GONE);
+        reference.getChildren().get(1).setVisibility(ConstraintWidget.GONE);
+        root.layout();
+        reference.layout();
+        assertEquals(0, metrics.incrementalResolves);
+        assertSameLayout(reference, root);
+        root.layout();
+        assertEquals(1, metrics.incrementalResolves);
+        assertSameLayout(reference, root);
+    }
+
+    private static ConstraintWidgetContainer createLayout() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 800, 600);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        ConstraintWidget a = new ConstraintWidget(100, 20);
+        ConstraintWidget b = new ConstraintWidget(100, 20);
+        ConstraintWidget c = new ConstraintWidget(100, 20);
+        ConstraintWidget d = new ConstraintWidget(100, 20);
+        a.setDebugName("A");
+        b.setDebugName("B");
+        c.setDebugName("C");
+        d.setDebugName("D");
+        root.add(a);
+        root.add(b);
+        root.add(c);
+        root.add(d);
+
+        // A is centered in the root, B is a chain of B and C spread in the root,
+        // D fills the space below A.
+        a.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT);
+        a.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT);
+        a.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP, 10);
+        b.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT);
+        b.connect(ConstraintAnchor.Type.RIGHT, c, ConstraintAnchor.Type.LEFT);
+        c.connect(ConstraintAnchor.Type.LEFT, b, ConstraintAnchor.Type.RIGHT);
+        c.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT);
+        b.connect(ConstraintAnchor.Type.TOP, a, ConstraintAnchor.Type.BOTTOM, 8);
+        c.connect(ConstraintAnchor.Type.TOP, a, ConstraintAnchor.Type.BOTTOM, 8);
+        d.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+        d.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+        d.connect(ConstraintAnchor.Type.LEFT, a, ConstraintAnchor.Type.LEFT);
+        d.connect(ConstraintAnchor.Type.RIGHT, a, ConstraintAnchor.Type.RIGHT);
+        d.connect(ConstraintAnchor.Type.TOP, c, ConstraintAnchor.Type.BOTTOM);
+        d.connect(ConstraintAnchor.Type.BOTTOM, root, ConstraintAnchor.Type.BOTTOM);
+        return root;
+    }
+
+    private static void assertSameLayout(ConstraintWidgetContainer expected,
+            ConstraintWidgetContainer actual) {
+        for (int i = 0; i < expected.getChildren().size(); i++) {
+            ConstraintWidget e = expected.getChildren().get(i);
+            ConstraintWidget a = actual.getChildren().get(i);
+            assertEquals(e.getDebugName(), e.getLeft(), a.getLeft());
+            assertEquals(e.getDebugName(), e.getTop(), a.getTop());
+            assertEquals(e.getDebugName(), e.getWidth(), a.getWidth());
+            assertEquals(e.getDebugName(), e.getHeight(), a.getHeight());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package androidx.constraintlayout.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
@@ -350,4 +351,14 @@ public class LinearSystemTest {
         assertEquals(xr, 100);
     }
 
+    @Test
+    public void testSimpleDefinitionRowIsReleasedOnce() {
+        // a row without variables is folded into the final value of its extra variable
+        ArrayRow row = mLS.createRow();
+        row.mConstantValue = 10;
+        mLS.addConstraint(row);
+        ArrayRow first = mLS.createRow();
+        ArrayRow second = mLS.createRow();
+        assertNotSame(first, second);
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.constraintlayout.core;
+
+import static androidx.constraintlayout.core.widgets.analyzer.BasicMeasure.EXACTLY;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.constraintlayout.core.widgets.ConstraintAnchor;
+import androidx.constraintlayout.core.widgets.ConstraintWidget;
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.core.widgets.Optimizer;
+import androidx.constraintlayout.core.widgets.analyzer.BasicMeasure;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+public class MeasureCacheTest {
+
+    /**
+     * Measurer using the content size of each widget unless given a fixed dimension,
+     * counting the measures
+     */
+    static class ContentMeasurer implements BasicMeasure.Measurer {
+        HashMap<ConstraintWidget, int[]> mContent = new HashMap<>();
+        int mMeasures = 0;
+
+        @Override
+        public void measure(ConstraintWidget widget, BasicMeasure.Measure measure) {
+            mMeasures++;
+            int[] content = mContent.get(widget);
+            measure.measuredWidth = measure.horizontalBehavior
+                    == ConstraintWidget.DimensionBehaviour.FIXED
+                    ? measure.horizontalDimension : content[0];
+            measure.measuredHeight = measure.verticalBehavior
+                    == ConstraintWidget.DimensionBehaviour.FIXED
+                    ? measure.verticalDimension : content[1];
+        }
+
+        @Override
+        public void didMeasures() {
+        }
+    }
+
+    @Test
+    public void testMeasureCache() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 600, 800);
+        ConstraintWidget a = new ConstraintWidget();
+        ConstraintWidget b = new ConstraintWidget();
+        a.setDebugName("A");
+        b.setDebugName("B");
+        root.add(a);
+        root.add(b);
+        a.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+        a.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+        a.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT);
+        a.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP);
+        b.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+        b.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+        b.setHorizontalMatchStyle(ConstraintWidget.MATCH_CONSTRAINT_WRAP, 0, 0, 1);
+        b.connect(ConstraintAnchor.Type.LEFT, a, ConstraintAnchor.Type.RIGHT);
+        b.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT);
+        b.connect(ConstraintAnchor.Type.TOP, a, ConstraintAnchor.Type.BOTTOM);
+
+        ContentMeasurer measurer = new ContentMeasurer();
+        measurer.mContent.put(a, new int[]{100, 20});
+        measurer.mContent.put(b, new int[]{200, 40});
+        root.setMeasurer(measurer);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        root.setMeasureCacheEnabled(true);
+        Metrics metrics = new Metrics();
+        root.fillMetrics(metrics);
+
+        measure(root, 600, 800);
+        int measures = measurer.mMeasures;
+        assertTrue(measures > 0);
+        assertEquals(measures, metrics.measureCacheMisses);
+        assertEquals(0, metrics.measureCacheHits);
+        assertEquals(100, a.getWidth());
+        assertEquals(200, b.getWidth());
+        int left = b.getLeft();
+
+        // nothing changed, the measures are reused
+        measure(root, 600, 800);
+        assertEquals(measures, measurer.mMeasures);
+        assertTrue(metrics.measureCacheHits > 0);
+        assertEquals(left, b.getLeft());
+        assertEquals(200, b.getWidth());
+
+        // a content change isn't seen until the widget is invalidated
+        measurer.mContent.put(a, new int[]{150, 20});
+        measure(root, 600, 800);
+        assertEquals(measures, measurer.mMeasures);
+        assertEquals(100, a.getWidth());
+        a.invalidateMeasure();
+        measure(root, 600, 800);
+        assertTrue(measurer.mMeasures > measures);
+        assertEquals(150, a.getWidth());
+        assertTrue(b.getLeft() != left);
+        assertEquals(200, b.getWidth());
+
+        // a change of the container constraints invalidates everything
+        measures = measurer.mMeasures;
+        long misses = metrics.measureCacheMisses;
+        measure(root, 300, 800);
+        assertEquals(measures + metrics.measureCacheMisses - misses, measurer.mMeasures);
+        assertTrue(metrics.measureCacheMisses - misses >= 2);
+    }
+
+    @Test
+    public void testMeasureCacheDisabled() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 600, 800);
+        ConstraintWidget a = new ConstraintWidget();
+        root.add(a);
+        a.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+        a.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+        a.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT);
+        a.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP);
+        ContentMeasurer measurer = new ContentMeasurer();
+        measurer.mContent.put(a, new int[]{100, 20});
+        root.setMeasurer(measurer);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        Metrics metrics = new Metrics();
+        root.fillMetrics(metrics);
+
+        measure(root, 600, 800);
+        int measures = measurer.mMeasures;
+        measurer.mContent.put(a, new int[]{120, 20});
+        measure(root, 600, 800);
+        assertEquals(2 * measures, measurer.mMeasures);
+        assertEquals(120, a.getWidth());
+        assertEquals(0, metrics.measureCacheHits);
+        assertEquals(0, metrics.measureCacheMisses);
+    }
+
+    private static void measure(ConstraintWidgetContainer root, int width, int height) {
+        root.measure(root.getOptimizationLevel(), EXACTLY, width, EXACTLY, height, 0, 0, 0, 0);
+        root.layout();
+    }
+}
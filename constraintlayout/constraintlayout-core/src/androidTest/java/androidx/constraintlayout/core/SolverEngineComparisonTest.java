@@ -0,0 +1,275 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.constraintlayout.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.constraintlayout.core.widgets.Barrier;
+import androidx.constraintlayout.core.widgets.ConstraintAnchor;
+import androidx.constraintlayout.core.widgets.ConstraintWidget;
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.core.widgets.Flow;
+import androidx.constraintlayout.core.widgets.Optimizer;
+
+import org.junit.Test;
+
+/**
+ * Solves a set of layouts with both row engines of the solver
+ * ({@link ArrayLinkedVariables} and {@link SolverVariableValues}), and checks that they produce
+ * the expected results, identical between the engines and across repeated layout passes.
+ */
+public class SolverEngineComparisonTest {
+
+    // Repeated passes reuse the rows and variables released to the pools by the previous ones
+    private static final int PASSES = 5;
+
+    interface LayoutFactory {
+        ConstraintWidgetContainer create();
+    }
+
+    @Test
+    public void testChains() {
+        ConstraintWidgetContainer root = compareEngines(SolverEngineComparisonTest::createChains);
+        for (int row = 0; row < 10; row++) {
+            ConstraintWidget first = root.getChildren().get(row * 4);
+            ConstraintWidget last = root.getChildren().get(row * 4 + 3);
+            assertEquals("row " + row, 8, first.getLeft());
+            assertEquals("row " + row, 1072, last.getRight());
+            for (int i = 0; i < 3; i++) {
+                ConstraintWidget widget = root.getChildren().get(row * 4 + i);
+                ConstraintWidget next = root.getChildren().get(row * 4 + i + 1);
+                assertEquals("row " + row + " gap " + i, 16, next.getLeft() - widget.getRight());
+                assertEquals(widget.getTop(), next.getTop());
+            }
+            if (row > 0) {
+                ConstraintWidget previousRow = root.getChildren().get((row - 1) * 4);
+                assertEquals(previousRow.getBottom() + 4, first.getTop());
+            }
+        }
+    }
+
+    @Test
+    public void testBarriers() {
+        ConstraintWidgetContainer root =
+                compareEngines(SolverEngineComparisonTest::createBarriers);
+        int barrier = 0;
+        for (ConstraintWidget child : root.getChildren()) {
+            if (child instanceof Barrier) {
+                Barrier helper = (Barrier) child;
+                int bottom = 0;
+                for (int i = 0; i < helper.mWidgetsCount; i++) {
+                    bottom = Math.max(bottom, helper.mWidgets[i].getBottom());
+                }
+                assertEquals(bottom, child.getTop());
+                barrier = child.getTop();
+            } else {
+                assertEquals(barrier + 10, child.getTop());
+            }
+        }
+    }
+
+    @Test
+    public void testRatio() {
+        ConstraintWidgetContainer root = compareEngines(SolverEngineComparisonTest::createRatio);
+        for (int i = 0; i < root.getChildren().size(); i++) {
+            ConstraintWidget widget = root.getChildren().get(i);
+            assertEquals("R" + i, 1080 - i * 12, widget.getWidth());
+            float ratio = i % 2 == 0 ? 16f / 9f : 4f / 3f;
+            assertEquals("R" + i, widget.getWidth() / ratio, widget.getHeight(), 1f);
+        }
+    }
+
+    @Test
+    public void testFlow() {
+        ConstraintWidgetContainer root = compareEngines(SolverEngineComparisonTest::createFlow);
+        ConstraintWidget flow = root.getChildren().get(0);
+        for (int i = 1; i < root.getChildren().size(); i++) {
+            ConstraintWidget widget = root.getChildren().get(i);
+            assertTrue("F" + i, widget.getLeft() >= flow.getLeft());
+            assertTrue("F" + i, widget.getRight() <= flow.getRight());
+            assertTrue("F" + i, widget.getBottom() <= flow.getBottom());
+            for (int j = 1; j < i; j++) {
+                // the elements don't overlap
+                ConstraintWidget other = root.getChildren().get(j);
+                assertTrue("F" + i + " F" + j, widget.getRight() <= other.getLeft()
+                        || other.getRight() <= widget.getLeft()
+                        || widget.getBottom() <= other.getTop()
+                        || other.getBottom() <= widget.getTop());
+            }
+        }
+    }
+
+    /**
+     * Lays out the widgets created by the factory with each engine, checks that the engines and
+     * the layout passes agree, and returns the container solved with the default engine.
+     */
+    private ConstraintWidgetContainer compareEngines(LayoutFactory factory) {
+        boolean engine = LinearSystem.OPTIMIZED_ENGINE;
+        try {
+            LinearSystem.OPTIMIZED_ENGINE = false;
+            int[] linked = getFrames(solve(factory));
+            LinearSystem.OPTIMIZED_ENGINE = true;
+            ConstraintWidgetContainer root = solve(factory);
+            assertArrayEquals(linked, getFrames(root));
+            return root;
+        } finally {
+            LinearSystem.OPTIMIZED_ENGINE = engine;
+        }
+    }
+
+    private ConstraintWidgetContainer solve(LayoutFactory factory) {
+        // the engine is picked when the system is created, so we need a new container
+        ConstraintWidgetContainer root = factory.create();
+        root.setMeasurer(FlowTest.sMeasurer);
+        layout(root);
+        int[] frames = getFrames(root);
+        for (int i = 1; i < PASSES; i++) {
+            layout(root);
+            assertArrayEquals("pass " + i, frames, getFrames(root));
+        }
+        return root;
+    }
+
+    private static int[] getFrames(ConstraintWidgetContainer root) {
+        int[] frames = new int[root.getChildren().size() * 4];
+        for (int i = 0; i < root.getChildren().size(); i++) {
+            ConstraintWidget widget = root.getChildren().get(i);
+            frames[i * 4] = widget.getLeft();
+            frames[i * 4 + 1] = widget.getTop();
+            frames[i * 4 + 2] = widget.getWidth();
+            frames[i * 4 + 3] = widget.getHeight();
+        }
+        return frames;
+    }
+
+    private static void layout(ConstraintWidgetContainer root) {
+        root.measure(Optimizer.OPTIMIZATION_NONE, 0, 0, 0, 0, 0, 0, 0, 0);
+        root.layout();
+    }
+
+    private static ConstraintWidgetContainer createChains() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 1080, 1920);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        ConstraintWidget previousRow = null;
+        for (int row = 0; row < 10; row++) {
+            ConstraintWidget previous = null;
+            ConstraintWidget[] widgets = new ConstraintWidget[4];
+            for (int i = 0; i < widgets.length; i++) {
+                ConstraintWidget widget = new ConstraintWidget(100 + i * 10, 40);
+                widget.setDebugName("W" + row + "_" + i);
+                root.add(widget);
+                if (i % 2 == 0) {
+                    widget.setHorizontalDimensionBehaviour(
+                            ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                    widget.setHorizontalWeight(i + 1);
+                }
+                if (previous == null) {
+                    widget.connect(ConstraintAnchor.Type.LEFT, root,
+                            ConstraintAnchor.Type.LEFT, 8);
+                } else {
+                    widget.connect(ConstraintAnchor.Type.LEFT, previous,
+                            ConstraintAnchor.Type.RIGHT, 8);
+                    previous.connect(ConstraintAnchor.Type.RIGHT, widget,
+                            ConstraintAnchor.Type.LEFT, 8);
+                }
+                if (previousRow == null) {
+                    widget.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP);
+                } else {
+                    widget.connect(ConstraintAnchor.Type.TOP, previousRow,
+                            ConstraintAnchor.Type.BOTTOM, 4);
+                }
+                widgets[i] = widget;
+                previous = widget;
+            }
+            previous.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT, 8);
+            widgets[0].setHorizontalChainStyle(row % 3);
+            previousRow = widgets[0];
+        }
+        return root;
+    }
+
+    private static ConstraintWidgetContainer createBarriers() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 1080, 1920);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        ConstraintWidget previousBarrier = root;
+        for (int group = 0; group < 8; group++) {
+            Barrier barrier = new Barrier();
+            barrier.setBarrierType(Barrier.BOTTOM);
+            for (int i = 0; i < 3; i++) {
+                ConstraintWidget widget = new ConstraintWidget(200, 30 + i * 15);
+                widget.setDebugName("W" + group + "_" + i);
+                root.add(widget);
+                widget.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT,
+                        i * 250);
+                widget.connect(ConstraintAnchor.Type.TOP, previousBarrier,
+                        previousBarrier == root
+                                ? ConstraintAnchor.Type.TOP : ConstraintAnchor.Type.BOTTOM, 10);
+                barrier.add(widget);
+            }
+            root.add(barrier);
+            previousBarrier = barrier;
+        }
+        return root;
+    }
+
+    private static ConstraintWidgetContainer createRatio() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 1080, 1920);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        ConstraintWidget previous = root;
+        for (int i = 0; i < 12; i++) {
+            ConstraintWidget widget = new ConstraintWidget(100, 100);
+            widget.setDebugName("R" + i);
+            root.add(widget);
+            widget.setHorizontalDimensionBehaviour(
+                    ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+            widget.setVerticalDimensionBehaviour(
+                    ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+            widget.setDimensionRatio(i % 2 == 0 ? "16:9" : "H,4:3");
+            widget.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT, i * 8);
+            widget.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT, i * 4);
+            widget.connect(ConstraintAnchor.Type.TOP, previous,
+                    previous == root ? ConstraintAnchor.Type.TOP : ConstraintAnchor.Type.BOTTOM);
+            previous = widget;
+        }
+        return root;
+    }
+
+    private static ConstraintWidgetContainer createFlow() {
+        ConstraintWidgetContainer root = new ConstraintWidgetContainer(0, 0, 1080, 1920);
+        root.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        Flow flow = new Flow();
+        flow.setDebugName("Flow");
+        flow.setWrapMode(Flow.WRAP_ALIGNED);
+        flow.setMaxElementsWrap(5);
+        flow.setHorizontalGap(8);
+        flow.setVerticalGap(8);
+        flow.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+        flow.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.WRAP_CONTENT);
+        flow.connect(ConstraintAnchor.Type.LEFT, root, ConstraintAnchor.Type.LEFT);
+        flow.connect(ConstraintAnchor.Type.RIGHT, root, ConstraintAnchor.Type.RIGHT);
+        flow.connect(ConstraintAnchor.Type.TOP, root, ConstraintAnchor.Type.TOP);
+        root.add(flow);
+        for (int i = 0; i < 30; i++) {
+            ConstraintWidget widget = new ConstraintWidget(100 + (i % 4) * 20, 40 + (i % 3) * 10);
+            widget.setDebugName("F" + i);
+            root.add(widget);
+            flow.add(widget);
+        }
+        return root;
+    }
+}
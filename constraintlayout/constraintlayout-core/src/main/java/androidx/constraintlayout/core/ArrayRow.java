@@ -535,7 +535,8 @@ public class ArrayRow implements LinearSystem.Row {
                     unrestrictedCandidateAmount = amount;
                     unrestrictedCandidateIsNew = true;
                 }
-            } else if (unrestrictedCandidate == null) {
+            } else if (unrestrictedCandidate == null
+                    && variable.mType != SolverVariable.Type.CONSTANT) {
                 if (amount < 0) {
                     if (restrictedCandidate == null) {
                         restrictedCandidate = variable;
@@ -23,4 +23,16 @@ public class Cache {
     Pools.Pool<ArrayRow> mArrayRowPool = new Pools.SimplePool<>(256);
     Pools.Pool<SolverVariable> mSolverVariablePool = new Pools.SimplePool<>(256);
     SolverVariable[] mIndexedVariables = new SolverVariable[32];
+
+    /**
+     * Grow the pools to match the size of the table, so that rows and variables
+     * keep being recycled once a system gets larger than the initial pool size
+     *
+     * @param tableSize the current size of the table
+     */
+    void ensureCapacity(int tableSize) {
+        mOptimizedArrayRowPool.ensureCapacity(tableSize);
+        mArrayRowPool.ensureCapacity(tableSize);
+        mSolverVariablePool.ensureCapacity(tableSize);
+    }
 }
@@ -42,9 +42,9 @@ public class LinearSystem {
     public static boolean OPTIMIZED_ENGINE = false;
 
     /*
-     * Default size for the object pools
+     * Initial size for the object pools
      */
-    private static int sPoolSize = 1000;
+    private static final int POOL_SIZE = 1000;
     public boolean hasSimpleDefinition = false;
 
     /*
@@ -70,6 +70,16 @@ public class LinearSystem {
     public boolean graphOptimizer = false;
     public boolean newgraphOptimizer = false;
 
+    // if true, widgets will add their fixed dimensions as editable constants
+    public boolean incremental = false;
+
+    /*
+     * Editable constants (parameters) and the value they currently hold in the tableau
+     */
+    private SolverVariable[] mParameters = new SolverVariable[8];
+    private float[] mParameterValues = new float[8];
+    private int mNumParameters = 0;
+
     // Used in optimize()
     private boolean[] mAlreadyTestedCandidates = new boolean[mTableSize];
 
@@ -79,7 +89,7 @@ public class LinearSystem {
 
     final Cache mCache;
 
-    private SolverVariable[] mPoolVariables = new SolverVariable[sPoolSize];
+    private SolverVariable[] mPoolVariables = new SolverVariable[POOL_SIZE];
     private int mPoolVariablesCount = 0;
 
     public static Metrics sMetrics;
@@ -154,6 +164,7 @@ public class LinearSystem {
         mAlreadyTestedCandidates = new boolean[mTableSize];
         mMaxColumns = mTableSize;
         mMaxRows = mTableSize;
+        mCache.ensureCapacity(mTableSize);
         if (sMetrics != null) {
             sMetrics.tableSizeIncrease++;
             sMetrics.maxTableSize = Math.max(sMetrics.maxTableSize, mTableSize);
@@ -184,6 +195,17 @@ public class LinearSystem {
         }
     }
 
+    /**
+     * Release a single ArrayRow that didn't make it into the table back to its pool
+     */
+    private void releaseRow(ArrayRow row) {
+        if (OPTIMIZED_ENGINE) {
+            mCache.mOptimizedArrayRowPool.release(row);
+        } else {
+            mCache.mArrayRowPool.release(row);
+        }
+    }
+
     /**
      * Reset the LinearSystem object so that it can be reused.
      */
@@ -207,6 +229,8 @@ public class LinearSystem {
             mVariables.clear();
         }
         mVariablesID = 0;
+        Arrays.fill(mParameters, 0, mNumParameters, null);
+        mNumParameters = 0;
         mGoal.clear();
         mNumColumns = 1;
         for (int i = 0; i < mNumRows; i++) {
@@ -317,6 +341,33 @@ public class LinearSystem {
         return variable;
     }
 
+    /**
+     * Create a parameter variable, i.e. a constant that stays in the tableau as a column
+     * so that its value can later be changed without rebuilding the system.
+     * Parameters are never picked as pivots.
+     */
+    private SolverVariable createParameterVariable(float value) {
+        if (sMetrics != null) {
+            sMetrics.parameters++;
+        }
+        if (mNumColumns + 1 >= mMaxColumns) {
+            increaseTableSize();
+        }
+        SolverVariable variable = acquireSolverVariable(SolverVariable.Type.CONSTANT, null);
+        mVariablesID++;
+        mNumColumns++;
+        variable.id = mVariablesID;
+        mCache.mIndexedVariables[mVariablesID] = variable;
+        if (mNumParameters >= mParameters.length) {
+            mParameters = Arrays.copyOf(mParameters, mParameters.length * 2);
+            mParameterValues = Arrays.copyOf(mParameterValues, mParameterValues.length * 2);
+        }
+        mParameters[mNumParameters] = variable;
+        mParameterValues[mNumParameters] = value;
+        mNumParameters++;
+        return variable;
+    }
+
 //    private void addError(ArrayRow row)
 //        row.addError(this, SolverVariable.STRENGTH_NONE);
 //
@@ -392,9 +443,8 @@ public class LinearSystem {
             variable.reset();
             variable.setType(type, prefix);
         }
-        if (mPoolVariablesCount >= sPoolSize) {
-            sPoolSize *= 2;
-            mPoolVariables = Arrays.copyOf(mPoolVariables, sPoolSize);
+        if (mPoolVariablesCount >= mPoolVariables.length) {
+            mPoolVariables = Arrays.copyOf(mPoolVariables, mPoolVariables.length * 2);
         }
         mPoolVariables[mPoolVariablesCount++] = variable;
         return variable;
@@ -541,6 +591,75 @@ public class LinearSystem {
         computeValues();
     }
 
+    /**
+     * Change the value of a parameter created through
+     * {@link #addEditableEquality(SolverVariable, SolverVariable, int)}. The tableau
+     * is updated in place; call {@link #resolve()} once all the values have been suggested.
+     *
+     * @param parameter the parameter to update
+     * @param value     the new value of the parameter
+     */
+    public void suggestValue(SolverVariable parameter, float value) {
+        int index = -1;
+        for (int i = 0; i < mNumParameters; i++) {
+            if (mParameters[i] == parameter) {
+                index = i;
+                break;
+            }
+        }
+        if (index == -1) {
+            return;
+        }
+        float delta = value - mParameterValues[index];
+        if (delta == 0) {
+            return;
+        }
+        mParameterValues[index] = value;
+        // the parameter column tells us how each row depends on the original constant
+        for (int i = 0; i < mNumRows; i++) {
+            ArrayRow row = mRows[i];
+            float amount = row.variables.get(parameter);
+            if (amount != 0) {
+                row.mConstantValue += amount * delta;
+            }
+        }
+    }
+
+    /**
+     * Solve the system again after some parameters have been changed, starting from the
+     * basis found by the previous resolution instead of rebuilding the system.
+     *
+     * @return true if the system was solved, false if it has to be rebuilt from scratch
+     */
+    public boolean resolve() throws Exception {
+        if (sMetrics != null) {
+            sMetrics.incrementalResolves++;
+        }
+        if (DEBUG) {
+            System.out.println("\n*** RESOLVE ***\n");
+        }
+        // Changing constants keeps the goal optimal but can break feasibility,
+        // so we first need to go back to BFS before optimizing again.
+        enforceBFS(mGoal);
+        for (int i = 0; i < mNumRows; i++) {
+            ArrayRow row = mRows[i];
+            if (row.mVariable.mType != SolverVariable.Type.UNRESTRICTED
+                    && row.mConstantValue < 0) {
+                return false;
+            }
+        }
+        optimize(mGoal, false);
+        // variables that left the basis are now parametric, i.e. zero
+        for (int i = 1; i <= mVariablesID; i++) {
+            SolverVariable variable = mCache.mIndexedVariables[i];
+            if (variable != null && !variable.isFinalValue && !variable.mIsSynonym) {
+                variable.computedValue = 0;
+            }
+        }
+        computeValues();
+        return true;
+    }
+
     final void cleanupRows() {
         int i = 0;
         while (i < mNumRows) {
@@ -596,6 +715,7 @@ public class LinearSystem {
             row.updateFromSystem(this);
 
             if (row.isEmpty()) {
+                releaseRow(row);
                 return;
             }
 
@@ -611,36 +731,37 @@ public class LinearSystem {
                 // extra variable added... let's try to see if we can remove it
                 SolverVariable extra = createExtraVariable();
                 row.mVariable = extra;
-                int numRows = mNumRows;
-                addRow(row);
-                if (mNumRows == numRows + 1) {
-                    added = true;
-                    mTempGoal.initFromRow(row);
-                    optimize(mTempGoal, true);
-                    if (extra.mDefinitionId == -1) {
-                        if (DEBUG) {
-                            System.out.println("row added is 0, so get rid of it");
-                        }
-                        if (row.mVariable == extra) {
-                            // move extra to be parametric
-                            SolverVariable pivotCandidate = row.pickPivot(extra);
-                            if (pivotCandidate != null) {
-                                if (sMetrics != null) {
-                                    sMetrics.pivots++;
-                                }
-                                row.pivot(pivotCandidate);
+                if (!addRow(row)) {
+                    // The row was folded into a final value and went back to the pool
+                    return;
+                }
+                added = true;
+                mTempGoal.initFromRow(row);
+                optimize(mTempGoal, true);
+                if (extra.mDefinitionId == -1) {
+                    if (DEBUG) {
+                        System.out.println("row added is 0, so get rid of it");
+                    }
+                    if (row.mVariable == extra) {
+                        // move extra to be parametric
+                        SolverVariable pivotCandidate = row.pickPivot(extra);
+                        if (pivotCandidate != null) {
+                            if (sMetrics != null) {
+                                sMetrics.pivots++;
                             }
+                            row.pivot(pivotCandidate);
                         }
-                        if (!row.mIsSimpleDefinition) {
-                            row.mVariable.updateReferencesWithNewDefinition(this, row);
-                        }
-                        if (OPTIMIZED_ENGINE) {
-                            mCache.mOptimizedArrayRowPool.release(row);
-                        } else {
-                            mCache.mArrayRowPool.release(row);
-                        }
-                        mNumRows--;
                     }
+                    if (!row.mIsSimpleDefinition) {
+                        row.mVariable.updateReferencesWithNewDefinition(this, row);
+                    }
+                    if (OPTIMIZED_ENGINE) {
+                        mCache.mOptimizedArrayRowPool.release(row);
+                    } else {
+                        mCache.mArrayRowPool.release(row);
+                    }
+                    mNumRows--;
+                    return;
                 }
             }
 
@@ -650,6 +771,9 @@ public class LinearSystem {
                     System.out.println("No variable found to pivot on " + row.toReadableString());
                     displayReadableRows();
                 }
+                if (!added) {
+                    releaseRow(row);
+                }
                 return;
             }
         }
@@ -658,9 +782,18 @@ public class LinearSystem {
         }
     }
 
-    private void addRow(ArrayRow row) {
+    /**
+     * Add the row to the table, or fold it into the final value of its variable if it's a simple
+     * definition. In the latter case the row is released and must not be used anymore.
+     *
+     * @return true if the row was added to the table, false if it was released
+     */
+    private boolean addRow(ArrayRow row) {
+        boolean added = true;
         if (SIMPLIFY_SYNONYMS && row.mIsSimpleDefinition) {
             row.mVariable.setFinalValue(this, row.mConstantValue);
+            releaseRow(row);
+            added = false;
         } else {
             mRows[mNumRows] = row;
             row.mVariable.mDefinitionId = mNumRows;
@@ -680,6 +813,9 @@ public class LinearSystem {
                 }
                 if (mRows[i] != null && mRows[i].mIsSimpleDefinition) {
                     ArrayRow removedRow = mRows[i];
+                    if (removedRow == row) {
+                        added = false;
+                    }
                     removedRow.mVariable.setFinalValue(this, removedRow.mConstantValue);
                     if (OPTIMIZED_ENGINE) {
                         mCache.mOptimizedArrayRowPool.release(removedRow);
@@ -704,6 +840,7 @@ public class LinearSystem {
             }
             hasSimpleDefinition = false;
         }
+        return added;
     }
 
     // @TODO: add description
@@ -960,7 +1097,8 @@ public class LinearSystem {
                             for (int j = 0; j < size; j++) {
                                 SolverVariable candidate = current.variables.getVariable(j);
                                 float a_j = current.variables.get(candidate);
-                                if (a_j <= 0) {
+                                if (a_j <= 0
+                                        || candidate.mType == SolverVariable.Type.CONSTANT) {
                                     continue;
                                 }
                                 if (DEBUG) {
@@ -980,7 +1118,8 @@ public class LinearSystem {
                             for (int j = 1; j < mNumColumns; j++) {
                                 SolverVariable candidate = mCache.mIndexedVariables[j];
                                 float a_j = current.variables.get(candidate);
-                                if (a_j <= 0) {
+                                if (a_j <= 0
+                                        || candidate.mType == SolverVariable.Type.CONSTANT) {
                                     continue;
                                 }
                                 if (DEBUG) {
@@ -1437,6 +1576,28 @@ public class LinearSystem {
         return row;
     }
 
+    /**
+     * Add an equation of the form a = b + value, where value is kept as an editable constant
+     * that can later be changed through {@link #suggestValue(SolverVariable, float)}
+     * and {@link #resolve()} without rebuilding the system.
+     *
+     * @param a     variable a
+     * @param b     variable b
+     * @param value the initial value of the constant
+     * @return the parameter representing the constant
+     */
+    public SolverVariable addEditableEquality(SolverVariable a, SolverVariable b, int value) {
+        if (DEBUG_CONSTRAINTS) {
+            System.out.println("-> " + a + " = " + b + " + [" + value + "]");
+        }
+        SolverVariable parameter = createParameterVariable(value);
+        ArrayRow row = createRow();
+        row.createRowEquals(a, b, value);
+        row.variables.put(parameter, value < 0 ? -1 : 1);
+        addConstraint(row);
+        return parameter;
+    }
+
     /**
      * Add an equation of the form a = value
      *
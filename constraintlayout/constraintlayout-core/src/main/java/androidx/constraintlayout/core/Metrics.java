@@ -68,6 +68,10 @@ public class Metrics {
     public long mEquations;
     public long mVariables;
     public long mSimpleEquations;
+    public long parameters;
+    public long incrementalResolves;
+    public long measureCacheHits;
+    public long measureCacheMisses;
 
     // @TODO: add description
     @Override
@@ -125,6 +129,10 @@ public class Metrics {
         mVariables = 0;
         mEquations = 0;
         mSimpleEquations = 0;
+        parameters = 0;
+        incrementalResolves = 0;
+        measureCacheHits = 0;
+        measureCacheMisses = 0;
     }
 
     /**
@@ -170,5 +178,9 @@ public class Metrics {
         graphSolved = metrics.graphSolved;
         resolvedWidgets = metrics.resolvedWidgets;
         nonresolvedWidgets = metrics.nonresolvedWidgets;
+        parameters = metrics.parameters;
+        incrementalResolves = metrics.incrementalResolves;
+        measureCacheHits = metrics.measureCacheHits;
+        measureCacheMisses = metrics.measureCacheMisses;
     }
 }
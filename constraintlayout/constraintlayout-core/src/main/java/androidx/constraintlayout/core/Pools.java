@@ -16,6 +16,8 @@
 
 package androidx.constraintlayout.core;
 
+import java.util.Arrays;
+
 /**
  * Helper class for crating pools of objects. An example use looks like this:
  * <pre>
@@ -69,6 +71,13 @@ final class Pools {
          * @param count     the number of variables to release
          */
         void releaseAll(T[] variables, int count);
+
+        /**
+         * Grow the pool so that it can hold at least the given number of instances
+         *
+         * @param capacity the number of instances the pool should be able to hold
+         */
+        void ensureCapacity(int capacity);
     }
 
     private Pools() {
@@ -81,7 +90,7 @@ final class Pools {
      * @param <T> The pooled type.
      */
     static class SimplePool<T> implements Pool<T> {
-        private final Object[] mPool;
+        private Object[] mPool;
 
         private int mPoolSize;
 
@@ -145,6 +154,13 @@ final class Pools {
             }
         }
 
+        @Override
+        public void ensureCapacity(int capacity) {
+            if (capacity > mPool.length) {
+                mPool = Arrays.copyOf(mPool, capacity);
+            }
+        }
+
         private boolean isInPool(T instance) {
             for (int i = 0; i < mPoolSize; i++) {
                 if (mPool[i] == instance) {
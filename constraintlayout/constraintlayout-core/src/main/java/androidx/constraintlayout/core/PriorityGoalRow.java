@@ -164,7 +164,7 @@ public class PriorityGoalRow extends ArrayRow {
         int pivot = NOT_FOUND;
         for (int i = 0; i < mNumGoals; i++) {
             SolverVariable variable = mArrayGoals[i];
-            if (avoid[variable.id]) {
+            if (avoid[variable.id] || variable.mType == SolverVariable.Type.CONSTANT) {
                 continue;
             }
             mAccessor.init(variable);
@@ -40,6 +40,11 @@ public class SolverVariableValues implements ArrayRow.ArrayRowVariables {
     int mCount = 0;
     int mHead = -1;
 
+    // Last position accessed by index, so that iterating over the row in order
+    // (the usual access pattern of the solver) doesn't walk the list from the head each time
+    private int mAccessIndex = -1;
+    private int mAccessPosition = -1;
+
     private final ArrayRow mRow; // our owner
     // pointer to the system-wide cache, allowing access to SolverVariables
     protected final Cache mCache;
@@ -55,39 +60,51 @@ public class SolverVariableValues implements ArrayRow.ArrayRowVariables {
         return mCount;
     }
 
-    @Override
-    public SolverVariable getVariable(int index) {
-        final int count = mCount;
-        if (count == 0) {
-            return null;
+    /**
+     * Returns the position in the arrays of the element at the given index in the list
+     */
+    private int positionOf(int index) {
+        if (index < 0 || index >= mCount) {
+            return mNone;
         }
+        int i = 0;
         int j = mHead;
-        for (int i = 0; i < count; i++) {
-            if (i == index && j != mNone) {
-                return mCache.mIndexedVariables[mVariables[j]];
-            }
+        if (mAccessIndex != -1 && mAccessIndex <= index) {
+            i = mAccessIndex;
+            j = mAccessPosition;
+        }
+        while (i < index && j != mNone) {
             j = mNext[j];
-            if (j == mNone) {
-                break;
-            }
+            i++;
         }
-        return null;
+        if (j != mNone) {
+            mAccessIndex = index;
+            mAccessPosition = j;
+        }
+        return j;
+    }
+
+    private void invalidateAccess() {
+        mAccessIndex = -1;
+        mAccessPosition = -1;
+    }
+
+    @Override
+    public SolverVariable getVariable(int index) {
+        final int j = positionOf(index);
+        if (j == mNone) {
+            return null;
+        }
+        return mCache.mIndexedVariables[mVariables[j]];
     }
 
     @Override
     public float getVariableValue(int index) {
-        final int count = mCount;
-        int j = mHead;
-        for (int i = 0; i < count; i++) {
-            if (i == index) {
-                return mValues[j];
-            }
-            j = mNext[j];
-            if (j == mNone) {
-                break;
-            }
+        final int j = positionOf(index);
+        if (j == mNone) {
+            return 0;
         }
-        return 0;
+        return mValues[j];
     }
 
     @Override
@@ -179,12 +196,15 @@ public class SolverVariableValues implements ArrayRow.ArrayRowVariables {
             System.out.println(this + " <clear>");
         }
         final int count = mCount;
-        for (int i = 0; i < count; i++) {
-            SolverVariable v = getVariable(i);
+        int j = mHead;
+        for (int i = 0; i < count && j != mNone; i++) {
+            SolverVariable v = mCache.mIndexedVariables[mVariables[j]];
             if (v != null) {
                 v.removeFromRow(mRow);
             }
+            j = mNext[j];
         }
+        invalidateAccess();
         for (int i = 0; i < mSize; i++) {
             mVariables[i] = mNone;
             mNextKeys[i] = mNone;
@@ -290,6 +310,7 @@ public class SolverVariableValues implements ArrayRow.ArrayRowVariables {
     }
 
     private void addVariable(int index, SolverVariable variable, float value) {
+        invalidateAccess();
         mVariables[index] = variable.id;
         mValues[index] = value;
         mPrevious[index] = mNone;
@@ -387,6 +408,7 @@ public class SolverVariableValues implements ArrayRow.ArrayRowVariables {
             return 0;
         }
         removeFromHashMap(v);
+        invalidateAccess();
         float value = mValues[index];
         if (mHead == index) {
             mHead = mNext[index];
@@ -24,6 +24,7 @@ import androidx.constraintlayout.core.Cache;
 import androidx.constraintlayout.core.LinearSystem;
 import androidx.constraintlayout.core.SolverVariable;
 import androidx.constraintlayout.core.state.WidgetFrame;
+import androidx.constraintlayout.core.widgets.analyzer.BasicMeasure;
 import androidx.constraintlayout.core.widgets.analyzer.ChainRun;
 import androidx.constraintlayout.core.widgets.analyzer.HorizontalWidgetRun;
 import androidx.constraintlayout.core.widgets.analyzer.VerticalWidgetRun;
@@ -73,6 +74,9 @@ public class ConstraintWidget {
     public HorizontalWidgetRun mHorizontalRun = null;
     public VerticalWidgetRun mVerticalRun = null;
 
+    // Measures kept across layout passes when the container has its measure cache enabled
+    public BasicMeasure.MeasureCache mMeasureCache = null;
+
     public boolean[] isTerminalWidget = {true, true};
     boolean mResolvedHasRatio = false;
     private boolean mMeasureRequested = true;
@@ -472,6 +476,9 @@ public class ConstraintWidget {
 
     private boolean[] mIsInBarrier = new boolean[2];
 
+    // Editable constants holding the fixed dimensions when the solver is used incrementally
+    SolverVariable[] mDimensionParameters = {null, null};
+
     // The horizontal and vertical behaviour for the widgets' dimensions
     static final int DIMENSION_HORIZONTAL = 0;
     static final int DIMENSION_VERTICAL = 1;
@@ -866,6 +873,48 @@ public class ConstraintWidget {
         mCenterY.resetSolverVariable(cache);
     }
 
+    /**
+     * Returns true if the only constants this widget adds to the solver that can change
+     * between layouts are its fixed dimensions, which can then be updated incrementally.
+     */
+    boolean canBeSolvedIncrementally() {
+        if (mDimensionRatio > 0 || mWidthOverride != -1 || mHeightOverride != -1) {
+            return false;
+        }
+        for (int orientation = HORIZONTAL; orientation <= VERTICAL; orientation++) {
+            DimensionBehaviour behaviour = mListDimensionBehaviors[orientation];
+            if (behaviour == DimensionBehaviour.MATCH_PARENT) {
+                return false;
+            }
+            if (behaviour == MATCH_CONSTRAINT) {
+                int matchConstraintDefault = orientation == HORIZONTAL
+                        ? mMatchConstraintDefaultWidth : mMatchConstraintDefaultHeight;
+                if (matchConstraintDefault != MATCH_CONSTRAINT_SPREAD
+                        || !mListAnchors[orientation * 2].isConnected()
+                        || !mListAnchors[orientation * 2 + 1].isConnected()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Update the editable dimensions of this widget in the solver
+     */
+    void suggestDimensions(LinearSystem system) {
+        SolverVariable horizontal = mDimensionParameters[HORIZONTAL];
+        if (horizontal != null) {
+            system.suggestValue(horizontal,
+                    mVisibility == GONE ? 0 : Math.max(mWidth, mMinWidth));
+        }
+        SolverVariable vertical = mDimensionParameters[VERTICAL];
+        if (vertical != null) {
+            system.suggestValue(vertical,
+                    mVisibility == GONE ? 0 : Math.max(mHeight, mMinHeight));
+        }
+    }
+
     /**
      * Add all the anchors to the mAnchors array
      */
@@ -966,6 +1015,18 @@ public class ConstraintWidget {
         mType = type;
     }
 
+    /**
+     * Mark the content of this widget as changed, so that the next layout pass measures it
+     * again instead of reusing a cached measure
+     * (see {@link ConstraintWidgetContainer#setMeasureCacheEnabled(boolean)})
+     */
+    public void invalidateMeasure() {
+        if (mMeasureCache != null) {
+            mMeasureCache.clear();
+        }
+        mMeasureRequested = true;
+    }
+
     /**
      * Set the visibility for this widget
      *
@@ -3079,6 +3140,9 @@ public class ConstraintWidget {
                 if (maxDimension < Integer.MAX_VALUE) {
                     system.addLowerThan(end, begin, maxDimension, SolverVariable.STRENGTH_FIXED);
                 }
+            } else if (system.incremental) {
+                mDimensionParameters[isHorizontal ? HORIZONTAL : VERTICAL] =
+                        system.addEditableEquality(end, begin, dimension);
             } else {
                 system.addEquality(end, begin, dimension, SolverVariable.STRENGTH_FIXED);
             }
@@ -59,6 +59,7 @@ public class ConstraintWidgetContainer extends WidgetContainer {
      */
     public void invalidateGraph() {
         mDependencyGraph.invalidateGraph();
+        mIncrementalSystemReady = false;
     }
 
     /**
@@ -149,6 +150,9 @@ public class ConstraintWidgetContainer extends WidgetContainer {
 
     protected LinearSystem mSystem = new LinearSystem();
 
+    // flags of the solver pass, see Optimizer.FLAG_USE_OPTIMIZE
+    private final boolean[] mSolverFlags = new boolean[3];
+
     int mPaddingLeft;
     int mPaddingTop;
     int mPaddingRight;
@@ -169,6 +173,12 @@ public class ConstraintWidgetContainer extends WidgetContainer {
     private int mOptimizationLevel = Optimizer.OPTIMIZATION_STANDARD;
     public boolean mSkipSolver = false;
 
+    private boolean mIncrementalSolving = false;
+    private boolean mIncrementalSystemReady = false;
+    private ConstraintWidget[] mIncrementalWidgets = new ConstraintWidget[0];
+    private int[] mIncrementalSignature = new int[0];
+    private boolean mMeasureCacheEnabled = false;
+
     private boolean mWidthMeasuredTooSmall = false;
     private boolean mHeightMeasuredTooSmall = false;
 
@@ -216,6 +226,7 @@ public class ConstraintWidgetContainer extends WidgetContainer {
      */
     public void setOptimizationLevel(int value) {
         mOptimizationLevel = value;
+        mIncrementalSystemReady = false;
         mSystem.USE_DEPENDENCY_ORDERING = optimizeFor(Optimizer.OPTIMIZATION_DEPENDENCY_ORDERING);
     }
 
@@ -226,6 +237,49 @@ public class ConstraintWidgetContainer extends WidgetContainer {
         return mOptimizationLevel;
     }
 
+    /**
+     * Keep the solver system alive between layouts, so that a layout where only the fixed
+     * dimensions of the widgets changed re-optimizes the previous solution instead of
+     * rebuilding and solving the whole system. This is only used with
+     * {@link Optimizer#OPTIMIZATION_NONE} and a fixed size container, as the other
+     * optimizations bake resolved positions into the system. Any change to the widgets
+     * other than their dimensions needs to be followed by {@link #invalidateGraph()}.
+     *
+     * @param value true to enable incremental solving
+     */
+    public void setIncrementalSolving(boolean value) {
+        mIncrementalSolving = value;
+        mIncrementalSystemReady = false;
+    }
+
+    /**
+     * Returns true if incremental solving is enabled
+     */
+    public boolean isIncrementalSolving() {
+        return mIncrementalSolving;
+    }
+
+    /**
+     * Keep the measures of the children across layout passes. A child is only measured again
+     * if it is measured with different dimension behaviours or dimensions, if the
+     * constraints on this container changed, or if it was marked with
+     * {@link ConstraintWidget#invalidateMeasure()}. Callers enabling this are responsible
+     * for invalidating the widgets whose content changed.
+     *
+     * @param value true to enable the measure cache
+     */
+    public void setMeasureCacheEnabled(boolean value) {
+        mMeasureCacheEnabled = value;
+        mBasicMeasureSolver.invalidateMeasureCache();
+    }
+
+    /**
+     * Returns true if the measure cache is enabled
+     */
+    public boolean isMeasureCacheEnabled() {
+        return mMeasureCacheEnabled;
+    }
+
     /**
      * Returns true if the given feature should be optimized
      */
@@ -244,6 +298,7 @@ public class ConstraintWidgetContainer extends WidgetContainer {
     @Override
     public void reset() {
         mSystem.reset();
+        mIncrementalSystemReady = false;
         mPaddingLeft = 0;
         mPaddingRight = 0;
         mPaddingTop = 0;
@@ -696,6 +751,11 @@ public class ConstraintWidgetContainer extends WidgetContainer {
             mMetrics.layouts++;
         }
 
+        if (mIncrementalSystemReady && layoutIncrementally()) {
+            return;
+        }
+        mIncrementalSystemReady = false;
+        mSystem.incremental = canSolveIncrementally();
 
         boolean wrap_override = false;
 
@@ -835,6 +895,9 @@ public class ConstraintWidgetContainer extends WidgetContainer {
             try {
                 mSystem.reset();
                 resetChains();
+                if (mSystem.incremental) {
+                    clearDimensionParameters();
+                }
                 if (DEBUG) {
                     String debugName = getDebugName();
                     if (debugName == null) {
@@ -879,7 +942,7 @@ public class ConstraintWidgetContainer extends WidgetContainer {
                 System.out.println("EXCEPTION : " + e);
             }
             if (needsSolving) {
-                needsSolving = updateChildrenFromSolver(mSystem, Optimizer.sFlags);
+                needsSolving = updateChildrenFromSolver(mSystem, mSolverFlags);
             } else {
                 updateFromSolver(mSystem, optimize);
                 for (int i = 0; i < count; i++) {
@@ -890,7 +953,7 @@ public class ConstraintWidgetContainer extends WidgetContainer {
             }
 
             if (hasWrapContent && countSolve < MAX_ITERATIONS
-                    && Optimizer.sFlags[Optimizer.FLAG_RECOMPUTE_BOUNDS]) {
+                    && mSolverFlags[Optimizer.FLAG_RECOMPUTE_BOUNDS]) {
                 // let's get the new bounds
                 int maxX = 0;
                 int maxY = 0;
@@ -1003,9 +1066,118 @@ public class ConstraintWidgetContainer extends WidgetContainer {
             mListDimensionBehaviors[DIMENSION_VERTICAL] = originalVerticalDimensionBehaviour;
         }
 
+        if (mSystem.incremental && countSolve == 1 && !wrap_override) {
+            // keep the solver variables alive, we'll reuse the system in the next layout
+            saveIncrementalSignature();
+            mIncrementalSystemReady = true;
+            return;
+        }
         resetSolverVariables(mSystem.getCache());
     }
 
+    /**
+     * Returns true if the system can be built so that it can later be solved incrementally
+     */
+    private boolean canSolveIncrementally() {
+        if (!mIncrementalSolving
+                || mOptimizationLevel != Optimizer.OPTIMIZATION_NONE
+                || mListDimensionBehaviors[DIMENSION_HORIZONTAL] != FIXED
+                || mListDimensionBehaviors[DIMENSION_VERTICAL] != FIXED) {
+            return false;
+        }
+        final int count = mChildren.size();
+        for (int i = 0; i < count; i++) {
+            ConstraintWidget child = mChildren.get(i);
+            if (child instanceof WidgetContainer
+                    || child instanceof VirtualLayout
+                    || !child.canBeSolvedIncrementally()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearDimensionParameters() {
+        Arrays.fill(mDimensionParameters, null);
+        final int count = mChildren.size();
+        for (int i = 0; i < count; i++) {
+            Arrays.fill(mChildren.get(i).mDimensionParameters, null);
+        }
+    }
+
+    private static final int SIGNATURE_SIZE = 4;
+
+    private void getIncrementalSignature(ConstraintWidget widget, int[] signature, int offset) {
+        signature[offset] = widget.mListDimensionBehaviors[DIMENSION_HORIZONTAL].ordinal();
+        signature[offset + 1] = widget.mListDimensionBehaviors[DIMENSION_VERTICAL].ordinal();
+        signature[offset + 2] = widget.getVisibility();
+        signature[offset + 3] = widget.getBaselineDistance();
+    }
+
+    private void saveIncrementalSignature() {
+        final int count = mChildren.size();
+        if (mIncrementalWidgets.length != count) {
+            mIncrementalWidgets = new ConstraintWidget[count];
+            mIncrementalSignature = new int[count * SIGNATURE_SIZE];
+        }
+        for (int i = 0; i < count; i++) {
+            ConstraintWidget child = mChildren.get(i);
+            mIncrementalWidgets[i] = child;
+            getIncrementalSignature(child, mIncrementalSignature, i * SIGNATURE_SIZE);
+        }
+    }
+
+    private boolean hasSameIncrementalSignature() {
+        final int count = mChildren.size();
+        if (mIncrementalWidgets.length != count) {
+            return false;
+        }
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int i = 0; i < count; i++) {
+            ConstraintWidget child = mChildren.get(i);
+            if (mIncrementalWidgets[i] != child) {
+                return false;
+            }
+            getIncrementalSignature(child, signature, 0);
+            for (int j = 0; j < SIGNATURE_SIZE; j++) {
+                if (signature[j] != mIncrementalSignature[i * SIGNATURE_SIZE + j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Layout the widgets by updating the dimensions in the system kept from the previous
+     * layout and re-optimizing it, instead of rebuilding it.
+     *
+     * @return true if the layout was done, false if the system needs to be rebuilt
+     */
+    private boolean layoutIncrementally() {
+        if (!canSolveIncrementally() || !hasSameIncrementalSignature()) {
+            return false;
+        }
+        suggestDimensions(mSystem);
+        final int count = mChildren.size();
+        for (int i = 0; i < count; i++) {
+            mChildren.get(i).suggestDimensions(mSystem);
+        }
+        try {
+            if (!mSystem.resolve()) {
+                return false;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+        updateFromSolver(mSystem, false);
+        for (int i = 0; i < count; i++) {
+            mChildren.get(i).updateFromSolver(mSystem, false);
+        }
+        return true;
+    }
+
     /**
      * Indicates if the container knows how to layout its content on its own
      *
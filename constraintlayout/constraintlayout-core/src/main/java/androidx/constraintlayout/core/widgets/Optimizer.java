@@ -47,8 +47,7 @@ public class Optimizer {
             /* | OPTIMIZATION_GRAPH_WRAP */
             /* | OPTIMIZATION_DIMENSIONS */;
 
-    // Internal use.
-    static boolean[] sFlags = new boolean[3];
+    // Internal use, indices of the flags of a solver pass
     static final int FLAG_USE_OPTIMIZE = 0; // simple enough to use optimizer
     static final int FLAG_CHAIN_DANGLING = 1;
     static final int FLAG_RECOMPUTE_BOUNDS = 2;
@@ -23,6 +23,7 @@ import static androidx.constraintlayout.core.widgets.ConstraintWidget.MATCH_CONS
 import static androidx.constraintlayout.core.widgets.ConstraintWidget.VERTICAL;
 
 import androidx.constraintlayout.core.LinearSystem;
+import androidx.constraintlayout.core.Metrics;
 import androidx.constraintlayout.core.widgets.Barrier;
 import androidx.constraintlayout.core.widgets.ConstraintAnchor;
 import androidx.constraintlayout.core.widgets.ConstraintWidget;
@@ -31,6 +32,7 @@ import androidx.constraintlayout.core.widgets.Guideline;
 import androidx.constraintlayout.core.widgets.Helper;
 import androidx.constraintlayout.core.widgets.Optimizer;
 import androidx.constraintlayout.core.widgets.VirtualLayout;
+import androidx.constraintlayout.core.widgets.WidgetContainer;
 
 import java.util.ArrayList;
 
@@ -53,6 +55,16 @@ public class BasicMeasure {
     private final ArrayList<ConstraintWidget> mVariableDimensionsWidgets = new ArrayList<>();
     private Measure mMeasure = new Measure();
 
+    // Measures cached in the widgets are only valid for the generation they were taken in;
+    // the generation changes when the constraints on the container change.
+    private int mMeasureCacheGeneration = 0;
+    private int mCachedWidthMode = -1;
+    private int mCachedWidthSize = -1;
+    private int mCachedHeightMode = -1;
+    private int mCachedHeightSize = -1;
+    private int mCachedPaddingX = -1;
+    private int mCachedPaddingY = -1;
+
     // @TODO: add description
     public void updateHierarchy(ConstraintWidgetContainer layout) {
         mVariableDimensionsWidgets.clear();
@@ -75,6 +87,13 @@ public class BasicMeasure {
         this.mConstraintWidgetContainer = constraintWidgetContainer;
     }
 
+    /**
+     * Invalidate all the measures cached in the widgets
+     */
+    public void invalidateMeasureCache() {
+        mMeasureCacheGeneration++;
+    }
+
     private void measureChildren(ConstraintWidgetContainer layout) {
         final int childCount = layout.mChildren.size();
         boolean optimize = layout.optimizeFor(Optimizer.OPTIMIZATION_GRAPH);
@@ -188,6 +207,21 @@ public class BasicMeasure {
         Measurer measurer = layout.getMeasurer();
         long layoutTime = 0;
 
+        if (layout.isMeasureCacheEnabled()) {
+            // children measured with wrap content or match parent depend on our own constraints
+            if (widthMode != mCachedWidthMode || widthSize != mCachedWidthSize
+                    || heightMode != mCachedHeightMode || heightSize != mCachedHeightSize
+                    || paddingX != mCachedPaddingX || paddingY != mCachedPaddingY) {
+                mMeasureCacheGeneration++;
+                mCachedWidthMode = widthMode;
+                mCachedWidthSize = widthSize;
+                mCachedHeightMode = heightMode;
+                mCachedHeightSize = heightSize;
+                mCachedPaddingX = paddingX;
+                mCachedPaddingY = paddingY;
+            }
+        }
+
         final int childCount = layout.mChildren.size();
         int startingWidth = layout.getWidth();
         int startingHeight = layout.getHeight();
@@ -488,7 +522,31 @@ public class BasicMeasure {
             }
         }
 
-        measurer.measure(widget, mMeasure);
+        MeasureCache cache = null;
+        if (mConstraintWidgetContainer.isMeasureCacheEnabled()
+                && widget.getVisibility() != GONE
+                && !(widget instanceof WidgetContainer)
+                && !(widget instanceof VirtualLayout)) {
+            // virtual layouts and containers depend on the measures of their own children
+            if (widget.mMeasureCache == null) {
+                widget.mMeasureCache = new MeasureCache();
+            }
+            cache = widget.mMeasureCache;
+        }
+        Metrics metrics = mConstraintWidgetContainer.mMetrics;
+        if (cache != null && cache.get(mMeasureCacheGeneration, mMeasure)) {
+            if (metrics != null) {
+                metrics.measureCacheHits++;
+            }
+        } else {
+            measurer.measure(widget, mMeasure);
+            if (cache != null) {
+                cache.put(mMeasureCacheGeneration, mMeasure);
+                if (metrics != null) {
+                    metrics.measureCacheMisses++;
+                }
+            }
+        }
         widget.setWidth(mMeasure.measuredWidth);
         widget.setHeight(mMeasure.measuredHeight);
         widget.setHasBaseline(mMeasure.measuredHasBaseline);
@@ -520,4 +578,103 @@ public class BasicMeasure {
         public boolean measuredNeedsSolverPass;
         public int measureStrategy;
     }
+
+    /**
+     * The last few measures of a widget, keyed on the measure strategy, dimension behaviours
+     * and dimensions it was measured with. Cleared by {@link ConstraintWidget#invalidateMeasure()}.
+     */
+    public static class MeasureCache {
+        // a widget is typically measured with its own dimensions, then with the dimensions
+        // given by the solver, possibly twice
+        private static final int SIZE = 4;
+
+        private final int[] mGeneration = new int[SIZE];
+        private final int[] mMeasureStrategy = new int[SIZE];
+        private final ConstraintWidget.DimensionBehaviour[] mHorizontalBehavior =
+                new ConstraintWidget.DimensionBehaviour[SIZE];
+        private final ConstraintWidget.DimensionBehaviour[] mVerticalBehavior =
+                new ConstraintWidget.DimensionBehaviour[SIZE];
+        private final int[] mHorizontalDimension = new int[SIZE];
+        private final int[] mVerticalDimension = new int[SIZE];
+        private final int[] mMeasuredWidth = new int[SIZE];
+        private final int[] mMeasuredHeight = new int[SIZE];
+        private final int[] mMeasuredBaseline = new int[SIZE];
+        private final boolean[] mMeasuredHasBaseline = new boolean[SIZE];
+        private final boolean[] mMeasuredNeedsSolverPass = new boolean[SIZE];
+        private int mCount = 0;
+        private int mNext = 0;
+
+        /**
+         * Remove all the cached measures
+         */
+        public void clear() {
+            mCount = 0;
+            mNext = 0;
+        }
+
+        /**
+         * Fill in the measured values of the given measure if we have them
+         *
+         * @return true if the measure was found in the cache
+         */
+        boolean get(int generation, Measure measure) {
+            for (int i = 0; i < mCount; i++) {
+                if (mGeneration[i] == generation
+                        && mMeasureStrategy[i] == measure.measureStrategy
+                        && mHorizontalBehavior[i] == measure.horizontalBehavior
+                        && mVerticalBehavior[i] == measure.verticalBehavior
+                        && mHorizontalDimension[i] == keyDimension(measure.horizontalBehavior,
+                        measure.horizontalDimension, measure.measureStrategy)
+                        && mVerticalDimension[i] == keyDimension(measure.verticalBehavior,
+                        measure.verticalDimension, measure.measureStrategy)) {
+                    measure.measuredWidth = mMeasuredWidth[i];
+                    measure.measuredHeight = mMeasuredHeight[i];
+                    measure.measuredBaseline = mMeasuredBaseline[i];
+                    measure.measuredHasBaseline = mMeasuredHasBaseline[i];
+                    measure.measuredNeedsSolverPass = mMeasuredNeedsSolverPass[i];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The current dimension of the widget is only used by the measure if it is fixed,
+         * or if it is a match constraint dimension given by the solver. Ignoring it otherwise
+         * lets a measure be reused after the solver changed the dimension.
+         */
+        private static int keyDimension(ConstraintWidget.DimensionBehaviour behavior,
+                int dimension, int measureStrategy) {
+            if (behavior == ConstraintWidget.DimensionBehaviour.FIXED
+                    || (behavior == ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT
+                    && measureStrategy != Measure.SELF_DIMENSIONS)) {
+                return dimension;
+            }
+            return -1;
+        }
+
+        /**
+         * Store the result of a measure, replacing the oldest one if the cache is full
+         */
+        void put(int generation, Measure measure) {
+            int i = mNext;
+            mGeneration[i] = generation;
+            mMeasureStrategy[i] = measure.measureStrategy;
+            mHorizontalBehavior[i] = measure.horizontalBehavior;
+            mVerticalBehavior[i] = measure.verticalBehavior;
+            mHorizontalDimension[i] = keyDimension(measure.horizontalBehavior,
+                    measure.horizontalDimension, measure.measureStrategy);
+            mVerticalDimension[i] = keyDimension(measure.verticalBehavior,
+                    measure.verticalDimension, measure.measureStrategy);
+            mMeasuredWidth[i] = measure.measuredWidth;
+            mMeasuredHeight[i] = measure.measuredHeight;
+            mMeasuredBaseline[i] = measure.measuredBaseline;
+            mMeasuredHasBaseline[i] = measure.measuredHasBaseline;
+            mMeasuredNeedsSolverPass[i] = measure.measuredNeedsSolverPass;
+            mNext = (mNext + 1) % SIZE;
+            if (mCount < SIZE) {
+                mCount++;
+            }
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.constraintlayout.core.widgets.analyzer;
+
+import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out independent containers concurrently on a small fork-join pool. This is meant for
+ * JVM contexts computing many layouts at once (previews, layout snapshots).
+ * <p>
+ * The widgets of a container share solver variables through their anchors, so a single
+ * container is always solved on one thread; the containers passed in must not share widgets,
+ * and their measurers must be safe to call from several threads. Each container is solved
+ * exactly as it would be sequentially, so the results don't depend on the scheduling.
+ * Metrics (see {@link androidx.constraintlayout.core.LinearSystem#sMetrics}) are global
+ * and should not be used during a concurrent layout.
+ */
+public class ConcurrentLayout {
+
+    private static final int MAX_THREADS = 4;
+    private static ForkJoinPool sPool;
+
+    /**
+     * The work done on each container
+     */
+    public interface LayoutPass {
+        // @TODO: add description
+        void layout(ConstraintWidgetContainer container);
+    }
+
+    /**
+     * Layout pass calling {@link ConstraintWidgetContainer#layout()}
+     */
+    public static final LayoutPass LAYOUT = new LayoutPass() {
+        @Override
+        public void layout(ConstraintWidgetContainer container) {
+            container.layout();
+        }
+    };
+
+    private ConcurrentLayout() {
+    }
+
+    /**
+     * Returns the shared pool, using up to {@link #MAX_THREADS} threads
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (sPool == null) {
+            int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+            sPool = new ForkJoinPool(Math.max(1, threads));
+        }
+        return sPool;
+    }
+
+    /**
+     * Run the layout pass on all the containers using the shared pool
+     *
+     * @param containers the containers to lay out
+     * @param pass       the work done on each container
+     */
+    public static void layout(List<ConstraintWidgetContainer> containers, LayoutPass pass) {
+        layout(getPool(), containers, pass);
+    }
+
+    /**
+     * Run the layout pass on all the containers using the given pool, and wait for them
+     * to be done
+     *
+     * @param pool       the pool to use
+     * @param containers the containers to lay out
+     * @param pass       the work done on each container
+     */
+    public static void layout(ForkJoinPool pool, List<ConstraintWidgetContainer> containers,
+            LayoutPass pass) {
+        final int count = containers.size();
+        if (count <= 1 || pool.getParallelism() <= 1) {
+            for (int i = 0; i < count; i++) {
+                pass.layout(containers.get(i));
+            }
+            return;
+        }
+        pool.invoke(new LayoutTask(containers, pass, 0, count));
+    }
+
+    /**
+     * Splits the list of containers until each task handles a single one
+     */
+    static class LayoutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ConstraintWidgetContainer> mContainers;
+        private final LayoutPass mPass;
+        private final int mStart;
+        private final int mEnd;
+
+        LayoutTask(List<ConstraintWidgetContainer> containers, LayoutPass pass,
+                int start, int end) {
+            mContainers = containers;
+            mPass = pass;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart == 1) {
+                mPass.layout(mContainers.get(mStart));
+                return;
+            }
+            int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new LayoutTask(mContainers, mPass, mStart, middle),
+                    new LayoutTask(mContainers, mPass, middle, mEnd));
+        }
+    }
+}
@@ -43,7 +43,6 @@ public class Direct {
 
     private static final boolean DEBUG = LinearSystem.FULL_DEBUG;
     private static final boolean APPLY_MATCH_PARENT = false;
-    private static BasicMeasure.Measure sMeasure = new BasicMeasure.Measure();
     private static final boolean EARLY_TERMINATION = true; // feature flag -- remove after release.
 
     private static int sHcount = 0;
@@ -249,11 +248,12 @@ public class Direct {
             System.out.println("\n#### LAST PASS ####");
         }
         // We can do a last pass to see any widget that could still be measured
+        BasicMeasure.Measure measure = new BasicMeasure.Measure();
         for (int i = 0; i < count; i++) {
             ConstraintWidget child = children.get(i);
             if (child.isMeasureRequested() && canMeasure(0, child)) {
                 ConstraintWidgetContainer.measure(0, child,
-                        measurer, sMeasure, BasicMeasure.Measure.SELF_DIMENSIONS);
+                        measurer, measure, BasicMeasure.Measure.SELF_DIMENSIONS);
                 if (child instanceof Guideline) {
                     if (((Guideline) child).getOrientation() == Guideline.HORIZONTAL) {
                         verticalSolvingPass(0, child, measurer);
@@ -34,7 +34,7 @@ import androidx.constraintlayout.core.widgets.Helper;
 
 public class HorizontalWidgetRun extends WidgetRun {
 
-    private static int[] sTempDimensions = new int[2];
+    private final int[] mTempDimensions = new int[2];
 
     public HorizontalWidgetRun(ConstraintWidget widget) {
         super(widget);
@@ -386,11 +386,11 @@ public class HorizontalWidgetRun extends WidgetRun {
                                     int x2 = end.mTargets.get(0).value - end.mMargin;
                                     int y1 = secondStart.value + secondStart.mMargin;
                                     int y2 = secondEnd.value - secondEnd.mMargin;
-                                    computeInsetRatio(sTempDimensions,
+                                    computeInsetRatio(mTempDimensions,
                                             x1, x2, y1, y2, ratio, definedSide);
-                                    mDimension.resolve(sTempDimensions[HORIZONTAL]);
+                                    mDimension.resolve(mTempDimensions[HORIZONTAL]);
                                     mWidget.mVerticalRun.mDimension
-                                            .resolve(sTempDimensions[VERTICAL]);
+                                            .resolve(mTempDimensions[VERTICAL]);
                                     return;
                                 }
                                 if (start.resolved && end.resolved) {
@@ -402,11 +402,11 @@ public class HorizontalWidgetRun extends WidgetRun {
                                     int y1 = secondStart.mTargets.get(0).value
                                             + secondStart.mMargin;
                                     int y2 = secondEnd.mTargets.get(0).value - secondEnd.mMargin;
-                                    computeInsetRatio(sTempDimensions,
+                                    computeInsetRatio(mTempDimensions,
                                             x1, x2, y1, y2, ratio, definedSide);
-                                    mDimension.resolve(sTempDimensions[HORIZONTAL]);
+                                    mDimension.resolve(mTempDimensions[HORIZONTAL]);
                                     mWidget.mVerticalRun.mDimension
-                                            .resolve(sTempDimensions[VERTICAL]);
+                                            .resolve(mTempDimensions[VERTICAL]);
                                 }
                                 if (!(start.readyToSolve && end.readyToSolve
                                         && secondStart.readyToSolve
@@ -417,10 +417,10 @@ public class HorizontalWidgetRun extends WidgetRun {
                                 int x2 = end.mTargets.get(0).value - end.mMargin;
                                 int y1 = secondStart.mTargets.get(0).value + secondStart.mMargin;
                                 int y2 = secondEnd.mTargets.get(0).value - secondEnd.mMargin;
-                                computeInsetRatio(sTempDimensions,
+                                computeInsetRatio(mTempDimensions,
                                         x1, x2, y1, y2, ratio, definedSide);
-                                mDimension.resolve(sTempDimensions[HORIZONTAL]);
-                                mWidget.mVerticalRun.mDimension.resolve(sTempDimensions[VERTICAL]);
+                                mDimension.resolve(mTempDimensions[HORIZONTAL]);
+                                mWidget.mVerticalRun.mDimension.resolve(mTempDimensions[VERTICAL]);
                             } else if (s1 && e1) {
                                 if (!(start.readyToSolve && end.readyToSolve)) {
                                     return;
@@ -27,6 +27,7 @@ import androidx.constraintlayout.core.widgets.ConstraintWidgetContainer;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a group of widget for the grouping mechanism.
@@ -34,7 +35,8 @@ import java.util.Arrays;
 public class WidgetGroup {
     private static final boolean DEBUG = false;
     ArrayList<ConstraintWidget> mWidgets = new ArrayList<>();
-    static int sCount = 0;
+    // groups can be created by containers laid out concurrently (see ConcurrentLayout)
+    static AtomicInteger sCount = new AtomicInteger();
     int mId = -1;
     boolean mAuthoritative = false;
     int mOrientation = HORIZONTAL;
@@ -42,7 +44,7 @@ public class WidgetGroup {
     private int mMoveTo = -1;
 
     public WidgetGroup(int orientation) {
-        mId = sCount++;
+        mId = sCount.getAndIncrement();
         this.mOrientation = orientation;
     }
 
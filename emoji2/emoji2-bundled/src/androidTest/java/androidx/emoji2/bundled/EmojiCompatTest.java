@@ -17,6 +17,7 @@ package androidx.emoji2.bundled;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -647,6 +648,110 @@ public class EmojiCompatTest {
         assertThat(processed, EmojiMatcher.hasEmoji(Emoji.EMOJI_SINGLE_CODEPOINT));
     }
 
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testGlyphAvailability_cachesGlyphCheckerResults() {
+        final EmojiCompat.GlyphChecker glyphChecker = mock(EmojiCompat.GlyphChecker.class);
+        final EmojiCompat.Config config = TestConfigBuilder.freshConfig()
+                .setReplaceAll(false)
+                .setGlyphChecker(glyphChecker);
+        EmojiCompat.reset(config);
+
+        when(glyphChecker.hasGlyph(any(CharSequence.class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(false);
+
+        final String original = new TestString(Emoji.EMOJI_SINGLE_CODEPOINT).toString();
+        final int id = getEmojiId(original);
+        assertEquals(0, EmojiCompat.get().getGlyphAvailability().length);
+
+        EmojiCompat.get().process(original);
+        EmojiCompat.get().process(original);
+
+        // the result of the first check is kept in the metadata
+        verify(glyphChecker, times(1))
+                .hasGlyph(any(CharSequence.class), anyInt(), anyInt(), anyInt());
+        assertArrayEquals(new int[]{id, 0}, EmojiCompat.get().getGlyphAvailability());
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testSetGlyphAvailability_skipsGlyphChecker() {
+        final EmojiCompat.GlyphChecker glyphChecker = mock(EmojiCompat.GlyphChecker.class);
+        final EmojiCompat.Config config = TestConfigBuilder.freshConfig()
+                .setReplaceAll(false)
+                .setGlyphChecker(glyphChecker);
+        EmojiCompat.reset(config);
+
+        when(glyphChecker.hasGlyph(any(CharSequence.class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(false);
+
+        final String original = new TestString(Emoji.EMOJI_SINGLE_CODEPOINT).toString();
+        final int id = getEmojiId(original);
+        EmojiCompat.get().setGlyphAvailability(new int[]{id, 1});
+
+        final CharSequence processed = EmojiCompat.get().process(original);
+
+        // the restored availability is used instead of the GlyphChecker
+        verify(glyphChecker, never())
+                .hasGlyph(any(CharSequence.class), anyInt(), anyInt(), anyInt());
+        assertThat(processed, Matchers.not(EmojiMatcher.hasEmoji()));
+        assertArrayEquals(new int[]{id, 1}, EmojiCompat.get().getGlyphAvailability());
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testSetGlyphAvailability_replacesPreviousResults() {
+        final EmojiCompat.GlyphChecker glyphChecker = mock(EmojiCompat.GlyphChecker.class);
+        final EmojiCompat.Config config = TestConfigBuilder.freshConfig()
+                .setReplaceAll(false)
+                .setGlyphChecker(glyphChecker);
+        EmojiCompat.reset(config);
+
+        when(glyphChecker.hasGlyph(any(CharSequence.class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(true);
+
+        final String original = new TestString(Emoji.EMOJI_SINGLE_CODEPOINT).toString();
+        final int id = getEmojiId(original);
+        assertThat(EmojiCompat.get().process(original), Matchers.not(EmojiMatcher.hasEmoji()));
+
+        EmojiCompat.get().setGlyphAvailability(new int[]{id, 0});
+
+        assertArrayEquals(new int[]{id, 0}, EmojiCompat.get().getGlyphAvailability());
+        assertThat(EmojiCompat.get().process(original),
+                EmojiMatcher.hasEmoji(Emoji.EMOJI_SINGLE_CODEPOINT));
+        verify(glyphChecker, times(1))
+                .hasGlyph(any(CharSequence.class), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testGlyphAvailability_isNotKeptAcrossMetadataLoads() {
+        final String original = new TestString(Emoji.EMOJI_SINGLE_CODEPOINT).toString();
+        EmojiCompat.reset(TestConfigBuilder.freshConfig().setReplaceAll(false));
+        EmojiCompat.get().setGlyphAvailability(new int[]{getEmojiId(original), 1});
+        assertEquals(2, EmojiCompat.get().getGlyphAvailability().length);
+
+        EmojiCompat.reset(TestConfigBuilder.freshConfig().setReplaceAll(false));
+
+        assertEquals(0, EmojiCompat.get().getGlyphAvailability().length);
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testSetGlyphAvailability_ignoresUnknownIds() {
+        EmojiCompat.reset(TestConfigBuilder.freshConfig().setReplaceAll(false));
+
+        EmojiCompat.get().setGlyphAvailability(new int[]{-1, 1, Integer.MAX_VALUE, 0});
+
+        assertEquals(0, EmojiCompat.get().getGlyphAvailability().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SdkSuppress(minSdkVersion = 19)
+    public void testSetGlyphAvailability_withOddLength() {
+        EmojiCompat.get().setGlyphAvailability(new int[]{0, 1, 2});
+    }
+
     @Test(expected = NullPointerException.class)
     public void testEmojiMatch_withMetadataVersion_withNullCharSequence() {
         //noinspection ConstantConditions
@@ -1076,4 +1181,12 @@ public class EmojiCompatTest {
         charSequence = EmojiCompat.get().process(string.toString());
         assertThat(charSequence, Matchers.not(EmojiMatcher.hasEmoji()));
     }
+
+    @RequiresApi(19)
+    private static int getEmojiId(CharSequence emoji) {
+        final int[] ranges = EmojiCompat.get().getEmojiRanges(emoji, 0, emoji.length(),
+                EmojiCompat.REPLACE_STRATEGY_ALL);
+        assertEquals(3, ranges.length);
+        return ranges[2];
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji2.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import androidx.emoji2.text.flatbuffer.MetadataList;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Reads the bundled font, which the build of this test APK keeps uncompressed, through
+ * {@link MetadataListReader#read(AssetManager, String)}.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 19)
+public class MetadataListReaderAssetTest {
+    private static final String FONT_FILE = "NotoColorEmojiCompat.ttf";
+
+    private AssetManager mAssetManager;
+
+    @Before
+    public void setup() {
+        mAssetManager = ApplicationProvider.getApplicationContext().getAssets();
+    }
+
+    @Test
+    public void uncompressedAsset_isMapped() throws IOException {
+        final ByteBuffer mappedAsset = MetadataListReader.mmap(mAssetManager, FONT_FILE);
+
+        assertNotNull(mappedAsset);
+        assertTrue(mappedAsset instanceof MappedByteBuffer);
+        try (AssetFileDescriptor fd = mAssetManager.openFd(FONT_FILE)) {
+            assertEquals(fd.getLength(), mappedAsset.capacity());
+        }
+    }
+
+    @Test
+    public void uncompressedAsset_mappedMetadataMatchesStreamedMetadata() throws IOException {
+        final MetadataList mappedList = MetadataListReader.read(mAssetManager, FONT_FILE);
+        final MetadataList streamedList;
+        try (InputStream inputStream = mAssetManager.open(FONT_FILE)) {
+            streamedList = MetadataListReader.read(inputStream);
+        }
+
+        assertEquals(streamedList.version(), mappedList.version());
+        assertEquals(streamedList.sourceSha(), mappedList.sourceSha());
+        assertEquals(streamedList.listLength(), mappedList.listLength());
+        assertTrue(mappedList.listLength() > 0);
+    }
+
+    @Test
+    public void missingAsset_isNotMapped() throws IOException {
+        assertNull(MetadataListReader.mmap(mAssetManager, "missing.ttf"));
+    }
+}
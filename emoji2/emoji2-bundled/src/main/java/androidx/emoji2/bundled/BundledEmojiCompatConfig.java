@@ -34,6 +34,11 @@ import androidx.emoji2.text.MetadataRepo;
  * Including the emoji2-bundled artifact disables the
  * {@link androidx.emoji2.text.EmojiCompatInitializer}. You must manually call EmojiCompat.init
  * when using the bundled configuration.
+ * <p/>
+ * The metadata of the bundled font is read in place from the memory mapped font when the font
+ * is stored uncompressed in the APK. Otherwise it is copied to the heap. To keep the font
+ * uncompressed, add {@code noCompress "ttf"} to the {@code aaptOptions} of the app module; the
+ * setting of a library module doesn't apply to the APK of the app.
  *
  * @see EmojiCompat
  */
@@ -30,6 +30,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+
 @LargeTest
 @RunWith(AndroidJUnit4.class)
 @SdkSuppress(minSdkVersion = 19)
@@ -100,6 +102,28 @@ public class EmojiProcessorTest extends TestCase {
         assertEquals(EmojiCompat.EMOJI_FALLBACK, result);
     }
 
+    @Test
+    public void getEmojiRanges_returnsStartEndAndIdOfEachEmoji() {
+        String text = "a" + mAddedLast.asCharSequence() + "b" + mUnrelatedLast.asCharSequence();
+        int[] ranges = mProcessor.getEmojiRanges(text, 0, text.length(), true);
+        assertTrue(Arrays.equals(new int[] {1, 3, 3, 4, 6, 4}, ranges));
+    }
+
+    @Test
+    public void getEmojiRanges_withoutEmoji_returnsEmptyArray() {
+        String text = "abc";
+        assertEquals(0, mProcessor.getEmojiRanges(text, 0, text.length(), true).length);
+        assertEquals(0, mProcessor.getEmojiRanges(text, 1, 1, true).length);
+    }
+
+    @Test
+    public void getEmojiRanges_inRange_onlyReturnsEmojisInRange() {
+        String text = mInitialCodepoint.asCharSequence() + "b"
+                + mExactMatchLast.asCharSequence();
+        int[] ranges = mProcessor.getEmojiRanges(text, 1, text.length(), true);
+        assertTrue(Arrays.equals(new int[] {2, 3, 5}, ranges));
+    }
+
     private CharSequence sequenceFor(int... codepoints) {
         StringBuilder sb = new StringBuilder(codepoints.length);
         for (int i = 0; i < codepoints.length; i++) {
@@ -95,16 +95,54 @@ public class MetadataRepoTest {
         assertNull(getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
-    final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
+    @Test
+    public void testPut_sameCodePoints_lastOneWins() {
+        final int[] codePoint = new int[]{1, 2};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint);
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
     }
 
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
-        if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
+    @Test
+    public void testPut_unsortedCodePoints() {
+        final int[] codePoint1 = new int[]{5, 1};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint1);
+
+        final int[] codePoint2 = new int[]{3};
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint2);
+
+        final int[] codePoint3 = new int[]{5, 0, 7};
+        final EmojiMetadata metadata3 = new TestEmojiMetadata(codePoint3);
+
+        final int[] codePoint4 = new int[]{0x1F600};
+        final EmojiMetadata metadata4 = new TestEmojiMetadata(codePoint4);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+        mMetadataRepo.put(metadata3);
+        mMetadataRepo.put(metadata4);
+
+        assertSame(metadata1, getNode(codePoint1));
+        assertSame(metadata2, getNode(codePoint2));
+        assertSame(metadata3, getNode(codePoint3));
+        assertSame(metadata4, getNode(codePoint4));
 
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
-        return getNode(childNode, codepoints, start + 1);
+        assertNull(getNode(new int[]{5}));
+        assertNull(getNode(new int[]{5, 0}));
+        assertNull(getNode(new int[]{4}));
+    }
+
+    final EmojiMetadata getNode(final int[] codepoints) {
+        final MetadataRepo.CodepointTrie trie = mMetadataRepo.getTrie();
+        int node = MetadataRepo.CodepointTrie.ROOT_NODE;
+        for (int codepoint : codepoints) {
+            node = trie.getChild(node, codepoint);
+            if (node == MetadataRepo.CodepointTrie.NO_NODE) return null;
+        }
+        return trie.getMetadata(node);
     }
 }
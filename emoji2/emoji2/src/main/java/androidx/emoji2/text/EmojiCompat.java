@@ -29,6 +29,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.text.Editable;
 import android.text.method.KeyListener;
+import android.util.SparseIntArray;
 import android.view.KeyEvent;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
@@ -1089,21 +1090,107 @@ public class EmojiCompat {
             return charSequence;
         }
 
-        final boolean replaceAll;
+        return mHelper.process(charSequence, start, end, maxEmojiCount,
+                isReplaceAll(replaceStrategy));
+    }
+
+    /**
+     * Finds the emojis in a given CharSequence without adding any spans, for example to decide
+     * ahead of time which texts need emoji processing. The emojis found are the ones
+     * {@link #process(CharSequence, int, int, int, int)} would replace with an
+     * {@link EmojiSpan}, with the same replace strategy. Existing EmojiSpans in the
+     * {@code charSequence} are ignored.
+     * <p>
+     * The result is a flat array of three ints per emoji, in order: the start index of the
+     * emoji in the {@code charSequence}, its end index, and the id of the emoji in the loaded
+     * metadata. Ids are the keys of {@link #getGlyphAvailability()}. When used on devices
+     * running API 18 or below, returns an empty array.
+     *
+     * @param charSequence CharSequence to look for emojis in, cannot be {@code null}
+     * @param start start index in the charSequence to look for emojis, should be greater than or
+     *              equal to {@code 0}, also less than or equal to {@code charSequence.length()}
+     * @param end end index in the charSequence to look for emojis, should be greater than or
+     *            equal to {@code start} parameter, also less than or equal to
+     *            {@code charSequence.length()}
+     * @param replaceStrategy which emojis to find, should be one of
+     *                        {@link #REPLACE_STRATEGY_DEFAULT},
+     *                        {@link #REPLACE_STRATEGY_NON_EXISTENT},
+     *                        {@link #REPLACE_STRATEGY_ALL}
+     *
+     * @throws IllegalStateException if not initialized yet
+     * @throws IllegalArgumentException in the following cases:
+     *                                  {@code start < 0}, {@code end < 0}, {@code end < start},
+     *                                  {@code start > charSequence.length()},
+     *                                  {@code end > charSequence.length()}
+     */
+    @NonNull
+    public int[] getEmojiRanges(@NonNull final CharSequence charSequence,
+            @IntRange(from = 0) final int start, @IntRange(from = 0) final int end,
+            @ReplaceStrategy int replaceStrategy) {
+        Preconditions.checkState(isInitialized(), "Not initialized yet");
+        Preconditions.checkNotNull(charSequence, "charSequence cannot be null");
+        Preconditions.checkArgumentNonnegative(start, "start cannot be negative");
+        Preconditions.checkArgumentNonnegative(end, "end cannot be negative");
+        Preconditions.checkArgument(start <= end, "start should be <= than end");
+        Preconditions.checkArgument(start <= charSequence.length(),
+                "start should be < than charSequence length");
+        Preconditions.checkArgument(end <= charSequence.length(),
+                "end should be < than charSequence length");
+
+        return mHelper.getEmojiRanges(charSequence, start, end, isReplaceAll(replaceStrategy));
+    }
+
+    private boolean isReplaceAll(@ReplaceStrategy int replaceStrategy) {
         switch (replaceStrategy) {
             case REPLACE_STRATEGY_ALL:
-                replaceAll = true;
-                break;
+                return true;
             case REPLACE_STRATEGY_NON_EXISTENT:
-                replaceAll = false;
-                break;
+                return false;
             case REPLACE_STRATEGY_DEFAULT:
             default:
-                replaceAll = mReplaceAll;
-                break;
+                return mReplaceAll;
         }
+    }
+
+    /**
+     * Returns whether the system can render the emojis checked so far. When
+     * {@link Config#setReplaceAll(boolean)} is {@code false}, EmojiCompat measures each emoji
+     * with the system font the first time it is found, which is costly. The result can be
+     * persisted and given back to {@link #setGlyphAvailability(int[])} in the next sessions to
+     * skip these measurements.
+     * <p>
+     * The result is a flat array of two ints per checked emoji: the id of the emoji in the loaded
+     * metadata, then {@code 1} if the system can render it or {@code 0} otherwise. Whether the
+     * system can render an emoji depends on the system fonts, so a persisted result should be
+     * discarded when {@link android.os.Build#FINGERPRINT} or {@link #getAssetSignature()}
+     * change. When used on devices running API 18 or below, returns an empty array.
+     *
+     * @throws IllegalStateException if not initialized yet
+     */
+    @NonNull
+    public int[] getGlyphAvailability() {
+        Preconditions.checkState(isInitialized(), "Not initialized yet");
+        return mHelper.getGlyphAvailability();
+    }
 
-        return mHelper.process(charSequence, start, end, maxEmojiCount, replaceAll);
+    /**
+     * Restores whether the system can render emojis, as returned by
+     * {@link #getGlyphAvailability()} in a previous session with the same system fonts and emoji
+     * assets. Ids that are not in the loaded metadata are ignored. When used on devices running
+     * API 18 or below, does nothing.
+     *
+     * @param glyphAvailability pairs of emoji id and {@code 1} if the system can render the
+     *                          emoji, {@code 0} otherwise
+     *
+     * @throws IllegalStateException if not initialized yet
+     * @throws IllegalArgumentException if {@code glyphAvailability} has an odd length
+     */
+    public void setGlyphAvailability(@NonNull final int[] glyphAvailability) {
+        Preconditions.checkState(isInitialized(), "Not initialized yet");
+        Preconditions.checkNotNull(glyphAvailability, "glyphAvailability cannot be null");
+        Preconditions.checkArgument(glyphAvailability.length % 2 == 0,
+                "glyphAvailability should contain pairs of id and availability");
+        mHelper.setGlyphAvailability(glyphAvailability);
     }
 
     /**
@@ -1589,6 +1676,23 @@ public class EmojiCompat {
             return charSequence;
         }
 
+        @NonNull
+        int[] getEmojiRanges(@NonNull final CharSequence charSequence,
+                @IntRange(from = 0) final int start, @IntRange(from = 0) final int end,
+                boolean replaceAll) {
+            // Since no metadata is loaded, EmojiCompat cannot detect any emojis.
+            return new int[0];
+        }
+
+        @NonNull
+        int[] getGlyphAvailability() {
+            return new int[0];
+        }
+
+        void setGlyphAvailability(@NonNull final int[] glyphAvailability) {
+            // Since no metadata is loaded, there are no emojis to update.
+        }
+
         void updateEditorInfoAttrs(@NonNull final EditorInfo outAttrs) {
             // Does not add any EditorInfo attributes.
         }
@@ -1683,6 +1787,47 @@ public class EmojiCompat {
             return mProcessor.process(charSequence, start, end, maxEmojiCount, replaceAll);
         }
 
+        @NonNull
+        @Override
+        int[] getEmojiRanges(@NonNull CharSequence charSequence, int start, int end,
+                boolean replaceAll) {
+            return mProcessor.getEmojiRanges(charSequence, start, end, replaceAll);
+        }
+
+        @NonNull
+        @Override
+        int[] getGlyphAvailability() {
+            final int count = mMetadataRepo.getMetadataCount();
+            final int[] glyphAvailability = new int[count * 2];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                final EmojiMetadata metadata = mMetadataRepo.getMetadata(i);
+                final int hasGlyph = metadata.getHasGlyph();
+                if (hasGlyph != EmojiMetadata.HAS_GLYPH_UNKNOWN) {
+                    glyphAvailability[size++] = metadata.getId();
+                    glyphAvailability[size++] = hasGlyph == EmojiMetadata.HAS_GLYPH_EXISTS ? 1 : 0;
+                }
+            }
+            return Arrays.copyOf(glyphAvailability, size);
+        }
+
+        @Override
+        void setGlyphAvailability(@NonNull int[] glyphAvailability) {
+            final SparseIntArray idToAvailability =
+                    new SparseIntArray(glyphAvailability.length / 2);
+            for (int i = 0; i < glyphAvailability.length; i += 2) {
+                idToAvailability.put(glyphAvailability[i], glyphAvailability[i + 1]);
+            }
+            final int count = mMetadataRepo.getMetadataCount();
+            for (int i = 0; i < count; i++) {
+                final EmojiMetadata metadata = mMetadataRepo.getMetadata(i);
+                final int index = idToAvailability.indexOfKey(metadata.getId());
+                if (index >= 0) {
+                    metadata.setHasGlyph(idToAvailability.valueAt(index) != 0);
+                }
+            }
+        }
+
         @Override
         void updateEditorInfoAttrs(@NonNull EditorInfo outAttrs) {
             outAttrs.extras.putInt(EDITOR_INFO_METAVERSION_KEY, mMetadataRepo.getMetadataVersion());
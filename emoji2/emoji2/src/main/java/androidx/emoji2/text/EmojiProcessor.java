@@ -125,7 +125,7 @@ final class EmojiProcessor {
     @EmojiCompat.CodepointSequenceMatchResult
     int getEmojiMatch(@NonNull final CharSequence charSequence,
             final int metadataVersion) {
-        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
                 mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
         final int end = charSequence.length();
         int currentOffset = 0;
@@ -263,62 +263,12 @@ final class EmojiProcessor {
                 maxEmojiCount -= spannable.getSpans(0, spannable.length(), EmojiSpan.class).length;
             }
             // add new ones
-            int addedCount = 0;
-            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
-                    mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
-
-            int currentOffset = start;
-            int codePoint = Character.codePointAt(charSequence, currentOffset);
-
-            while (currentOffset < end && addedCount < maxEmojiCount) {
-                final int action = sm.check(codePoint);
-
-                switch (action) {
-                    case ACTION_ADVANCE_BOTH:
-                        start += Character.charCount(Character.codePointAt(charSequence, start));
-                        currentOffset = start;
-                        if (currentOffset < end) {
-                            codePoint = Character.codePointAt(charSequence, currentOffset);
-                        }
-                        break;
-                    case ACTION_ADVANCE_END:
-                        currentOffset += Character.charCount(codePoint);
-                        if (currentOffset < end) {
-                            codePoint = Character.codePointAt(charSequence, currentOffset);
-                        }
-                        break;
-                    case ACTION_FLUSH:
-                        if (replaceAll || !hasGlyph(charSequence, start, currentOffset,
-                                sm.getFlushMetadata())) {
-                            if (spannable == null) {
-                                spannable = new UnprecomputeTextOnModificationSpannable(
-                                        new SpannableString(charSequence));
-                            }
-                            addEmoji(spannable, sm.getFlushMetadata(), start, currentOffset);
-                            addedCount++;
-                        }
-                        start = currentOffset;
-                        break;
-                }
-            }
-
-            // After the last codepoint is consumed the state machine might be in a state where it
-            // identified an emoji before. i.e. abc[women-emoji] when the last codepoint is consumed
-            // state machine is waiting to see if there is an emoji sequence (i.e. ZWJ).
-            // Need to check if it is in such a state.
-            if (sm.isInFlushableState() && addedCount < maxEmojiCount) {
-                if (replaceAll || !hasGlyph(charSequence, start, currentOffset,
-                        sm.getCurrentMetadata())) {
-                    if (spannable == null) {
-                        spannable = new UnprecomputeTextOnModificationSpannable(charSequence);
-                    }
-                    addEmoji(spannable, sm.getCurrentMetadata(), start, currentOffset);
-                    addedCount++;
-                }
-            }
+            final UnprecomputeTextOnModificationSpannable result = process(charSequence, start, end,
+                    maxEmojiCount, replaceAll,
+                    new EmojiProcessAddSpanCallback(spannable, mSpanFactory));
             // if nothing was written, always return the source
-            if (spannable != null) {
-                return spannable.getUnwrappedSpannable();
+            if (result != null) {
+                return result.getUnwrappedSpannable();
             } else {
                 return charSequence;
             }
@@ -329,6 +279,95 @@ final class EmojiProcessor {
         }
     }
 
+    /**
+     * Finds the emojis in a given CharSequence without adding any spans.
+     *
+     * @param charSequence CharSequence to look for emojis in, cannot be {@code null}
+     * @param start start index in the charSequence to look for emojis, should be greater than or
+     *              equal to {@code 0}, also less than {@code charSequence.length()}
+     * @param end end index in the charSequence to look for emojis, should be greater than or
+     *            equal to {@code start} parameter, also less than {@code charSequence.length()}
+     * @param replaceAll whether to report all emojis, or only the ones that the system cannot
+     *                   render
+     * @return the start, end and metadata id of each emoji, see
+     * {@link EmojiCompat#getEmojiRanges(CharSequence, int, int, int)}
+     */
+    @NonNull
+    int[] getEmojiRanges(@NonNull final CharSequence charSequence, @IntRange(from = 0) int start,
+            @IntRange(from = 0) int end, final boolean replaceAll) {
+        if (start == end || start >= charSequence.length()) {
+            return new int[0];
+        }
+        return process(charSequence, start, end, EmojiCompat.EMOJI_COUNT_UNLIMITED, replaceAll,
+                new EmojiRangesCallback());
+    }
+
+    /**
+     * Walks the metadata trie over the given range of a CharSequence, and passes the emojis to
+     * replace to the callback.
+     *
+     * @param charSequence CharSequence to look for emojis in, cannot be {@code null}
+     * @param start start index in the charSequence to look for emojis
+     * @param end end index in the charSequence to look for emojis
+     * @param maxEmojiCount maximum number of emojis passed to the callback
+     * @param replaceAll whether to pass all emojis to the callback, or only the ones that the
+     *                   system cannot render
+     * @param callback callback that is passed the emojis
+     * @return the result of the callback
+     */
+    private <T> T process(@NonNull final CharSequence charSequence, @IntRange(from = 0) int start,
+            @IntRange(from = 0) final int end, @IntRange(from = 0) final int maxEmojiCount,
+            final boolean replaceAll, @NonNull final EmojiProcessCallback<T> callback) {
+        int addedCount = 0;
+        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
+                mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
+
+        int currentOffset = start;
+        int codePoint = Character.codePointAt(charSequence, currentOffset);
+
+        while (currentOffset < end && addedCount < maxEmojiCount) {
+            final int action = sm.check(codePoint);
+
+            switch (action) {
+                case ACTION_ADVANCE_BOTH:
+                    start += Character.charCount(Character.codePointAt(charSequence, start));
+                    currentOffset = start;
+                    if (currentOffset < end) {
+                        codePoint = Character.codePointAt(charSequence, currentOffset);
+                    }
+                    break;
+                case ACTION_ADVANCE_END:
+                    currentOffset += Character.charCount(codePoint);
+                    if (currentOffset < end) {
+                        codePoint = Character.codePointAt(charSequence, currentOffset);
+                    }
+                    break;
+                case ACTION_FLUSH:
+                    if (replaceAll || !hasGlyph(charSequence, start, currentOffset,
+                            sm.getFlushMetadata())) {
+                        callback.handleEmoji(charSequence, start, currentOffset,
+                                sm.getFlushMetadata());
+                        addedCount++;
+                    }
+                    start = currentOffset;
+                    break;
+            }
+        }
+
+        // After the last codepoint is consumed the state machine might be in a state where it
+        // identified an emoji before. i.e. abc[women-emoji] when the last codepoint is consumed
+        // state machine is waiting to see if there is an emoji sequence (i.e. ZWJ).
+        // Need to check if it is in such a state.
+        if (sm.isInFlushableState() && addedCount < maxEmojiCount) {
+            if (replaceAll || !hasGlyph(charSequence, start, currentOffset,
+                    sm.getCurrentMetadata())) {
+                callback.handleEmoji(charSequence, start, currentOffset,
+                        sm.getCurrentMetadata());
+            }
+        }
+        return callback.getResult();
+    }
+
     /**
      * Handles onKeyDown commands from a {@link KeyListener} and if {@code keyCode} is one of
      * {@link KeyEvent#KEYCODE_DEL} or {@link KeyEvent#KEYCODE_FORWARD_DEL} it tries to delete an
@@ -485,12 +524,6 @@ final class EmojiProcessor {
         return !KeyEvent.metaStateHasNoModifiers(event.getMetaState());
     }
 
-    private void addEmoji(@NonNull final Spannable spannable, final EmojiMetadata metadata,
-            final int start, final int end) {
-        final EmojiSpan span = mSpanFactory.createSpan(metadata);
-        spannable.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-    }
-
     /**
      * Checks whether the current OS can render a given emoji. Used by the system to decide if an
      * emoji span should be added. If the system cannot render it, an emoji span will be added.
@@ -515,6 +548,84 @@ final class EmojiProcessor {
         return metadata.getHasGlyph() == EmojiMetadata.HAS_GLYPH_EXISTS;
     }
 
+    /**
+     * Receives the emojis found by {@link #process(CharSequence, int, int, int, boolean,
+     * EmojiProcessCallback)}.
+     */
+    private interface EmojiProcessCallback<T> {
+        /**
+         * Called for each emoji to replace, in order.
+         */
+        void handleEmoji(@NonNull CharSequence charSequence, int start, int end,
+                @NonNull EmojiMetadata metadata);
+
+        /**
+         * @return the result of the processing
+         */
+        T getResult();
+    }
+
+    /**
+     * Adds an EmojiSpan for each emoji. The result is {@code null} if the given spannable was
+     * {@code null} and no emoji was found.
+     */
+    private static final class EmojiProcessAddSpanCallback
+            implements EmojiProcessCallback<UnprecomputeTextOnModificationSpannable> {
+        @Nullable
+        private UnprecomputeTextOnModificationSpannable mSpannable;
+        @NonNull
+        private final EmojiCompat.SpanFactory mSpanFactory;
+
+        EmojiProcessAddSpanCallback(@Nullable UnprecomputeTextOnModificationSpannable spannable,
+                @NonNull EmojiCompat.SpanFactory spanFactory) {
+            mSpannable = spannable;
+            mSpanFactory = spanFactory;
+        }
+
+        @Override
+        public void handleEmoji(@NonNull CharSequence charSequence, int start, int end,
+                @NonNull EmojiMetadata metadata) {
+            if (mSpannable == null) {
+                mSpannable = new UnprecomputeTextOnModificationSpannable(
+                        new SpannableString(charSequence));
+            }
+            final EmojiSpan span = mSpanFactory.createSpan(metadata);
+            mSpannable.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+
+        @Override
+        @Nullable
+        public UnprecomputeTextOnModificationSpannable getResult() {
+            return mSpannable;
+        }
+    }
+
+    /**
+     * Collects the start, end and metadata id of each emoji in a flat int array.
+     */
+    private static final class EmojiRangesCallback implements EmojiProcessCallback<int[]> {
+        @NonNull
+        private int[] mRanges = new int[12];
+        private int mSize;
+
+        @Override
+        public void handleEmoji(@NonNull CharSequence charSequence, int start, int end,
+                @NonNull EmojiMetadata metadata) {
+            if (mSize + 3 > mRanges.length) {
+                mRanges = Arrays.copyOf(mRanges, mRanges.length * 2);
+            }
+            mRanges[mSize++] = start;
+            mRanges[mSize++] = end;
+            mRanges[mSize++] = metadata.getId();
+        }
+
+        @Override
+        @NonNull
+        public int[] getResult() {
+            return mSize == mRanges.length ? mRanges : Arrays.copyOf(mRanges, mSize);
+        }
+    }
+
     /**
      * State machine for walking over the metadata trie.
      */
@@ -526,20 +637,20 @@ final class EmojiProcessor {
         private int mState = STATE_DEFAULT;
 
         /**
-         * Root of the trie
+         * The metadata trie
          */
-        private final MetadataRepo.Node mRootNode;
+        private final MetadataRepo.CodepointTrie mTrie;
 
         /**
          * Pointer to the node after last codepoint.
          */
-        private MetadataRepo.Node mCurrentNode;
+        private int mCurrentNode = MetadataRepo.CodepointTrie.ROOT_NODE;
 
         /**
          * The node where ACTION_FLUSH is called. Required since after flush action is
          * returned mCurrentNode is reset to be the root.
          */
-        private MetadataRepo.Node mFlushNode;
+        private int mFlushNode = MetadataRepo.CodepointTrie.NO_NODE;
 
         /**
          * The code point that was checked.
@@ -561,10 +672,9 @@ final class EmojiProcessor {
          */
         private final int[] mEmojiAsDefaultStyleExceptions;
 
-        ProcessorSm(MetadataRepo.Node rootNode, boolean useEmojiAsDefaultStyle,
+        ProcessorSm(MetadataRepo.CodepointTrie trie, boolean useEmojiAsDefaultStyle,
                 int[] emojiAsDefaultStyleExceptions) {
-            mRootNode = rootNode;
-            mCurrentNode = rootNode;
+            mTrie = trie;
             mUseEmojiAsDefaultStyle = useEmojiAsDefaultStyle;
             mEmojiAsDefaultStyleExceptions = emojiAsDefaultStyleExceptions;
         }
@@ -572,10 +682,10 @@ final class EmojiProcessor {
         @Action
         int check(final int codePoint) {
             final int action;
-            MetadataRepo.Node node = mCurrentNode.get(codePoint);
+            final int node = mTrie.getChild(mCurrentNode, codePoint);
             switch (mState) {
                 case STATE_WALKING:
-                    if (node != null) {
+                    if (node != MetadataRepo.CodepointTrie.NO_NODE) {
                         mCurrentNode = node;
                         mCurrentDepth += 1;
                         action = ACTION_ADVANCE_END;
@@ -584,7 +694,7 @@ final class EmojiProcessor {
                             action = reset();
                         } else if (isEmojiStyle(codePoint)) {
                             action = ACTION_ADVANCE_END;
-                        } else if (mCurrentNode.getData() != null) {
+                        } else if (mTrie.getMetadata(mCurrentNode) != null) {
                             if (mCurrentDepth == 1) {
                                 if (shouldUseEmojiPresentationStyleForSingleCodepoint()) {
                                     mFlushNode = mCurrentNode;
@@ -605,7 +715,7 @@ final class EmojiProcessor {
                     break;
                 case STATE_DEFAULT:
                 default:
-                    if (node == null) {
+                    if (node == MetadataRepo.CodepointTrie.NO_NODE) {
                         action = reset();
                     } else {
                         mState = STATE_WALKING;
@@ -623,7 +733,7 @@ final class EmojiProcessor {
         @Action
         private int reset() {
             mState = STATE_DEFAULT;
-            mCurrentNode = mRootNode;
+            mCurrentNode = MetadataRepo.CodepointTrie.ROOT_NODE;
             mCurrentDepth = 0;
             return ACTION_ADVANCE_BOTH;
         }
@@ -632,14 +742,14 @@ final class EmojiProcessor {
          * @return the metadata node when ACTION_FLUSH is returned
          */
         EmojiMetadata getFlushMetadata() {
-            return mFlushNode.getData();
+            return mTrie.getMetadata(mFlushNode);
         }
 
         /**
          * @return current pointer to the metadata node in the trie
          */
         EmojiMetadata getCurrentMetadata() {
-            return mCurrentNode.getData();
+            return mTrie.getMetadata(mCurrentNode);
         }
 
         /**
@@ -650,12 +760,12 @@ final class EmojiProcessor {
          * @return whether the current state requires an emoji to be added
          */
         boolean isInFlushableState() {
-            return mState == STATE_WALKING && mCurrentNode.getData() != null
+            return mState == STATE_WALKING && mTrie.getMetadata(mCurrentNode) != null
                     && (mCurrentDepth > 1 || shouldUseEmojiPresentationStyleForSingleCodepoint());
         }
 
         private boolean shouldUseEmojiPresentationStyleForSingleCodepoint() {
-            if (mCurrentNode.getData().isDefaultEmoji()) {
+            if (mTrie.getMetadata(mCurrentNode).isDefaultEmoji()) {
                 // The codepoint is emoji style by default.
                 return true;
             }
@@ -669,7 +779,7 @@ final class EmojiProcessor {
                 if (mEmojiAsDefaultStyleExceptions == null) {
                     return true;
                 }
-                final int codepoint = mCurrentNode.getData().getCodepointAt(0);
+                final int codepoint = mTrie.getMetadata(mCurrentNode).getCodepointAt(0);
                 final int index = Arrays.binarySearch(mEmojiAsDefaultStyleExceptions, codepoint);
                 if (index < 0) {
                     // Index is negative, so the codepoint was not found in the array of exceptions.
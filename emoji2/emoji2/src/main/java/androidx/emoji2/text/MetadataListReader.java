@@ -15,19 +15,25 @@
  */
 package androidx.emoji2.text;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.emoji2.text.flatbuffer.MetadataList;
 
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads the emoji metadata from a given InputStream or ByteBuffer.
@@ -97,17 +103,49 @@ class MetadataListReader {
     /**
      * Construct MetadataList from an asset.
      *
+     * If the asset is stored uncompressed in the APK, it is mapped to memory and the metadata is
+     * read in place. Otherwise the metadata is copied from the decompressed asset.
+     *
      * @param assetManager AssetManager instance
      * @param assetPath asset manager path of the file that the Typeface and metadata will be
      *                  created from
      */
     static MetadataList read(AssetManager assetManager, String assetPath)
             throws IOException {
+        final ByteBuffer mappedAsset = mmap(assetManager, assetPath);
+        if (mappedAsset != null) {
+            return read(mappedAsset);
+        }
         try (InputStream inputStream = assetManager.open(assetPath)) {
             return read(inputStream);
         }
     }
 
+    /**
+     * Maps an asset to memory. The mapping stays valid after the file is closed, for as long as
+     * the returned buffer is referenced.
+     *
+     * @return the mapped asset, or {@code null} if the asset is compressed or missing
+     */
+    @Nullable
+    @VisibleForTesting
+    static ByteBuffer mmap(AssetManager assetManager, String assetPath)
+            throws IOException {
+        final AssetFileDescriptor fd;
+        try {
+            fd = assetManager.openFd(assetPath);
+        } catch (FileNotFoundException e) {
+            // compressed assets don't have a file descriptor
+            return null;
+        }
+        // closing the stream closes the file descriptor
+        try (FileInputStream inputStream = fd.createInputStream()) {
+            final FileChannel channel = inputStream.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(),
+                    fd.getDeclaredLength());
+        }
+    }
+
     /**
      * Finds the start offset and length of the emoji metadata in the font.
      *
@@ -17,9 +17,9 @@ package androidx.emoji2.text;
 
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
@@ -31,6 +31,9 @@ import androidx.emoji2.text.flatbuffer.MetadataList;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -38,10 +41,6 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
     private static final String S_TRACE_CREATE_REPO = "EmojiCompat.MetadataRepo.create";
 
     /**
@@ -56,9 +55,19 @@ public final class MetadataRepo {
     private final @NonNull char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * EmojiMetadata's of all the emojis in the MetadataList, in the order of the list.
+     */
+    private final @NonNull EmojiMetadata[] mMetadata;
+
+    /**
+     * EmojiMetadata's added with {@link #put(EmojiMetadata)}.
      */
-    private final @NonNull Node mRootNode;
+    private final @NonNull List<EmojiMetadata> mAddedMetadata = new ArrayList<>();
+
+    /**
+     * Trie of the codepoints of all the emojis.
+     */
+    private volatile @NonNull CodepointTrie mTrie;
 
     /**
      * Typeface to be used to render emojis.
@@ -75,9 +84,10 @@ public final class MetadataRepo {
             @NonNull final MetadataList metadataList) {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[mMetadataList.listLength() * 2];
+        mMetadata = new EmojiMetadata[mMetadataList.listLength()];
         constructIndex(mMetadataList);
+        mTrie = CodepointTrie.create(mMetadata);
     }
 
     /**
@@ -134,7 +144,12 @@ public final class MetadataRepo {
     }
 
     /**
-     * Construct MetadataRepo from an asset.
+     * Construct MetadataRepo from an asset. If the asset is stored uncompressed, the metadata is
+     * read from the memory mapped asset instead of being copied to the heap.
+     * <p/>
+     * Whether an asset is compressed is decided by the build of the app, not by the library that
+     * provides the asset. Fonts are kept uncompressed with {@code noCompress "ttf"} in the
+     * {@code aaptOptions} of the app module.
      *
      * @param assetManager AssetManager instance
      * @param assetPath asset manager path of the file that the Typeface and metadata will be
@@ -164,7 +179,7 @@ public final class MetadataRepo {
             //chars wide
             //noinspection ResultOfMethodCallIgnored
             Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+            mMetadata[i] = metadata;
         }
     }
 
@@ -190,8 +205,8 @@ public final class MetadataRepo {
      */
     @NonNull
     @RestrictTo(RestrictTo.Scope.LIBRARY)
-    Node getRootNode() {
-        return mRootNode;
+    CodepointTrie getTrie() {
+        return mTrie;
     }
 
     /**
@@ -212,9 +227,32 @@ public final class MetadataRepo {
         return mMetadataList;
     }
 
+    /**
+     * @return the number of emojis in the MetadataList
+     *
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    int getMetadataCount() {
+        return mMetadata.length;
+    }
+
+    /**
+     * @return the EmojiMetadata at the given index of the MetadataList
+     *
+     * @hide
+     */
+    @NonNull
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    EmojiMetadata getMetadata(@IntRange(from = 0) final int index) {
+        return mMetadata[index];
+    }
+
     /**
      * Add an EmojiMetadata to the index.
      *
+     * <p>The trie is rebuilt on each call, so this is only meant to be used by tests.
+     *
      * @hide
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY)
@@ -224,50 +262,188 @@ public final class MetadataRepo {
         Preconditions.checkArgument(data.getCodepointsLength() > 0,
                 "invalid metadata codepoint length");
 
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
+        synchronized (mAddedMetadata) {
+            mAddedMetadata.add(data);
+            final EmojiMetadata[] metadata = Arrays.copyOf(mMetadata,
+                    mMetadata.length + mAddedMetadata.size());
+            for (int i = 0; i < mAddedMetadata.size(); i++) {
+                metadata[mMetadata.length + i] = mAddedMetadata.get(i);
+            }
+            mTrie = CodepointTrie.create(metadata);
+        }
     }
 
     /**
-     * Trie node that holds mapping from emoji codepoint(s) to EmojiMetadata. A single codepoint
-     * emoji is represented by a child of the root node.
+     * Immutable trie that holds mapping from emoji codepoint(s) to EmojiMetadata. A single
+     * codepoint emoji is represented by a child of the root node.
+     *
+     * <p>Nodes are ints, and the trie is stored in a few flat arrays instead of an object per
+     * node. Nodes are numbered in breadth first order, so that the edges of a node are next to
+     * the edges of the following node: the edges of node {@code n} are in
+     * {@code [mEdgeStart[n], mEdgeStart[n + 1])}, sorted by codepoint. The edge at index
+     * {@code e} leads to node {@code e + 1}, which is why no array of edge targets is needed.
      *
      * @hide
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY)
-    static class Node {
-        private final SparseArray<Node> mChildren;
-        private EmojiMetadata mData;
+    static final class CodepointTrie {
+        /**
+         * The root node, which has no EmojiMetadata.
+         */
+        static final int ROOT_NODE = 0;
+
+        /**
+         * Returned by {@link #getChild(int, int)} when there is no child for a codepoint.
+         */
+        static final int NO_NODE = -1;
+
+        /**
+         * Index of the first edge of each node, followed by the number of edges.
+         */
+        private final int[] mEdgeStart;
+
+        /**
+         * Codepoint of each edge.
+         */
+        private final int[] mEdgeCodepoints;
+
+        /**
+         * EmojiMetadata of each node, {@code null} if no emoji ends at the node.
+         */
+        private final EmojiMetadata[] mNodeMetadata;
 
-        private Node() {
-            this(1);
+        private CodepointTrie(final int[] edgeStart, final int[] edgeCodepoints,
+                final EmojiMetadata[] nodeMetadata) {
+            mEdgeStart = edgeStart;
+            mEdgeCodepoints = edgeCodepoints;
+            mNodeMetadata = nodeMetadata;
         }
 
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
+        /**
+         * @return the child of the node for the codepoint, or {@link #NO_NODE}
+         */
+        int getChild(final int node, final int codepoint) {
+            final int index = Arrays.binarySearch(mEdgeCodepoints, mEdgeStart[node],
+                    mEdgeStart[node + 1], codepoint);
+            return index < 0 ? NO_NODE : index + 1;
         }
 
-        Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
+        /**
+         * @return the EmojiMetadata of the emoji that ends at the node, or {@code null}
+         */
+        EmojiMetadata getMetadata(final int node) {
+            return mNodeMetadata[node];
         }
 
-        final EmojiMetadata getData() {
-            return mData;
+        /**
+         * Builds the trie of the given emojis. When several emojis have the same codepoints, the
+         * last one wins.
+         */
+        @NonNull
+        static CodepointTrie create(@NonNull final EmojiMetadata[] metadata) {
+            final int count = metadata.length;
+            // copy the codepoints to a single array, to read each of them only once
+            final int[] offsets = new int[count + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[i + 1] = offsets[i] + metadata[i].getCodepointsLength();
+            }
+            final int[] codepoints = new int[offsets[count]];
+            for (int i = 0; i < count; i++) {
+                final EmojiMetadata data = metadata[i];
+                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                    codepoints[j] = data.getCodepointAt(j - offsets[i]);
+                }
+            }
+
+            // sort the emojis by codepoints, so that the emojis under a node are contiguous
+            final int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            sort(order, new int[count], 0, count, codepoints, offsets);
+
+            // a node per codepoint at most, plus the root
+            final int maxNodes = codepoints.length + 1;
+            final int[] edgeStart = new int[maxNodes + 1];
+            final int[] edgeCodepoints = new int[maxNodes];
+            final EmojiMetadata[] nodeMetadata = new EmojiMetadata[maxNodes];
+            // range of order and depth of each node, while building
+            final int[] nodeFrom = new int[maxNodes];
+            final int[] nodeTo = new int[maxNodes];
+            final int[] nodeDepth = new int[maxNodes];
+            nodeTo[ROOT_NODE] = count;
+
+            int edgeCount = 0;
+            for (int node = 0; node <= edgeCount; node++) {
+                edgeStart[node] = edgeCount;
+                final int depth = nodeDepth[node];
+                final int to = nodeTo[node];
+                int i = nodeFrom[node];
+                // emojis that end at this node sort first
+                while (i < to && offsets[order[i]] + depth == offsets[order[i] + 1]) {
+                    nodeMetadata[node] = metadata[order[i]];
+                    i++;
+                }
+                while (i < to) {
+                    final int codepoint = codepoints[offsets[order[i]] + depth];
+                    final int child = edgeCount + 1;
+                    edgeCodepoints[edgeCount++] = codepoint;
+                    nodeFrom[child] = i;
+                    nodeDepth[child] = depth + 1;
+                    while (i < to && codepoints[offsets[order[i]] + depth] == codepoint) {
+                        i++;
+                    }
+                    nodeTo[child] = i;
+                }
+            }
+            final int nodeCount = edgeCount + 1;
+            edgeStart[nodeCount] = edgeCount;
+
+            return new CodepointTrie(Arrays.copyOf(edgeStart, nodeCount + 1),
+                    Arrays.copyOf(edgeCodepoints, edgeCount),
+                    Arrays.copyOf(nodeMetadata, nodeCount));
         }
 
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        void put(@NonNull final EmojiMetadata data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
+        /**
+         * Stable merge sort of the emoji indices in {@code order[from, to)} by codepoints.
+         */
+        private static void sort(final int[] order, final int[] buffer, final int from,
+                final int to, final int[] codepoints, final int[] offsets) {
+            if (to - from < 2) {
+                return;
             }
+            final int middle = (from + to) >>> 1;
+            sort(order, buffer, from, middle, codepoints, offsets);
+            sort(order, buffer, middle, to, codepoints, offsets);
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < middle
+                        && compare(buffer[left], buffer[right], codepoints, offsets) <= 0)) {
+                    order[i] = buffer[left++];
+                } else {
+                    order[i] = buffer[right++];
+                }
+            }
+        }
 
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
+        /**
+         * Compares the codepoints of two emojis, a prefix sorts before the longer sequence.
+         */
+        private static int compare(final int first, final int second, final int[] codepoints,
+                final int[] offsets) {
+            final int firstLength = offsets[first + 1] - offsets[first];
+            final int secondLength = offsets[second + 1] - offsets[second];
+            final int length = Math.min(firstLength, secondLength);
+            for (int i = 0; i < length; i++) {
+                final int result = Integer.compare(codepoints[offsets[first] + i],
+                        codepoints[offsets[second] + i]);
+                if (result != 0) {
+                    return result;
+                }
             }
+            return Integer.compare(firstLength, secondLength);
         }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.exifinterface.benchmark.test.R
+import androidx.exifinterface.media.ExifInterface
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import java.io.File
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Saves the EXIF attributes of a JPEG file of the size of a photo, when the new EXIF segment fits
+ * in the old one and when it doesn't.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class SaveAttributesBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private lateinit var original: File
+    private lateinit var image: File
+
+    @Before
+    fun setUp() {
+        original = File(context.cacheDir, "original.jpg")
+        context.resources.openRawResource(R.raw.jpeg_with_exif_byte_order_ii).use { input ->
+            original.outputStream().use { output ->
+                val imageSize = input.copyTo(output)
+                // bytes after the end of the image stand in for the compressed pixels of a photo
+                output.write(ByteArray(PHOTO_SIZE - imageSize.toInt()))
+            }
+        }
+        // saved once so that the EXIF segment has no slack left
+        ExifInterface(original.absolutePath).saveAttributes()
+        image = File(context.cacheDir, "image.jpg")
+        original.copyTo(image, overwrite = true)
+    }
+
+    @After
+    fun tearDown() {
+        original.delete()
+        image.delete()
+    }
+
+    @Test
+    fun saveAttributes_inPlace() {
+        val exif = ExifInterface(image.absolutePath)
+        // values of the same length keep the size of the EXIF segment
+        val make = exif.getAttribute(ExifInterface.TAG_MAKE)!!
+        val makes = listOf(make.reversed(), make)
+        var i = 0
+        benchmarkRule.measureRepeated {
+            exif.setAttribute(ExifInterface.TAG_MAKE, makes[i++ % 2])
+            exif.saveAttributes()
+        }
+    }
+
+    @Test
+    fun saveAttributes_rewrite() {
+        val description = "a".repeat(1024)
+        benchmarkRule.measureRepeated {
+            val exif = runWithTimingDisabled {
+                original.copyTo(image, overwrite = true)
+                ExifInterface(image.absolutePath)
+            }
+            exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, description)
+            exif.saveAttributes()
+        }
+    }
+
+    @Test
+    fun bytesWrittenPerSave() {
+        assumeTrue(PROC_SELF_IO.canRead())
+        val exif = ExifInterface(image.absolutePath)
+        val make = exif.getAttribute(ExifInterface.TAG_MAKE)!!
+
+        exif.setAttribute(ExifInterface.TAG_MAKE, make.reversed())
+        val inPlace = bytesWritten { exif.saveAttributes() }
+        exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, "a".repeat(1024))
+        val rewrite = bytesWritten { exif.saveAttributes() }
+
+        // an EXIF segment is at most 64KB, the margin is for the other writes of the process
+        assertTrue("saving in place wrote $inPlace bytes", inPlace < PHOTO_SIZE / 8)
+        // the file is copied to a temporary file and written back
+        assertTrue("rewriting wrote $rewrite bytes", rewrite >= 2L * PHOTO_SIZE)
+    }
+
+    /**
+     * Returns the number of bytes written by the process while [block] runs.
+     */
+    private inline fun bytesWritten(block: () -> Unit): Long {
+        val before = readWrittenChars()
+        block()
+        return readWrittenChars() - before
+    }
+
+    private fun readWrittenChars(): Long = PROC_SELF_IO.readLines()
+        .first { it.startsWith("wchar:") }
+        .substringAfter(':')
+        .trim()
+        .toLong()
+
+    companion object {
+        private const val PHOTO_SIZE = 8 * 1024 * 1024
+        private val PROC_SELF_IO = File("/proc/self/io")
+    }
+}
@@ -64,6 +64,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Objects;
 import java.util.Random;
@@ -595,6 +596,46 @@ public class ExifInterfaceTest {
         }
     }
 
+    @Test
+    @LargeTest
+    public void testSaveJpegAttributesInPlace() throws Throwable {
+        File srcFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        File imageFile = clone(srcFile);
+        // Save once so that the EXIF segment has no slack left.
+        new ExifInterface(imageFile.getAbsolutePath()).saveAttributes();
+        final long savedLength = imageFile.length();
+
+        // A smaller EXIF segment is written over the original one, padded to the same size.
+        ExifInterface exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertNotNull(exif.getAttribute(ExifInterface.TAG_MAKE));
+        exif.setAttribute(ExifInterface.TAG_MAKE, null);
+        exif.saveAttributes();
+        assertEquals(savedLength, imageFile.length());
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertNull(exif.getAttribute(ExifInterface.TAG_MAKE));
+        assertBitmapsEquivalent(srcFile, imageFile);
+
+        // The padding is reused by the next save.
+        exif.setAttribute(ExifInterface.TAG_MAKE, "abc");
+        exif.saveAttributes();
+        assertEquals(savedLength, imageFile.length());
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals("abc", exif.getAttribute(ExifInterface.TAG_MAKE));
+        assertBitmapsEquivalent(srcFile, imageFile);
+
+        // A larger EXIF segment needs the whole file to be rewritten.
+        char[] description = new char[1024];
+        Arrays.fill(description, 'a');
+        exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, new String(description));
+        exif.saveAttributes();
+        assertTrue(imageFile.length() > savedLength);
+        exif = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals(new String(description),
+                exif.getAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION));
+        assertEquals("abc", exif.getAttribute(ExifInterface.TAG_MAKE));
+        assertBitmapsEquivalent(srcFile, imageFile);
+    }
+
     @Test
     @SmallTest
     public void testSetGpsInfo() throws IOException {
@@ -61,10 +61,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -3903,6 +3905,11 @@ public class ExifInterface {
     // XMP data can be contained as either part of the EXIF data (tag number 700), or as a
     // separate data marker (a separate MARKER_APP1).
     private boolean mXmpIsFromSeparateMarker;
+    // Used to indicate the position and the size (including the marker) of the EXIF APP1 segment
+    // of a JPEG file, and the number of such segments, for overwriting the segment in place.
+    private int mJpegExifSegmentOffset;
+    private int mJpegExifSegmentLength;
+    private int mJpegExifSegmentCount;
 
     // Pattern to check non zero timestamp
     private static final Pattern NON_ZERO_TIME_PATTERN = Pattern.compile(".*[1-9].*");
@@ -4686,6 +4693,13 @@ public class ExifInterface {
         // Keep the thumbnail in memory
         mThumbnailBytes = getThumbnail();
 
+        // Overwrite the EXIF data in place if it fits, which avoids copying the whole image twice.
+        if (mMimeType == IMAGE_TYPE_JPEG && saveJpegAttributesInPlace()) {
+            // Discard the thumbnail in memory
+            mThumbnailBytes = null;
+            return;
+        }
+
         FileInputStream in = null;
         FileOutputStream out = null;
         File tempFile;
@@ -4774,6 +4788,96 @@ public class ExifInterface {
         mThumbnailBytes = null;
     }
 
+    /**
+     * Overwrites the EXIF APP1 segment of a JPEG file with the new EXIF data, if the new segment is
+     * not larger than the original one. The new segment is padded with zeros up to the size of the
+     * original one, so the rest of the file is left untouched.
+     *
+     * @return {@code true} if the attributes were saved, or {@code false} if the whole file needs
+     * to be rewritten instead.
+     */
+    private boolean saveJpegAttributesInPlace() throws IOException {
+        if (mJpegExifSegmentCount != 1) {
+            return false;
+        }
+        // mSeekableFileDescriptor will be non-null only for SDK_INT >= 21, but this check is
+        // needed to prevent using the file descriptor at runtime for SDK < 21.
+        if (mFilename == null && Build.VERSION.SDK_INT < 21) {
+            return false;
+        }
+
+        // Remove XMP data if it is from a separate marker, which is left untouched.
+        ExifAttribute xmpAttribute = null;
+        if (getAttribute(TAG_XMP) != null && mXmpIsFromSeparateMarker) {
+            xmpAttribute = mAttributes[IFD_TYPE_PRIMARY].remove(TAG_XMP);
+        }
+        ByteArrayOutputStream segmentStream = new ByteArrayOutputStream(mJpegExifSegmentLength);
+        try {
+            ByteOrderedDataOutputStream dataOutputStream =
+                    new ByteOrderedDataOutputStream(segmentStream, BIG_ENDIAN);
+            dataOutputStream.writeByte(MARKER);
+            dataOutputStream.writeByte(MARKER_APP1);
+            writeExifSegment(dataOutputStream);
+        } finally {
+            // Re-add previously removed XMP data.
+            if (xmpAttribute != null) {
+                mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, xmpAttribute);
+            }
+        }
+        if (segmentStream.size() > mJpegExifSegmentLength) {
+            return false;
+        }
+        byte[] segment = Arrays.copyOf(segmentStream.toByteArray(), mJpegExifSegmentLength);
+        // Extend the segment length over the padding. The padding follows all the data referred
+        // to by the IFDs, so readers ignore it.
+        int length = mJpegExifSegmentLength - 2;
+        segment[2] = (byte) (length >>> 8);
+        segment[3] = (byte) length;
+
+        RandomAccessFile file = null;
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        try {
+            FileChannel readChannel;
+            FileChannel writeChannel;
+            if (mFilename != null) {
+                file = new RandomAccessFile(mFilename, "rw");
+                readChannel = file.getChannel();
+                writeChannel = readChannel;
+            } else {
+                in = new FileInputStream(mSeekableFileDescriptor);
+                out = new FileOutputStream(mSeekableFileDescriptor);
+                readChannel = in.getChannel();
+                writeChannel = out.getChannel();
+            }
+
+            // Check that the original segment is still there, in case the file was changed since
+            // it was read.
+            ByteBuffer header = ByteBuffer.allocate(4 + IDENTIFIER_EXIF_APP1.length);
+            while (header.hasRemaining()) {
+                if (readChannel.read(header, mJpegExifSegmentOffset + header.position()) < 0) {
+                    break;
+                }
+            }
+            if (header.hasRemaining() || !startsWith(header.array(),
+                    Arrays.copyOf(segment, header.capacity()))) {
+                return false;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(segment);
+            while (buffer.hasRemaining()) {
+                writeChannel.write(buffer, mJpegExifSegmentOffset + buffer.position());
+            }
+        } catch (Exception e) {
+            throw new IOException("Failed to save new file", e);
+        } finally {
+            closeQuietly(file);
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+        return true;
+    }
+
     /**
      * Returns true if the image file has a thumbnail.
      */
@@ -5610,6 +5714,13 @@ public class ExifInterface {
                         mOffsetToExifData = offsetToJpeg
                                 + /* offset to EXIF from JPEG start */ start
                                 + IDENTIFIER_EXIF_APP1.length;
+                        if (offsetToJpeg == 0 && imageType == IFD_TYPE_PRIMARY) {
+                            // Save the position of the segment, from its marker, for saving the
+                            // attributes in place.
+                            mJpegExifSegmentOffset = start - 4;
+                            mJpegExifSegmentLength = bytes.length + 4;
+                            ++mJpegExifSegmentCount;
+                        }
                         readExifSegment(value, imageType);
 
                         setThumbnailData(new ByteOrderedDataInputStream(value));
@@ -6287,7 +6398,12 @@ public class ExifInterface {
         // Write EXIF APP1 segment
         dataOutputStream.writeByte(MARKER);
         dataOutputStream.writeByte(MARKER_APP1);
-        writeExifSegment(dataOutputStream);
+        int exifSegmentSize = writeExifSegment(dataOutputStream);
+
+        // The new file has a single EXIF APP1 segment, right after the SOI marker.
+        mJpegExifSegmentOffset = 2;
+        mJpegExifSegmentLength = exifSegmentSize + 2;
+        mJpegExifSegmentCount = 1;
 
         // Re-add previously removed XMP data.
         if (xmpAttribute != null) {
@@ -22,6 +22,7 @@ import androidx.testutils.TestExecutor
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotSame
 import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -346,6 +347,108 @@ class AsyncListDifferTest {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun submitListCoalesces() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = createDiffer(callback)
+
+        differ.submitList(listOf("a", "b"))
+        verify(callback).onInserted(0, 2)
+
+        // the first update is scheduled, the next ones wait for it
+        differ.submitList(listOf("a", "b", "c"))
+        differ.submitList(listOf("a", "b", "c", "d"))
+        val last = listOf("a", "b", "c", "d", "e")
+        differ.submitList(last)
+        drain()
+
+        // only the last list is diffed and dispatched
+        verify(callback).onInserted(2, 3)
+        verifyNoMoreInteractions(callback)
+        assertEquals(last, differ.currentList)
+        assertEquals(1, differ.cancelledDiffCount)
+        assertEquals(1, differ.coalescedListCount)
+    }
+
+    @Test
+    fun submitListCancelsRunningDiff() {
+        var differ: AsyncListDiffer<String>? = null
+        var comparisons = 0
+        val latest = listOf("x", "y")
+        val itemCallback = object : DiffUtil.ItemCallback<String>() {
+            override fun areItemsTheSame(oldItem: String, newItem: String): Boolean {
+                if (++comparisons == 10) {
+                    // a new list is submitted while the diff is running
+                    differ!!.submitList(latest)
+                }
+                return oldItem == newItem
+            }
+
+            override fun areContentsTheSame(oldItem: String, newItem: String): Boolean {
+                return oldItem == newItem
+            }
+        }
+        differ = AsyncListDiffer(
+            IGNORE_CALLBACK,
+            AsyncDifferConfig.Builder(itemCallback)
+                .setMainThreadExecutor(mMainThread)
+                .setBackgroundThreadExecutor(mBackgroundThread)
+                .build()
+        )
+        differ.submitList((0 until 1000).map { "a$it" })
+        differ.submitList((0 until 1000).map { "b$it" })
+
+        // the diff of two different lists of 1000 items stops long before completing
+        mBackgroundThread.executeAll()
+        assertTrue(comparisons < 1000)
+
+        drain()
+        assertEquals(latest, differ.currentList)
+        assertEquals(1, differ.cancelledDiffCount)
+        assertEquals(0, differ.coalescedListCount)
+    }
+
+    @Test
+    fun submitListAfterFailedDiff() {
+        var shouldThrow = true
+        val itemCallback = object : DiffUtil.ItemCallback<String>() {
+            override fun areItemsTheSame(oldItem: String, newItem: String): Boolean {
+                if (shouldThrow) {
+                    throw IllegalStateException("diff failed")
+                }
+                return oldItem == newItem
+            }
+
+            override fun areContentsTheSame(oldItem: String, newItem: String): Boolean {
+                return oldItem == newItem
+            }
+        }
+        val differ = AsyncListDiffer(
+            IGNORE_CALLBACK,
+            AsyncDifferConfig.Builder(itemCallback)
+                .setMainThreadExecutor(mMainThread)
+                .setBackgroundThreadExecutor(mBackgroundThread)
+                .build()
+        )
+        val initial = listOf("a", "b")
+        differ.submitList(initial)
+        differ.submitList(listOf("a", "c"))
+        try {
+            mBackgroundThread.executeAll()
+            fail("the diff should have thrown")
+        } catch (expected: IllegalStateException) {
+        }
+        drain()
+        assertEquals(initial, differ.currentList)
+
+        // the failed diff doesn't block the next lists
+        shouldThrow = false
+        val latest = listOf("a", "d")
+        differ.submitList(latest)
+        drain()
+        assertEquals(latest, differ.currentList)
+    }
+
     private fun drain() {
         var executed: Boolean
         do {
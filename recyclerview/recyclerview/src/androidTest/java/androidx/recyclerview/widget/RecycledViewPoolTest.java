@@ -21,7 +21,9 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
 import android.view.View;
@@ -31,10 +33,15 @@ import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public class RecycledViewPoolTest {
@@ -91,6 +98,184 @@ public class RecycledViewPoolTest {
         assertEquals(0, pool.getRecycledViewCount(3));
     }
 
+    @Test
+    public void viewTypeStats() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setMaxRecycledViews(1, 2);
+        for (int i = 0; i < 3; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        assertNotNull(pool.getRecycledView(1));
+        assertNotNull(pool.getRecycledView(1));
+        assertNull(pool.getRecycledView(1));
+        pool.factorInCreateTime(1, 400);
+        pool.factorInBindTime(1, 100);
+
+        RecyclerView.RecycledViewPool.ViewTypeStats stats = pool.getViewTypeStats(1);
+        assertEquals(1, stats.getViewType());
+        assertEquals(2, stats.getMaxRecycledViews());
+        assertEquals(0, stats.getRecycledViewCount());
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getDiscardCount());
+        assertEquals(1, stats.getCreateCount());
+        assertEquals(1, stats.getBindCount());
+        assertEquals(400, stats.getAverageCreateTimeNanos());
+        assertEquals(100, stats.getAverageBindTimeNanos());
+    }
+
+    @Test
+    public void unknownViewType_lookupsDontTrackType() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        assertNull(pool.getRecycledView(7));
+        assertEquals(0, pool.getRecycledViewCount(7));
+        assertEquals(0, pool.getViewTypeStats(7).getMissCount());
+        assertEquals(0, pool.mScrap.size());
+    }
+
+    @Test
+    public void adaptiveSizing_growsAfterDiscardAndMiss() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        fill(pool, 0, 8);
+        assertEquals(5, pool.getRecycledViewCount(0));
+        drain(pool, 0);
+
+        // the 3 discarded holders had to be created again
+        assertEquals(8, pool.getViewTypeStats(0).getMaxRecycledViews());
+        fill(pool, 0, 8);
+        assertEquals(8, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void adaptiveSizing_disabled_keepsDefault() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        fill(pool, 0, 8);
+        drain(pool, 0);
+        assertEquals(5, pool.getViewTypeStats(0).getMaxRecycledViews());
+    }
+
+    @Test
+    public void adaptiveSizing_keepsFixedMax() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setMaxRecycledViews(0, 3);
+        fill(pool, 0, 8);
+        drain(pool, 0);
+        assertEquals(3, pool.getViewTypeStats(0).getMaxRecycledViews());
+    }
+
+    @Test
+    public void adaptiveSizing_respectsTotalBudget() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setMaxTotalRecycledViews(6);
+        fill(pool, 0, 20);
+        drain(pool, 0);
+        assertEquals(6, pool.getViewTypeStats(0).getMaxRecycledViews());
+
+        fill(pool, 0, 4);
+        fill(pool, 1, 4);
+        assertEquals(6, pool.size());
+        assertEquals(2, pool.getRecycledViewCount(1));
+    }
+
+    @Test
+    public void adaptiveSizing_shrinksUnusedCapacity() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        fill(pool, 0, 20);
+        drain(pool, 0);
+        assertEquals(20, pool.getViewTypeStats(0).getMaxRecycledViews());
+
+        // only one holder is ever used at a time, the rest of the pool stays idle
+        fill(pool, 0, 20);
+        for (int i = 0; i < 200; i++) {
+            pool.putRecycledView(pool.getRecycledView(0));
+        }
+        RecyclerView.RecycledViewPool.ViewTypeStats stats = pool.getViewTypeStats(0);
+        assertEquals(5, stats.getMaxRecycledViews());
+        assertEquals(5, stats.getRecycledViewCount());
+    }
+
+    @Test
+    public void prewarm() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = makeRecyclerView(pool);
+        pool.setMaxRecycledViews(1, 8);
+        pool.putRecycledView(makeHolder(1));
+
+        assertEquals(7, pool.prewarmViewHolders(recyclerView, 1, 10, Long.MAX_VALUE));
+        assertEquals(8, pool.getRecycledViewCount(1));
+        assertEquals(7, pool.getViewTypeStats(1).getCreateCount());
+        assertEquals(0, pool.prewarmViewHolders(recyclerView, 1, 10, Long.MAX_VALUE));
+
+        assertEquals(3, pool.prewarmViewHolders(recyclerView, 2, 3, Long.MAX_VALUE));
+        assertEquals(3, pool.getRecycledViewCount(2));
+        assertEquals(2, pool.getRecycledView(2).getItemViewType());
+    }
+
+    @Test
+    public void prewarm_deadline() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = makeRecyclerView(pool);
+        pool.factorInCreateTime(1, TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(0, pool.prewarmViewHolders(recyclerView, 1, 5, System.nanoTime()));
+        assertEquals(0, pool.getRecycledViewCount(1));
+    }
+
+    @Test
+    public void prewarmAsync_detachedRecyclerView() throws Throwable {
+        final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        final RecyclerView recyclerView = makeRecyclerView(pool);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final int[] scheduled = new int[1];
+        try {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    scheduled[0] = pool.prewarmViewHoldersAsync(recyclerView, 1, 3, executor);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        // the ViewHolders are handed to the main thread even though the RecyclerView is detached
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(3, scheduled[0]);
+        assertEquals(3, pool.getRecycledViewCount(1));
+        assertEquals(3, pool.getViewTypeStats(1).getCreateCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void prewarm_noAdapter() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        pool.prewarmViewHolders(recyclerView, 1, 5, Long.MAX_VALUE);
+    }
+
+    private RecyclerView makeRecyclerView(RecyclerView.RecycledViewPool pool) {
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        recyclerView.setRecycledViewPool(pool);
+        recyclerView.setAdapter(new PrewarmAdapter());
+        return recyclerView;
+    }
+
+    private void fill(RecyclerView.RecycledViewPool pool, int viewType, int count) {
+        for (int i = 0; i < count; i++) {
+            pool.putRecycledView(makeHolder(viewType));
+        }
+    }
+
+    private void drain(RecyclerView.RecycledViewPool pool, int viewType) {
+        while (pool.getRecycledView(viewType) != null) {
+            // empty the pool until it misses
+        }
+    }
+
     @Test
     public void onAdapterChanged_attachedToOneOldAdapterNotNullNotCompatWithPrev_clears() {
         onAdapterChanged(1, true, true, true);
@@ -144,6 +329,25 @@ public class RecycledViewPoolTest {
         }
     }
 
+    private static class PrewarmAdapter extends RecyclerView.Adapter<MockViewHolder> {
+
+        @NonNull
+        @Override
+        public MockViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new MockViewHolder(parent.getContext());
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull MockViewHolder holder, int position) {
+
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+
     private class TestAdapter extends RecyclerView.Adapter {
 
         @NonNull
@@ -196,9 +196,39 @@ public class AsyncListDiffer<T> {
     @NonNull
     private List<T> mReadOnlyList = Collections.emptyList();
 
-    // Max generation of currently scheduled runnable
+    // Max generation of currently scheduled runnable, read by the running diff to stop early
     @SuppressWarnings("WeakerAccess") /* synthetic access */
-    int mMaxScheduledGeneration;
+    volatile int mMaxScheduledGeneration;
+
+    // True while a diff is scheduled or running on the background thread. Lists submitted in the
+    // meantime wait for it to complete, and only the latest of them is diffed.
+    private boolean mDiffInFlight;
+
+    @Nullable
+    private List<T> mPendingList;
+    @Nullable
+    private Runnable mPendingCommitCallback;
+    private int mPendingGeneration;
+
+    private int mCancelledDiffCount;
+    private int mCoalescedListCount;
+
+    // Number of comparisons between two checks for cancellation of a running diff
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+
+    /**
+     * Thrown by the callback of a running diff once a newer list was submitted, to stop it.
+     */
+    private static final class DiffCancelledException extends RuntimeException {
+        DiffCancelledException() {
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // thrown for control flow only
+            return this;
+        }
+    }
 
     /**
      * Get the current List - any diffing to present this list has already been computed and
@@ -216,6 +246,26 @@ public class AsyncListDiffer<T> {
         return mReadOnlyList;
     }
 
+    /**
+     * Returns the number of diffs that were stopped or whose result was discarded because a newer
+     * List was submitted before they were applied.
+     *
+     * @return number of cancelled diffs.
+     */
+    public int getCancelledDiffCount() {
+        return mCancelledDiffCount;
+    }
+
+    /**
+     * Returns the number of Lists that were never diffed because a newer List was submitted while
+     * they were waiting for the running diff to complete.
+     *
+     * @return number of coalesced Lists.
+     */
+    public int getCoalescedListCount() {
+        return mCoalescedListCount;
+    }
+
     /**
      * Pass a new List to the AdapterHelper. Adapter updates will be computed on a background
      * thread.
@@ -242,6 +292,10 @@ public class AsyncListDiffer<T> {
      * The commit callback can be used to know when the List is committed, but note that it
      * may not be executed. If List B is submitted immediately after List A, and is
      * committed directly, the callback associated with List A will not be run.
+     * <p>
+     * Only one diff runs at a time. A diff that is running when a new List is submitted is
+     * stopped, and Lists submitted while it stops are coalesced so that only the latest one is
+     * diffed against the current List.
      *
      * @param newList The new List.
      * @param commitCallback Optional runnable that is executed when the List is committed, if
@@ -253,6 +307,13 @@ public class AsyncListDiffer<T> {
         // incrementing generation means any currently-running diffs are discarded when they finish
         final int runGeneration = ++mMaxScheduledGeneration;
 
+        if (mPendingList != null) {
+            // the pending list is replaced before its diff even started
+            mPendingList = null;
+            mPendingCommitCallback = null;
+            mCoalescedListCount++;
+        }
+
         if (newList == mList) {
             // nothing to do (Note - still had to inc generation, since may have ongoing work)
             if (commitCallback != null) {
@@ -285,73 +346,152 @@ public class AsyncListDiffer<T> {
             return;
         }
 
-        final List<T> oldList = mList;
+        if (mDiffInFlight) {
+            // the running diff was cancelled by the new generation, diff once it stopped
+            mPendingList = newList;
+            mPendingCommitCallback = commitCallback;
+            mPendingGeneration = runGeneration;
+            return;
+        }
+        scheduleDiff(mList, newList, commitCallback, runGeneration);
+    }
+
+    private void scheduleDiff(@NonNull final List<T> oldList, @NonNull final List<T> newList,
+            @Nullable final Runnable commitCallback, final int runGeneration) {
+        mDiffInFlight = true;
         mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
-                    @Override
-                    public int getOldListSize() {
-                        return oldList.size();
+                DiffUtil.DiffResult diffResult = null;
+                try {
+                    if (mMaxScheduledGeneration == runGeneration) {
+                        diffResult = computeDiff(oldList, newList, runGeneration);
                     }
+                } catch (DiffCancelledException e) {
+                    // a newer list was submitted
+                } finally {
+                    // also runs if the diff callback threw, so that the next lists get diffed
+                    final DiffUtil.DiffResult result = diffResult;
+                    mMainThreadExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onDiffCompleted(newList, result, commitCallback, runGeneration);
+                        }
+                    });
+                }
+            }
+        });
+    }
 
-                    @Override
-                    public int getNewListSize() {
-                        return newList.size();
-                    }
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void onDiffCompleted(@NonNull List<T> newList, @Nullable DiffUtil.DiffResult result,
+            @Nullable Runnable commitCallback, int runGeneration) {
+        mDiffInFlight = false;
+        if (result != null && mMaxScheduledGeneration == runGeneration) {
+            latchList(newList, result, commitCallback);
+        } else {
+            mCancelledDiffCount++;
+        }
+        if (mPendingList != null) {
+            final List<T> pendingList = mPendingList;
+            final Runnable pendingCommitCallback = mPendingCommitCallback;
+            mPendingList = null;
+            mPendingCommitCallback = null;
+            //noinspection ConstantConditions
+            scheduleDiff(mList, pendingList, pendingCommitCallback, mPendingGeneration);
+        }
+    }
 
-                    @Override
-                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().areItemsTheSame(oldItem, newItem);
-                        }
-                        // If both items are null we consider them the same.
-                        return oldItem == null && newItem == null;
-                    }
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    DiffUtil.DiffResult computeDiff(@NonNull final List<T> oldList,
+            @NonNull final List<T> newList, final int runGeneration) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            private int mCalls;
 
-                    @Override
-                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().areContentsTheSame(oldItem, newItem);
-                        }
-                        if (oldItem == null && newItem == null) {
-                            return true;
-                        }
-                        // There is an implementation bug if we reach this point. Per the docs, this
-                        // method should only be invoked when areItemsTheSame returns true. That
-                        // only occurs when both items are non-null or both are null and both of
-                        // those cases are handled above.
-                        throw new AssertionError();
-                    }
+            /**
+             * Stops the diff if a newer list was submitted since it started.
+             */
+            private void checkCancelled() {
+                if (++mCalls % CANCELLATION_CHECK_INTERVAL == 0
+                        && mMaxScheduledGeneration != runGeneration) {
+                    throw new DiffCancelledException();
+                }
+            }
 
-                    @Nullable
-                    @Override
-                    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().getChangePayload(oldItem, newItem);
-                        }
-                        // There is an implementation bug if we reach this point. Per the docs, this
-                        // method should only be invoked when areItemsTheSame returns true AND
-                        // areContentsTheSame returns false. That only occurs when both items are
-                        // non-null which is the only case handled above.
-                        throw new AssertionError();
-                    }
-                });
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
 
-                mMainThreadExecutor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (mMaxScheduledGeneration == runGeneration) {
-                            latchList(newList, result, commitCallback);
-                        }
-                    }
-                });
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                checkCancelled();
+                T oldItem = oldList.get(oldItemPosition);
+                T newItem = newList.get(newItemPosition);
+                if (oldItem != null && newItem != null) {
+                    return mConfig.getDiffCallback().areItemsTheSame(oldItem, newItem);
+                }
+                // If both items are null we consider them the same.
+                return oldItem == null && newItem == null;
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                checkCancelled();
+                T oldItem = oldList.get(oldItemPosition);
+                T newItem = newList.get(newItemPosition);
+                if (oldItem != null && newItem != null) {
+                    return mConfig.getDiffCallback().areContentsTheSame(oldItem, newItem);
+                }
+                if (oldItem == null && newItem == null) {
+                    return true;
+                }
+                // There is an implementation bug if we reach this point. Per the docs, this
+                // method should only be invoked when areItemsTheSame returns true. That
+                // only occurs when both items are non-null or both are null and both of
+                // those cases are handled above.
+                throw new AssertionError();
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                T oldItem = oldList.get(oldItemPosition);
+                T newItem = newList.get(newItemPosition);
+                if (oldItem != null && newItem != null) {
+                    return mConfig.getDiffCallback().getChangePayload(oldItem, newItem);
+                }
+                // There is an implementation bug if we reach this point. Per the docs, this
+                // method should only be invoked when areItemsTheSame returns true AND
+                // areContentsTheSame returns false. That only occurs when both items are
+                // non-null which is the only case handled above.
+                throw new AssertionError();
+            }
+
+            @Override
+            public boolean hasStableIds() {
+                return mConfig.getDiffCallback().hasStableIds();
+            }
+
+            @Override
+            public long getOldItemId(int oldItemPosition) {
+                checkCancelled();
+                T oldItem = oldList.get(oldItemPosition);
+                return oldItem != null
+                        ? mConfig.getDiffCallback().getItemId(oldItem) : RecyclerView.NO_ID;
+            }
+
+            @Override
+            public long getNewItemId(int newItemPosition) {
+                checkCancelled();
+                T newItem = newList.get(newItemPosition);
+                return newItem != null
+                        ? mConfig.getDiffCallback().getItemId(newItem) : RecyclerView.NO_ID;
             }
         });
     }
@@ -25,7 +25,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -59,7 +58,13 @@ import java.util.List;
  * If move detection is enabled, it takes an additional O(MN) time where M is the total number of
  * added items and N is the total number of removed items. If your lists are already sorted by
  * the same constraint (e.g. a created timestamp for a list of posts), you can disable move
- * detection to improve performance.
+ * detection to improve performance. You can also bound the time spent detecting moves with
+ * {@link #calculateDiff(Callback, boolean, int)}. If your items have stable ids (see
+ * {@link Callback#hasStableIds()}), moves are detected in O(M + N) time instead.
+ * <p>
+ * If you don't need moves nor a {@link DiffResult}, {@link #dispatchDiff(Callback,
+ * ListUpdateCallback)} dispatches the updates while the diff is calculated, without keeping the
+ * whole result in memory.
  * <p>
  * The actual runtime of the algorithm significantly depends on the number of changes in the list
  * and the cost of your comparison methods. Below are some average run times for reference:
@@ -84,13 +89,6 @@ public class DiffUtil {
         // utility class, no instance.
     }
 
-    private static final Comparator<Diagonal> DIAGONAL_COMPARATOR = new Comparator<Diagonal>() {
-        @Override
-        public int compare(Diagonal o1, Diagonal o2) {
-            return o1.x - o2.x;
-        }
-    };
-
     // Myers' algorithm uses two lists as axis labels. In DiffUtil's implementation, `x` axis is
     // used for old list and `y` axis is used for new list.
 
@@ -121,16 +119,36 @@ public class DiffUtil {
      */
     @NonNull
     public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves) {
-        final int oldSize = cb.getOldListSize();
-        final int newSize = cb.getNewListSize();
-
-        final List<Diagonal> diagonals = new ArrayList<>();
-
-        // instead of a recursive implementation, we keep our own stack to avoid potential stack
-        // overflow exceptions
-        final List<Range> stack = new ArrayList<>();
+        return calculateDiff(cb, detectMoves, Integer.MAX_VALUE);
+    }
 
-        stack.add(new Range(0, oldSize, 0, newSize));
+    /**
+     * Calculates the list of update operations that can covert one list into the other one.
+     * <p>
+     * Move detection compares each removed item with the added items until it finds a match,
+     * which takes <code>O(N^2)</code> time for lists with many changes. This method stops looking
+     * for moves once {@link Callback#areItemsTheSame(int, int)} has been called
+     * {@code maxMoveComparisons} times for that purpose, and reports the remaining moved items as
+     * removals and insertions. Moves of items with stable ids (see
+     * {@link Callback#hasStableIds()}) are found without comparisons and are not limited.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param detectMoves True if DiffUtil should try to detect moved items, false otherwise.
+     * @param maxMoveComparisons The maximum number of comparisons made to detect moves.
+     *
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     */
+    @NonNull
+    public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves,
+            @IntRange(from = 0) int maxMoveComparisons) {
+        if (maxMoveComparisons < 0) {
+            throw new IllegalArgumentException("maxMoveComparisons must be non-negative, was "
+                    + maxMoveComparisons);
+        }
+        final Callback callback = StableIdCallback.wrap(cb);
+        final int oldSize = callback.getOldListSize();
+        final int newSize = callback.getNewListSize();
 
         final int max = (oldSize + newSize + 1) / 2;
         // allocate forward and backward k-lines. K lines are diagonal lines in the matrix. (see the
@@ -139,25 +157,102 @@ public class DiffUtil {
         final CenteredArray forward = new CenteredArray(max * 2 + 1);
         final CenteredArray backward = new CenteredArray(max * 2 + 1);
 
+        final List<Diagonal> diagonals = new ArrayList<>();
+        findDiagonals(callback, forward, backward, new DiagonalReceiver() {
+            @Override
+            public void onDiagonal(int x, int y, int size) {
+                diagonals.add(new Diagonal(x, y, size));
+            }
+        });
+        // diagonals are found from the end of the lists to their start
+        Collections.reverse(diagonals);
+
+        return new DiffResult(callback, diagonals,
+                forward.backingData(), backward.backingData(),
+                detectMoves, maxMoveComparisons);
+    }
+
+    /**
+     * Calculates the update operations that convert one list into the other one and dispatches
+     * them to the given callback while they are calculated.
+     * <p>
+     * Unlike {@link #calculateDiff(Callback)}, this method doesn't detect moved items, which are
+     * dispatched as removals and insertions, and doesn't keep the result of the diff: it only
+     * needs O(N) space for the Myers' algorithm itself. This makes it suitable for very large
+     * lists when the updates can be applied on the thread that calculates the diff.
+     * <p>
+     * As with {@link DiffResult#dispatchUpdatesTo(ListUpdateCallback)}, the updates are atomic
+     * such that the first update call affects every update call that comes after it.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param updateCallback The callback to receive the update operations.
+     */
+    public static void dispatchDiff(@NonNull Callback cb,
+            @NonNull ListUpdateCallback updateCallback) {
+        final Callback callback = StableIdCallback.wrap(cb);
+        final int oldSize = callback.getOldListSize();
+        final int newSize = callback.getNewListSize();
+        final int max = (oldSize + newSize + 1) / 2;
+        final CenteredArray forward = new CenteredArray(max * 2 + 1);
+        final CenteredArray backward = new CenteredArray(max * 2 + 1);
+        final BatchingListUpdateCallback batchingCallback =
+                updateCallback instanceof BatchingListUpdateCallback
+                        ? (BatchingListUpdateCallback) updateCallback
+                        : new BatchingListUpdateCallback(updateCallback);
+        final StreamingDispatcher dispatcher = new StreamingDispatcher(callback, batchingCallback,
+                oldSize, newSize);
+        findDiagonals(callback, forward, backward, dispatcher);
+        // dispatch what's left before the first diagonal
+        dispatcher.onDiagonal(0, 0, 0);
+        batchingCallback.dispatchLastEvent();
+    }
+
+    /**
+     * Runs Myers' algorithm and reports the diagonals of the path to the given receiver, from the
+     * end of the lists to their start.
+     */
+    private static void findDiagonals(
+            Callback cb,
+            CenteredArray forward,
+            CenteredArray backward,
+            DiagonalReceiver receiver) {
+        // instead of a recursive implementation, we keep our own stack to avoid potential stack
+        // overflow exceptions
+        final List<Range> stack = new ArrayList<>();
+
+        stack.add(new Range(0, cb.getOldListSize(), 0, cb.getNewListSize()));
+
         // We pool the ranges to avoid allocations for each recursive call.
         final List<Range> rangePool = new ArrayList<>();
+        final Snake snake = new Snake();
         while (!stack.isEmpty()) {
             final Range range = stack.remove(stack.size() - 1);
-            final Snake snake = midPoint(range, cb, forward, backward);
-            if (snake != null) {
-                // if it has a diagonal, save it
-                if (snake.diagonalSize() > 0) {
-                    diagonals.add(snake.toDiagonal());
-                }
-                // add new ranges for left and right
-                final Range left = rangePool.isEmpty() ? new Range() : rangePool.remove(
-                        rangePool.size() - 1);
+            if (range.diagonal) {
+                // everything after this diagonal was solved, report it
+                receiver.onDiagonal(range.oldListStart, range.newListStart, range.oldSize());
+                range.diagonal = false;
+                rangePool.add(range);
+            } else if (midPoint(range, cb, forward, backward, snake)) {
+                // add new ranges for left and right, with the diagonal in between so that it is
+                // reported after the right side and before the left side
+                final Range left = obtainRange(rangePool);
                 left.oldListStart = range.oldListStart;
                 left.newListStart = range.newListStart;
                 left.oldListEnd = snake.startX;
                 left.newListEnd = snake.startY;
                 stack.add(left);
 
+                final int diagonalSize = snake.diagonalSize();
+                if (diagonalSize > 0) {
+                    final Range diagonal = obtainRange(rangePool);
+                    diagonal.oldListStart = snake.diagonalX();
+                    diagonal.newListStart = snake.diagonalY();
+                    diagonal.oldListEnd = diagonal.oldListStart + diagonalSize;
+                    diagonal.newListEnd = diagonal.newListStart + diagonalSize;
+                    diagonal.diagonal = true;
+                    stack.add(diagonal);
+                }
+
                 // re-use range for right
                 //noinspection UnnecessaryLocalVariable
                 final Range right = range;
@@ -169,51 +264,48 @@ public class DiffUtil {
             } else {
                 rangePool.add(range);
             }
-
         }
-        // sort snakes
-        Collections.sort(diagonals, DIAGONAL_COMPARATOR);
+    }
 
-        return new DiffResult(cb, diagonals,
-                forward.backingData(), backward.backingData(),
-                detectMoves);
+    private static Range obtainRange(List<Range> rangePool) {
+        return rangePool.isEmpty() ? new Range() : rangePool.remove(rangePool.size() - 1);
     }
 
     /**
-     * Finds a middle snake in the given range.
+     * Finds a middle snake in the given range and writes it into {@code snake}.
+     *
+     * @return True if a snake was found, false otherwise.
      */
-    @Nullable
-    private static Snake midPoint(
+    private static boolean midPoint(
             Range range,
             Callback cb,
             CenteredArray forward,
-            CenteredArray backward) {
+            CenteredArray backward,
+            Snake snake) {
         if (range.oldSize() < 1 || range.newSize() < 1) {
-            return null;
+            return false;
         }
         int max = (range.oldSize() + range.newSize() + 1) / 2;
         forward.set(1, range.oldListStart);
         backward.set(1, range.oldListEnd);
         for (int d = 0; d < max; d++) {
-            Snake snake = forward(range, cb, forward, backward, d);
-            if (snake != null) {
-                return snake;
+            if (forward(range, cb, forward, backward, d, snake)) {
+                return true;
             }
-            snake = backward(range, cb, forward, backward, d);
-            if (snake != null) {
-                return snake;
+            if (backward(range, cb, forward, backward, d, snake)) {
+                return true;
             }
         }
-        return null;
+        return false;
     }
 
-    @Nullable
-    private static Snake forward(
+    private static boolean forward(
             Range range,
             Callback cb,
             CenteredArray forward,
             CenteredArray backward,
-            int d) {
+            int d,
+            Snake snake) {
         boolean checkForSnake = Math.abs(range.oldSize() - range.newSize()) % 2 == 1;
         int delta = range.oldSize() - range.newSize();
         for (int k = -d; k <= d; k += 2) {
@@ -251,26 +343,25 @@ public class DiffUtil {
                         && backwardsK <= d - 1
                         && backward.get(backwardsK) <= x) {
                     // match
-                    Snake snake = new Snake();
                     snake.startX = startX;
                     snake.startY = startY;
                     snake.endX = x;
                     snake.endY = y;
                     snake.reverse = false;
-                    return snake;
+                    return true;
                 }
             }
         }
-        return null;
+        return false;
     }
 
-    @Nullable
-    private static Snake backward(
+    private static boolean backward(
             Range range,
             Callback cb,
             CenteredArray forward,
             CenteredArray backward,
-            int d) {
+            int d,
+            Snake snake) {
         boolean checkForSnake = (range.oldSize() - range.newSize()) % 2 == 0;
         int delta = range.oldSize() - range.newSize();
         // same as forward but we go backwards from end of the lists to be beginning
@@ -312,18 +403,17 @@ public class DiffUtil {
                         && forwardsK <= d
                         && forward.get(forwardsK) >= x) {
                     // match
-                    Snake snake = new Snake();
                     // assignment are reverse since we are a reverse snake
                     snake.startX = x;
                     snake.startY = y;
                     snake.endX = startX;
                     snake.endY = startY;
                     snake.reverse = true;
-                    return snake;
+                    return true;
                 }
             }
         }
-        return null;
+        return false;
     }
 
     /**
@@ -395,6 +485,125 @@ public class DiffUtil {
         public Object getChangePayload(int oldItemPosition, int newItemPosition) {
             return null;
         }
+
+        /**
+         * Returns whether the items of the lists have stable ids.
+         * <p>
+         * If this method returns {@code true}, DiffUtil reads the ids of all items once with
+         * {@link #getOldItemId(int)} and {@link #getNewItemId(int)} and compares them instead of
+         * calling {@link #areItemsTheSame(int, int)}: two items with the same id are the same item
+         * and two items with different ids are different items. Items with
+         * {@link RecyclerView#NO_ID} are still compared with {@link #areItemsTheSame(int, int)}.
+         * Moves of items with stable ids are detected in linear time.
+         * <p>
+         * Default implementation returns {@code false}.
+         *
+         * @return True if the items have stable ids, false otherwise.
+         */
+        public boolean hasStableIds() {
+            return false;
+        }
+
+        /**
+         * Returns the stable id of the item at the given position in the old list.
+         * <p>
+         * Only called if {@link #hasStableIds()} returns {@code true}. Default implementation
+         * returns {@link RecyclerView#NO_ID}.
+         *
+         * @param oldItemPosition The position of the item in the old list
+         * @return The stable id of the item, or {@link RecyclerView#NO_ID}.
+         */
+        public long getOldItemId(int oldItemPosition) {
+            return RecyclerView.NO_ID;
+        }
+
+        /**
+         * Returns the stable id of the item at the given position in the new list.
+         * <p>
+         * Only called if {@link #hasStableIds()} returns {@code true}. Default implementation
+         * returns {@link RecyclerView#NO_ID}.
+         *
+         * @param newItemPosition The position of the item in the new list
+         * @return The stable id of the item, or {@link RecyclerView#NO_ID}.
+         */
+        public long getNewItemId(int newItemPosition) {
+            return RecyclerView.NO_ID;
+        }
+    }
+
+    /**
+     * Callback wrapping a {@link Callback} with stable ids, which compares the ids of the items
+     * instead of calling {@link Callback#areItemsTheSame(int, int)}.
+     */
+    private static final class StableIdCallback extends Callback {
+        final Callback mCallback;
+        final long[] mOldItemIds;
+        final long[] mNewItemIds;
+
+        StableIdCallback(Callback callback) {
+            mCallback = callback;
+            mOldItemIds = new long[callback.getOldListSize()];
+            mNewItemIds = new long[callback.getNewListSize()];
+            for (int i = 0; i < mOldItemIds.length; i++) {
+                mOldItemIds[i] = callback.getOldItemId(i);
+            }
+            for (int i = 0; i < mNewItemIds.length; i++) {
+                mNewItemIds[i] = callback.getNewItemId(i);
+            }
+        }
+
+        static Callback wrap(Callback callback) {
+            if (callback.hasStableIds() && !(callback instanceof StableIdCallback)) {
+                return new StableIdCallback(callback);
+            }
+            return callback;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItemIds.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItemIds.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            final long oldId = mOldItemIds[oldItemPosition];
+            final long newId = mNewItemIds[newItemPosition];
+            if (oldId == RecyclerView.NO_ID || newId == RecyclerView.NO_ID) {
+                return mCallback.areItemsTheSame(oldItemPosition, newItemPosition);
+            }
+            return oldId == newId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mCallback.areContentsTheSame(oldItemPosition, newItemPosition);
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return mCallback.getChangePayload(oldItemPosition, newItemPosition);
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public long getOldItemId(int oldItemPosition) {
+            return mOldItemIds[oldItemPosition];
+        }
+
+        @Override
+        public long getNewItemId(int newItemPosition) {
+            return mNewItemIds[newItemPosition];
+        }
     }
 
     /**
@@ -467,6 +676,81 @@ public class DiffUtil {
         public Object getChangePayload(@NonNull T oldItem, @NonNull T newItem) {
             return null;
         }
+
+        /**
+         * Returns whether the items have stable ids, returned by {@link #getItemId(T)}.
+         * <p>
+         * Default implementation returns {@code false}.
+         *
+         * @see Callback#hasStableIds()
+         */
+        public boolean hasStableIds() {
+            return false;
+        }
+
+        /**
+         * Returns the stable id of the given item.
+         * <p>
+         * Only called if {@link #hasStableIds()} returns {@code true}. Two items with the same id
+         * must be the same item according to {@link #areItemsTheSame(T, T)}, and two items with
+         * different ids must not. Default implementation returns {@link RecyclerView#NO_ID}.
+         *
+         * @param item The item.
+         * @return The stable id of the item, or {@link RecyclerView#NO_ID}.
+         * @see Callback#getOldItemId(int)
+         */
+        @SuppressWarnings({"unused"})
+        public long getItemId(@NonNull T item) {
+            return RecyclerView.NO_ID;
+        }
+    }
+
+    /**
+     * Receives the diagonals found by Myers' algorithm.
+     */
+    interface DiagonalReceiver {
+        void onDiagonal(int x, int y, int size);
+    }
+
+    /**
+     * Dispatches the removals, insertions and changes between the diagonals as they are found,
+     * from the end of the lists to their start.
+     */
+    private static final class StreamingDispatcher implements DiagonalReceiver {
+        private final Callback mCallback;
+        private final BatchingListUpdateCallback mUpdateCallback;
+        // posX and posY are exclusive
+        private int mPosX;
+        private int mPosY;
+
+        StreamingDispatcher(Callback callback, BatchingListUpdateCallback updateCallback,
+                int oldListSize, int newListSize) {
+            mCallback = callback;
+            mUpdateCallback = updateCallback;
+            mPosX = oldListSize;
+            mPosY = newListSize;
+        }
+
+        @Override
+        public void onDiagonal(int x, int y, int size) {
+            final int endX = x + size;
+            final int endY = y + size;
+            // first remove then add so that the additions go in place
+            if (mPosX > endX) {
+                mUpdateCallback.onRemoved(endX, mPosX - endX);
+            }
+            if (mPosY > endY) {
+                mUpdateCallback.onInserted(endX, mPosY - endY);
+            }
+            for (int i = 0; i < size; i++) {
+                if (!mCallback.areContentsTheSame(x + i, y + i)) {
+                    Object changePayload = mCallback.getChangePayload(x + i, y + i);
+                    mUpdateCallback.onChanged(x + i, 1, changePayload);
+                }
+            }
+            mPosX = x;
+            mPosY = y;
+        }
     }
 
     /**
@@ -536,28 +820,38 @@ public class DiffUtil {
             return Math.min(endX - startX, endY - startY);
         }
 
+        /**
+         * Start of the diagonal of the snake in the old list. The diagonal makes reasoning easier
+         * for the rest of the algorithm where we try to produce a path and also find moves.
+         */
+        int diagonalX() {
+            // if the snake edge is at the beginning and is a removal, the diagonal starts after it
+            if (hasAdditionOrRemoval() && !reverse && !isAddition()) {
+                return startX + 1;
+            }
+            return startX;
+        }
+
+        /**
+         * Start of the diagonal of the snake in the new list.
+         *
+         * @see #diagonalX()
+         */
+        int diagonalY() {
+            // if the snake edge is at the beginning and is an addition, the diagonal starts after it
+            if (hasAdditionOrRemoval() && !reverse && isAddition()) {
+                return startY + 1;
+            }
+            return startY;
+        }
+
         /**
          * Extract the diagonal of the snake to make reasoning easier for the rest of the
          * algorithm where we try to produce a path and also find moves.
          */
         @NonNull
         Diagonal toDiagonal() {
-            if (hasAdditionOrRemoval()) {
-                if (reverse) {
-                    // snake edge it at the end
-                    return new Diagonal(startX, startY, diagonalSize());
-                } else {
-                    // snake edge it at the beginning
-                    if (isAddition()) {
-                        return new Diagonal(startX, startY + 1, diagonalSize());
-                    } else {
-                        return new Diagonal(startX + 1, startY, diagonalSize());
-                    }
-                }
-            } else {
-                // we are a pure diagonal
-                return new Diagonal(startX, startY, endX - startX);
-            }
+            return new Diagonal(diagonalX(), diagonalY(), diagonalSize());
         }
     }
 
@@ -574,6 +868,9 @@ public class DiffUtil {
 
         int newListStart, newListEnd;
 
+        // true if this range is a diagonal waiting for the ranges after it to be solved
+        boolean diagonal;
+
         public Range() {
         }
 
@@ -653,15 +950,19 @@ public class DiffUtil {
 
         private final boolean mDetectMoves;
 
+        // The number of comparisons left to find moves by searching the additions.
+        private int mMoveComparisonsLeft;
+
         /**
-         * @param callback        The callback that was used to calculate the diff
-         * @param diagonals       Matches between the two lists
-         * @param oldItemStatuses An int[] that can be re-purposed to keep metadata
-         * @param newItemStatuses An int[] that can be re-purposed to keep metadata
-         * @param detectMoves     True if this DiffResult will try to detect moved items
+         * @param callback           The callback that was used to calculate the diff
+         * @param diagonals          Matches between the two lists
+         * @param oldItemStatuses    An int[] that can be re-purposed to keep metadata
+         * @param newItemStatuses    An int[] that can be re-purposed to keep metadata
+         * @param detectMoves        True if this DiffResult will try to detect moved items
+         * @param maxMoveComparisons The maximum number of comparisons made to detect moves
          */
         DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
-                int[] newItemStatuses, boolean detectMoves) {
+                int[] newItemStatuses, boolean detectMoves, int maxMoveComparisons) {
             mDiagonals = diagonals;
             mOldItemStatuses = oldItemStatuses;
             mNewItemStatuses = newItemStatuses;
@@ -671,6 +972,7 @@ public class DiffUtil {
             mOldListSize = callback.getOldListSize();
             mNewListSize = callback.getNewListSize();
             mDetectMoves = detectMoves;
+            mMoveComparisonsLeft = maxMoveComparisons;
             addEdgeDiagonals();
             findMatchingItems();
         }
@@ -714,13 +1016,27 @@ public class DiffUtil {
         }
 
         private void findMoveMatches() {
+            // with stable ids, additions are looked up by id instead of being searched
+            final StableIdCallback stableIdCallback = mCallback instanceof StableIdCallback
+                    ? (StableIdCallback) mCallback : null;
+            final AdditionIndex additions = stableIdCallback != null
+                    ? new AdditionIndex(stableIdCallback.mNewItemIds, mNewItemStatuses) : null;
             // for each removal, find matching addition
             int posX = 0;
             for (Diagonal diagonal : mDiagonals) {
                 while (posX < diagonal.x) {
                     if (mOldItemStatuses[posX] == 0) {
                         // there is a removal, find matching addition from the rest
-                        findMatchingAddition(posX);
+                        final long id = stableIdCallback != null
+                                ? stableIdCallback.mOldItemIds[posX] : RecyclerView.NO_ID;
+                        final int posY = id != RecyclerView.NO_ID
+                                ? additions.find(id, mNewItemStatuses) : RecyclerView.NO_POSITION;
+                        if (posY != RecyclerView.NO_POSITION) {
+                            setMove(posX, posY);
+                        } else if (additions == null || additions.hasAdditionsWithoutId()) {
+                            // the item may match an addition without an id
+                            findMatchingAddition(posX);
+                        }
                     }
                     posX++;
                 }
@@ -742,15 +1058,15 @@ public class DiffUtil {
                 while (posY < diagonal.y) {
                     // found some additions, evaluate
                     if (mNewItemStatuses[posY] == 0) { // not evaluated yet
+                        if (mMoveComparisonsLeft == 0) {
+                            // out of budget, the rest is dispatched as removals and additions
+                            return;
+                        }
+                        mMoveComparisonsLeft--;
                         boolean matching = mCallback.areItemsTheSame(posX, posY);
                         if (matching) {
                             // yay found it, set values
-                            boolean contentsMatching = mCallback.areContentsTheSame(posX, posY);
-                            final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
-                                    : FLAG_MOVED_CHANGED;
-                            // once we process one of these, it will mark the other one as ignored.
-                            mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
-                            mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+                            setMove(posX, posY);
                             return;
                         }
                     }
@@ -760,6 +1076,15 @@ public class DiffUtil {
             }
         }
 
+        private void setMove(int posX, int posY) {
+            boolean contentsMatching = mCallback.areContentsTheSame(posX, posY);
+            final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
+                    : FLAG_MOVED_CHANGED;
+            // once we process one of these, it will mark the other one as ignored.
+            mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+            mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+        }
+
         /**
          * Given a position in the old list, returns the position in the new list, or
          * {@code NO_POSITION} if it was removed.
@@ -995,6 +1320,79 @@ public class DiffUtil {
         }
     }
 
+    /**
+     * Hash index from stable id to the additions, i.e. the positions in the new list that are not
+     * matched by a diagonal, used to detect moves of items with stable ids in linear time.
+     * <p>
+     * Positions with the same id are chained in increasing order through {@link #mNext}, so
+     * duplicated ids are matched in the same order as the search of
+     * {@link DiffResult#findMatchingAddition(int)}.
+     */
+    private static final class AdditionIndex {
+        private static final int EMPTY = -2;
+
+        private final long[] mKeys;
+        // the first position left with the key of the slot, or NO_POSITION
+        private final int[] mHeads;
+        // the next position with the same id, or NO_POSITION, by position in the new list
+        private final int[] mNext;
+        private final int mMask;
+        private boolean mHasAdditionsWithoutId;
+
+        AdditionIndex(long[] newItemIds, int[] newItemStatuses) {
+            int capacity = Integer.highestOneBit(Math.max(newItemIds.length, 1) * 2 - 1) << 1;
+            mKeys = new long[capacity];
+            mHeads = new int[capacity];
+            mNext = new int[newItemIds.length];
+            mMask = capacity - 1;
+            Arrays.fill(mHeads, EMPTY);
+            for (int posY = newItemIds.length - 1; posY >= 0; posY--) {
+                if (newItemStatuses[posY] != 0) {
+                    continue;
+                }
+                final long id = newItemIds[posY];
+                if (id == RecyclerView.NO_ID) {
+                    mHasAdditionsWithoutId = true;
+                    continue;
+                }
+                final int slot = slot(id);
+                mNext[posY] = mHeads[slot] == EMPTY ? RecyclerView.NO_POSITION : mHeads[slot];
+                mKeys[slot] = id;
+                mHeads[slot] = posY;
+            }
+        }
+
+        private int slot(long id) {
+            int slot = (int) ((id ^ (id >>> 32)) * 0x9E3779B97F4A7C15L >>> 32) & mMask;
+            while (mHeads[slot] != EMPTY && mKeys[slot] != id) {
+                slot = (slot + 1) & mMask;
+            }
+            return slot;
+        }
+
+        /**
+         * Returns the first position in the new list with the given id that is not matched yet,
+         * or NO_POSITION.
+         */
+        int find(long id, int[] newItemStatuses) {
+            final int slot = slot(id);
+            if (mHeads[slot] == EMPTY) {
+                return RecyclerView.NO_POSITION;
+            }
+            int posY = mHeads[slot];
+            while (posY != RecyclerView.NO_POSITION && newItemStatuses[posY] != 0) {
+                posY = mNext[posY];
+            }
+            // matched positions are never looked at again
+            mHeads[slot] = posY;
+            return posY;
+        }
+
+        boolean hasAdditionsWithoutId() {
+            return mHasAdditionsWithoutId;
+        }
+    }
+
     /**
      * Represents an update that we skipped because it was a move.
      * <p>
@@ -39,6 +39,8 @@ import android.graphics.drawable.StateListDrawable;
 import android.hardware.SensorManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.os.SystemClock;
@@ -98,6 +100,7 @@ import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * A flexible view for providing a limited window into a large data set.
@@ -6146,6 +6149,17 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     public static class RecycledViewPool {
         private static final int DEFAULT_MAX_SCRAP = 5;
 
+        /**
+         * Default limit of ViewHolders held across all view types when adaptive sizing is enabled.
+         */
+        private static final int DEFAULT_MAX_TOTAL_SCRAP = 50;
+
+        /**
+         * Number of pool accesses of a type without a miss after which adaptive sizing checks
+         * whether the type holds more ViewHolders than it needs.
+         */
+        private static final int ADAPTIVE_SHRINK_WINDOW = 64;
+
         /**
          * Tracks both pooled holders, as well as create/bind timing metadata for the given type.
          *
@@ -6165,10 +6179,28 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             int mMaxScrap = DEFAULT_MAX_SCRAP;
             long mCreateRunningAverageNs = 0;
             long mBindRunningAverageNs = 0;
+
+            // set once the max is given by setMaxRecycledViews, adaptive sizing leaves it alone
+            boolean mMaxScrapFixed = false;
+
+            long mCreateCount = 0;
+            long mBindCount = 0;
+            long mHitCount = 0;
+            long mMissCount = 0;
+            long mDiscardCount = 0;
+
+            // adaptive sizing state: holders discarded since the last miss, and the smallest
+            // heap size seen over the current window of accesses
+            int mDiscardsSinceMiss = 0;
+            int mAccessesSinceAdjust = 0;
+            int mLowWaterMark = Integer.MAX_VALUE;
         }
 
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
+        boolean mAdaptiveSizing = false;
+        int mMaxTotalScrap = DEFAULT_MAX_TOTAL_SCRAP;
+
         /**
          * Attach counts for clearing (that is, emptying the pool when there are no adapters
          * attached) and for PoolingContainer release are tracked separately to maintain the
@@ -6212,6 +6244,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
 
         /**
          * Sets the maximum number of ViewHolders to hold in the pool before discarding.
+         * <p>
+         * A view type given an explicit maximum is not resized by
+         * {@link #setAdaptiveSizingEnabled(boolean) adaptive sizing}.
          *
          * @param viewType ViewHolder Type
          * @param max      Maximum number
@@ -6219,6 +6254,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         public void setMaxRecycledViews(int viewType, int max) {
             ScrapData scrapData = getScrapDataForType(viewType);
             scrapData.mMaxScrap = max;
+            scrapData.mMaxScrapFixed = true;
             final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
             while (scrapHeap.size() > max) {
                 scrapHeap.remove(scrapHeap.size() - 1);
@@ -6229,7 +6265,182 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          * Returns the current number of Views held by the RecycledViewPool of the given view type.
          */
         public int getRecycledViewCount(int viewType) {
-            return getScrapDataForType(viewType).mScrapHeap.size();
+            final ScrapData scrapData = mScrap.get(viewType);
+            return scrapData == null ? 0 : scrapData.mScrapHeap.size();
+        }
+
+        /**
+         * Enables or disables adaptive sizing of the pool.
+         * <p>
+         * When enabled, the maximum number of ViewHolders kept for each view type follows the
+         * observed demand instead of staying at the default of 5: a view type grows when
+         * ViewHolders had to be discarded because the pool was full and a new one then had to be
+         * created, and shrinks back towards the default when it keeps holding more ViewHolders
+         * than it hands out. The total number of ViewHolders held by the pool is capped by
+         * {@link #setMaxTotalRecycledViews(int)}.
+         * <p>
+         * View types configured with {@link #setMaxRecycledViews(int, int)} keep their maximum.
+         *
+         * @param enabled {@code true} to size the pool adaptively
+         */
+        public void setAdaptiveSizingEnabled(boolean enabled) {
+            mAdaptiveSizing = enabled;
+        }
+
+        /**
+         * Returns whether adaptive sizing is enabled.
+         *
+         * @see #setAdaptiveSizingEnabled(boolean)
+         */
+        public boolean isAdaptiveSizingEnabled() {
+            return mAdaptiveSizing;
+        }
+
+        /**
+         * Sets the maximum number of ViewHolders held across all view types when adaptive sizing
+         * is enabled. ViewHolders recycled while the pool holds that many are discarded.
+         * Defaults to 50.
+         *
+         * @param max Maximum number of ViewHolders held by the pool
+         * @see #setAdaptiveSizingEnabled(boolean)
+         */
+        public void setMaxTotalRecycledViews(int max) {
+            checkArgument(max >= 0, "max must be non-negative");
+            mMaxTotalScrap = max;
+        }
+
+        /**
+         * Returns the maximum number of ViewHolders held across all view types when adaptive
+         * sizing is enabled.
+         *
+         * @see #setMaxTotalRecycledViews(int)
+         */
+        public int getMaxTotalRecycledViews() {
+            return mMaxTotalScrap;
+        }
+
+        /**
+         * Returns a snapshot of the statistics collected by the pool for the given view type.
+         * <p>
+         * Statistics are collected across all RecyclerViews that use this pool, whether or not
+         * adaptive sizing is enabled.
+         *
+         * @param viewType ViewHolder type
+         * @return The current statistics for the view type
+         */
+        @NonNull
+        public ViewTypeStats getViewTypeStats(int viewType) {
+            final ScrapData scrapData = mScrap.get(viewType);
+            return new ViewTypeStats(viewType, scrapData == null ? new ScrapData() : scrapData);
+        }
+
+        /**
+         * Creates ViewHolders of the given type with the Adapter of the given RecyclerView and
+         * adds them to the pool, so that the first layout or scroll that needs them doesn't pay
+         * for their creation.
+         * <p>
+         * At most as many ViewHolders are created as the pool has room for, see
+         * {@link #setMaxRecycledViews(int, int)}. Creation stops early if the next ViewHolder is
+         * not expected to be created before the deadline, which makes it possible to pre-warm the
+         * pool in idle time, for instance from a {@link android.os.MessageQueue.IdleHandler}.
+         * <p>
+         * This method must be called on the main thread.
+         *
+         * @param parent     RecyclerView whose Adapter creates the ViewHolders. It is also passed
+         *                   as the parent to {@link Adapter#onCreateViewHolder(ViewGroup, int)}.
+         * @param viewType   ViewHolder type
+         * @param count      Number of ViewHolders of that type the pool should hold
+         * @param deadlineNs Time, in {@link System#nanoTime()} base, by which creation should
+         *                   stop, or {@link Long#MAX_VALUE} to create all of them.
+         * @return The number of ViewHolders created and added to the pool
+         * @throws IllegalStateException if the RecyclerView has no Adapter
+         */
+        public int prewarmViewHolders(@NonNull RecyclerView parent, int viewType, int count,
+                long deadlineNs) {
+            final Adapter<?> adapter = getAdapterForPrewarm(parent);
+            final int needed = getPrewarmCount(viewType, count);
+            int created = 0;
+            while (created < needed) {
+                long start = System.nanoTime();
+                if (deadlineNs != FOREVER_NS && !willCreateInTime(viewType, start, deadlineNs)) {
+                    break;
+                }
+                ViewHolder holder = adapter.createViewHolder(parent, viewType);
+                factorInCreateTime(viewType, System.nanoTime() - start);
+                putRecycledView(holder);
+                created++;
+            }
+            return created;
+        }
+
+        /**
+         * Creates ViewHolders of the given type on the given executor and adds them to the pool
+         * on the main thread, so that the first layout or scroll that needs them doesn't pay for
+         * their creation.
+         * <p>
+         * Only use this method if {@link Adapter#onCreateViewHolder(ViewGroup, int)} is safe to
+         * call off the main thread for that view type, that is if it only inflates views and
+         * doesn't touch any state owned by the main thread. ViewHolders created after the Adapter
+         * of the RecyclerView changed are discarded.
+         * <p>
+         * This method must be called on the main thread.
+         *
+         * @param parent   RecyclerView whose Adapter creates the ViewHolders. It is also passed as
+         *                 the parent to {@link Adapter#onCreateViewHolder(ViewGroup, int)}.
+         * @param viewType ViewHolder type
+         * @param count    Number of ViewHolders of that type the pool should hold
+         * @param executor Executor to create the ViewHolders on
+         * @return The number of ViewHolders that will be created
+         * @throws IllegalStateException if the RecyclerView has no Adapter
+         */
+        public int prewarmViewHoldersAsync(@NonNull final RecyclerView parent, final int viewType,
+                int count, @NonNull Executor executor) {
+            final Adapter<?> adapter = getAdapterForPrewarm(parent);
+            final int needed = getPrewarmCount(viewType, count);
+            if (needed == 0) {
+                return 0;
+            }
+            // Not parent.post(): before API 24, runnables posted to a detached View from a
+            // background thread are dropped, and pre-warming typically happens before attach.
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < needed; i++) {
+                        long start = System.nanoTime();
+                        final ViewHolder holder = adapter.createViewHolder(parent, viewType);
+                        final long createTimeNs = System.nanoTime() - start;
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (parent.getAdapter() != adapter) {
+                                    PoolingContainer.callPoolingContainerOnRelease(
+                                            holder.itemView);
+                                    return;
+                                }
+                                factorInCreateTime(viewType, createTimeNs);
+                                putRecycledView(holder);
+                            }
+                        });
+                    }
+                }
+            });
+            return needed;
+        }
+
+        @NonNull
+        private static Adapter<?> getAdapterForPrewarm(@NonNull RecyclerView parent) {
+            final Adapter<?> adapter = parent.getAdapter();
+            if (adapter == null) {
+                throw new IllegalStateException("Cannot pre-warm the pool of a RecyclerView"
+                        + " without an Adapter" + parent.exceptionLabel());
+            }
+            return adapter;
+        }
+
+        private int getPrewarmCount(int viewType, int count) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            return Math.max(0, Math.min(count, scrapData.mMaxScrap) - scrapData.mScrapHeap.size());
         }
 
         /**
@@ -6242,15 +6453,29 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         @Nullable
         public ViewHolder getRecycledView(int viewType) {
+            // Don't create ScrapData here, so that types which were never recycled don't show up
+            // in the statistics and in adaptive sizing.
             final ScrapData scrapData = mScrap.get(viewType);
-            if (scrapData != null && !scrapData.mScrapHeap.isEmpty()) {
+            if (scrapData == null) {
+                return null;
+            }
+            if (!scrapData.mScrapHeap.isEmpty()) {
                 final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
                 for (int i = scrapHeap.size() - 1; i >= 0; i--) {
                     if (!scrapHeap.get(i).isAttachedToTransitionOverlay()) {
-                        return scrapHeap.remove(i);
+                        final ViewHolder holder = scrapHeap.remove(i);
+                        scrapData.mHitCount++;
+                        if (mAdaptiveSizing) {
+                            onAccess(scrapData);
+                        }
+                        return holder;
                     }
                 }
             }
+            scrapData.mMissCount++;
+            if (mAdaptiveSizing) {
+                onMiss(scrapData);
+            }
             return null;
         }
 
@@ -6279,8 +6504,17 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         public void putRecycledView(ViewHolder scrap) {
             final int viewType = scrap.getItemViewType();
-            final ArrayList<ViewHolder> scrapHeap = getScrapDataForType(viewType).mScrapHeap;
-            if (mScrap.get(viewType).mMaxScrap <= scrapHeap.size()) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            if (scrapData.mMaxScrap <= scrapHeap.size()) {
+                scrapData.mDiscardCount++;
+                scrapData.mDiscardsSinceMiss++;
+                PoolingContainer.callPoolingContainerOnRelease(scrap.itemView);
+                return;
+            }
+            if (mAdaptiveSizing && size() >= mMaxTotalScrap) {
+                // over the budget of the pool, this doesn't mean the type needs more room
+                scrapData.mDiscardCount++;
                 PoolingContainer.callPoolingContainerOnRelease(scrap.itemView);
                 return;
             }
@@ -6289,6 +6523,46 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             }
             scrap.resetInternal();
             scrapHeap.add(scrap);
+            if (mAdaptiveSizing) {
+                onAccess(scrapData);
+            }
+        }
+
+        /**
+         * A ViewHolder of the type had to be created. If ViewHolders of that type were discarded
+         * since the previous miss, keeping them would have avoided it, so grow by that many.
+         */
+        private void onMiss(ScrapData scrapData) {
+            if (!scrapData.mMaxScrapFixed && scrapData.mDiscardsSinceMiss > 0) {
+                scrapData.mMaxScrap = Math.min(scrapData.mMaxScrap + scrapData.mDiscardsSinceMiss,
+                        Math.max(mMaxTotalScrap, DEFAULT_MAX_SCRAP));
+            }
+            scrapData.mDiscardsSinceMiss = 0;
+            scrapData.mAccessesSinceAdjust = 0;
+            scrapData.mLowWaterMark = Integer.MAX_VALUE;
+        }
+
+        /**
+         * Tracks how many ViewHolders of the type stayed unused in the pool. After a window of
+         * accesses without a miss, the type shrinks by half of what it never handed out.
+         */
+        private void onAccess(ScrapData scrapData) {
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            scrapData.mLowWaterMark = Math.min(scrapData.mLowWaterMark, scrapHeap.size());
+            if (++scrapData.mAccessesSinceAdjust < ADAPTIVE_SHRINK_WINDOW) {
+                return;
+            }
+            if (!scrapData.mMaxScrapFixed && scrapData.mMaxScrap > DEFAULT_MAX_SCRAP
+                    && scrapData.mLowWaterMark > 0) {
+                int surplus = Math.max(1, scrapData.mLowWaterMark / 2);
+                scrapData.mMaxScrap = Math.max(DEFAULT_MAX_SCRAP, scrapData.mMaxScrap - surplus);
+                while (scrapHeap.size() > scrapData.mMaxScrap) {
+                    ViewHolder removed = scrapHeap.remove(scrapHeap.size() - 1);
+                    PoolingContainer.callPoolingContainerOnRelease(removed.itemView);
+                }
+            }
+            scrapData.mAccessesSinceAdjust = 0;
+            scrapData.mLowWaterMark = Integer.MAX_VALUE;
         }
 
         long runningAverage(long oldAverage, long newValue) {
@@ -6300,12 +6574,14 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
 
         void factorInCreateTime(int viewType, long createTimeNs) {
             ScrapData scrapData = getScrapDataForType(viewType);
+            scrapData.mCreateCount++;
             scrapData.mCreateRunningAverageNs = runningAverage(
                     scrapData.mCreateRunningAverageNs, createTimeNs);
         }
 
         void factorInBindTime(int viewType, long bindTimeNs) {
             ScrapData scrapData = getScrapDataForType(viewType);
+            scrapData.mBindCount++;
             scrapData.mBindRunningAverageNs = runningAverage(
                     scrapData.mBindRunningAverageNs, bindTimeNs);
         }
@@ -6395,6 +6671,111 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             }
             return scrapData;
         }
+
+        /**
+         * Statistics collected by a {@link RecycledViewPool} for a view type, across all the
+         * RecyclerViews that use the pool.
+         *
+         * @see #getViewTypeStats(int)
+         */
+        public static final class ViewTypeStats {
+            private final int mViewType;
+            private final int mMaxRecycledViews;
+            private final int mRecycledViewCount;
+            private final long mCreateCount;
+            private final long mBindCount;
+            private final long mHitCount;
+            private final long mMissCount;
+            private final long mDiscardCount;
+            private final long mAverageCreateTimeNs;
+            private final long mAverageBindTimeNs;
+
+            ViewTypeStats(int viewType, @NonNull ScrapData scrapData) {
+                mViewType = viewType;
+                mMaxRecycledViews = scrapData.mMaxScrap;
+                mRecycledViewCount = scrapData.mScrapHeap.size();
+                mCreateCount = scrapData.mCreateCount;
+                mBindCount = scrapData.mBindCount;
+                mHitCount = scrapData.mHitCount;
+                mMissCount = scrapData.mMissCount;
+                mDiscardCount = scrapData.mDiscardCount;
+                mAverageCreateTimeNs = scrapData.mCreateRunningAverageNs;
+                mAverageBindTimeNs = scrapData.mBindRunningAverageNs;
+            }
+
+            /**
+             * Returns the view type these statistics are for.
+             */
+            public int getViewType() {
+                return mViewType;
+            }
+
+            /**
+             * Returns the maximum number of ViewHolders of the type the pool holds.
+             */
+            public int getMaxRecycledViews() {
+                return mMaxRecycledViews;
+            }
+
+            /**
+             * Returns the number of ViewHolders of the type held by the pool.
+             */
+            public int getRecycledViewCount() {
+                return mRecycledViewCount;
+            }
+
+            /**
+             * Returns the number of ViewHolders of the type created by the Adapters.
+             */
+            public long getCreateCount() {
+                return mCreateCount;
+            }
+
+            /**
+             * Returns the number of times ViewHolders of the type were bound by the Adapters.
+             */
+            public long getBindCount() {
+                return mBindCount;
+            }
+
+            /**
+             * Returns the number of ViewHolders of the type handed out by the pool.
+             */
+            public long getHitCount() {
+                return mHitCount;
+            }
+
+            /**
+             * Returns the number of times a ViewHolder of the type was requested from the pool
+             * while it had none.
+             */
+            public long getMissCount() {
+                return mMissCount;
+            }
+
+            /**
+             * Returns the number of ViewHolders of the type discarded because the pool was full.
+             */
+            public long getDiscardCount() {
+                return mDiscardCount;
+            }
+
+            /**
+             * Returns the running average time to create a ViewHolder of the type, in
+             * nanoseconds, or 0 if unknown.
+             */
+            public long getAverageCreateTimeNanos() {
+                return mAverageCreateTimeNs;
+            }
+
+            /**
+             * Returns the running average time to bind a ViewHolder of the type, in nanoseconds,
+             * or 0 if unknown.
+             */
+            public long getAverageBindTimeNanos() {
+                return mAverageBindTimeNs;
+            }
+        }
     }
 
     /**
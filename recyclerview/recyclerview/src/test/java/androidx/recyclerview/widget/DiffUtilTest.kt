@@ -361,6 +361,70 @@ class DiffUtilTest {
         calculate().convertNewPositionToOld(2)
     }
 
+    @Test
+    fun testStableIds() {
+        initWithSize(10)
+        move(0, 9)
+        move(3, 1)
+        update(5)
+        updateWithPayload(6)
+        delete(2)
+        add(4)
+        duplicate(7, 2)
+        val stableIdCallback = ItemListCallback(
+            oldList = before,
+            newList = after,
+            stableIds = true
+        )
+        check(DiffUtil.calculateDiff(stableIdCallback, true))
+        assertThat(stableIdCallback.areItemsTheSameCalls, `is`(0))
+    }
+
+    @Test
+    fun testStableIdsRandom() {
+        repeat(50) {
+            testRandom(sRand.nextInt(50), sRand.nextInt(30), stableIds = true)
+        }
+    }
+
+    @Test
+    fun testMoveComparisonLimit() {
+        initWithSize(5)
+        move(0, 4)
+        val applied = applyUpdates(
+            before,
+            DiffUtil.calculateDiff(callback, true, 0)
+        )
+        assertThat(applied.size, `is`(5))
+        assertThat(applied[4].newItem, `is`(true))
+        check(DiffUtil.calculateDiff(callback, true, 4))
+    }
+
+    @Test
+    fun testDispatchDiff() {
+        initWithSize(10)
+        add(3)
+        delete(0)
+        update(4)
+        updateWithPayload(6)
+        move(1, 8)
+        val applied = applyUpdates(before) { updateCallback ->
+            DiffUtil.dispatchDiff(callback, updateCallback)
+        }
+        log("applied", applied)
+        // moves are dispatched as removals and insertions
+        assertThat(log.toString(), applied.size, `is`(after.size))
+        applied.forEachIndexed { index, item ->
+            if (!item.newItem) {
+                assertThat(log.toString(), item.id, `is`(after[index].id))
+                assertThat(log.toString(), item.changed, `is`(after[index].changed))
+                assertThat(log.toString(), item.payload, `is`(after[index].payload))
+            }
+        }
+        assertThat(applied[1].newItem, `is`(true))
+        assertThat(applied[8].newItem, `is`(true))
+    }
+
     private fun calculate() = DiffUtil.calculateDiff(callback, true)
 
     @Test
@@ -370,7 +434,11 @@ class DiffUtilTest {
         check()
     }
 
-    private fun testRandom(initialSize: Int, operationCount: Int) {
+    private fun testRandom(
+        initialSize: Int,
+        operationCount: Int,
+        stableIds: Boolean = false
+    ) {
         log.setLength(0)
         Item.idCounter = 0
         initWithSize(initialSize)
@@ -405,11 +473,19 @@ class DiffUtilTest {
                     }
             }
         }
-        check()
+        if (stableIds) {
+            check(
+                DiffUtil.calculateDiff(
+                    ItemListCallback(oldList = before, newList = after, stableIds = true),
+                    true
+                )
+            )
+        } else {
+            check()
+        }
     }
 
-    private fun check() {
-        val result = calculate()
+    private fun check(result: DiffUtil.DiffResult = calculate()) {
         log("before", before)
         log("after", after)
         // test diff dispatch
@@ -557,10 +633,17 @@ class DiffUtilTest {
     private fun applyUpdates(
         before: List<Item>,
         result: DiffUtil.DiffResult
+    ): List<Item> = applyUpdates(before) { updateCallback ->
+        result.dispatchUpdatesTo(updateCallback)
+    }
+
+    private fun applyUpdates(
+        before: List<Item>,
+        dispatch: (ListUpdateCallback) -> Unit
     ): List<Item> {
         val target = mutableListOf<Item>()
         target.addAll(before)
-        result.dispatchUpdatesTo(object : ListUpdateCallback {
+        dispatch(object : ListUpdateCallback {
             override fun onInserted(position: Int, count: Int) {
                 repeat(count) {
                     target.add(it + position, Item(true))
@@ -682,8 +765,11 @@ class DiffUtilTest {
     private class ItemListCallback(
         private val oldList: List<Item>,
         private val newList: List<Item>,
-        private val assertCalls: Boolean = true
+        private val assertCalls: Boolean = true,
+        private val stableIds: Boolean = false
     ) : DiffUtil.Callback() {
+        var areItemsTheSameCalls = 0
+
         override fun getOldListSize() = oldList.size
 
         override fun getNewListSize() = newList.size
@@ -692,9 +778,16 @@ class DiffUtilTest {
             oldItemIndex: Int,
             newItemIndex: Int
         ): Boolean {
+            areItemsTheSameCalls++
             return oldList[oldItemIndex].id == newList[newItemIndex].id
         }
 
+        override fun hasStableIds() = stableIds
+
+        override fun getOldItemId(oldItemPosition: Int) = oldList[oldItemPosition].id
+
+        override fun getNewItemId(newItemPosition: Int) = newList[newItemPosition].id
+
         override fun areContentsTheSame(
             oldItemIndex: Int,
             newItemIndex: Int
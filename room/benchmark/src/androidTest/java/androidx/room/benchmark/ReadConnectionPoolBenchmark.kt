@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.Dao
+import androidx.room.Database
+import androidx.room.Entity
+import androidx.room.ExperimentalRoomApi
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Query
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import kotlin.concurrent.thread
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Measures the throughput of reads made from several threads while a write transaction is open,
+ * depending on the number of read connections. 0 readers runs the reads on the connection pool
+ * of the framework, without [RoomDatabase.Builder.setReadConnectionPoolSize].
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+@OptIn(ExperimentalRoomApi::class)
+class ReadConnectionPoolBenchmark(private val readers: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    val context = ApplicationProvider.getApplicationContext() as android.content.Context
+
+    @Before
+    fun setup() {
+        for (postfix in arrayOf("", "-wal", "-shm")) {
+            val dbFile = context.getDatabasePath(DB_NAME + postfix)
+            if (dbFile.exists()) {
+                assertTrue(dbFile.delete())
+            }
+        }
+    }
+
+    @Test
+    fun parallelReads() {
+        val db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .apply {
+                if (readers > 0) {
+                    setReadConnectionPoolSize(readers)
+                }
+            }
+            .build()
+        val dao = db.getUserDao()
+        dao.insert(List(SAMPLE_SIZE) { User(it, "name$it") })
+
+        // keep a write transaction open on another thread while reading
+        val writing = CountDownLatch(1)
+        val doneReading = CountDownLatch(1)
+        val writer = thread {
+            db.runInTransaction {
+                dao.insert(listOf(User(SAMPLE_SIZE, "uncommitted")))
+                writing.countDown()
+                doneReading.await()
+            }
+        }
+        writing.await()
+
+        val executor = Executors.newFixedThreadPool(THREADS)
+        try {
+            benchmarkRule.measureRepeated {
+                val results = List(THREADS * QUERIES_PER_THREAD) {
+                    executor.submit(Callable { dao.loadAll().size })
+                }
+                results.forEach { assertEquals(SAMPLE_SIZE, it.get()) }
+            }
+        } finally {
+            executor.shutdown()
+            doneReading.countDown()
+            writer.join()
+            db.close()
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "readers={0}")
+        fun data(): List<Int> = listOf(0, 1, 2, 4, 8)
+
+        private const val DB_NAME = "read-connection-pool-benchmark-test"
+        private const val SAMPLE_SIZE = 500
+        private const val THREADS = 8
+        private const val QUERIES_PER_THREAD = 4
+    }
+
+    @Database(entities = [User::class], version = 1, exportSchema = false)
+    abstract class TestDatabase : RoomDatabase() {
+        abstract fun getUserDao(): UserDao
+    }
+
+    @Entity
+    data class User(@PrimaryKey val id: Int, val name: String)
+
+    @Dao
+    interface UserDao {
+        @Insert
+        fun insert(users: List<User>)
+
+        @Query("SELECT * FROM User")
+        fun loadAll(): List<User>
+    }
+}
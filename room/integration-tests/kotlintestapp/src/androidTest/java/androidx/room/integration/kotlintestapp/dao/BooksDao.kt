@@ -136,6 +136,13 @@ interface BooksDao {
     @Query("SELECT * FROM book")
     suspend fun getBooksSuspend(): List<Book>
 
+    @Query("SELECT * FROM book ORDER BY bookId")
+    fun getBooksSequence(): Sequence<Book>
+
+    @Transaction
+    @Query("SELECT * FROM publisher")
+    fun getPublishersWithBooksSequence(): Sequence<PublisherWithBooks>
+
     @Query("SELECT * FROM publisher")
     suspend fun getPublishersSuspend(): List<Publisher>
 
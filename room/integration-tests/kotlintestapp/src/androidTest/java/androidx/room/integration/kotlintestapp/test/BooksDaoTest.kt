@@ -40,9 +40,12 @@ import org.hamcrest.MatcherAssert.assertThat
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
 import org.junit.Assert.fail
 import org.junit.Test
+import java.io.Closeable
 import java.util.Date
+import java.util.concurrent.Callable
 
 @MediumTest
 class BooksDaoTest : TestDatabaseTest() {
@@ -245,6 +248,92 @@ class BooksDaoTest : TestDatabaseTest() {
         assertThat(actualPublisherWithBooks.books?.get(1), `is`<Book>(TestUtil.BOOK_2))
     }
 
+    @Test
+    fun publishersWithBooksSequence() {
+        booksDao.addAuthors(TestUtil.AUTHOR_1)
+        booksDao.addPublishers(TestUtil.PUBLISHER)
+        booksDao.addBooks(TestUtil.BOOK_1, TestUtil.BOOK_2)
+
+        val actualPublishersWithBooks = database.runInTransaction(
+            Callable { booksDao.getPublishersWithBooksSequence().toList() }
+        )
+
+        assertThat(actualPublishersWithBooks.size, `is`(1))
+        assertThat(actualPublishersWithBooks[0].publisher, `is`<Publisher>(TestUtil.PUBLISHER))
+        assertThat(actualPublishersWithBooks[0].books?.size, `is`(2))
+    }
+
+    @Test
+    fun booksSequenceOverSeveralChunks() {
+        booksDao.addAuthors(TestUtil.AUTHOR_1)
+        booksDao.addPublishers(TestUtil.PUBLISHER)
+        // more than a chunk of CursorSequence
+        val books = List(2500) { TestUtil.BOOK_1.copy(bookId = "b%05d".format(it)) }
+        booksDao.addBooks(*books.toTypedArray())
+
+        val sequence = booksDao.getBooksSequence()
+
+        assertThat(database.runInTransaction(Callable { sequence.toList() }), `is`(books))
+        // the cursor is gone, a sequence can only be iterated once
+        assertThrows(IllegalStateException::class.java) { sequence.iterator() }
+    }
+
+    @Test
+    fun readSequenceOutsideOfTransaction() {
+        booksDao.addAuthors(TestUtil.AUTHOR_1)
+        booksDao.addPublishers(TestUtil.PUBLISHER)
+        booksDao.addBooks(TestUtil.BOOK_1, TestUtil.BOOK_2)
+
+        val sequence = booksDao.getBooksSequence()
+
+        assertThrows(IllegalStateException::class.java) { sequence.first() }
+    }
+
+    @Test
+    fun sequenceClosedAtTheEndOfTransaction() {
+        booksDao.addAuthors(TestUtil.AUTHOR_1)
+        booksDao.addPublishers(TestUtil.PUBLISHER)
+        val books = List(2500) { TestUtil.BOOK_1.copy(bookId = "b%05d".format(it)) }
+        booksDao.addBooks(*books.toTypedArray())
+
+        // the first chunk is loaded, the cursor is still open when the transaction ends
+        val iterator = database.runInTransaction(
+            Callable {
+                val iterator = booksDao.getBooksSequence().iterator()
+                assertThat(iterator.next(), `is`(books[0]))
+                iterator
+            }
+        )
+
+        // the rest of the loaded chunk is still returned, the next chunk can't be read anymore
+        val loaded = mutableListOf<Book>()
+        assertThrows(IllegalStateException::class.java) {
+            iterator.forEach { loaded.add(it) }
+        }
+        assertThat(loaded, `is`(books.subList(1, loaded.size + 1)))
+        assertThat(loaded.size < books.size - 1, `is`(true))
+    }
+
+    @Test
+    fun closeSequenceBeforeTheEnd() {
+        booksDao.addAuthors(TestUtil.AUTHOR_1)
+        booksDao.addPublishers(TestUtil.PUBLISHER)
+        val books = List(2500) { TestUtil.BOOK_1.copy(bookId = "b%05d".format(it)) }
+        booksDao.addBooks(*books.toTypedArray())
+
+        database.runInTransaction(
+            Runnable {
+                val sequence = booksDao.getBooksSequence()
+                val iterator = sequence.iterator()
+                val firstBooks = (sequence as Closeable).use { List(3) { iterator.next() } }
+
+                assertThat(firstBooks, `is`(books.take(3)))
+                // the rest of the chunk that was loaded before the sequence was closed is returned
+                assertThat(iterator.next(), `is`(books[3]))
+            }
+        )
+    }
+
     @Test // b/68077506
     fun publisherWithBookSales() {
         booksDao.addAuthors(TestUtil.AUTHOR_1)
@@ -83,6 +83,8 @@ object RoomTypeNames {
         ClassName.get("$ROOM_PACKAGE.InvalidationTracker", "Observer")
     val ROOM_SQL_QUERY: XClassName =
         XClassName.get(ROOM_PACKAGE, "RoomSQLiteQuery")
+    val CURSOR_SEQUENCE: XClassName =
+        XClassName.get(ROOM_PACKAGE, "CursorSequence")
     val OPEN_HELPER = XClassName.get(ROOM_PACKAGE, "RoomOpenHelper")
     val OPEN_HELPER_DELEGATE = XClassName.get(ROOM_PACKAGE, "RoomOpenHelper", "Delegate")
     val OPEN_HELPER_VALIDATION_RESULT =
@@ -254,6 +256,7 @@ object KotlinTypeNames {
     val SEND_CHANNEL = ClassName.get("kotlinx.coroutines.channels", "SendChannel")
     val FLOW = ClassName.get("kotlinx.coroutines.flow", "Flow")
     val LAZY = XClassName.get("kotlin", "Lazy")
+    val SEQUENCE = XClassName.get("kotlin.sequences", "Sequence")
 }
 
 object RoomMemberNames {
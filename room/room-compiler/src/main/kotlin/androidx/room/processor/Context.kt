@@ -85,6 +85,14 @@ class Context private constructor(
         }
     }
 
+    /**
+     * Checks whether the queries returning a single integral value should run on the compiled
+     * statements cached by the database instead of a cursor.
+     */
+    val cacheStatements: Boolean by lazy {
+        BooleanProcessorOptions.CACHE_STATEMENTS.getValue(processingEnv)
+    }
+
     val codeLanguage: CodeLanguage by lazy {
         if (BooleanProcessorOptions.GENERATE_KOTLIN.getValue(processingEnv)) {
             if (processingEnv.backend == XProcessingEnv.Backend.KSP) {
@@ -263,7 +271,8 @@ class Context private constructor(
         INCREMENTAL("room.incremental", defaultValue = true),
         EXPAND_PROJECTION("room.expandProjection", defaultValue = false),
         USE_NULL_AWARE_CONVERTER("room.useNullAwareTypeAnalysis", defaultValue = false),
-        GENERATE_KOTLIN("room.generateKotlin", defaultValue = false);
+        GENERATE_KOTLIN("room.generateKotlin", defaultValue = false),
+        CACHE_STATEMENTS("room.cacheStatements", defaultValue = false);
 
         /**
          * Returns the value of this option passed through the [XProcessingEnv]. If the value
@@ -31,7 +31,8 @@ class InstantQueryResultBinderProvider(val context: Context) : QueryResultBinder
         extras: TypeAdapterExtras
     ): QueryResultBinder {
         return InstantQueryResultBinder(
-            context.typeAdapterStore.findQueryResultAdapter(declared, query, extras)
+            adapter = context.typeAdapterStore.findQueryResultAdapter(declared, query, extras),
+            cacheStatement = context.cacheStatements
         )
     }
 
@@ -15,17 +15,26 @@
  */
 package androidx.room.solver.query.result
 
+import androidx.room.compiler.codegen.CodeLanguage
 import androidx.room.compiler.codegen.XCodeBlock
 import androidx.room.compiler.codegen.XMemberName.Companion.packageMember
 import androidx.room.compiler.codegen.XPropertySpec
 import androidx.room.ext.AndroidTypeNames
 import androidx.room.ext.RoomTypeNames
 import androidx.room.solver.CodeGenScope
+import androidx.room.solver.types.PrimitiveColumnTypeAdapter
+import androidx.room.solver.types.PrimitiveColumnTypeAdapter.Companion.Primitive
 
 /**
  * Instantly runs and returns the query.
+ *
+ * If [cacheStatement] is true, a query returning a single `int` or `long` runs on a compiled
+ * statement cached by the database instead of a cursor.
  */
-class InstantQueryResultBinder(adapter: QueryResultAdapter?) : QueryResultBinder(adapter) {
+class InstantQueryResultBinder(
+    adapter: QueryResultAdapter?,
+    private val cacheStatement: Boolean = false
+) : QueryResultBinder(adapter) {
     override fun convertAndReturn(
         roomSQLiteQueryVar: String,
         canReleaseQuery: Boolean,
@@ -42,6 +51,19 @@ class InstantQueryResultBinder(adapter: QueryResultAdapter?) : QueryResultBinder
             null
         }
         transactionWrapper?.beginTransactionWithControlFlow()
+        // The SQL of a query provided by the user changes from call to call, so it isn't cached.
+        val cachedPrimitive = if (cacheStatement && canReleaseQuery) {
+            getCachedStatementPrimitive()
+        } else {
+            null
+        }
+        if (cachedPrimitive != null) {
+            convertWithCachedStatement(
+                cachedPrimitive, roomSQLiteQueryVar, dbProperty, transactionWrapper, scope
+            )
+            transactionWrapper?.endTransactionWithControlFlow()
+            return
+        }
         scope.builder.apply {
             val shouldCopyCursor = adapter?.shouldCopyCursor() == true
             val outVar = scope.getTmpVar("_result")
@@ -74,4 +96,54 @@ class InstantQueryResultBinder(adapter: QueryResultAdapter?) : QueryResultBinder
         }
         transactionWrapper?.endTransactionWithControlFlow()
     }
+
+    /**
+     * Returns the type of the single column read by the adapter if it can be read with
+     * [androidx.room.util.queryForLong], null otherwise.
+     */
+    private fun getCachedStatementPrimitive(): Primitive? {
+        val rowAdapter = (adapter as? SingleItemQueryResultAdapter)?.rowAdapter
+        val reader = (rowAdapter as? SingleColumnRowAdapter)?.reader
+        val primitive = (reader as? PrimitiveColumnTypeAdapter)?.primitive
+        return primitive?.takeIf { it == Primitive.INT || it == Primitive.LONG }
+    }
+
+    private fun convertWithCachedStatement(
+        primitive: Primitive,
+        roomSQLiteQueryVar: String,
+        dbProperty: XPropertySpec,
+        transactionWrapper: TransactionWrapper?,
+        scope: CodeGenScope
+    ) {
+        scope.builder.apply {
+            val outVar = scope.getTmpVar("_result")
+            val value = XCodeBlock.of(
+                language,
+                "%M(%N, %L)",
+                RoomTypeNames.DB_UTIL.packageMember("queryForLong"),
+                dbProperty,
+                roomSQLiteQueryVar
+            ).let {
+                if (primitive == Primitive.LONG) {
+                    it
+                } else when (language) {
+                    CodeLanguage.JAVA -> XCodeBlock.ofCast(language, primitive.typeName, it)
+                    CodeLanguage.KOTLIN -> XCodeBlock.of(language, "%L.toInt()", it)
+                }
+            }
+            beginControlFlow("try").apply {
+                addLocalVariable(
+                    name = outVar,
+                    typeName = primitive.typeName,
+                    assignExpr = value
+                )
+                transactionWrapper?.commitTransaction()
+                addStatement("return %L", outVar)
+            }
+            nextControlFlow("finally").apply {
+                addStatement("%L.release()", roomSQLiteQueryVar)
+            }
+            endControlFlow()
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.solver.query.result
+
+import androidx.room.compiler.codegen.VisibilityModifier
+import androidx.room.compiler.codegen.XFunSpec
+import androidx.room.compiler.codegen.XFunSpec.Builder.Companion.addStatement
+import androidx.room.compiler.codegen.XPropertySpec
+import androidx.room.compiler.codegen.XTypeSpec
+import androidx.room.compiler.processing.XType
+import androidx.room.ext.AndroidTypeNames.CURSOR
+import androidx.room.ext.CommonTypeNames.LIST
+import androidx.room.ext.RoomTypeNames.CURSOR_SEQUENCE
+import androidx.room.solver.CodeGenScope
+
+/**
+ * Returns a [Sequence] of the query result, which is read from a single cursor in chunks by
+ * `androidx.room.CursorSequence` while it is iterated.
+ *
+ * The sequence owns the query: it releases the acquired [androidx.room.RoomSQLiteQuery], or the
+ * copy it makes of a raw query, once it is iterated to the end, closed, or its transaction ends.
+ * As the sequence is always read in a transaction, [inTransaction] doesn't change the code.
+ */
+class SequenceQueryResultBinder(
+    private val typeArg: XType,
+    private val listAdapter: ListQueryResultAdapter?
+) : QueryResultBinder(listAdapter) {
+    override fun convertAndReturn(
+        roomSQLiteQueryVar: String,
+        canReleaseQuery: Boolean,
+        dbProperty: XPropertySpec,
+        inTransaction: Boolean,
+        scope: CodeGenScope
+    ) {
+        scope.builder.apply {
+            val sequenceSpec = XTypeSpec.anonymousClassBuilder(
+                language,
+                "%L, %N",
+                roomSQLiteQueryVar,
+                dbProperty
+            ).apply {
+                superclass(CURSOR_SEQUENCE.parametrizedBy(typeArg.asTypeName()))
+                addFunction(createConvertRowsMethod(scope))
+            }.build()
+            addStatement("return %L", sequenceSpec)
+        }
+    }
+
+    private fun createConvertRowsMethod(scope: CodeGenScope): XFunSpec {
+        return XFunSpec.builder(
+            language = scope.language,
+            name = "convertRows",
+            visibility = VisibilityModifier.PROTECTED,
+            isOverride = true
+        ).apply {
+            returns(LIST.parametrizedBy(typeArg.asTypeName()))
+            val cursorParamName = "cursor"
+            addParameter(CURSOR, cursorParamName)
+            val resultVar = scope.getTmpVar("_result")
+            val rowsScope = scope.fork()
+            listAdapter?.convert(resultVar, cursorParamName, rowsScope)
+            addCode(rowsScope.generate())
+            addStatement("return %L", resultVar)
+        }.build()
+    }
+}
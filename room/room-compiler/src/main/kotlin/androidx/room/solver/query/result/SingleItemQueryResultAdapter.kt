@@ -24,7 +24,7 @@ import androidx.room.solver.CodeGenScope
  * Wraps a row adapter when there is only 1 item in the result
  */
 class SingleItemQueryResultAdapter(
-    private val rowAdapter: RowAdapter
+    val rowAdapter: RowAdapter
 ) : QueryResultAdapter(listOf(rowAdapter)) {
     val type = rowAdapter.out
     override fun convert(outVarName: String, cursorVarName: String, scope: CodeGenScope) {
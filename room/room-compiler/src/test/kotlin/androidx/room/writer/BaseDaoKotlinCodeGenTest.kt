@@ -35,12 +35,14 @@ abstract class BaseDaoKotlinCodeGenTest {
         expectedFilePath: String,
         compiledFiles: List<File> = emptyList(),
         jvmDefaultMode: JvmDefaultMode = JvmDefaultMode.DEFAULT,
+        options: Map<String, String> = emptyMap(),
         handler: (XTestInvocation) -> Unit = { }
     ) {
         runKspTest(
             sources = sources,
             classpath = compiledFiles,
-            options = mapOf(Context.BooleanProcessorOptions.GENERATE_KOTLIN.argName to "true"),
+            options = mapOf(Context.BooleanProcessorOptions.GENERATE_KOTLIN.argName to "true") +
+                options,
             kotlincArguments = listOf("-Xjvm-default=${jvmDefaultMode.description}")
         ) {
             val databaseFqn = "androidx.room.Database"
@@ -18,6 +18,7 @@ package androidx.room.writer
 
 import COMMON
 import androidx.room.compiler.processing.util.Source
+import androidx.room.processor.Context
 import com.google.testing.junit.testparameterinjector.TestParameter
 import com.google.testing.junit.testparameterinjector.TestParameterInjector
 import org.jetbrains.kotlin.config.JvmDefaultMode
@@ -659,6 +660,66 @@ class DaoKotlinCodeGenTest : BaseDaoKotlinCodeGenTest() {
         )
     }
 
+    @Test
+    fun queryResultAdapter_sequence() {
+        val testName = object {}.javaClass.enclosingMethod!!.name
+        val src = Source.kotlin(
+            "MyDao.kt",
+            """
+            import androidx.room.*
+
+            @Dao
+            interface MyDao {
+              @Query("SELECT * FROM MyEntity")
+              fun queryOfSequence(): Sequence<MyEntity>
+            }
+
+            @Entity
+            data class MyEntity(
+                @PrimaryKey
+                val pk: Int,
+                val other: String
+            )
+            """.trimIndent()
+        )
+        runTest(
+            sources = listOf(src, databaseSrc),
+            expectedFilePath = getTestGoldenPath(testName)
+        )
+    }
+
+    @Test
+    fun queryResultAdapter_cachedStatement() {
+        val testName = object {}.javaClass.enclosingMethod!!.name
+        val src = Source.kotlin(
+            "MyDao.kt",
+            """
+            import androidx.room.*
+
+            @Dao
+            interface MyDao {
+              @Query("SELECT COUNT(*) FROM MyEntity")
+              fun count(): Int
+
+              @Query("SELECT pk FROM MyEntity WHERE other = :other")
+              fun pkOf(other: String): Long
+            }
+
+            @Entity
+            data class MyEntity(
+                @PrimaryKey
+                val pk: Long,
+                val other: String,
+            )
+            """.trimIndent()
+        )
+        runTest(
+            sources = listOf(src, databaseSrc),
+            expectedFilePath = getTestGoldenPath(testName),
+            options = mapOf(Context.BooleanProcessorOptions.CACHE_STATEMENTS.argName to "true")
+        )
+    }
+
     @Test
     fun collectionParameterAdapter_string() {
         val testName = object {}.javaClass.enclosingMethod!!.name
@@ -0,0 +1,54 @@
+import androidx.room.RoomDatabase
+import androidx.room.RoomSQLiteQuery
+import androidx.room.RoomSQLiteQuery.Companion.acquire
+import androidx.room.util.queryForLong
+import java.lang.Class
+import javax.`annotation`.processing.Generated
+import kotlin.Int
+import kotlin.Long
+import kotlin.String
+import kotlin.Suppress
+import kotlin.collections.List
+import kotlin.jvm.JvmStatic
+
+@Generated(value = ["androidx.room.RoomProcessor"])
+@Suppress(names = ["unchecked", "deprecation"])
+public class MyDao_Impl(
+    __db: RoomDatabase,
+) : MyDao {
+    private val __db: RoomDatabase
+    init {
+        this.__db = __db
+    }
+
+    public override fun count(): Int {
+        val _sql: String = "SELECT COUNT(*) FROM MyEntity"
+        val _statement: RoomSQLiteQuery = acquire(_sql, 0)
+        __db.assertNotSuspendingTransaction()
+        try {
+            val _result: Int = queryForLong(__db, _statement).toInt()
+            return _result
+        } finally {
+            _statement.release()
+        }
+    }
+
+    public override fun pkOf(other: String): Long {
+        val _sql: String = "SELECT pk FROM MyEntity WHERE other = ?"
+        val _statement: RoomSQLiteQuery = acquire(_sql, 1)
+        var _argIndex: Int = 1
+        _statement.bindString(_argIndex, other)
+        __db.assertNotSuspendingTransaction()
+        try {
+            val _result: Long = queryForLong(__db, _statement)
+            return _result
+        } finally {
+            _statement.release()
+        }
+    }
+
+    public companion object {
+        @JvmStatic
+        public fun getRequiredConverters(): List<Class<*>> = emptyList()
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.paging
+
+import android.database.Cursor
+import androidx.arch.core.executor.testing.CountingTaskExecutorRule
+import androidx.paging.PagingConfig
+import androidx.paging.PagingSource.LoadResult
+import androidx.paging.testing.TestPager
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.util.getColumnIndexOrThrow
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertTrue
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@SmallTest
+class KeysetPagingSourceTest {
+
+    @JvmField
+    @Rule
+    val countingTaskExecutorRule = CountingTaskExecutorRule()
+
+    private lateinit var database: LimitOffsetTestDb
+    private lateinit var dao: TestItemDao
+
+    @Before
+    fun init() {
+        database = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            LimitOffsetTestDb::class.java,
+        ).build()
+        dao = database.dao
+        // every other id, so keys and positions differ
+        dao.addAllItems(List(100) { TestItem(id = it * 2) })
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+        countingTaskExecutorRule.drainTasks(500, TimeUnit.MILLISECONDS)
+        assertThat(countingTaskExecutorRule.isIdle).isTrue()
+    }
+
+    @Test
+    fun load_initialLoad() = runPagingSourceTest { pager, _ ->
+        val result = pager.refresh() as LoadResult.Page
+        assertThat(result.data.map { it.id }).isEqualTo(ids(0, 15))
+        assertThat(result.prevKey).isNull()
+        assertThat(result.nextKey).isEqualTo(28L)
+        assertThat(result.itemsBefore).isEqualTo(LoadResult.Page.COUNT_UNDEFINED)
+        assertThat(result.itemsAfter).isEqualTo(LoadResult.Page.COUNT_UNDEFINED)
+    }
+
+    @Test
+    fun load_initialLoadWithInitialKey() = runPagingSourceTest { pager, _ ->
+        // 41 isn't a key, loading starts at the next one
+        val result = pager.refresh(initialKey = 41L) as LoadResult.Page
+        assertThat(result.data.map { it.id }).isEqualTo(ids(21, 36))
+        assertThat(result.prevKey).isEqualTo(42L)
+        assertThat(result.nextKey).isEqualTo(70L)
+    }
+
+    @Test
+    fun load_initialLoadPastLastKey() = runPagingSourceTest { pager, _ ->
+        val result = pager.refresh(initialKey = 1000L) as LoadResult.Page
+        assertThat(result.data.map { it.id }).isEqualTo(ids(85, 100))
+        assertThat(result.prevKey).isEqualTo(170L)
+        assertThat(result.nextKey).isNull()
+    }
+
+    @Test
+    fun load_appendAndPrepend() = runPagingSourceTest { pager, _ ->
+        pager.refresh(initialKey = 100L)
+        val append = pager.append() as LoadResult.Page
+        assertThat(append.data.map { it.id }).isEqualTo(ids(65, 70))
+        val prepend = pager.prepend() as LoadResult.Page
+        assertThat(prepend.data.map { it.id }).isEqualTo(ids(45, 50))
+        assertThat(prepend.prevKey).isEqualTo(90L)
+    }
+
+    @Test
+    fun load_appendToEnd() = runPagingSourceTest { pager, _ ->
+        pager.refresh(initialKey = 160L)
+        val append = pager.append() as LoadResult.Page
+        // the last item was loaded, but the page was full so there might be more
+        assertThat(append.data.map { it.id }).isEqualTo(ids(95, 100))
+        assertThat(append.nextKey).isEqualTo(198L)
+        val end = pager.append() as LoadResult.Page
+        assertThat(end.data).isEmpty()
+        assertThat(end.nextKey).isNull()
+        assertThat(pager.getPages().flatMap { page -> page.data.map { it.id } })
+            .isEqualTo(ids(80, 100))
+    }
+
+    @Test
+    fun load_prependToStart() = runPagingSourceTest { pager, _ ->
+        pager.refresh(initialKey = 22L)
+        val prepend = pager.prepend() as LoadResult.Page
+        assertThat(prepend.data.map { it.id }).isEqualTo(ids(6, 11))
+        val start = pager.prepend() as LoadResult.Page
+        assertThat(start.data.map { it.id }).isEqualTo(ids(1, 6))
+        val last = pager.prepend() as LoadResult.Page
+        assertThat(last.data.map { it.id }).isEqualTo(ids(0, 1))
+        assertThat(last.prevKey).isNull()
+    }
+
+    @Test
+    fun load_countItems() = runPagingSourceTest(
+        KeysetPagingSourceImpl(database, countItems = true)
+    ) { pager, _ ->
+        val result = pager.refresh(initialKey = 100L) as LoadResult.Page
+        assertThat(result.itemsBefore).isEqualTo(50)
+        assertThat(result.itemsAfter).isEqualTo(35)
+    }
+
+    @Test
+    fun load_queryArguments() = runPagingSourceTest(
+        KeysetPagingSourceImpl(
+            database,
+            SimpleSQLiteQuery("SELECT * FROM TestItem WHERE id < ?", arrayOf(60))
+        )
+    ) { pager, _ ->
+        val result = pager.refresh(initialKey = 40L) as LoadResult.Page
+        assertThat(result.data.map { it.id }).isEqualTo(ids(20, 30))
+        assertThat(result.nextKey).isNull()
+    }
+
+    @Test
+    fun getRefreshKey() = runPagingSourceTest { pager, pagingSource ->
+        pager.refresh(initialKey = 100L)
+        pager.append()
+        // anchored in the appended page
+        val state = pager.getPagingState(anchorPosition = 17)
+        assertThat(pagingSource.getRefreshKey(state)).isEqualTo(130L)
+    }
+
+    @Test
+    fun dbInsert_pagingSourceInvalidates() = runPagingSourceTest { pager, pagingSource ->
+        pager.refresh()
+        dao.addTestItem(TestItem(1001))
+        countingTaskExecutorRule.drainTasks(500, TimeUnit.MILLISECONDS)
+        assertTrue(pagingSource.invalid)
+    }
+
+    private fun runPagingSourceTest(
+        pagingSource: KeysetPagingSourceImpl = KeysetPagingSourceImpl(database),
+        block: suspend (
+            pager: TestPager<Long, TestItem>,
+            pagingSource: KeysetPagingSourceImpl
+        ) -> Unit
+    ) {
+        runBlocking {
+            block(TestPager(pagingSource, CONFIG), pagingSource)
+        }
+    }
+}
+
+class KeysetPagingSourceImpl(
+    db: RoomDatabase,
+    query: SimpleSQLiteQuery = SimpleSQLiteQuery("SELECT * FROM TestItem"),
+    countItems: Boolean = false,
+) : KeysetPagingSource<TestItem>(query, db, "id", countItems, "TestItem") {
+
+    override fun convertRows(cursor: Cursor): List<TestItem> {
+        val cursorIndexOfId = getColumnIndexOrThrow(cursor, "id")
+        val data = mutableListOf<TestItem>()
+        while (cursor.moveToNext()) {
+            data.add(TestItem(cursor.getInt(cursorIndexOfId)))
+        }
+        return data
+    }
+}
+
+private val CONFIG = PagingConfig(
+    pageSize = 5,
+    enablePlaceholders = false,
+    initialLoadSize = 15
+)
+
+/**
+ * The ids of the items from position [from] to [to] (exclusive).
+ */
+private fun ids(from: Int, to: Int) = (from until to).map { it * 2 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.paging
+
+import android.database.Cursor
+import androidx.annotation.NonNull
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import androidx.room.RoomDatabase
+import androidx.room.RoomSQLiteQuery
+import androidx.room.getQueryDispatcher
+import androidx.room.paging.util.INVALID
+import androidx.room.paging.util.ThreadSafeInvalidationObserver
+import androidx.room.paging.util.queryDatabaseByKey
+import androidx.room.withTransaction
+import androidx.sqlite.db.SupportSQLiteQuery
+import kotlinx.coroutines.withContext
+
+/**
+ * An implementation of [PagingSource] which pages through the results of a query by the value of
+ * a key column, instead of using LIMIT / OFFSET like [LimitOffsetPagingSource].
+ *
+ * A page is loaded with `WHERE key > ? ORDER BY key LIMIT ?`, which SQLite answers by seeking
+ * the index of the key column, so the cost of a page doesn't depend on how far the list has been
+ * scrolled. The key column must be part of the results of the query, and be unique, not null and
+ * integral, such as the `INTEGER PRIMARY KEY` of a table. Items are returned in ascending order
+ * of their key.
+ *
+ * The keys of this [PagingSource] are values of the key column. A refresh loads the items whose
+ * key is at least the given key, or the last items if there are none. An append loads the items
+ * after the last loaded item, and a prepend the items before the first loaded item.
+ *
+ * Counting the results of a large query is itself linear, so the number of items before and
+ * after the loaded ones is only counted when [countItems] is `true`, once per refresh. Without
+ * counts, placeholders are not supported.
+ *
+ * Registers observers on tables lazily and automatically invalidates itself when data changes.
+ *
+ * @param supportSQLiteQuery the query to page through
+ * @param db the database to run the query on
+ * @param keyColumn the name of the key column in the results of the query
+ * @param countItems whether to count the items before and after the refreshed page
+ * @param tables the tables to observe for changes
+ */
+abstract class KeysetPagingSource<Value : Any>(
+    supportSQLiteQuery: SupportSQLiteQuery,
+    private val db: RoomDatabase,
+    private val keyColumn: String,
+    private val countItems: Boolean,
+    vararg tables: String,
+) : PagingSource<Long, Value>() {
+
+    private val sourceQuery: RoomSQLiteQuery = RoomSQLiteQuery.copyFrom(supportSQLiteQuery)
+
+    private val observer = ThreadSafeInvalidationObserver(
+        tables = tables,
+        onInvalidated = ::invalidate
+    )
+
+    override suspend fun load(params: LoadParams<Long>): LoadResult<Long, Value> {
+        return withContext(db.getQueryDispatcher()) {
+            observer.registerIfNecessary(db)
+            if (params is LoadParams.Refresh) {
+                refresh(params)
+            } else {
+                nonRefreshLoad(params)
+            }
+        }
+    }
+
+    /**
+     * The counts need to be consistent with the loaded items, so they are all queried in the same
+     * transaction.
+     */
+    private suspend fun refresh(params: LoadParams<Long>): LoadResult<Long, Value> {
+        return if (countItems) {
+            db.withTransaction { query(params) }
+        } else {
+            query(params)
+        }
+    }
+
+    private fun nonRefreshLoad(params: LoadParams<Long>): LoadResult<Long, Value> {
+        val loadResult = query(params)
+        // manually check if database has been updated. If so, the observer's
+        // invalidation callback will invalidate this paging source
+        db.invalidationTracker.refreshVersionsSync()
+        @Suppress("UNCHECKED_CAST")
+        return if (invalid) INVALID as LoadResult.Invalid<Long, Value> else loadResult
+    }
+
+    private fun query(params: LoadParams<Long>): LoadResult<Long, Value> {
+        return queryDatabaseByKey(
+            params = params,
+            sourceQuery = sourceQuery,
+            db = db,
+            keyColumn = keyColumn,
+            countItems = countItems,
+            convertRows = ::convertRows
+        )
+    }
+
+    @NonNull
+    protected abstract fun convertRows(cursor: Cursor): List<Value>
+
+    /**
+     * Reloads from the first item of the page closest to the anchor position, which keeps the
+     * anchor in the refreshed page.
+     */
+    override fun getRefreshKey(state: PagingState<Long, Value>): Long? {
+        val anchorPosition = state.anchorPosition ?: return null
+        return state.closestPageToPosition(anchorPosition)?.prevKey
+    }
+}
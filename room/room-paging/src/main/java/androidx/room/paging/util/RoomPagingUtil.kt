@@ -29,6 +29,7 @@ import androidx.paging.PagingSource.LoadResult
 import androidx.paging.PagingState
 import androidx.room.RoomDatabase
 import androidx.room.RoomSQLiteQuery
+import androidx.room.util.getColumnIndexOrThrow
 
 /**
  * A [LoadResult] that can be returned to trigger a new generation of PagingSource
@@ -162,6 +163,184 @@ fun <Value : Any> queryDatabase(
     )
 }
 
+/**
+ * Loads a page of [sourceQuery] by the value of its [keyColumn], see
+ * [androidx.room.paging.KeysetPagingSource].
+ *
+ * Prepend: loads the items before [LoadParams.key] in descending order, then reverses them.
+ *
+ * Append: loads the items after [LoadParams.key].
+ *
+ * Refresh: loads the items from [LoadParams.key], or from the start if there is no key. If there
+ * are no items from the key, for example because the items at the end were deleted, the last
+ * page is loaded instead.
+ *
+ * The prevKey of a page is the key of its first item and its nextKey the key of its last item,
+ * unless the page is known to be the first or last page.
+ *
+ * throws [IllegalArgumentException] from CursorUtil if [keyColumn] does not exist
+ *
+ * @param params load params for the key and amount of items to load
+ *
+ * @param sourceQuery user provided [RoomSQLiteQuery] for database query
+ *
+ * @param db the [RoomDatabase] to query from
+ *
+ * @param keyColumn the unique integral column to page through the results by
+ *
+ * @param countItems whether to count the items before and after a refreshed page
+ *
+ * @param cancellationSignal the signal to cancel the query if the query hasn't yet completed
+ *
+ * @param convertRows the function to iterate data with provided [Cursor] to return List<Value>
+ */
+fun <Value : Any> queryDatabaseByKey(
+    params: LoadParams<Long>,
+    sourceQuery: RoomSQLiteQuery,
+    db: RoomDatabase,
+    keyColumn: String,
+    countItems: Boolean,
+    cancellationSignal: CancellationSignal? = null,
+    convertRows: (Cursor) -> List<Value>,
+): LoadResult<Long, Value> {
+    val key = params.key
+    val limit = params.loadSize
+    var page = when (params) {
+        is Prepend -> queryPageByKey(
+            sourceQuery, db, keyColumn, "<", key, false, limit, cancellationSignal, convertRows
+        )
+        is Append -> queryPageByKey(
+            sourceQuery, db, keyColumn, ">", key, true, limit, cancellationSignal, convertRows
+        )
+        is Refresh -> queryPageByKey(
+            sourceQuery, db, keyColumn, ">=", key, true, limit, cancellationSignal, convertRows
+        )
+    }
+    var isLastPage = page.data.size < limit
+    var isFirstPage = params is Refresh && key == null || params is Prepend && isLastPage
+    if (params is Refresh && key != null && page.data.isEmpty()) {
+        page = queryPageByKey(
+            sourceQuery, db, keyColumn, null, null, false, limit, cancellationSignal, convertRows
+        )
+        isFirstPage = page.data.size < limit
+        isLastPage = true
+    }
+    if (params is Prepend) {
+        isLastPage = false
+    }
+    val prevKey = if (isFirstPage || page.data.isEmpty()) null else page.firstKey
+    val nextKey = if (isLastPage || page.data.isEmpty()) null else page.lastKey
+    if (params !is Refresh || !countItems) {
+        return LoadResult.Page(
+            data = page.data,
+            prevKey = prevKey,
+            nextKey = nextKey
+        )
+    }
+    val itemsBefore = if (page.data.isEmpty() || isFirstPage) {
+        0
+    } else {
+        queryItemCountByKey(sourceQuery, db, keyColumn, "<", page.firstKey)
+    }
+    val itemsAfter = if (page.data.isEmpty() || isLastPage) {
+        0
+    } else {
+        queryItemCountByKey(sourceQuery, db, keyColumn, ">", page.lastKey)
+    }
+    return LoadResult.Page(
+        data = page.data,
+        prevKey = prevKey,
+        nextKey = nextKey,
+        itemsBefore = itemsBefore,
+        itemsAfter = itemsAfter
+    )
+}
+
+/**
+ * The items of a page loaded by key, in ascending key order, along with the keys of the first
+ * and last items.
+ */
+private class KeyedPage<Value : Any>(
+    val data: List<Value>,
+    val firstKey: Long,
+    val lastKey: Long,
+)
+
+/**
+ * Runs `SELECT * FROM (sourceQuery) WHERE keyColumn [operator] key ORDER BY keyColumn LIMIT limit`,
+ * without a WHERE clause if [operator] is null.
+ */
+private fun <Value : Any> queryPageByKey(
+    sourceQuery: RoomSQLiteQuery,
+    db: RoomDatabase,
+    keyColumn: String,
+    operator: String?,
+    key: Long?,
+    ascending: Boolean,
+    limit: Int,
+    cancellationSignal: CancellationSignal?,
+    convertRows: (Cursor) -> List<Value>,
+): KeyedPage<Value> {
+    val bindKey = operator != null && key != null
+    val where = if (bindKey) "WHERE `$keyColumn` $operator ?" else ""
+    val order = if (ascending) "ASC" else "DESC"
+    val keysetQuery =
+        "SELECT * FROM ( ${sourceQuery.sql} ) $where ORDER BY `$keyColumn` $order LIMIT $limit"
+    val argCount = sourceQuery.argCount + if (bindKey) 1 else 0
+    val sqLiteQuery: RoomSQLiteQuery = RoomSQLiteQuery.acquire(keysetQuery, argCount)
+    sqLiteQuery.copyArgumentsFrom(sourceQuery)
+    if (bindKey) {
+        sqLiteQuery.bindLong(argCount, key!!)
+    }
+    val cursor = db.query(sqLiteQuery, cancellationSignal)
+    try {
+        val data = convertRows(cursor)
+        if (data.isEmpty()) {
+            return KeyedPage(data, 0, 0)
+        }
+        val keyIndex = getColumnIndexOrThrow(cursor, keyColumn)
+        cursor.moveToFirst()
+        val firstRowKey = cursor.getLong(keyIndex)
+        cursor.moveToLast()
+        val lastRowKey = cursor.getLong(keyIndex)
+        return if (ascending) {
+            KeyedPage(data, firstRowKey, lastRowKey)
+        } else {
+            KeyedPage(data.asReversed(), lastRowKey, firstRowKey)
+        }
+    } finally {
+        cursor.close()
+        sqLiteQuery.release()
+    }
+}
+
+/**
+ * Counts the items of [sourceQuery] whose [keyColumn] compares to [key] with [operator].
+ */
+private fun queryItemCountByKey(
+    sourceQuery: RoomSQLiteQuery,
+    db: RoomDatabase,
+    keyColumn: String,
+    operator: String,
+    key: Long,
+): Int {
+    val countQuery = "SELECT COUNT(*) FROM ( ${sourceQuery.sql} ) WHERE `$keyColumn` $operator ?"
+    val argCount = sourceQuery.argCount + 1
+    val sqLiteQuery: RoomSQLiteQuery = RoomSQLiteQuery.acquire(countQuery, argCount)
+    sqLiteQuery.copyArgumentsFrom(sourceQuery)
+    sqLiteQuery.bindLong(argCount, key)
+    val cursor: Cursor = db.query(sqLiteQuery)
+    try {
+        if (cursor.moveToFirst()) {
+            return cursor.getInt(0)
+        }
+        return 0
+    } finally {
+        cursor.close()
+        sqLiteQuery.release()
+    }
+}
+
 /**
  * returns count of requested items to calculate itemsAfter and itemsBefore for use in creating
  * LoadResult.Page<>
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room
+
+import android.content.Context
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import androidx.test.core.app.ApplicationProvider
+import androidx.testutils.assertThrows
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class ReadConnectionPoolTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    private lateinit var writer: SupportSQLiteOpenHelper
+
+    private val openedReaders = mutableListOf<SupportSQLiteOpenHelper>()
+
+    @Before
+    fun setUp() {
+        context.deleteDatabase(DB_NAME)
+        writer = openHelper(object : SupportSQLiteOpenHelper.Callback(1) {
+            override fun onCreate(db: SupportSQLiteDatabase) {
+                db.execSQL("CREATE TABLE Item (id INTEGER PRIMARY KEY)")
+                db.execSQL("INSERT INTO Item VALUES (1), (2), (3)")
+            }
+
+            override fun onUpgrade(db: SupportSQLiteDatabase, oldVersion: Int, newVersion: Int) {}
+        })
+        writer.writableDatabase
+    }
+
+    @After
+    fun tearDown() {
+        writer.close()
+        context.deleteDatabase(DB_NAME)
+    }
+
+    private fun openHelper(callback: SupportSQLiteOpenHelper.Callback) =
+        FrameworkSQLiteOpenHelperFactory().create(
+            SupportSQLiteOpenHelper.Configuration.builder(context)
+                .name(DB_NAME)
+                .callback(callback)
+                .build()
+        ).also { it.setWriteAheadLoggingEnabled(true) }
+
+    private fun createPool(
+        size: Int,
+        callbacks: List<RoomDatabase.Callback> = emptyList()
+    ) = ReadConnectionPool(size) {
+        openHelper(ReadConnectionPool.ReaderCallback(1, callbacks)).also { openedReaders.add(it) }
+    }
+
+    @Test
+    fun readersAreLeasedUntilTheCursorIsClosed() {
+        val pool = createPool(2)
+        val first = pool.query(SELECT_ALL, null)
+        val second = pool.query(SELECT_ALL, null)
+        assertThat(openedReaders).hasSize(2)
+        first.close()
+        second.close()
+        pool.query(SELECT_ALL, null).close()
+        assertThat(openedReaders).hasSize(2)
+        pool.close()
+    }
+
+    @Test
+    fun readersAreSharedWhenAllAreLeased() {
+        val pool = createPool(1)
+        val first = pool.query(SELECT_ALL, null)
+        val second = pool.query(SELECT_ALL, null)
+        assertThat(first.count).isEqualTo(3)
+        assertThat(second.count).isEqualTo(3)
+        assertThat(openedReaders).hasSize(1)
+        first.close()
+        second.close()
+        pool.close()
+    }
+
+    @Test
+    fun readWhileWriteTransactionIsOpen() {
+        val pool = createPool(1)
+        val db = writer.writableDatabase
+        db.beginTransactionNonExclusive()
+        try {
+            db.execSQL("INSERT INTO Item VALUES (4)")
+            // the reader doesn't wait for the transaction, and doesn't see its changes
+            pool.query(SELECT_ALL, null).use { cursor ->
+                assertThat(cursor.count).isEqualTo(3)
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+        pool.query(SELECT_ALL, null).use { cursor ->
+            assertThat(cursor.count).isEqualTo(4)
+        }
+        pool.close()
+    }
+
+    @Test
+    fun callbacksAreOpenedWithEachReader() {
+        val openedDatabases = mutableListOf<SupportSQLiteDatabase>()
+        val callback = object : RoomDatabase.Callback() {
+            override fun onOpen(db: SupportSQLiteDatabase) {
+                openedDatabases.add(db)
+            }
+        }
+        val pool = createPool(2, listOf(callback))
+        val first = pool.query(SELECT_ALL, null)
+        val second = pool.query(SELECT_ALL, null)
+        first.close()
+        second.close()
+        pool.query(SELECT_ALL, null).close()
+        // once per reader, when it is opened
+        assertThat(openedDatabases).hasSize(2)
+        assertThat(openedDatabases.toSet()).hasSize(2)
+        pool.close()
+    }
+
+    @Test
+    fun queryAfterClose() {
+        val pool = createPool(1)
+        pool.query(SELECT_ALL, null).close()
+        pool.close()
+        assertThrows<IllegalStateException> {
+            pool.query(SELECT_ALL, null)
+        }
+    }
+
+    companion object {
+        private const val DB_NAME = "read-connection-pool-test"
+        private val SELECT_ALL = SimpleSQLiteQuery("SELECT * FROM Item")
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room
+
+import android.content.Context
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+class StatementCacheTest {
+
+    private lateinit var helper: SupportSQLiteOpenHelper
+
+    private lateinit var db: SupportSQLiteDatabase
+
+    @Before
+    fun setUp() {
+        helper = FrameworkSQLiteOpenHelperFactory().create(
+            SupportSQLiteOpenHelper.Configuration.builder(
+                ApplicationProvider.getApplicationContext<Context>()
+            ).callback(object : SupportSQLiteOpenHelper.Callback(1) {
+                override fun onCreate(db: SupportSQLiteDatabase) {
+                    db.execSQL("CREATE TABLE Item (id INTEGER PRIMARY KEY, name TEXT)")
+                    db.execSQL("INSERT INTO Item VALUES (1, 'a'), (2, 'b'), (3, NULL)")
+                }
+
+                override fun onUpgrade(
+                    db: SupportSQLiteDatabase,
+                    oldVersion: Int,
+                    newVersion: Int
+                ) {}
+            }).build()
+        )
+        db = helper.writableDatabase
+    }
+
+    @After
+    fun tearDown() {
+        helper.close()
+    }
+
+    @Test
+    fun reuseStatement() {
+        val cache = StatementCache(2) { db.compileStatement(it) }
+        assertThat(cache.simpleQueryForLong(idOf("a"))).isEqualTo(1)
+        assertThat(cache.simpleQueryForLong(idOf("b"))).isEqualTo(2)
+        assertThat(cache.hitCount).isEqualTo(1)
+        assertThat(cache.missCount).isEqualTo(1)
+        cache.clear()
+    }
+
+    @Test
+    fun noRows() {
+        val cache = StatementCache(2) { db.compileStatement(it) }
+        assertThat(cache.simpleQueryForLong(idOf("z"))).isEqualTo(0)
+        // null value
+        val nameOf3 = SimpleSQLiteQuery("SELECT name FROM Item WHERE id = 3")
+        assertThat(cache.simpleQueryForLong(nameOf3)).isEqualTo(0)
+        cache.clear()
+    }
+
+    @Test
+    fun evictLeastRecentlyUsed() {
+        val cache = StatementCache(1) { db.compileStatement(it) }
+        cache.simpleQueryForLong(SimpleSQLiteQuery("SELECT COUNT(*) FROM Item"))
+        cache.simpleQueryForLong(SimpleSQLiteQuery("SELECT MAX(id) FROM Item"))
+        assertThat(cache.simpleQueryForLong(SimpleSQLiteQuery("SELECT COUNT(*) FROM Item")))
+            .isEqualTo(3)
+        assertThat(cache.hitCount).isEqualTo(0)
+        assertThat(cache.missCount).isEqualTo(3)
+        cache.clear()
+    }
+
+    private fun idOf(name: String) =
+        SimpleSQLiteQuery("SELECT id FROM Item WHERE name = ?", arrayOf(name))
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room
+
+import android.database.Cursor
+import android.database.CursorWrapper
+import androidx.annotation.RestrictTo
+import androidx.sqlite.db.SupportSQLiteQuery
+import java.io.Closeable
+
+/**
+ * A [Sequence] of the result of a query, read from a single cursor one chunk of rows at a time.
+ *
+ * This class is used by the generated code of the DAO methods that return a [Sequence]. The
+ * query runs once, and [convertRows] is called with a view of the cursor that only contains the
+ * rows of the current chunk. Only one chunk of the result is in memory at a time, and the
+ * relations of the items are fetched per chunk, so the memory used doesn't depend on the size
+ * of the result.
+ *
+ * The sequence can be iterated only once, and only in a transaction, for example in
+ * [RoomDatabase.runInTransaction]:
+ * ```
+ * db.runInTransaction { dao.getItems().first { it.matches() } }
+ * ```
+ * The cursor is closed and the query is released when the iteration reaches the end of the
+ * result, when [close] is called, or at the latest when the transaction ends, so a sequence that
+ * isn't iterated to the end doesn't leak its cursor. Reading the sequence after its transaction
+ * ended throws an [IllegalStateException]. As the queries of a transaction run on the writer
+ * connection, the result is read from a consistent snapshot of the database.
+ * The iteration runs queries, so it must not happen on the main thread.
+ *
+ * @param sourceQuery the query of the DAO method, released by this sequence
+ * @param db the database to query
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+abstract class CursorSequence<T>(
+    private val sourceQuery: RoomSQLiteQuery,
+    private val db: RoomDatabase
+) : Sequence<T>, Closeable {
+
+    constructor(
+        supportSQLiteQuery: SupportSQLiteQuery,
+        db: RoomDatabase
+    ) : this(
+        sourceQuery = RoomSQLiteQuery.copyFrom(supportSQLiteQuery),
+        db = db
+    )
+
+    /**
+     * The maximum number of rows in a chunk. It is the maximum number of keys of a relation
+     * query, so that the relations of a chunk are fetched in a single query.
+     */
+    private val chunkSize = RoomDatabase.MAX_BIND_PARAMETER_CNT
+
+    private var cursor: Cursor? = null
+    private var iterated = false
+    private var exhausted = false
+    private var closed = false
+
+    override fun iterator(): Iterator<T> {
+        check(!iterated) { "This sequence can only be iterated once." }
+        check(!closed) { "This sequence is closed." }
+        iterated = true
+        return object : AbstractIterator<T>() {
+            private var start = 0
+            private var chunk: Iterator<T> = emptyList<T>().iterator()
+
+            override fun computeNext() {
+                while (!chunk.hasNext()) {
+                    if (exhausted) {
+                        done()
+                        return
+                    }
+                    check(!closed) {
+                        "This sequence was closed before the end of its result, it must be " +
+                            "read within the transaction it was first read in."
+                    }
+                    val rows = try {
+                        readChunk(start)
+                    } catch (e: Throwable) {
+                        close()
+                        throw e
+                    }
+                    start += chunkSize
+                    chunk = rows.iterator()
+                }
+                setNext(chunk.next())
+            }
+        }
+    }
+
+    private fun readChunk(start: Int): List<T> {
+        val cursor = cursor ?: openCursor()
+        val count = minOf(chunkSize, cursor.count - start)
+        if (count <= 0) {
+            exhausted = true
+            close()
+            return emptyList()
+        }
+        val rows = convertRows(ChunkCursor(cursor, start, count))
+        if (start + count >= cursor.count) {
+            // the last chunk, no need to wait for another call to release the cursor
+            exhausted = true
+            close()
+        }
+        return rows
+    }
+
+    private fun openCursor(): Cursor {
+        check(db.inTransaction()) {
+            "A Sequence returned by a DAO method must be read in a transaction, for example in " +
+                "RoomDatabase.runInTransaction(), so that its cursor is closed when the " +
+                "transaction ends."
+        }
+        db.closeAtEndOfTransaction(this)
+        return db.query(sourceQuery).also { cursor = it }
+    }
+
+    /**
+     * Converts the rows of a chunk, with their relations.
+     */
+    protected abstract fun convertRows(cursor: Cursor): List<T>
+
+    /**
+     * Closes the cursor of the iteration and releases the query. Items that are already loaded
+     * are still returned by the iterator, reading past them throws an [IllegalStateException].
+     */
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        cursor?.close()
+        cursor = null
+        sourceQuery.release()
+    }
+
+    /**
+     * The rows `[start, start + count)` of a cursor, with positions relative to [start].
+     */
+    private class ChunkCursor(
+        cursor: Cursor,
+        private val start: Int,
+        private val count: Int
+    ) : CursorWrapper(cursor) {
+        private var position = -1
+
+        override fun getCount(): Int = count
+
+        override fun getPosition(): Int = position
+
+        override fun moveToPosition(position: Int): Boolean {
+            this.position = position.coerceIn(-1, count)
+            val moved = wrappedCursor.moveToPosition(start + this.position)
+            return moved && position in 0 until count
+        }
+
+        override fun move(offset: Int): Boolean = moveToPosition(position + offset)
+
+        override fun moveToFirst(): Boolean = moveToPosition(0)
+
+        override fun moveToLast(): Boolean = moveToPosition(count - 1)
+
+        override fun moveToNext(): Boolean = moveToPosition(position + 1)
+
+        override fun moveToPrevious(): Boolean = moveToPosition(position - 1)
+
+        override fun isFirst(): Boolean = count > 0 && position == 0
+
+        override fun isLast(): Boolean = count > 0 && position == count - 1
+
+        override fun isBeforeFirst(): Boolean = count == 0 || position == -1
+
+        override fun isAfterLast(): Boolean = count == 0 || position == count
+
+        override fun close() {
+            // the cursor is shared by all the chunks and closed by the sequence
+        }
+    }
+}
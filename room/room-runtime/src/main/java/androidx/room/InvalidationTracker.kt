@@ -36,7 +36,11 @@ import java.lang.ref.WeakReference
 import java.util.Arrays
 import java.util.Locale
 import java.util.concurrent.Callable
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 
 /**
  * InvalidationTracker keeps a list of tables modified by queries and notifies its callbacks about
@@ -53,6 +57,10 @@ import java.util.concurrent.atomic.AtomicBoolean
 // memory table table, flipping the invalidated flag ON.
 // * When multi-instance invalidation is turned on, MultiInstanceInvalidationClient will be created.
 // It works as an Observer, and notifies other instances of table invalidation.
+// * When a coalescing window is set, the refresh after a transaction is delayed by the window.
+// Transactions ending in the meantime find the refresh pending and don't schedule another one, so
+// a burst of writes costs a single query of the memory table and a single notification per
+// observer.
 open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX) constructor(
     internal val database: RoomDatabase,
     private val shadowTablesMap: Map<String, String>,
@@ -88,6 +96,28 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
 
     private val trackerLock = Any()
 
+    /**
+     * The delay of the refreshes scheduled by [refreshVersionsAsync], 0 to refresh right away.
+     */
+    private var coalescingWindowMillis = 0L
+
+    /**
+     * Delays the coalesced refreshes. It only hands them over to the query executor, so that they
+     * don't depend on the responsiveness of the main thread.
+     */
+    @VisibleForTesting
+    internal var coalescingScheduler: ScheduledExecutorService? = null
+
+    private val executeRefreshRunnable = Runnable {
+        database.queryExecutor.execute(refreshRunnable)
+    }
+
+    private val refreshCount = AtomicLong()
+
+    private val notifiedObserverCount = AtomicLong()
+
+    private val invalidatedTableCount = AtomicLong()
+
     init {
         tableIdLookup = mutableMapOf()
         tablesNames = Array(tableNames.size) { id ->
@@ -170,6 +200,19 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
         }
     }
 
+    /**
+     * Sets the window over which the refreshes requested by [refreshVersionsAsync] are coalesced.
+     *
+     * This must be called before the database is used.
+     *
+     * @param windowMillis the delay of a refresh after the transaction requesting it, 0 to
+     * refresh right away.
+     */
+    internal fun setCoalescingWindow(windowMillis: Long) {
+        require(windowMillis >= 0) { "windowMillis must be >= 0" }
+        coalescingWindowMillis = windowMillis
+    }
+
     internal fun startMultiInstanceInvalidation(
         context: Context,
         name: String,
@@ -377,6 +420,8 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
                     } finally {
                         db.endTransaction()
                     }
+                    refreshCount.incrementAndGet()
+                    invalidatedTableCount.addAndGet(invalidatedTableIds.size.toLong())
                     invalidatedTableIds
                 } catch (ex: IllegalStateException) {
                     // may happen if db is closed. just log.
@@ -397,11 +442,15 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
                 }
 
             if (invalidatedTableIds.isNotEmpty()) {
+                var notified = 0L
                 synchronized(observerMap) {
                     observerMap.forEach {
-                        it.value.notifyByTableInvalidStatus(invalidatedTableIds)
+                        if (it.value.notifyByTableInvalidStatus(invalidatedTableIds)) {
+                            notified++
+                        }
                     }
                 }
+                notifiedObserverCount.addAndGet(notified)
             }
         }
 
@@ -429,6 +478,9 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
      * This method is automatically called when [RoomDatabase.endTransaction] is called but
      * if you have another connection to the database or directly use [ ], you may need to call this
      * manually.
+     *
+     * If a coalescing window is set with [RoomDatabase.Builder.setInvalidationCoalescingWindow],
+     * the refresh runs after the window and covers all the changes made until then.
      */
     open fun refreshVersionsAsync() {
         // TODO we should consider doing this sync instead of async.
@@ -438,10 +490,32 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
             // db isn't closed until refresh is completed. This increment call must be
             // matched with a corresponding call in refreshRunnable.
             autoCloser?.incrementCountAndEnsureDbIsOpen()
-            database.queryExecutor.execute(refreshRunnable)
+            val windowMillis = coalescingWindowMillis
+            if (windowMillis > 0) {
+                (coalescingScheduler ?: sharedCoalescingScheduler).schedule(
+                    executeRefreshRunnable, windowMillis, TimeUnit.MILLISECONDS
+                )
+            } else {
+                database.queryExecutor.execute(refreshRunnable)
+            }
         }
     }
 
+    /**
+     * Returns the counters of the work done by this tracker since the database was created.
+     *
+     * This can be used to tune the window set with
+     * [RoomDatabase.Builder.setInvalidationCoalescingWindow].
+     */
+    @ExperimentalRoomApi
+    fun getStatistics(): Statistics {
+        return Statistics(
+            refreshCount = refreshCount.get(),
+            notifiedObserverCount = notifiedObserverCount.get(),
+            invalidatedTableCount = invalidatedTableCount.get()
+        )
+    }
+
     /**
      * Check versions for tables, and run observers synchronously if tables have been updated.
      *
@@ -606,8 +680,9 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
          * based on the given invalid status set.
          *
          * @param invalidatedTablesIds The table ids of the tables that are invalidated.
+         * @return whether the observer was notified.
          */
-        internal fun notifyByTableInvalidStatus(invalidatedTablesIds: Set<Int?>) {
+        internal fun notifyByTableInvalidStatus(invalidatedTablesIds: Set<Int?>): Boolean {
             val invalidatedTables = when (tableIds.size) {
                 0 -> emptySet()
                 1 -> if (invalidatedTablesIds.contains(tableIds[0])) {
@@ -626,7 +701,9 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
 
             if (invalidatedTables.isNotEmpty()) {
                 observer.onInvalidated(invalidatedTables)
+                return true
             }
+            return false
         }
 
         /**
@@ -690,6 +767,23 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
             get() = false
     }
 
+    /**
+     * A snapshot of the counters of an [InvalidationTracker], see [getStatistics].
+     *
+     * @property refreshCount the number of times the tracker queried the invalidated tables.
+     * @property notifiedObserverCount the number of calls to [Observer.onInvalidated] made after
+     * those queries.
+     * @property invalidatedTableCount the number of invalidated tables found by those queries. The
+     * triggers only flag a table once until the next query, so this is also the number of rows
+     * written by the triggers.
+     */
+    @ExperimentalRoomApi
+    class Statistics internal constructor(
+        val refreshCount: Long,
+        val notifiedObserverCount: Long,
+        val invalidatedTableCount: Long
+    )
+
     /**
      * Keeps a list of tables we should observe. Invalidation tracker lazily syncs this list w/
      * triggers in the database.
@@ -828,6 +922,19 @@ open class InvalidationTracker @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX
         internal const val SELECT_UPDATED_TABLES_SQL =
             "SELECT * FROM $UPDATE_TABLE_NAME WHERE $INVALIDATED_COLUMN_NAME = 1;"
 
+        /**
+         * The scheduler of the coalesced refreshes of all the trackers. Its thread is a daemon and
+         * stops when idle.
+         */
+        private val sharedCoalescingScheduler: ScheduledExecutorService by lazy {
+            ScheduledThreadPoolExecutor(1) { runnable ->
+                Thread(runnable, "Room-InvalidationCoalescing").apply { isDaemon = true }
+            }.apply {
+                setKeepAliveTime(1, TimeUnit.SECONDS)
+                allowCoreThreadTimeOut(true)
+            }
+        }
+
         internal fun getTriggerName(
             tableName: String,
             triggerType: String
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room
+
+import android.database.Cursor
+import android.database.CursorWrapper
+import android.os.Build
+import android.os.CancellationSignal
+import androidx.annotation.GuardedBy
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.SupportSQLiteQuery
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A pool of connections used for the queries that run outside of a transaction, alongside the
+ * connection of [RoomDatabase.openHelper] which runs the writes and the transactions.
+ *
+ * With write-ahead logging, readers don't block the writer nor each other, so queries from
+ * different threads run in parallel, even while a write transaction is open. Each reader is a
+ * [SupportSQLiteOpenHelper] of its own, opened lazily, and keeps its own cache of prepared
+ * statements.
+ *
+ * A reader is leased to a single query until its cursor is closed. If all the readers are leased,
+ * for example because a cursor was leaked, queries share the readers round-robin instead of
+ * waiting for one.
+ *
+ * @param size the number of readers
+ * @param openReader creates the open helper of a reader
+ */
+internal class ReadConnectionPool(
+    private val size: Int,
+    private val openReader: () -> SupportSQLiteOpenHelper
+) {
+    private val lock = Any()
+
+    @GuardedBy("lock")
+    private val readers = arrayOfNulls<SupportSQLiteOpenHelper>(size)
+
+    @GuardedBy("lock")
+    private val statementCaches = arrayOfNulls<StatementCache>(size)
+
+    @GuardedBy("lock")
+    private var closed = false
+
+    private val idleReaders = ConcurrentLinkedQueue<Int>(List(size) { it })
+
+    private val nextSharedReader = AtomicInteger()
+
+    init {
+        require(size > 0) { "size must be > 0" }
+    }
+
+    fun query(query: SupportSQLiteQuery, signal: CancellationSignal?): Cursor {
+        val idleReader = idleReaders.poll()
+        val index = idleReader ?: ((nextSharedReader.getAndIncrement() and Int.MAX_VALUE) % size)
+        val cursor = try {
+            val database = getReader(index)
+            if (signal != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                database.query(query, signal)
+            } else {
+                database.query(query)
+            }
+        } catch (ex: Throwable) {
+            if (idleReader != null) {
+                idleReaders.offer(index)
+            }
+            throw ex
+        }
+        return if (idleReader != null) {
+            LeasedCursor(cursor) { idleReaders.offer(index) }
+        } else {
+            cursor
+        }
+    }
+
+    /**
+     * Runs the given query on the cached statement of a reader, see
+     * [StatementCache.simpleQueryForLong].
+     */
+    fun queryForLong(query: SupportSQLiteQuery): Long {
+        val idleReader = idleReaders.poll()
+        val index = idleReader ?: ((nextSharedReader.getAndIncrement() and Int.MAX_VALUE) % size)
+        try {
+            val statementCache = synchronized(lock) {
+                statementCaches[index] ?: StatementCache(StatementCache.DEFAULT_MAX_SIZE) { sql ->
+                    getReader(index).compileStatement(sql)
+                }.also { statementCaches[index] = it }
+            }
+            return statementCache.simpleQueryForLong(query)
+        } finally {
+            if (idleReader != null) {
+                idleReaders.offer(index)
+            }
+        }
+    }
+
+    val statementCacheHitCount: Long
+        get() = synchronized(lock) { statementCaches.sumOf { it?.hitCount ?: 0 } }
+
+    val statementCacheMissCount: Long
+        get() = synchronized(lock) { statementCaches.sumOf { it?.missCount ?: 0 } }
+
+    private fun getReader(index: Int): SupportSQLiteDatabase {
+        val helper = synchronized(lock) {
+            check(!closed) { "Cannot query the read connections of a closed database." }
+            readers[index] ?: openReader().also { readers[index] = it }
+        }
+        return helper.readableDatabase
+    }
+
+    fun close() {
+        synchronized(lock) {
+            closed = true
+            statementCaches.forEachIndexed { index, statementCache ->
+                statementCache?.clear()
+                statementCaches[index] = null
+            }
+            readers.forEachIndexed { index, reader ->
+                reader?.close()
+                readers[index] = null
+            }
+        }
+    }
+
+    /**
+     * The callback of the readers. The schema is created and migrated by the writer, which is
+     * opened before the readers, so there is nothing to do but to run the
+     * [RoomDatabase.Callback.onOpen] of the app on the new connection.
+     *
+     * @param callbacks the callbacks of the database
+     */
+    internal class ReaderCallback(
+        version: Int,
+        private val callbacks: List<RoomDatabase.Callback>
+    ) : SupportSQLiteOpenHelper.Callback(version) {
+        override fun onCreate(db: SupportSQLiteDatabase) {}
+
+        override fun onUpgrade(db: SupportSQLiteDatabase, oldVersion: Int, newVersion: Int) {}
+
+        override fun onOpen(db: SupportSQLiteDatabase) {
+            callbacks.forEach { it.onOpen(db) }
+        }
+    }
+
+    /**
+     * Returns its reader to the pool when closed.
+     */
+    private class LeasedCursor(
+        delegate: Cursor,
+        private val onClose: () -> Unit
+    ) : CursorWrapper(delegate) {
+        private val released = AtomicBoolean(false)
+
+        override fun close() {
+            try {
+                super.close()
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    onClose()
+                }
+            }
+        }
+    }
+}
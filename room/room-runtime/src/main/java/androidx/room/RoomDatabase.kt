@@ -32,6 +32,7 @@ import androidx.arch.core.executor.ArchTaskExecutor
 import androidx.room.Room.LOG_TAG
 import androidx.room.migration.AutoMigrationSpec
 import androidx.room.migration.Migration
+import androidx.room.util.useCursor
 import androidx.sqlite.db.SimpleSQLiteQuery
 import androidx.sqlite.db.SupportSQLiteCompat
 import androidx.sqlite.db.SupportSQLiteDatabase
@@ -39,6 +40,7 @@ import androidx.sqlite.db.SupportSQLiteOpenHelper
 import androidx.sqlite.db.SupportSQLiteQuery
 import androidx.sqlite.db.SupportSQLiteStatement
 import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import java.io.Closeable
 import java.io.File
 import java.io.InputStream
 import java.util.BitSet
@@ -128,6 +130,16 @@ abstract class RoomDatabase {
     private val readWriteLock = ReentrantReadWriteLock()
     private var autoCloser: AutoCloser? = null
 
+    /**
+     * The connections running the queries outside of transactions, null to run them on
+     * [openHelper].
+     */
+    internal var readConnectionPool: ReadConnectionPool? = null
+
+    private val statementCache = StatementCache(StatementCache.DEFAULT_MAX_SIZE) { sql ->
+        openHelper.writableDatabase.compileStatement(sql)
+    }
+
     /**
      * [InvalidationTracker] uses this lock to prevent the database from closing while it is
      * querying database updates.
@@ -151,6 +163,12 @@ abstract class RoomDatabase {
     @get:RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     val suspendingTransactionId = ThreadLocal<Int>()
 
+    /**
+     * The resources that are closed when the outermost transaction of the current thread ends,
+     * see [closeAtEndOfTransaction].
+     */
+    private val transactionResources = ThreadLocal<MutableList<Closeable>>()
+
     /**
      * Gets the map for storing extension properties of Kotlin type.
      *
@@ -411,6 +429,8 @@ abstract class RoomDatabase {
             closeLock.lock()
             try {
                 invalidationTracker.stopMultiInstanceInvalidation()
+                readConnectionPool?.close()
+                statementCache.clear()
                 openHelper.close()
             } finally {
                 closeLock.unlock()
@@ -461,6 +481,10 @@ abstract class RoomDatabase {
      * @return A Cursor obtained by running the given query in the Room database.
      */
     open fun query(query: String, args: Array<out Any?>?): Cursor {
+        val readConnectionPool = readConnectionPool
+        if (readConnectionPool != null && !inTransaction()) {
+            return readConnectionPool.query(SimpleSQLiteQuery(query, args), null)
+        }
         return openHelper.writableDatabase.query(SimpleSQLiteQuery(query, args))
     }
 
@@ -475,6 +499,11 @@ abstract class RoomDatabase {
     open fun query(query: SupportSQLiteQuery, signal: CancellationSignal? = null): Cursor {
         assertNotMainThread()
         assertNotSuspendingTransaction()
+        val readConnectionPool = readConnectionPool
+        // Queries in a transaction have to see its changes, so they run on the writer.
+        if (readConnectionPool != null && !inTransaction()) {
+            return readConnectionPool.query(query, signal)
+        }
         return if (signal != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
             openHelper.writableDatabase.query(query, signal)
         } else {
@@ -482,6 +511,51 @@ abstract class RoomDatabase {
         }
     }
 
+    /**
+     * Runs a query whose result is a single integral column on a cached compiled statement, and
+     * returns the value of its first row, or 0 if there are no rows or the value is null.
+     *
+     * Unlike [query], this doesn't create a cursor nor its window, and the statement is compiled
+     * once per connection instead of being looked up by the framework on each call.
+     *
+     * @param query The query.
+     * @return The value of the first row.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX) // used in generated code
+    open fun queryForLong(query: SupportSQLiteQuery): Long {
+        assertNotMainThread()
+        assertNotSuspendingTransaction()
+        if (autoCloser != null) {
+            // the statements would not survive the database being closed
+            return query(query).useCursor { cursor ->
+                if (cursor.moveToFirst()) cursor.getLong(0) else 0
+            }
+        }
+        val readConnectionPool = readConnectionPool
+        if (readConnectionPool != null && !inTransaction()) {
+            return readConnectionPool.queryForLong(query)
+        }
+        return statementCache.simpleQueryForLong(query)
+    }
+
+    /**
+     * Returns the number of queries that found their compiled statement in the cache of their
+     * connection, and of those that had to compile it, since the database was created.
+     *
+     * Only the queries of the methods generated with the `room.cacheStatements` option use
+     * the cache.
+     */
+    @ExperimentalRoomApi
+    open fun getStatementCacheStatistics(): StatementCacheStatistics {
+        val readConnectionPool = readConnectionPool
+        return StatementCacheStatistics(
+            hitCount = statementCache.hitCount + (readConnectionPool?.statementCacheHitCount ?: 0),
+            missCount = statementCache.missCount +
+                (readConnectionPool?.statementCacheMissCount ?: 0)
+        )
+    }
+
     /**
      * Wrapper for [SupportSQLiteDatabase.compileStatement].
      *
@@ -552,9 +626,29 @@ abstract class RoomDatabase {
             // enqueue refresh only if we are NOT in a transaction. Otherwise, wait for the last
             // endTransaction call to do it.
             invalidationTracker.refreshVersionsAsync()
+            closeTransactionResources()
         }
     }
 
+    /**
+     * Closes [resource] when the outermost transaction of the current thread ends, whether or not
+     * the resource is still in use.
+     *
+     * @throws IllegalStateException if the current thread is not in a transaction.
+     */
+    internal fun closeAtEndOfTransaction(resource: Closeable) {
+        check(inTransaction()) { "Cannot bind a resource to a transaction outside of one." }
+        val resources = transactionResources.get()
+            ?: mutableListOf<Closeable>().also { transactionResources.set(it) }
+        resources.add(resource)
+    }
+
+    private fun closeTransactionResources() {
+        val resources = transactionResources.get() ?: return
+        transactionResources.remove()
+        resources.forEach { it.close() }
+    }
+
     /**
      * Wrapper for [SupportSQLiteDatabase.setTransactionSuccessful].
      *
@@ -629,6 +723,19 @@ abstract class RoomDatabase {
         return openHelper.writableDatabase.inTransaction()
     }
 
+    /**
+     * A snapshot of the counters of the compiled statement caches, see
+     * [getStatementCacheStatistics].
+     *
+     * @property hitCount the number of queries that reused a cached statement.
+     * @property missCount the number of queries that compiled their statement.
+     */
+    @ExperimentalRoomApi
+    class StatementCacheStatistics internal constructor(
+        val hitCount: Long,
+        val missCount: Long
+    )
+
     /**
      * Journal modes for SQLite database.
      *
@@ -707,6 +814,9 @@ abstract class RoomDatabase {
         private var allowDestructiveMigrationOnDowngrade = false
         private var autoCloseTimeout = -1L
         private var autoCloseTimeUnit: TimeUnit? = null
+        private var invalidationCoalescingWindow = 0L
+        private var invalidationCoalescingTimeUnit: TimeUnit? = null
+        private var readConnectionPoolSize = 0
 
         /**
          * Migrations, mapped by from-to pairs.
@@ -1233,6 +1343,67 @@ abstract class RoomDatabase {
             this.autoCloseTimeUnit = autoCloseTimeUnit
         }
 
+        /**
+         * Delays the invalidation checks that run after each transaction by the given window, so
+         * that the changes made by all the transactions ending within the window are checked at
+         * once.
+         *
+         * By default the [InvalidationTracker] checks the modified tables right after each
+         * transaction ends. Under bursts of small write transactions, this repeatedly queries and
+         * clears the tracking table and wakes up the observers for every transaction. With a
+         * coalescing window, each [InvalidationTracker.Observer] is notified at most once per
+         * window with all the tables modified during it, at the cost of being notified up to
+         * the window later.
+         *
+         * [InvalidationTracker.getStatistics] can be used to tune the window.
+         *
+         * @param window the delay of the invalidation checks. Must be greater or equal to zero,
+         * 0 checks right away.
+         * @param timeUnit the timeunit for window.
+         * @return This builder instance.
+         */
+        @ExperimentalRoomApi // When experimental is removed, add these parameters to
+        // DatabaseConfiguration
+        @Suppress("MissingGetterMatchingBuilder")
+        open fun setInvalidationCoalescingWindow(
+            @IntRange(from = 0) window: Long,
+            timeUnit: TimeUnit
+        ) = apply {
+            require(window >= 0) { "window must be >= 0" }
+            this.invalidationCoalescingWindow = window
+            this.invalidationCoalescingTimeUnit = timeUnit
+        }
+
+        /**
+         * Runs the queries made outside of transactions on a pool of read connections, alongside
+         * the connection running the writes and the transactions.
+         *
+         * With [JournalMode.WRITE_AHEAD_LOGGING], readers don't block the writer nor each other,
+         * so queries from up to `size` threads or coroutines run in parallel, even while a write
+         * transaction is open. Queries made within a transaction still run on the writer so that
+         * they see its changes.
+         *
+         * The pool is only used if the journal mode resolves to
+         * [JournalMode.WRITE_AHEAD_LOGGING], see [setJournalMode]. It is not compatible with
+         * in-memory databases, whose data is private to a connection, nor with
+         * [setAutoCloseTimeout].
+         *
+         * [Callback.onOpen] is also called when each read connection is opened, so that the
+         * callbacks configure it like the writer, for example with a `PRAGMA`. A callback that
+         * writes data when the database is opened runs these writes once per connection, and the
+         * writes made on a read connection are not seen by the [InvalidationTracker].
+         *
+         * @param size the number of read connections. Must be greater than zero.
+         * @return This builder instance.
+         */
+        @ExperimentalRoomApi // When experimental is removed, add these parameters to
+        // DatabaseConfiguration
+        @Suppress("MissingGetterMatchingBuilder")
+        open fun setReadConnectionPoolSize(@IntRange(from = 1) size: Int) = apply {
+            require(size > 0) { "size must be > 0" }
+            this.readConnectionPoolSize = size
+        }
+
         /**
          * Creates the databases and initializes it.
          *
@@ -1262,6 +1433,14 @@ abstract class RoomDatabase {
                 }
             }
 
+            if (readConnectionPoolSize > 0) {
+                requireNotNull(name) {
+                    "Cannot create a read connection pool for an in-memory database."
+                }
+                require(autoCloseTimeout <= 0) {
+                    "Cannot create a read connection pool for an auto-closing database."
+                }
+            }
             val factory: SupportSQLiteOpenHelper.Factory = if (factory == null) {
                 FrameworkSQLiteOpenHelperFactory()
             } else {
@@ -1346,6 +1525,38 @@ abstract class RoomDatabase {
             )
             val db = Room.getGeneratedImplementation<T, T>(klass, "_Impl")
             db.init(configuration)
+            if (readConnectionPoolSize > 0 &&
+                configuration.journalMode == JournalMode.WRITE_AHEAD_LOGGING
+            ) {
+                // the readers don't auto-close nor copy the database, the writer does
+                val baseFactory = this.factory ?: FrameworkSQLiteOpenHelperFactory()
+                val readerFactory = if (queryCallback != null) {
+                    QueryInterceptorOpenHelperFactory(
+                        baseFactory,
+                        requireNotNull(queryCallbackExecutor),
+                        requireNotNull(queryCallback)
+                    )
+                } else {
+                    baseFactory
+                }
+                val readerCallbacks = callbacks.toList()
+                db.readConnectionPool = ReadConnectionPool(readConnectionPoolSize) {
+                    // the writer creates or migrates the database before any reader opens it
+                    val version = db.openHelper.writableDatabase.version
+                    readerFactory.create(
+                        SupportSQLiteOpenHelper.Configuration.builder(context)
+                            .name(name)
+                            .callback(ReadConnectionPool.ReaderCallback(version, readerCallbacks))
+                            .build()
+                    ).also { it.setWriteAheadLoggingEnabled(true) }
+                }
+            }
+            if (invalidationCoalescingWindow > 0) {
+                db.invalidationTracker.setCoalescingWindow(
+                    requireNotNull(invalidationCoalescingTimeUnit)
+                        .toMillis(invalidationCoalescingWindow)
+                )
+            }
             return db
         }
     }
@@ -1487,6 +1698,9 @@ abstract class RoomDatabase {
         /**
          * Called when the database has been opened.
          *
+         * With a read connection pool, this is also called with each read connection when it is
+         * opened, see [Builder.setReadConnectionPoolSize].
+         *
          * @param db The database.
          */
         open fun onOpen(db: SupportSQLiteDatabase) {}
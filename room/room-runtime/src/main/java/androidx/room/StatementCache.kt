@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room
+
+import android.database.sqlite.SQLiteDoneException
+import androidx.annotation.GuardedBy
+import androidx.sqlite.db.SupportSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteStatement
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A least recently used cache of the compiled statements of a connection, keyed by their SQL.
+ *
+ * Like [SharedSQLiteStatement], a cached statement is used by a single caller at a time. A caller
+ * that finds the statement of its SQL in use compiles a one off statement instead, which counts as
+ * a miss.
+ *
+ * @param maxSize the maximum number of cached statements
+ * @param compileStatement compiles a statement on the connection of this cache
+ */
+internal class StatementCache(
+    private val maxSize: Int,
+    private val compileStatement: (String) -> SupportSQLiteStatement
+) {
+    private class Entry(val statement: SupportSQLiteStatement) {
+        var inUse = false
+        var evicted = false
+    }
+
+    private val lock = Any()
+
+    // access order, so that the first entry is the least recently used
+    @GuardedBy("lock")
+    private val entries = LinkedHashMap<String, Entry>(maxSize, 0.75f, true)
+
+    private val hits = AtomicLong()
+
+    private val misses = AtomicLong()
+
+    val hitCount: Long
+        get() = hits.get()
+
+    val missCount: Long
+        get() = misses.get()
+
+    /**
+     * Runs the given query, whose result is a single integral column, and returns the value of
+     * its first row, or 0 if there are no rows or the value is null.
+     */
+    fun simpleQueryForLong(query: SupportSQLiteQuery): Long {
+        val sql = query.sql
+        val entry = acquire(sql)
+        val statement = entry?.statement ?: compileStatement(sql)
+        try {
+            query.bindTo(statement)
+            return try {
+                statement.simpleQueryForLong()
+            } catch (ex: SQLiteDoneException) {
+                // no rows
+                0
+            }
+        } finally {
+            release(entry, statement)
+        }
+    }
+
+    private fun acquire(sql: String): Entry? {
+        synchronized(lock) {
+            val cached = entries[sql]
+            if (cached != null) {
+                if (cached.inUse) {
+                    misses.incrementAndGet()
+                    return null
+                }
+                hits.incrementAndGet()
+                cached.inUse = true
+                return cached
+            }
+        }
+        misses.incrementAndGet()
+        // compile outside of the lock, it goes to the database
+        val entry = Entry(compileStatement(sql)).apply { inUse = true }
+        synchronized(lock) {
+            if (entries.containsKey(sql)) {
+                // lost a race, this one is a one off
+                entry.evicted = true
+                return entry
+            }
+            entries[sql] = entry
+            trimToSize()
+        }
+        return entry
+    }
+
+    private fun release(entry: Entry?, statement: SupportSQLiteStatement) {
+        if (entry == null) {
+            statement.close()
+            return
+        }
+        statement.clearBindings()
+        val close = synchronized(lock) {
+            entry.inUse = false
+            entry.evicted
+        }
+        if (close) {
+            statement.close()
+        }
+    }
+
+    @GuardedBy("lock")
+    private fun trimToSize() {
+        val iterator = entries.values.iterator()
+        while (entries.size > maxSize && iterator.hasNext()) {
+            val eldest = iterator.next()
+            iterator.remove()
+            if (eldest.inUse) {
+                // closed by its user on release
+                eldest.evicted = true
+            } else {
+                eldest.statement.close()
+            }
+        }
+    }
+
+    /**
+     * Closes the cached statements. Statements in use are closed on release.
+     */
+    fun clear() {
+        synchronized(lock) {
+            entries.values.forEach { entry ->
+                if (entry.inUse) {
+                    entry.evicted = true
+                } else {
+                    entry.statement.close()
+                }
+            }
+            entries.clear()
+        }
+    }
+
+    companion object {
+        // the size of the statement cache of the connections of the framework
+        const val DEFAULT_MAX_SIZE = 25
+    }
+}
@@ -87,6 +87,21 @@ fun query(
     return cursor
 }
 
+/**
+ * Performs the SQLiteQuery, whose result is a single integral column, on a compiled statement
+ * cached by the given database, and returns the value of the first row, or 0 if there are no rows
+ * or the value is null.
+ *
+ * This is used instead of [query] by the code generated with the `room.cacheStatements` option.
+ *
+ * @param db          The database to perform the query on.
+ * @param sqLiteQuery The query to perform.
+ * @return The value of the first row.
+ */
+fun queryForLong(db: RoomDatabase, sqLiteQuery: SupportSQLiteQuery): Long {
+    return db.queryForLong(sqLiteQuery)
+}
+
 /**
  * Drops all FTS content sync triggers created by Room.
  *
@@ -29,6 +29,7 @@ import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
 import java.util.Locale
 import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
@@ -239,6 +240,65 @@ class InvalidationTrackerTest {
         assertThat(observer.await()).isEqualTo(false)
     }
 
+    @OptIn(ExperimentalRoomApi::class)
+    @Test
+    fun statistics() {
+        val observerA = LatchObserver(1, "a")
+        val observerB = LatchObserver(1, "B")
+        mTracker.addObserver(observerA)
+        mTracker.addObserver(observerB)
+        setInvalidatedTables(0, 1)
+        refreshSync()
+        assertThat(observerA.await()).isEqualTo(true)
+        assertThat(observerB.await()).isEqualTo(true)
+        var statistics = mTracker.getStatistics()
+        assertThat(statistics.refreshCount).isEqualTo(1)
+        assertThat(statistics.notifiedObserverCount).isEqualTo(2)
+        assertThat(statistics.invalidatedTableCount).isEqualTo(2)
+
+        // no observer of i, so nobody is notified
+        setInvalidatedTables(2)
+        refreshSync()
+        statistics = mTracker.getStatistics()
+        assertThat(statistics.refreshCount).isEqualTo(2)
+        assertThat(statistics.notifiedObserverCount).isEqualTo(2)
+        assertThat(statistics.invalidatedTableCount).isEqualTo(3)
+    }
+
+    @OptIn(ExperimentalRoomApi::class)
+    @Test
+    fun coalescingWindow() {
+        val scheduler: ScheduledExecutorService = mock()
+        mTracker.coalescingScheduler = scheduler
+        mTracker.setCoalescingWindow(100)
+        val notifications = AtomicInteger()
+        mTracker.addObserver(object : InvalidationTracker.Observer("a", "B") {
+            override fun onInvalidated(tables: Set<String>) {
+                notifications.incrementAndGet()
+            }
+        })
+
+        // a burst of writes within the window schedules a single refresh
+        setInvalidatedTables(0, 1)
+        repeat(3) { mTracker.refreshVersionsAsync() }
+        val refreshCaptor = argumentCaptor<Runnable>()
+        verify(scheduler).schedule(refreshCaptor.capture(), eq(100L), eq(TimeUnit.MILLISECONDS))
+        refreshCaptor.lastValue.run()
+        drainTasks()
+        assertThat(notifications.get()).isEqualTo(1)
+        assertThat(mTracker.getStatistics().refreshCount).isEqualTo(1)
+
+        // a write after the window schedules another one
+        setInvalidatedTables(0)
+        mTracker.refreshVersionsAsync()
+        verify(scheduler, times(2))
+            .schedule(refreshCaptor.capture(), eq(100L), eq(TimeUnit.MILLISECONDS))
+        refreshCaptor.lastValue.run()
+        drainTasks()
+        assertThat(notifications.get()).isEqualTo(2)
+        assertThat(mTracker.getStatistics().refreshCount).isEqualTo(2)
+    }
+
     @Test
     fun locale() {
         val observer = LatchObserver(1, "I")
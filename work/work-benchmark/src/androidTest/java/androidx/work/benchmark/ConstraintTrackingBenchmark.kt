@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.work.Constraints
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.impl.constraints.NetworkState
+import androidx.work.impl.constraints.WorkConstraintsCallback
+import androidx.work.impl.constraints.WorkConstraintsTrackerImpl
+import androidx.work.impl.constraints.trackers.ConstraintTracker
+import androidx.work.impl.constraints.trackers.Trackers
+import androidx.work.impl.model.WorkSpec
+import androidx.work.impl.utils.SerialExecutorImpl
+import androidx.work.impl.utils.taskexecutor.SerialExecutor
+import androidx.work.impl.utils.taskexecutor.TaskExecutor
+import java.util.concurrent.Executor
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures how long it takes to dispatch a network change to [COUNT] constrained [WorkSpec]s.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class ConstraintTrackingBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+    private lateinit var networkStateTracker: TestNetworkStateTracker
+    private lateinit var workConstraintsTracker: WorkConstraintsTrackerImpl
+    private var metCount = 0
+    private var notMetCount = 0
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        // Listeners are notified on the calling thread.
+        val executor = Executor { it.run() }
+        val serialExecutor = SerialExecutorImpl(executor)
+        val taskExecutor = object : TaskExecutor {
+            override fun getMainThreadExecutor(): Executor {
+                return executor
+            }
+
+            override fun getSerialTaskExecutor(): SerialExecutor {
+                return serialExecutor
+            }
+        }
+        networkStateTracker = TestNetworkStateTracker(context, taskExecutor)
+        val trackers = Trackers(
+            context = context,
+            taskExecutor = taskExecutor,
+            networkStateTracker = networkStateTracker
+        )
+        val callback = object : WorkConstraintsCallback {
+            override fun onAllConstraintsMet(workSpecs: List<WorkSpec>) {
+                metCount += workSpecs.size
+            }
+
+            override fun onAllConstraintsNotMet(workSpecs: List<WorkSpec>) {
+                notMetCount += workSpecs.size
+            }
+        }
+        workConstraintsTracker = WorkConstraintsTrackerImpl(trackers, callback)
+        val networkTypes = arrayOf(NetworkType.CONNECTED, NetworkType.UNMETERED)
+        workConstraintsTracker.replace(List(COUNT) { i ->
+            OneTimeWorkRequestBuilder<NoOpWorker>()
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiredNetworkType(networkTypes[i % networkTypes.size])
+                        .build()
+                )
+                .build()
+                .workSpec
+        })
+    }
+
+    @Test
+    fun networkFlap() {
+        var connected = false
+        benchmarkRule.measureRepeated {
+            connected = !connected
+            networkStateTracker.state = NetworkState(
+                isConnected = connected,
+                isValidated = connected,
+                isMetered = false,
+                isNotRoaming = true
+            )
+        }
+    }
+
+    @Test
+    fun networkChangeWithoutEffect() {
+        var metered = false
+        benchmarkRule.measureRepeated {
+            // Only the metered state changes, which doesn't matter to work that just needs to
+            // be connected and leaves unmetered work constrained.
+            metered = !metered
+            networkStateTracker.state = NetworkState(
+                isConnected = true,
+                isValidated = true,
+                isMetered = true,
+                isNotRoaming = metered
+            )
+        }
+    }
+
+    private class TestNetworkStateTracker(
+        context: Context,
+        taskExecutor: TaskExecutor
+    ) : ConstraintTracker<NetworkState>(context, taskExecutor) {
+        override val initialState = NetworkState(
+            isConnected = false,
+            isValidated = false,
+            isMetered = false,
+            isNotRoaming = true
+        )
+
+        override fun startTracking() {}
+
+        override fun stopTracking() {}
+    }
+
+    companion object {
+        private const val COUNT = 2000
+    }
+}
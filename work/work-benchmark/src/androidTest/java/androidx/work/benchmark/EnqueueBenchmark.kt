@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.work.Configuration
+import androidx.work.OneTimeWorkRequest
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.impl.WorkContinuationImpl
+import androidx.work.impl.WorkDatabase
+import androidx.work.impl.WorkDatabasePathHelper
+import androidx.work.impl.WorkManagerImpl
+import androidx.work.impl.utils.EnqueueRunnable
+import androidx.work.impl.utils.SerialExecutorImpl
+import androidx.work.impl.utils.taskexecutor.SerialExecutor
+import androidx.work.impl.utils.taskexecutor.TaskExecutor
+import java.util.concurrent.Executor
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures how long it takes to persist a fan-out of [COUNT] one time requests.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class EnqueueBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+    private lateinit var databasePath: String
+    private lateinit var context: Context
+    private lateinit var executor: DispatchingExecutor
+    private lateinit var database: WorkDatabase
+    private lateinit var workManager: WorkManagerImpl
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        databasePath = WorkDatabasePathHelper.getDatabasePath(context).path
+
+        executor = DispatchingExecutor()
+        val serialExecutor = SerialExecutorImpl(executor)
+
+        val taskExecutor = object : TaskExecutor {
+            override fun getMainThreadExecutor(): Executor {
+                return serialExecutor
+            }
+
+            override fun getSerialTaskExecutor(): SerialExecutor {
+                return serialExecutor
+            }
+        }
+
+        val configuration = Configuration.Builder()
+            .setTaskExecutor(executor)
+            .setExecutor(executor)
+            .setMinimumLoggingLevel(Log.DEBUG)
+            .build()
+        database = WorkDatabase.create(context, configuration.taskExecutor, false)
+        workManager = WorkManagerImpl(context, configuration, taskExecutor, database)
+        // Let ForceStopRunnable finish before measuring anything.
+        executor.runAllCommands()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+        context.deleteDatabase(databasePath)
+    }
+
+    @Test
+    fun enqueueBatch() {
+        benchmarkRule.measureRepeated {
+            val continuation = runWithTimingDisabled {
+                WorkContinuationImpl(workManager, createRequests())
+            }
+            // Everything is inserted in a single transaction.
+            EnqueueRunnable(continuation).addToDatabase()
+            runWithTimingDisabled {
+                database.clearAllTables()
+            }
+        }
+    }
+
+    @Test
+    fun enqueueIndividually() {
+        benchmarkRule.measureRepeated {
+            val continuations = runWithTimingDisabled {
+                createRequests().map { WorkContinuationImpl(workManager, listOf(it)) }
+            }
+            continuations.forEach { EnqueueRunnable(it).addToDatabase() }
+            runWithTimingDisabled {
+                database.clearAllTables()
+            }
+        }
+    }
+
+    private fun createRequests(): List<OneTimeWorkRequest> {
+        return List(COUNT) { i ->
+            OneTimeWorkRequestBuilder<NoOpWorker>()
+                .addTag("fan-out")
+                .addTag("request-${i % 10}")
+                .build()
+        }
+    }
+
+    companion object {
+        private const val COUNT = 2000
+    }
+}
@@ -91,8 +91,8 @@ class WorkConstraintsTrackerTest {
         capturingCallback.consumeCurrent()
         tracker1.state = true
         val (unconstrained, _) = capturingCallback.consumeCurrent()
-        // only one constraint is resolved, so unconstrained is empty list
-        assertThat(unconstrained).isEqualTo(emptyList<String>())
+        // only one constraint is resolved, so nothing is reported as unconstrained
+        assertThat(unconstrained).isNull()
     }
 
     @Test
@@ -107,6 +107,33 @@ class WorkConstraintsTrackerTest {
         val (_, constrained) = capturingCallback.consumeCurrent()
         assertThat(constrained).isEqualTo(TEST_WORKSPEC_IDS)
     }
+
+    @Test
+    fun testOnConstraintChanged_onlyReportsChangedWorkSpecs() {
+        val tracker1 = TestConstraintTracker(true)
+        val tracker2 = TestConstraintTracker(true)
+        val controller1 = TestConstraintController(tracker1, TEST_WORKSPEC_IDS)
+        val controller2 = TestConstraintController(tracker2, TEST_WORKSPEC_IDS.subList(0, 1))
+        val workConstraintsTracker = WorkConstraintsTrackerImpl(
+            capturingCallback,
+            arrayOf(controller1, controller2)
+        )
+        workConstraintsTracker.replace(TEST_WORKSPECS)
+        val (unconstrained1, _) = capturingCallback.consumeCurrent()
+        assertThat(unconstrained1).isEqualTo(TEST_WORKSPEC_IDS)
+        tracker2.state = false
+        val (_, constrained1) = capturingCallback.consumeCurrent()
+        assertThat(constrained1).containsExactly(TEST_WORKSPEC_IDS[0])
+        tracker1.state = false
+        val (_, constrained2) = capturingCallback.consumeCurrent()
+        assertThat(constrained2).containsExactly(TEST_WORKSPEC_IDS[1], TEST_WORKSPEC_IDS[2])
+        tracker1.state = true
+        val (unconstrained2, _) = capturingCallback.consumeCurrent()
+        assertThat(unconstrained2).containsExactly(TEST_WORKSPEC_IDS[1], TEST_WORKSPEC_IDS[2])
+        tracker2.state = true
+        val (unconstrained3, _) = capturingCallback.consumeCurrent()
+        assertThat(unconstrained3).containsExactly(TEST_WORKSPEC_IDS[0])
+    }
 }
 
 private val TEST_WORKSPECS = listOf(
@@ -27,12 +27,15 @@ import androidx.room.TypeConverter;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -63,6 +66,22 @@ public final class Data {
     @SuppressLint("MinMaxConstant")
     public static final int MAX_DATA_BYTES = 10 * 1024;    // 10KB
 
+    // Payloads written with an ObjectOutputStream always start with 0xACED, so a compact payload
+    // can't be mistaken for one of them.
+    private static final int COMPACT_MAGIC = 0xABEF;
+    private static final int COMPACT_VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_BYTE = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_FLOAT = 5;
+    private static final int TYPE_DOUBLE = 6;
+    private static final int TYPE_STRING = 7;
+    // Combined with the type of the elements
+    private static final int TYPE_ARRAY = 0x10;
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
             Map<String, Object> mValues;
 
@@ -363,6 +382,11 @@ public final class Data {
 
     /**
      * Converts {@link Data} to a byte array for persistent storage.
+     * <p>
+     * The payload uses a compact versioned format: a header, a table of the strings used as keys
+     * and values, and a type tag followed by the value for each key.  Integral values are written
+     * as varints.  Payloads written by older versions with an
+     * {@link java.io.ObjectOutputStream} can still be read by {@link #fromByteArray(byte[])}.
      *
      * @param data The {@link Data} object to convert
      * @return The byte array representation of the input
@@ -375,32 +399,13 @@ public final class Data {
     @NonNull
     public static byte[] toByteArrayInternal(@NonNull Data data) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ObjectOutputStream objectOutputStream = null;
         try {
-            objectOutputStream = new ObjectOutputStream(outputStream);
-            objectOutputStream.writeInt(data.size());
-            for (Map.Entry<String, Object> entry : data.mValues.entrySet()) {
-                objectOutputStream.writeUTF(entry.getKey());
-                objectOutputStream.writeObject(entry.getValue());
-            }
+            DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+            writeCompact(data.mValues, dataOutputStream);
+            dataOutputStream.flush();
         } catch (IOException e) {
             Log.e(TAG, "Error in Data#toByteArray: ", e);
             return outputStream.toByteArray();
-        } finally {
-            if (objectOutputStream != null) {
-                try {
-                    // NOTE: this writes something to the output stream for bookkeeping purposes.
-                    // Don't get the byteArray before we do this!
-                    objectOutputStream.close();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error in Data#toByteArray: ", e);
-                }
-            }
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error in Data#toByteArray: ", e);
-            }
         }
 
         if (outputStream.size() > MAX_DATA_BYTES) {
@@ -427,6 +432,16 @@ public final class Data {
         }
 
         Map<String, Object> map = new HashMap<>();
+        if (isCompact(bytes)) {
+            try {
+                readCompact(new DataInputStream(new ByteArrayInputStream(bytes)), map);
+            } catch (IOException e) {
+                Log.e(TAG, "Error in Data#fromByteArray: ", e);
+            }
+            return new Data(map);
+        }
+
+        // Rows persisted by older versions of WorkManager
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         ObjectInputStream objectInputStream = null;
         try {
@@ -453,6 +468,283 @@ public final class Data {
         return new Data(map);
     }
 
+    private static boolean isCompact(@NonNull byte[] bytes) {
+        return bytes.length >= 3
+                && bytes[0] == (byte) (COMPACT_MAGIC >> 8)
+                && bytes[1] == (byte) COMPACT_MAGIC;
+    }
+
+    private static void writeCompact(
+            @NonNull Map<String, Object> values,
+            @NonNull DataOutputStream out) throws IOException {
+        // Strings are written once and then referred to by their index in the table.
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            addString(entry.getKey(), indices, strings);
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                addString((String) value, indices, strings);
+            } else if (value instanceof String[]) {
+                for (String string : (String[]) value) {
+                    if (string != null) {
+                        addString(string, indices, strings);
+                    }
+                }
+            }
+        }
+
+        out.writeShort(COMPACT_MAGIC);
+        out.writeByte(COMPACT_VERSION);
+        writeVarLong(out, strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+        writeVarLong(out, values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeVarLong(out, indices.get(entry.getKey()));
+            writeValue(out, entry.getValue(), indices);
+        }
+    }
+
+    private static void addString(
+            @NonNull String string,
+            @NonNull Map<String, Integer> indices,
+            @NonNull List<String> strings) {
+        // Every char takes at least a byte, this also keeps strings in range of writeUTF.
+        if (string.length() > MAX_DATA_BYTES) {
+            throw new IllegalStateException(
+                    "Data cannot occupy more than " + MAX_DATA_BYTES + " bytes when serialized");
+        }
+        if (!indices.containsKey(string)) {
+            indices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static void writeValue(
+            @NonNull DataOutputStream out,
+            @Nullable Object value,
+            @NonNull Map<String, Integer> indices) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            int type = typeOf(array.getClass().getComponentType());
+            out.writeByte(TYPE_ARRAY | type);
+            writeVarLong(out, array.length);
+            // Arrays of boxed values can hold nulls, which are marked in a bitmap if present.
+            byte[] nulls = null;
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] == null) {
+                    if (nulls == null) {
+                        nulls = new byte[(array.length + 7) / 8];
+                    }
+                    nulls[i >> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+            out.writeBoolean(nulls != null);
+            if (nulls != null) {
+                out.write(nulls);
+            }
+            for (Object element : array) {
+                if (element != null) {
+                    writeElement(out, type, element, indices);
+                }
+            }
+        } else {
+            int type = typeOf(value.getClass());
+            out.writeByte(type);
+            writeElement(out, type, value, indices);
+        }
+    }
+
+    private static int typeOf(@NonNull Class<?> valueType) throws IOException {
+        if (valueType == Boolean.class) {
+            return TYPE_BOOLEAN;
+        } else if (valueType == Byte.class) {
+            return TYPE_BYTE;
+        } else if (valueType == Integer.class) {
+            return TYPE_INT;
+        } else if (valueType == Long.class) {
+            return TYPE_LONG;
+        } else if (valueType == Float.class) {
+            return TYPE_FLOAT;
+        } else if (valueType == Double.class) {
+            return TYPE_DOUBLE;
+        } else if (valueType == String.class) {
+            return TYPE_STRING;
+        }
+        throw new IOException("Unsupported type " + valueType);
+    }
+
+    private static void writeElement(
+            @NonNull DataOutputStream out,
+            int type,
+            @NonNull Object value,
+            @NonNull Map<String, Integer> indices) throws IOException {
+        switch (type) {
+            case TYPE_BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case TYPE_BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case TYPE_INT:
+                int intValue = (Integer) value;
+                writeVarLong(out, ((intValue << 1) ^ (intValue >> 31)) & 0xFFFFFFFFL);
+                break;
+            case TYPE_LONG:
+                long longValue = (Long) value;
+                writeVarLong(out, (longValue << 1) ^ (longValue >> 63));
+                break;
+            case TYPE_FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case TYPE_DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case TYPE_STRING:
+                writeVarLong(out, indices.get((String) value));
+                break;
+            default:
+                throw new IOException("Unsupported type " + type);
+        }
+    }
+
+    private static void readCompact(
+            @NonNull DataInputStream in,
+            @NonNull Map<String, Object> map) throws IOException {
+        in.readUnsignedShort();
+        int version = in.readUnsignedByte();
+        if (version != COMPACT_VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        String[] strings = new String[readCount(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        for (int i = readCount(in); i > 0; i--) {
+            String key = readString(in, strings);
+            map.put(key, readValue(in, strings));
+        }
+    }
+
+    @Nullable
+    private static Object readValue(
+            @NonNull DataInputStream in,
+            @NonNull String[] strings) throws IOException {
+        int type = in.readUnsignedByte();
+        if (type == TYPE_NULL) {
+            return null;
+        } else if ((type & TYPE_ARRAY) == 0) {
+            return readElement(in, type, strings);
+        }
+        int elementType = type & ~TYPE_ARRAY;
+        Object[] array = newArray(elementType, readCount(in));
+        byte[] nulls = null;
+        if (in.readBoolean()) {
+            nulls = new byte[(array.length + 7) / 8];
+            in.readFully(nulls);
+        }
+        for (int i = 0; i < array.length; i++) {
+            if (nulls == null || (nulls[i >> 3] & (1 << (i & 7))) == 0) {
+                array[i] = readElement(in, elementType, strings);
+            }
+        }
+        return array;
+    }
+
+    @NonNull
+    private static Object[] newArray(int type, int size) throws IOException {
+        switch (type) {
+            case TYPE_BOOLEAN:
+                return new Boolean[size];
+            case TYPE_BYTE:
+                return new Byte[size];
+            case TYPE_INT:
+                return new Integer[size];
+            case TYPE_LONG:
+                return new Long[size];
+            case TYPE_FLOAT:
+                return new Float[size];
+            case TYPE_DOUBLE:
+                return new Double[size];
+            case TYPE_STRING:
+                return new String[size];
+            default:
+                throw new IOException("Unsupported type " + type);
+        }
+    }
+
+    @NonNull
+    private static Object readElement(
+            @NonNull DataInputStream in,
+            int type,
+            @NonNull String[] strings) throws IOException {
+        switch (type) {
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_BYTE:
+                return in.readByte();
+            case TYPE_INT:
+                int intValue = (int) readVarLong(in);
+                return (intValue >>> 1) ^ -(intValue & 1);
+            case TYPE_LONG:
+                long longValue = readVarLong(in);
+                return (longValue >>> 1) ^ -(longValue & 1);
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_STRING:
+                return readString(in, strings);
+            default:
+                throw new IOException("Unsupported type " + type);
+        }
+    }
+
+    @NonNull
+    private static String readString(
+            @NonNull DataInputStream in,
+            @NonNull String[] strings) throws IOException {
+        long index = readVarLong(in);
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Invalid string index " + index);
+        }
+        return strings[(int) index];
+    }
+
+    private static int readCount(@NonNull DataInputStream in) throws IOException {
+        long count = readVarLong(in);
+        // Even with null bitmaps, no element takes less than a bit.
+        if (count < 0 || count > MAX_DATA_BYTES * 8L) {
+            throw new IOException("Invalid count " + count);
+        }
+        return (int) count;
+    }
+
+    private static void writeVarLong(@NonNull DataOutputStream out, long value)
+            throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(@NonNull DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -42,8 +42,10 @@ import androidx.work.impl.model.WorkGenerationalId;
 import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.utils.ProcessUtils;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -62,6 +64,8 @@ public class GreedyScheduler implements Scheduler, WorkConstraintsCallback, Exec
     private final WorkManagerImpl mWorkManagerImpl;
     private final WorkConstraintsTracker mWorkConstraintsTracker;
     private final Set<WorkSpec> mConstrainedWorkSpecs = new HashSet<>();
+    // Indexes mConstrainedWorkSpecs, so that executed work stops being tracked without a scan.
+    private final Map<WorkGenerationalId, WorkSpec> mConstrainedWorkSpecsById = new HashMap<>();
     private DelayedWorkTracker mDelayedWorkTracker;
     private boolean mRegisteredExecutionListener;
     private final Object mLock;
@@ -166,7 +170,14 @@ public class GreedyScheduler implements Scheduler, WorkConstraintsCallback, Exec
             if (!constrainedWorkSpecs.isEmpty()) {
                 String formattedIds = TextUtils.join(",", constrainedWorkSpecIds);
                 Logger.get().debug(TAG, "Starting tracking for " + formattedIds);
-                mConstrainedWorkSpecs.addAll(constrainedWorkSpecs);
+                for (WorkSpec workSpec : constrainedWorkSpecs) {
+                    WorkSpec previous =
+                            mConstrainedWorkSpecsById.put(generationalId(workSpec), workSpec);
+                    if (previous != null) {
+                        mConstrainedWorkSpecs.remove(previous);
+                    }
+                    mConstrainedWorkSpecs.add(workSpec);
+                }
                 mWorkConstraintsTracker.replace(mConstrainedWorkSpecs);
             }
         }
@@ -236,13 +247,11 @@ public class GreedyScheduler implements Scheduler, WorkConstraintsCallback, Exec
             // This is synchronized because onExecuted is on the main thread but
             // Schedulers#schedule() can modify the list of mConstrainedWorkSpecs on the task
             // executor thread.
-            for (WorkSpec constrainedWorkSpec : mConstrainedWorkSpecs) {
-                if (generationalId(constrainedWorkSpec).equals(id)) {
-                    Logger.get().debug(TAG, "Stopping tracking for " + id);
-                    mConstrainedWorkSpecs.remove(constrainedWorkSpec);
-                    mWorkConstraintsTracker.replace(mConstrainedWorkSpecs);
-                    break;
-                }
+            WorkSpec constrainedWorkSpec = mConstrainedWorkSpecsById.remove(id);
+            if (constrainedWorkSpec != null) {
+                Logger.get().debug(TAG, "Stopping tracking for " + id);
+                mConstrainedWorkSpecs.remove(constrainedWorkSpec);
+                mWorkConstraintsTracker.replace(mConstrainedWorkSpecs);
             }
         }
     }
@@ -45,6 +45,10 @@ interface WorkConstraintsTracker {
 /**
  * Tracks [WorkSpec]s and their [androidx.work.Constraints], and notifies an optional
  * [WorkConstraintsCallback] when all of their constraints are met or not met.
+ *
+ * Each [ConstraintController] only tracks the [WorkSpec]s which have its constraint, so a change
+ * of a constraint only looks at those. After the initial report made by [replace], the callback
+ * is only told about the [WorkSpec]s whose state changed.
  */
 class WorkConstraintsTrackerImpl @VisibleForTesting internal constructor(
     private val callback: WorkConstraintsCallback?,
@@ -56,6 +60,15 @@ class WorkConstraintsTrackerImpl @VisibleForTesting internal constructor(
     // ConcurrentModificationExceptions.
     private val lock: Any = Any()
 
+    // The ids of the WorkSpecs last reported as having all their constraints met, and as not
+    // having them met, so that a constraint change only reports the WorkSpecs it actually changed.
+    private val metWorkSpecIds = mutableSetOf<String>()
+    private val notMetWorkSpecIds = mutableSetOf<String>()
+
+    // Non null while replace() collects the initial state reported by each of the controllers.
+    private var pendingMetWorkSpecs: MutableMap<String, WorkSpec>? = null
+    private var pendingNotMetWorkSpecs: MutableMap<String, WorkSpec>? = null
+
     /**
      * @param trackers Constraints trackers
      * @param callback     The callback is only necessary when you need
@@ -91,8 +104,30 @@ class WorkConstraintsTrackerImpl @VisibleForTesting internal constructor(
             for (controller in constraintControllers) {
                 controller.replace(workSpecs)
             }
-            for (controller in constraintControllers) {
-                controller.callback = this
+            metWorkSpecIds.clear()
+            notMetWorkSpecIds.clear()
+            // Every controller reports its WorkSpecs when its callback is set, collect them so
+            // that each WorkSpec is only reported once.
+            val met = mutableMapOf<String, WorkSpec>()
+            val notMet = mutableMapOf<String, WorkSpec>()
+            pendingMetWorkSpecs = met
+            pendingNotMetWorkSpecs = notMet
+            try {
+                for (controller in constraintControllers) {
+                    controller.callback = this
+                }
+            } finally {
+                pendingMetWorkSpecs = null
+                pendingNotMetWorkSpecs = null
+            }
+            val unconstrainedWorkSpecs = met.values.filter { it.id !in notMet }
+            unconstrainedWorkSpecs.mapTo(metWorkSpecIds) { it.id }
+            notMetWorkSpecIds.addAll(notMet.keys)
+            if (unconstrainedWorkSpecs.isNotEmpty()) {
+                callback?.onAllConstraintsMet(unconstrainedWorkSpecs)
+            }
+            if (notMet.isNotEmpty()) {
+                callback?.onAllConstraintsNotMet(notMet.values.toList())
             }
         }
     }
@@ -105,6 +140,8 @@ class WorkConstraintsTrackerImpl @VisibleForTesting internal constructor(
             for (controller in constraintControllers) {
                 controller.reset()
             }
+            metWorkSpecIds.clear()
+            notMetWorkSpecIds.clear()
         }
     }
 
@@ -131,16 +168,39 @@ class WorkConstraintsTrackerImpl @VisibleForTesting internal constructor(
 
     override fun onConstraintMet(workSpecs: List<WorkSpec>) {
         synchronized(lock) {
-            val unconstrainedWorkSpecIds = workSpecs.filter { areAllConstraintsMet(it.id) }
-            unconstrainedWorkSpecIds.forEach {
-                Logger.get().debug(TAG, "Constraints met for $it")
+            val pending = pendingMetWorkSpecs
+            if (pending != null) {
+                workSpecs.forEach { if (areAllConstraintsMet(it.id)) pending[it.id] = it }
+                return
+            }
+            // WorkSpecs that were already reported don't need to be checked again.
+            val unconstrainedWorkSpecs = workSpecs.filter {
+                it.id !in metWorkSpecIds && areAllConstraintsMet(it.id)
+            }
+            if (unconstrainedWorkSpecs.isNotEmpty()) {
+                unconstrainedWorkSpecs.forEach {
+                    Logger.get().debug(TAG, "Constraints met for $it")
+                    metWorkSpecIds.add(it.id)
+                    notMetWorkSpecIds.remove(it.id)
+                }
+                callback?.onAllConstraintsMet(unconstrainedWorkSpecs)
             }
-            callback?.onAllConstraintsMet(unconstrainedWorkSpecIds)
         }
     }
 
     override fun onConstraintNotMet(workSpecs: List<WorkSpec>) {
-        synchronized(lock) { callback?.onAllConstraintsNotMet(workSpecs) }
+        synchronized(lock) {
+            val pending = pendingNotMetWorkSpecs
+            if (pending != null) {
+                workSpecs.forEach { pending[it.id] = it }
+                return
+            }
+            val constrainedWorkSpecs = workSpecs.filter { notMetWorkSpecIds.add(it.id) }
+            if (constrainedWorkSpecs.isNotEmpty()) {
+                constrainedWorkSpecs.forEach { metWorkSpecIds.remove(it.id) }
+                callback?.onAllConstraintsNotMet(constrainedWorkSpecs)
+            }
+        }
     }
 }
 
@@ -47,7 +47,7 @@ abstract class ConstraintController<T> internal constructor(
     }
 
     private val matchingWorkSpecs = mutableListOf<WorkSpec>()
-    private val matchingWorkSpecIds = mutableListOf<String>()
+    private val matchingWorkSpecIds = mutableSetOf<String>()
     private var currentValue: T? = null
 
     /**
@@ -90,6 +90,7 @@ abstract class ConstraintController<T> internal constructor(
     fun reset() {
         if (matchingWorkSpecs.isNotEmpty()) {
             matchingWorkSpecs.clear()
+            matchingWorkSpecIds.clear()
             tracker.removeListener(this)
         }
     }
@@ -42,6 +42,15 @@ interface WorkSpecDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     fun insertWorkSpec(workSpec: WorkSpec)
 
+    /**
+     * Attempts to insert [WorkSpec]s into the database, reusing the same statement for all of
+     * them.
+     *
+     * @param workSpecs The WorkSpecs to insert.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    fun insertWorkSpecs(workSpecs: List<WorkSpec>)
+
     /**
      * Deletes [WorkSpec]s from the database.
      *
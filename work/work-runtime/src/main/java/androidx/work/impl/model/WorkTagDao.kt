@@ -33,6 +33,14 @@ interface WorkTagDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     fun insert(workTag: WorkTag)
 
+    /**
+     * Inserts [WorkTag]s into the table.
+     *
+     * @param workTags The [WorkTag]s to insert
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    fun insert(workTags: List<WorkTag>)
+
     /**
      * Deletes [WorkSpec]s from the database.
      *
@@ -49,6 +49,7 @@ import androidx.work.impl.model.DependencyDao;
 import androidx.work.impl.model.WorkName;
 import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.model.WorkSpecDao;
+import androidx.work.impl.model.WorkTag;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -289,6 +290,12 @@ public class EnqueueRunnable implements Runnable {
             }
         }
 
+        // Collect the rows first so that each table is written with a single batched insert,
+        // instead of one insert per row.
+        List<WorkSpec> workSpecs = new ArrayList<>(workList.size());
+        List<Dependency> dependencies = new ArrayList<>();
+        List<WorkTag> workTags = new ArrayList<>();
+        List<WorkName> workNames = new ArrayList<>();
         for (WorkRequest work : workList) {
             WorkSpec workSpec = work.getWorkSpec();
 
@@ -312,7 +319,7 @@ public class EnqueueRunnable implements Runnable {
                 needsScheduling = true;
             }
 
-            workDatabase.workSpecDao().insertWorkSpec(
+            workSpecs.add(
                     wrapInConstraintTrackingWorkerIfNeeded(
                             workManagerImpl.getSchedulers(),
                             workSpec
@@ -321,16 +328,29 @@ public class EnqueueRunnable implements Runnable {
 
             if (hasPrerequisite) {
                 for (String prerequisiteId : prerequisiteIds) {
-                    Dependency dep = new Dependency(work.getStringId(), prerequisiteId);
-                    workDatabase.dependencyDao().insertDependency(dep);
+                    dependencies.add(new Dependency(work.getStringId(), prerequisiteId));
                 }
             }
 
-            workDatabase.workTagDao().insertTags(work.getStringId(), work.getTags());
+            for (String tag : work.getTags()) {
+                workTags.add(new WorkTag(tag, work.getStringId()));
+            }
             if (isNamed) {
-                workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
+                workNames.add(new WorkName(name, work.getStringId()));
             }
         }
+
+        // WorkSpecs go first, the other tables have foreign keys to them.
+        workDatabase.workSpecDao().insertWorkSpecs(workSpecs);
+        if (!dependencies.isEmpty()) {
+            workDatabase.dependencyDao().insertDependencies(dependencies);
+        }
+        if (!workTags.isEmpty()) {
+            workDatabase.workTagDao().insert(workTags);
+        }
+        if (!workNames.isEmpty()) {
+            workDatabase.workNameDao().insert(workNames);
+        }
         return needsScheduling;
     }
 }
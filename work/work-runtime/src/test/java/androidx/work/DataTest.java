@@ -27,6 +27,9 @@ import androidx.annotation.NonNull;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -89,6 +92,49 @@ public class DataTest {
         assertThat(restoredData.getIntArray(KEY2), is(equalTo(expectedValue2)));
     }
 
+    @Test
+    public void testSerializeAllTypes() {
+        Data data = new Data.Builder()
+                .putBoolean("boolean", true)
+                .putByte("byte", (byte) -3)
+                .putInt("int", Integer.MIN_VALUE)
+                .putLong("long", Long.MAX_VALUE)
+                .putFloat("float", 1.5f)
+                .putDouble("double", -2.5)
+                .putString("string", "value")
+                .putBooleanArray("boolean array", new boolean[]{true, false})
+                .putByteArray("byte array", new byte[]{1, -1})
+                .putIntArray("int array", new int[]{-1, 0, Integer.MAX_VALUE})
+                .putLongArray("long array", new long[]{Long.MIN_VALUE, 1L})
+                .putFloatArray("float array", new float[]{0.5f})
+                .putDoubleArray("double array", new double[]{Double.NaN})
+                .putStringArray("string array", new String[]{"value", null, "other"})
+                .put("boxed array", new Integer[]{1, null, 3})
+                .put("null", null)
+                .build();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testDeserializeLegacyFormat() throws IOException {
+        Data data = createData();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeInt(data.size());
+        for (Map.Entry<String, Object> entry : data.mValues.entrySet()) {
+            objectOutputStream.writeUTF(entry.getKey());
+            objectOutputStream.writeObject(entry.getValue());
+        }
+        objectOutputStream.close();
+        byte[] legacy = outputStream.toByteArray();
+
+        assertThat(Data.fromByteArray(legacy), is(data));
+        assertThat(data.toByteArray().length < legacy.length, is(true));
+    }
+
     @Test
     public void testSerializePastMaxSize() {
         int[] payload = new int[Data.MAX_DATA_BYTES + 1];